@@ -0,0 +1,168 @@
+package com.elibrary.backend.common.collections;
+
+import java.util.Arrays;
+
+/**
+ * Set of primitive longs kept in one open addressing array, without boxing each value
+ * Zero marks an empty slot, so a zero value is tracked with a flag instead
+ * Not thread safe, callers synchronize
+ */
+public class LongHashSet {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] slots;
+
+    private boolean containsZero;
+
+    private int size;
+
+    private int resizeAt;
+
+    public LongHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongHashSet(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Adds a value
+     *
+     * @param value the value to add
+     * @return true if the value was not in the set yet
+     */
+    public boolean add(long value) {
+        if (value == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+
+        int index = indexOf(value);
+        if (slots[index] == value) {
+            return false;
+        }
+
+        slots[index] = value;
+        size++;
+        if (size > resizeAt) {
+            rehash(slots.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a value is in the set
+     *
+     * @param value the value to look for
+     * @return true if the set holds the value
+     */
+    public boolean contains(long value) {
+        if (value == 0) {
+            return containsZero;
+        }
+        return slots[indexOf(value)] == value;
+    }
+
+    /**
+     * Removes a value, moving back later values of its probe run so lookups never cross a gap
+     *
+     * @param value the value to remove
+     * @return true if the value was in the set
+     */
+    public boolean remove(long value) {
+        if (value == 0) {
+            if (!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+
+        int mask = slots.length - 1;
+        int gap = indexOf(value);
+        if (slots[gap] != value) {
+            return false;
+        }
+
+        // Shift each following value of the run into the gap if the gap lies between its home slot and its slot
+        int index = gap;
+        while (true) {
+            index = (index + 1) & mask;
+            long next = slots[index];
+            if (next == 0) {
+                break;
+            }
+
+            int home = mix(next) & mask;
+            if (((index - home) & mask) >= ((index - gap) & mask)) {
+                slots[gap] = next;
+                gap = index;
+            }
+        }
+        slots[gap] = 0;
+        size--;
+        return true;
+    }
+
+    /**
+     * Counts the values in the set
+     *
+     * @return the number of values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the slot holding a non zero value, or the empty slot where it would go
+     */
+    private int indexOf(long value) {
+        int mask = slots.length - 1;
+        int index = mix(value) & mask;
+        while (slots[index] != 0 && slots[index] != value) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void rehash(int capacity) {
+        long[] old = slots;
+        allocate(capacity);
+        for (long value : old) {
+            if (value != 0) {
+                slots[indexOf(value)] = value;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        slots = new long[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * Spreads sequential ids across the table
+     */
+    private static int mix(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "LongHashSet" + Arrays.toString(Arrays.stream(slots).filter(value -> value != 0).toArray());
+    }
+}
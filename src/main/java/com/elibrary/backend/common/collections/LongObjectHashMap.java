@@ -0,0 +1,186 @@
+package com.elibrary.backend.common.collections;
+
+/**
+ * Map from primitive long keys to objects, kept in two open addressing arrays without boxing each key
+ * Zero marks an empty slot, so the value of a zero key is held in its own field
+ * Null values are not supported, not thread safe, callers synchronize
+ *
+ * @param <V> the type of the values
+ */
+public class LongObjectHashMap<V> {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+
+    private Object[] values;
+
+    private V zeroValue;
+
+    private int size;
+
+    private int resizeAt;
+
+    public LongObjectHashMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Gets the value of a key
+     *
+     * @param key the key to look up
+     * @return the value, or null if the key is not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0) {
+            return zeroValue;
+        }
+        int index = indexOf(key);
+        return keys[index] == key ? (V) values[index] : null;
+    }
+
+    /**
+     * Sets the value of a key
+     *
+     * @param key   the key
+     * @param value the value, not null
+     * @return the previous value, or null if the key was not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (key == 0) {
+            V previous = zeroValue;
+            zeroValue = value;
+            if (previous == null) {
+                size++;
+            }
+            return previous;
+        }
+
+        int index = indexOf(key);
+        if (keys[index] == key) {
+            V previous = (V) values[index];
+            values[index] = value;
+            return previous;
+        }
+
+        keys[index] = key;
+        values[index] = value;
+        size++;
+        if (size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Removes a key, moving back later entries of its probe run so lookups never cross a gap
+     *
+     * @param key the key to remove
+     * @return the removed value, or null if the key was not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == 0) {
+            V previous = zeroValue;
+            if (previous != null) {
+                zeroValue = null;
+                size--;
+            }
+            return previous;
+        }
+
+        int mask = keys.length - 1;
+        int gap = indexOf(key);
+        if (keys[gap] != key) {
+            return null;
+        }
+        V previous = (V) values[gap];
+
+        // Shift each following entry of the run into the gap if the gap lies between its home slot and its slot
+        int index = gap;
+        while (true) {
+            index = (index + 1) & mask;
+            long next = keys[index];
+            if (next == 0) {
+                break;
+            }
+
+            int home = mix(next) & mask;
+            if (((index - home) & mask) >= ((index - gap) & mask)) {
+                keys[gap] = next;
+                values[gap] = values[index];
+                gap = index;
+            }
+        }
+        keys[gap] = 0;
+        values[gap] = null;
+        size--;
+        return previous;
+    }
+
+    /**
+     * Counts the keys in the map
+     *
+     * @return the number of keys
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every key, shrinking back to the initial capacity
+     */
+    public void clear() {
+        allocate(MIN_CAPACITY);
+        zeroValue = null;
+        size = 0;
+    }
+
+    /**
+     * Finds the slot holding a non zero key, or the empty slot where it would go
+     */
+    private int indexOf(long key) {
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (keys[index] != 0 && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * Spreads packed and sequential keys across the table
+     */
+    private static int mix(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "LongObjectHashMap[size=" + size + ", capacity=" + keys.length + "]";
+    }
+}
@@ -3,9 +3,15 @@ package com.elibrary.backend.common.exceptions;
 
 import com.elibrary.backend.modules.auth.exception.InvalidCredentialsException;
 import com.elibrary.backend.modules.auth.exception.UserAlreadyExistsException;
+import com.elibrary.backend.modules.book.exception.ImportAlreadyRunningException;
+import com.elibrary.backend.modules.book.exception.InvalidCoverImageException;
+import com.elibrary.backend.modules.book.exception.UnsupportedImportFormatException;
 import com.elibrary.backend.modules.checkout.exception.BookAlreadyReturnedException;
+import com.elibrary.backend.modules.checkout.exception.IdempotencyKeyConflictException;
 import com.elibrary.backend.modules.checkout.exception.LoanOverdueException;
 import com.elibrary.backend.modules.checkout.exception.MaximumRenewalsReachedException;
+import com.elibrary.backend.modules.checkout.exception.TooManyBooksRequestedException;
+import com.elibrary.backend.modules.hold.exception.HoldNotAllowedException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -168,6 +174,24 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
                 .build();
     }
 
+    /**
+     * Handles TooManyBooksRequestedException with a 400 BAD REQUEST status
+     *
+     * @param ex the TooManyBooksRequestedException thrown
+     * @return an ErrorObject with error details
+     */
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(TooManyBooksRequestedException.class)
+    public ErrorObject handleTooManyBooksRequestedException(TooManyBooksRequestedException ex) {
+        log.warn("Too many books requested: {}", ex.getMessage());
+        return ErrorObject.builder()
+                .errorCode("TOO_MANY_BOOKS")
+                .statusCode(HttpStatus.BAD_REQUEST.value())
+                .message(ex.getMessage())
+                .timestamp(new Date())
+                .build();
+    }
+
     /**
      * Handles MaximumRenewalsReachedException with a 400 BAD REQUEST status
      *
@@ -204,9 +228,112 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
                 .build();
     }
 
+    /**
+     * Handles InvalidCoverImageException with a 400 BAD REQUEST status
+     *
+     * @param ex the InvalidCoverImageException thrown
+     * @return an ErrorObject with error details
+     */
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidCoverImageException.class)
+    public ErrorObject handleInvalidCoverImageException(InvalidCoverImageException ex) {
+        log.warn("Invalid cover image: {}", ex.getMessage());
+        return ErrorObject.builder()
+                .errorCode("INVALID_COVER_IMAGE")
+                .statusCode(HttpStatus.BAD_REQUEST.value())
+                .message(ex.getMessage())
+                .timestamp(new Date())
+                .build();
+    }
 
+    /**
+     * Handles UnsupportedImportFormatException with a 400 BAD REQUEST status
+     *
+     * @param ex the UnsupportedImportFormatException thrown
+     * @return an ErrorObject with error details
+     */
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(UnsupportedImportFormatException.class)
+    public ErrorObject handleUnsupportedImportFormatException(UnsupportedImportFormatException ex) {
+        log.warn("Unsupported import format: {}", ex.getMessage());
+        return ErrorObject.builder()
+                .errorCode("UNSUPPORTED_IMPORT_FORMAT")
+                .statusCode(HttpStatus.BAD_REQUEST.value())
+                .message(ex.getMessage())
+                .timestamp(new Date())
+                .build();
+    }
 
+    /**
+     * Handles ImportAlreadyRunningException with a 409 CONFLICT status
+     *
+     * @param ex the ImportAlreadyRunningException thrown
+     * @return an ErrorObject with error details
+     */
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(ImportAlreadyRunningException.class)
+    public ErrorObject handleImportAlreadyRunningException(ImportAlreadyRunningException ex) {
+        log.warn("Import rejected: {}", ex.getMessage());
+        return ErrorObject.builder()
+                .errorCode("IMPORT_IN_PROGRESS")
+                .statusCode(HttpStatus.CONFLICT.value())
+                .message(ex.getMessage())
+                .timestamp(new Date())
+                .build();
+    }
 
-}
+    /**
+     * Handles InvalidCursorException with a 400 BAD REQUEST status
+     *
+     * @param ex the InvalidCursorException thrown
+     * @return an ErrorObject with error details
+     */
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidCursorException.class)
+    public ErrorObject handleInvalidCursorException(InvalidCursorException ex) {
+        log.warn("Invalid cursor: {}", ex.getMessage());
+        return ErrorObject.builder()
+                .errorCode("INVALID_CURSOR")
+                .statusCode(HttpStatus.BAD_REQUEST.value())
+                .message(ex.getMessage())
+                .timestamp(new Date())
+                .build();
+    }
+
+    /**
+     * Handles HoldNotAllowedException with a 409 CONFLICT status
+     *
+     * @param ex the HoldNotAllowedException thrown
+     * @return an ErrorObject with error details
+     */
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(HoldNotAllowedException.class)
+    public ErrorObject handleHoldNotAllowedException(HoldNotAllowedException ex) {
+        log.warn("Hold rejected: {}", ex.getMessage());
+        return ErrorObject.builder()
+                .errorCode("HOLD_NOT_ALLOWED")
+                .statusCode(HttpStatus.CONFLICT.value())
+                .message(ex.getMessage())
+                .timestamp(new Date())
+                .build();
+    }
 
+    /**
+     * Handles IdempotencyKeyConflictException with a 409 CONFLICT status
+     *
+     * @param ex the IdempotencyKeyConflictException thrown
+     * @return an ErrorObject with error details
+     */
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(IdempotencyKeyConflictException.class)
+    public ErrorObject handleIdempotencyKeyConflictException(IdempotencyKeyConflictException ex) {
+        log.warn("Idempotency key rejected: {}", ex.getMessage());
+        return ErrorObject.builder()
+                .errorCode("IDEMPOTENCY_KEY_CONFLICT")
+                .statusCode(HttpStatus.CONFLICT.value())
+                .message(ex.getMessage())
+                .timestamp(new Date())
+                .build();
+    }
 
+}
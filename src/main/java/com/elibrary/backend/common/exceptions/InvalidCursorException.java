@@ -0,0 +1,16 @@
+package com.elibrary.backend.common.exceptions;
+
+/**
+ * Exception thrown when a pagination cursor is malformed or does not match the requested sort
+ */
+public class InvalidCursorException extends RuntimeException {
+
+    /**
+     * Constructor for InvalidCursorException
+     *
+     * @param message the error message describing the exception
+     */
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -7,10 +7,11 @@ public class ResourceNotFoundExceptions extends RuntimeException{
 
     /**
      * Constructor for ResourceNotFoundExceptions
+     * The stack trace is not filled in, since a missing resource is an expected outcome and not a bug
      *
      * @param message the error message describing the exception
      */
     public ResourceNotFoundExceptions(String message){
-        super(message);
+        super(message, null, false, false);
     }
 }
@@ -0,0 +1,229 @@
+package com.elibrary.backend.common.pagination;
+
+import com.elibrary.backend.common.exceptions.InvalidCursorException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Encodes keyset positions into opaque cursor tokens and back
+ * A token holds the sort it was created for and the sort key values of the last row, each tagged with its type
+ */
+public final class CursorCodec {
+
+    public static final int DEFAULT_SIZE = 20;
+
+    public static final int MAX_SIZE = 100;
+
+    private static final byte VERSION = 1;
+
+    private static final byte NULL = 'N';
+
+    private static final byte LONG = 'L';
+
+    private static final byte INTEGER = 'I';
+
+    private static final byte DOUBLE = 'D';
+
+    private static final byte STRING = 'S';
+
+    private static final byte DATE = 'd';
+
+    private static final byte TIMESTAMP = 't';
+
+    private CursorCodec() {
+    }
+
+    /**
+     * Resolves the sort for a cursor request, always ending with the id so every row has a unique position
+     *
+     * @param requested   the sort asked for by the client, may be unsorted
+     * @param defaultSort the sort used when the client did not ask for one
+     * @param sortable    the properties that are backed by an index and may be sorted on
+     * @return the sort to read with
+     */
+    public static Sort resolveSort(Sort requested, Sort defaultSort, Set<String> sortable) {
+        Sort sort = requested == null || requested.isUnsorted() ? defaultSort : requested;
+
+        for (Sort.Order order : sort) {
+            if (!sortable.contains(order.getProperty())) {
+                throw new InvalidCursorException("Sorting by " + order.getProperty() + " is not supported");
+            }
+        }
+
+        // Break ties on the id, in the direction of the last sort key
+        if (sort.getOrderFor("id") == null) {
+            Sort.Direction direction = sort.stream().reduce((first, second) -> second)
+                    .map(Sort.Order::getDirection)
+                    .orElse(Sort.Direction.ASC);
+            sort = sort.and(Sort.by(direction, "id"));
+        }
+        return sort;
+    }
+
+    /**
+     * Clamps the requested page size to the allowed range
+     *
+     * @param size the page size asked for by the client
+     * @return the limit to read with
+     */
+    public static Limit limit(int size) {
+        return Limit.of(size <= 0 ? DEFAULT_SIZE : Math.min(size, MAX_SIZE));
+    }
+
+    /**
+     * Decodes a cursor token into a keyset position
+     *
+     * @param cursor the token from a previous page, or empty for the first page
+     * @param sort   the sort of the current request
+     * @return the position to continue reading from
+     */
+    public static KeysetScrollPosition decode(String cursor, Sort sort) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)))) {
+            if (in.readByte() != VERSION) {
+                throw new InvalidCursorException("Unsupported cursor version");
+            }
+
+            // A cursor is only valid for the sort it was created with
+            if (!in.readUTF().equals(sort.toString())) {
+                throw new InvalidCursorException("Cursor does not match the requested sort");
+            }
+
+            int count = in.readUnsignedByte();
+            Map<String, Object> keys = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                keys.put(in.readUTF(), readValue(in));
+            }
+
+            // Every sort property needs a value, and nothing else may be smuggled into the query
+            if (!keys.keySet().equals(sort.stream().map(Sort.Order::getProperty).collect(Collectors.toSet()))) {
+                throw new InvalidCursorException("Cursor is malformed");
+            }
+            return ScrollPosition.forward(keys);
+        } catch (IOException | IllegalArgumentException ex) {
+            throw new InvalidCursorException("Cursor is malformed");
+        }
+    }
+
+    /**
+     * Reads one sort key value from a decoded position
+     *
+     * @param position       the decoded position
+     * @param property       the sort property to read
+     * @param type           the expected type of the value
+     * @param firstPageValue the value to use when the position is the start of the list
+     * @return the sort key value
+     */
+    public static <T> T keyValue(KeysetScrollPosition position, String property, Class<T> type, T firstPageValue) {
+        if (position.isInitial()) {
+            return firstPageValue;
+        }
+
+        Object value = position.getKeys().get(property);
+        if (!type.isInstance(value)) {
+            throw new InvalidCursorException("Cursor is malformed");
+        }
+        return type.cast(value);
+    }
+
+    /**
+     * Encodes a keyset position into a cursor token
+     *
+     * @param position the position of the last row on the current page
+     * @param sort     the sort the page was read with
+     * @return the cursor token for the next page
+     */
+    public static String encode(ScrollPosition position, Sort sort) {
+        if (!(position instanceof KeysetScrollPosition keyset)) {
+            throw new IllegalArgumentException("Only keyset positions can be encoded");
+        }
+        return encode(keyset.getKeys(), sort);
+    }
+
+    /**
+     * Encodes the sort key values of the last row on a page into a cursor token
+     *
+     * @param keys the sort property names and their values, in sort order
+     * @param sort the sort the page was read with
+     * @return the cursor token for the next page
+     */
+    public static String encode(Map<String, ?> keys, Sort sort) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeUTF(sort.toString());
+            out.writeByte(keys.size());
+            for (Map.Entry<String, ?> key : keys.entrySet()) {
+                out.writeUTF(key.getKey());
+                writeValue(out, key.getValue());
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Long longValue) {
+            out.writeByte(LONG);
+            out.writeLong(longValue);
+        } else if (value instanceof Integer intValue) {
+            out.writeByte(INTEGER);
+            out.writeInt(intValue);
+        } else if (value instanceof Double doubleValue) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(doubleValue);
+        } else if (value instanceof String stringValue) {
+            out.writeByte(STRING);
+            out.writeUTF(stringValue);
+        } else if (value instanceof LocalDate date) {
+            out.writeByte(DATE);
+            out.writeLong(date.toEpochDay());
+        } else if (value instanceof Timestamp timestamp) {
+            out.writeByte(TIMESTAMP);
+            out.writeLong(timestamp.getTime());
+            out.writeInt(timestamp.getNanos());
+        } else {
+            throw new IllegalArgumentException("Unsupported cursor value type " + value.getClass().getName());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        return switch (type) {
+            case NULL -> null;
+            case LONG -> in.readLong();
+            case INTEGER -> in.readInt();
+            case DOUBLE -> in.readDouble();
+            case STRING -> in.readUTF();
+            case DATE -> LocalDate.ofEpochDay(in.readLong());
+            case TIMESTAMP -> {
+                Timestamp timestamp = new Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                yield timestamp;
+            }
+            default -> throw new InvalidCursorException("Cursor is malformed");
+        };
+    }
+}
@@ -0,0 +1,30 @@
+package com.elibrary.backend.common.pagination;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Represents one page of a keyset paginated list
+ * The next cursor is passed back to fetch the following page, and is null on the last page
+ */
+public record CursorPage<T>(List<T> content, int size, boolean hasNext, String nextCursor) {
+
+    /**
+     * Builds a cursor page from a Spring Data window, mapping each entity to its response type
+     *
+     * @param window the window returned by the repository
+     * @param sort   the sort the window was read with
+     * @param mapper converts each entity to its response type
+     * @return the cursor page
+     */
+    public static <E, T> CursorPage<T> of(Window<E> window, Sort sort, Function<E, T> mapper) {
+        List<T> content = window.getContent().stream().map(mapper).toList();
+        String nextCursor = window.hasNext() && !window.isEmpty()
+                ? CursorCodec.encode(window.positionAt(window.size() - 1), sort)
+                : null;
+        return new CursorPage<>(content, content.size(), nextCursor != null, nextCursor);
+    }
+}
@@ -0,0 +1,157 @@
+package com.elibrary.backend.modules.book.cache;
+
+import com.elibrary.backend.modules.book.dto.BookCacheStatsDTO;
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.book.search.CatalogIndex;
+import com.elibrary.backend.modules.checkout.event.InventoryFlushedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Read-through cache of full book details, bounded by the approximate memory the cached books take
+ * Entries are dropped when a book is updated, deleted or has its available copies changed, and again once the
+ * change commits or, with the memory inventory engine, once the copy change reaches the database, so a read
+ * racing the change cannot keep the old row
+ * Callers get their own copy of a cached book, never the cached instance
+ */
+@Component
+public class BookDetailCache implements CatalogIndex {
+
+    // Rough fixed cost of a cached book: the entity, its boxed fields and the cache entry
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+
+    private final BookRepository bookRepository;
+
+    private final Cache<Long, Book> cache;
+
+    private final long maximumBytes;
+
+    public BookDetailCache(BookRepository bookRepository,
+                           @Value("${elibrary.books.cache.max-bytes:67108864}") long maximumBytes,
+                           @Value("${elibrary.books.cache.expire-after-write-ms:600000}") long expireAfterWriteMillis) {
+        this.bookRepository = bookRepository;
+        this.maximumBytes = maximumBytes;
+
+        // Expiry is only a safety net for changes made outside the application
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumBytes)
+                .weigher((Long id, Book book) -> weigh(book))
+                .expireAfterWrite(Duration.ofMillis(expireAfterWriteMillis))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Fetches a book from the cache, loading it from the database on a miss
+     *
+     * @param bookId the id of the book
+     * @return the book, or empty if it does not exist
+     */
+    public Optional<Book> get(Long bookId) {
+        Book cached = cache.get(bookId, id -> bookRepository.findById(id).map(BookDetailCache::copy).orElse(null));
+        return Optional.ofNullable(cached).map(BookDetailCache::copy);
+    }
+
+    /**
+     * Fetches the cache counters and its current size
+     *
+     * @return hits, misses, evictions and sizes in bytes
+     */
+    public BookCacheStatsDTO getStats() {
+        CacheStats stats = cache.stats();
+        long weightedBytes = cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+
+        return new BookCacheStatsDTO(
+                stats.hitCount(),
+                stats.missCount(),
+                stats.hitRate(),
+                stats.evictionCount(),
+                stats.evictionWeight(),
+                cache.estimatedSize(),
+                weightedBytes,
+                maximumBytes);
+    }
+
+    @Override
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void index(Book book) {
+        invalidate(book.getId());
+    }
+
+    @Override
+    public void remove(Long bookId) {
+        invalidate(bookId);
+    }
+
+    @Override
+    public void copiesChanged(Long bookId, int copiesAvailable) {
+        invalidate(bookId);
+    }
+
+    /**
+     * Drops books whose copy changes the memory inventory engine just wrote to the database
+     *
+     * @param event the books written
+     */
+    @EventListener
+    public void onInventoryFlushed(InventoryFlushedEvent event) {
+        cache.invalidateAll(event.bookIds());
+    }
+
+    /**
+     * Drops a book now and again once the current transaction commits, a read in between reloads the old row
+     */
+    private void invalidate(Long bookId) {
+        cache.invalidate(bookId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(bookId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Copies a book so the cached instance is never shared with, or changed by, a caller
+     */
+    private static Book copy(Book book) {
+        Book copy = new Book();
+        BeanUtils.copyProperties(book, copy);
+        return copy;
+    }
+
+    /**
+     * Estimates the bytes a book takes in memory, dominated by the description and any legacy inline cover
+     */
+    private static int weigh(Book book) {
+        long chars = length(book.getTitle()) + length(book.getAuthor()) + length(book.getCategory())
+                + length(book.getDescription()) + length(book.getCoverHash()) + length(book.getCoverContentType());
+
+        // Strings hold two bytes per char at worst, inline covers are mostly base64 text
+        long bytes = ENTRY_OVERHEAD_BYTES + chars * 2 + length(book.getImg());
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    private static long length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
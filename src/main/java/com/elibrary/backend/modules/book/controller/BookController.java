@@ -1,16 +1,40 @@
 package com.elibrary.backend.modules.book.controller;
 
+import com.elibrary.backend.common.pagination.CursorPage;
+import com.elibrary.backend.modules.book.dto.BookCacheStatsDTO;
 import com.elibrary.backend.modules.book.dto.BookCountDTO;
+import com.elibrary.backend.modules.book.dto.BookFilterRequest;
+import com.elibrary.backend.modules.book.dto.BookImportReportDTO;
 import com.elibrary.backend.modules.book.dto.BookRequestDTO;
+import com.elibrary.backend.modules.book.dto.BookSummaryDTO;
+import com.elibrary.backend.modules.book.dto.CategoryFacetDTO;
+import com.elibrary.backend.modules.book.dto.SuggestionDTO;
+import com.elibrary.backend.modules.book.dto.ThumbnailQueueStatsDTO;
 import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.enums.BookImportFormat;
+import com.elibrary.backend.modules.book.enums.CoverSize;
+import com.elibrary.backend.modules.book.service.BookExportService;
+import com.elibrary.backend.modules.book.service.BookImportService;
 import com.elibrary.backend.modules.book.service.BookService;
+import com.elibrary.backend.modules.book.storage.CoverResponseWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.List;
 
 /**
  * Controller to manage book requests
@@ -22,19 +46,41 @@ public class BookController {
 
     private final BookService bookService;
 
+    private final BookImportService bookImportService;
+
+    private final BookExportService bookExportService;
+
+    private final CoverResponseWriter coverResponseWriter;
+
     /**
-     * Fetches a list of books with pagination
+     * Fetches a list of book summaries with pagination
      *
      * @param pageable pagination information
-     * @return paginated list of books
+     * @return paginated list of book summaries
      */
     @GetMapping
-    public ResponseEntity<Page<Book>> getBooks(Pageable pageable) {
-        Page<Book> books = bookService.getBooks(pageable);
+    public ResponseEntity<Page<BookSummaryDTO>> getBooks(Pageable pageable) {
+        Page<BookSummaryDTO> books = bookService.getBooks(pageable);
 
         return ResponseEntity.ok(books);
     }
 
+    /**
+     * Fetches book summaries with keyset pagination, used when the cursor parameter is given
+     * Pass an empty cursor for the first page, then the next cursor of each page
+     *
+     * @param cursor the cursor from the previous page
+     * @param size   the maximum number of books to return
+     * @param sort   the sort order, by id or by title
+     * @return one page of book summaries and the cursor for the next page
+     */
+    @GetMapping(params = "cursor")
+    public ResponseEntity<CursorPage<BookSummaryDTO>> scrollBooks(@RequestParam String cursor,
+                                                                 @RequestParam(defaultValue = "20") int size,
+                                                                 Sort sort) {
+        return ResponseEntity.ok(bookService.scrollBooks(cursor, size, sort));
+    }
+
     /**
      * Fetches a single book by its id
      *
@@ -47,30 +93,127 @@ public class BookController {
         return ResponseEntity.ok(book);
     }
 
+    /**
+     * Streams the cover image of a book
+     *
+     * @param id       the id of the book
+     * @param size     the cover size to serve, the original by default
+     * @param version  the cover hash the client expects, makes the response cacheable indefinitely
+     * @param request  the HTTP request
+     * @param response the HTTP response the image is written to
+     */
+    @GetMapping("/{id}/cover")
+    public void getBookCover(@PathVariable Long id,
+                             @RequestParam(defaultValue = "ORIGINAL") CoverSize size,
+                             @RequestParam(name = "v", required = false) String version,
+                             HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        coverResponseWriter.write(bookService.getCover(id, size), version, request, response);
+    }
+
+    /**
+     * Replaces the cover image of a book with the raw image in the request body
+     *
+     * @param id      the id of the book
+     * @param request the HTTP request carrying the image bytes
+     * @return the updated book
+     */
+    @PutMapping(value = "/{id}/cover", consumes = {MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_JPEG_VALUE,
+            MediaType.IMAGE_GIF_VALUE, "image/webp", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Book> updateBookCover(@PathVariable Long id, HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(bookService.updateCover(id, request.getInputStream()));
+    }
+
     /**
      * Fetches a list of books where the title contains the given text
+     * Falls back to typo tolerant title and author matching when nothing contains the text
      *
      * @param title The text to search for in book titles
      * @param pageable Pagination info like page number and size
-     * @return A paginated list of books matching the search text
+     * @return A paginated list of book summaries matching the search text
      */
     @GetMapping("/search")
-    public ResponseEntity<Page<Book>> getBooksByTitle(@RequestParam String title, Pageable pageable) {
-        Page<Book> books = bookService.getBooksByTitle(title, pageable);
+    public ResponseEntity<Page<BookSummaryDTO>> getBooksByTitle(@RequestParam String title, Pageable pageable) {
+        Page<BookSummaryDTO> books = bookService.getBooksByTitle(title, pageable);
+        return ResponseEntity.ok(books);
+    }
+
+
+    /**
+     * Searches the catalog by free text, ranked by relevance
+     * Matches title, author, category and description, and is used when the q parameter is given
+     *
+     * @param q        the free text query
+     * @param pageable Pagination info like page number and size
+     * @return A paginated list of book summaries, best match first
+     */
+    @GetMapping(value = "/search", params = "q")
+    public ResponseEntity<Page<BookSummaryDTO>> searchBooks(@RequestParam String q, Pageable pageable) {
+        Page<BookSummaryDTO> books = bookService.searchBooks(q, pageable);
         return ResponseEntity.ok(books);
     }
 
+    /**
+     * Finds books by a possibly misspelled title or author
+     *
+     * @param q        the title or author to look for
+     * @param pageable Pagination info like page number and size
+     * @return A paginated list of book summaries, closest match first
+     */
+    @GetMapping("/search/fuzzy")
+    public ResponseEntity<Page<BookSummaryDTO>> searchBooksFuzzy(@RequestParam String q, Pageable pageable) {
+        Page<BookSummaryDTO> books = bookService.searchBooksFuzzy(q, pageable);
+        return ResponseEntity.ok(books);
+    }
+
+    /**
+     * Suggests titles and authors for search-as-you-type, served from memory
+     *
+     * @param prefix the text typed so far
+     * @param limit  the maximum number of suggestions, at most 10
+     * @return the matching suggestions, most checked out first
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionDTO>> suggest(@RequestParam String prefix,
+                                                       @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(bookService.suggest(prefix, limit));
+    }
+
+    /**
+     * Fetches books matching a combination of filters
+     * Takes any of category (repeatable), author, available, minRating and addedAfter (yyyy-MM-dd)
+     *
+     * @param filter   the filter criteria, every criterion given must match
+     * @param pageable Pagination info like page number and size
+     * @return A paginated list of matching book summaries, in id order
+     */
+    @GetMapping("/filter")
+    public ResponseEntity<Page<BookSummaryDTO>> filterBooks(BookFilterRequest filter, Pageable pageable) {
+        Page<BookSummaryDTO> books = bookService.filterBooks(filter, pageable);
+        return ResponseEntity.ok(books);
+    }
+
+    /**
+     * Fetches the number of titles in each category and how many have a copy available
+     *
+     * @return the category facets, sorted by category
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<List<CategoryFacetDTO>> getCategoryFacets() {
+        return ResponseEntity.ok(bookService.getCategoryFacets());
+    }
 
     /**
      * Fetches a list of books by category with pagination
      *
      * @param category The category to filter books by
      * @param pageable Pagination info like page number and size
-     * @return A paginated list of books matching the given category
+     * @return A paginated list of book summaries matching the given category
      */
     @GetMapping("/search/category")
-    public ResponseEntity<Page<Book>> getBooksByCategory(@RequestParam String category, Pageable pageable) {
-        Page<Book> books = bookService.getBooksByCategory(category, pageable);
+    public ResponseEntity<Page<BookSummaryDTO>> getBooksByCategory(@RequestParam String category, Pageable pageable) {
+        Page<BookSummaryDTO> books = bookService.getBooksByCategory(category, pageable);
         return ResponseEntity.ok(books);
     }
 
@@ -85,6 +228,28 @@ public class BookController {
     }
 
 
+    /**
+     * Fetches the state of the cover thumbnail queue
+     *
+     * @return queue depth, busy workers and job counters
+     */
+    @GetMapping("admin/thumbnail-stats")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<ThumbnailQueueStatsDTO> getThumbnailQueueStats() {
+        return ResponseEntity.ok(bookService.getThumbnailQueueStats());
+    }
+
+    /**
+     * Fetches the hit, miss and eviction counters of the book detail cache, used to size it
+     *
+     * @return the cache statistics
+     */
+    @GetMapping("admin/book-cache-stats")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<BookCacheStatsDTO> getBookCacheStats() {
+        return ResponseEntity.ok(bookService.getBookCacheStats());
+    }
+
     /**
      * Creates a new book
      *
@@ -98,6 +263,67 @@ public class BookController {
         return ResponseEntity.ok(savedBook);
     }
 
+    /**
+     * Streams the whole catalog as NDJSON or CSV, in the same format the bulk import reads
+     *
+     * @param format        the export format, NDJSON or CSV
+     * @param includeCovers whether to include each cover as a base64 data URI
+     * @return the export, written while the books are read
+     */
+    @GetMapping("admin/export")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportBooks(@RequestParam(defaultValue = "NDJSON") BookImportFormat format,
+                                                             @RequestParam(defaultValue = "false") boolean includeCovers) {
+        StreamingResponseBody body = out -> bookExportService.exportBooks(format, includeCovers, out);
+
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("catalog." + format.name().toLowerCase())
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
+    /**
+     * Imports books in bulk from a CSV or NDJSON request body, read as it arrives
+     * CSV needs a header row with the book request field names, NDJSON holds one book request per line
+     *
+     * @param request the request carrying the import file
+     * @return the outcome of the import and the rejected rows
+     */
+    @PostMapping(value = "admin/import", consumes = {"text/csv", "application/x-ndjson"})
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<BookImportReportDTO> importBooks(HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(bookImportService.importBooks(request.getInputStream(), request.getContentType()));
+    }
+
+    /**
+     * Fetches the progress of the running book import, or the outcome of the last one
+     *
+     * @return the import report
+     */
+    @GetMapping("admin/import")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<BookImportReportDTO> getImportProgress() {
+        return ResponseEntity.ok(bookImportService.getImportProgress());
+    }
+
+    /**
+     * Creates a new book with an uploaded cover image
+     *
+     * @param request book request DTO containing the book details
+     * @param cover   the cover image file
+     * @return newly created book with all details
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Book> createBookWithCover(@Valid @RequestPart("book") BookRequestDTO request,
+                                                    @RequestPart(value = "cover", required = false) MultipartFile cover) {
+        Book savedBook = bookService.createBook(request, cover);
+        return ResponseEntity.ok(savedBook);
+    }
+
     /**
      * Updates an existing book
      *
@@ -105,7 +331,7 @@ public class BookController {
      * @param request book request DTO containing the updated book details
      * @return the updated book with all details
      */
-    @PutMapping("/{id}")
+    @PutMapping("/{bookId}")
     @PreAuthorize("hasAuthority('ADMIN')")
     public ResponseEntity<Book> updateBook(@PathVariable Long bookId,
                                            @Valid @RequestBody BookRequestDTO request) {
@@ -113,6 +339,23 @@ public class BookController {
         return ResponseEntity.ok(updatedBook);
     }
 
+    /**
+     * Updates an existing book and replaces its cover with the uploaded image
+     *
+     * @param bookId  the id of the book to update
+     * @param request book request DTO containing the updated book details
+     * @param cover   the new cover image file, keeps the current cover when absent
+     * @return the updated book with all details
+     */
+    @PutMapping(value = "/{bookId}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Book> updateBookWithCover(@PathVariable Long bookId,
+                                                    @Valid @RequestPart("book") BookRequestDTO request,
+                                                    @RequestPart(value = "cover", required = false) MultipartFile cover) {
+        Book updatedBook = bookService.updateBook(bookId, request, cover);
+        return ResponseEntity.ok(updatedBook);
+    }
+
     /**
      * Deletes an existing book
      *
@@ -0,0 +1,7 @@
+package com.elibrary.backend.modules.book.dto;
+
+/**
+ * Represents the hit, miss and eviction counters and the current size of the book detail cache
+ */
+public record BookCacheStatsDTO(long hits, long misses, double hitRate, long evictions, long evictedBytes,
+                                long entries, long weightedBytes, long maximumBytes) { }
@@ -0,0 +1,6 @@
+package com.elibrary.backend.modules.book.dto;
+
+/**
+ * Represents the cover columns of a book, read without loading the rest of the row
+ */
+public record BookCoverRef(Long id, String coverHash, String coverContentType) { }
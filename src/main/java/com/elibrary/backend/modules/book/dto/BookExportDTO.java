@@ -0,0 +1,41 @@
+package com.elibrary.backend.modules.book.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.sql.Timestamp;
+
+/**
+ * Represents one book in a catalog export, with the same field names a bulk import reads
+ * The cover is only filled in when covers are exported, as a base64 data URI or a legacy cover URL
+ */
+@JsonPropertyOrder({"id", "title", "author", "description", "copies", "copiesAvailable", "category", "createdAt", "img"})
+public record BookExportDTO(Long id,
+                            String title,
+                            String author,
+                            String description,
+                            int copies,
+                            int copiesAvailable,
+                            String category,
+                            Timestamp createdAt,
+                            @JsonIgnore String coverHash,
+                            @JsonIgnore String coverContentType,
+                            @JsonInclude(JsonInclude.Include.NON_NULL) String img) {
+
+    /**
+     * Creates an export row without its cover, as read by the export query
+     */
+    public BookExportDTO(Long id, String title, String author, String description, int copies, int copiesAvailable,
+                         String category, Timestamp createdAt, String coverHash, String coverContentType) {
+        this(id, title, author, description, copies, copiesAvailable, category, createdAt, coverHash, coverContentType, null);
+    }
+
+    /**
+     * Copies the row with the given cover
+     */
+    public BookExportDTO withImg(String img) {
+        return new BookExportDTO(id, title, author, description, copies, copiesAvailable, category, createdAt,
+                coverHash, coverContentType, img);
+    }
+}
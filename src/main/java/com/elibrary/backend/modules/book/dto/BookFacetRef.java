@@ -0,0 +1,6 @@
+package com.elibrary.backend.modules.book.dto;
+
+/**
+ * Represents the fields of a book that category facets are counted from
+ */
+public record BookFacetRef(Long id, String category, int copiesAvailable) { }
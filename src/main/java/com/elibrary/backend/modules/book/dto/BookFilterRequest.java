@@ -0,0 +1,30 @@
+package com.elibrary.backend.modules.book.dto;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Represents the criteria for filtering the catalog, every criterion that is set must match
+ */
+@Data
+public class BookFilterRequest {
+
+    // Books in any of these categories
+    private List<String> category;
+
+    // Books by this author, ignoring case
+    private String author;
+
+    // Only books with at least one copy available
+    private boolean available;
+
+    // Books whose average review rating is at least this value
+    private Double minRating;
+
+    // Books added to the catalog on or after this date
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate addedAfter;
+}
@@ -0,0 +1,7 @@
+package com.elibrary.backend.modules.book.dto;
+
+/**
+ * Represents a rejected row of a bulk import
+ * Rows are the line number for NDJSON and the record number after the header for CSV
+ */
+public record BookImportErrorDTO(long row, String message) { }
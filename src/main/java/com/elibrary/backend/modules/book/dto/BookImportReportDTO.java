@@ -0,0 +1,22 @@
+package com.elibrary.backend.modules.book.dto;
+
+import com.elibrary.backend.modules.book.enums.BookImportFormat;
+import com.elibrary.backend.modules.book.enums.BookImportStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Represents the progress or final outcome of a bulk catalog import
+ * Only the first rejected rows are listed, errorsTruncated tells if more were left out
+ */
+public record BookImportReportDTO(BookImportStatus status,
+                                  BookImportFormat format,
+                                  long rowsRead,
+                                  long rowsImported,
+                                  long rowsRejected,
+                                  List<BookImportErrorDTO> errors,
+                                  boolean errorsTruncated,
+                                  String failure,
+                                  LocalDateTime startedAt,
+                                  LocalDateTime finishedAt) { }
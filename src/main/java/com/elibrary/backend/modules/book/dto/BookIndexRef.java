@@ -0,0 +1,15 @@
+package com.elibrary.backend.modules.book.dto;
+
+import java.sql.Timestamp;
+
+/**
+ * Represents the fields of a book the catalog indexes are built from, without the cover or legacy inline image
+ */
+public record BookIndexRef(Long id,
+                           String title,
+                           String author,
+                           String category,
+                           String description,
+                           int copies,
+                           int copiesAvailable,
+                           Timestamp createdAt) { }
@@ -36,6 +36,8 @@ public class BookRequestDTO {
     @NotBlank(message = "Category is required")
     private String category;
 
-    @NotBlank(message = "Image URL is required")
+    /**
+     * Optional base64 cover image, covers can also be uploaded as a file
+     */
     private String img;
 }
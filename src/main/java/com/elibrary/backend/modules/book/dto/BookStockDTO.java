@@ -0,0 +1,6 @@
+package com.elibrary.backend.modules.book.dto;
+
+/**
+ * Represents the total and available copies of a book
+ */
+public record BookStockDTO(Long id, int copies, int copiesAvailable) { }
@@ -0,0 +1,26 @@
+package com.elibrary.backend.modules.book.dto;
+
+import com.elibrary.backend.modules.book.storage.BookCovers;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Represents the slim view of a book used by catalog listings
+ * Leaves out the description and cover image so list pages never load them
+ */
+public record BookSummaryDTO(Long id,
+                             String title,
+                             String author,
+                             String category,
+                             int copies,
+                             int copiesAvailable,
+                             @JsonIgnore String coverHash) {
+
+    /**
+     * Gets the URL the cover image is served from
+     */
+    @JsonProperty("coverUrl")
+    public String coverUrl() {
+        return BookCovers.coverUrl(id, coverHash);
+    }
+}
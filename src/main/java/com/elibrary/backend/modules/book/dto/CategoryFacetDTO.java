@@ -0,0 +1,6 @@
+package com.elibrary.backend.modules.book.dto;
+
+/**
+ * Represents the number of titles in a category, and how many of them have a copy available
+ */
+public record CategoryFacetDTO(String category, long totalTitles, long availableTitles) { }
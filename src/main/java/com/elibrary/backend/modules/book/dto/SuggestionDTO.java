@@ -0,0 +1,8 @@
+package com.elibrary.backend.modules.book.dto;
+
+import com.elibrary.backend.modules.book.enums.SuggestionType;
+
+/**
+ * Represents one autocomplete suggestion, the book id is only set for title suggestions
+ */
+public record SuggestionDTO(String text, SuggestionType type, Long bookId) { }
@@ -0,0 +1,11 @@
+package com.elibrary.backend.modules.book.dto;
+
+/**
+ * Represents the state of the cover thumbnail queue
+ */
+public record ThumbnailQueueStatsDTO(int queueDepth,
+                                     int remainingCapacity,
+                                     int activeWorkers,
+                                     long completed,
+                                     long failed,
+                                     long rejected) { }
@@ -1,13 +1,23 @@
 package com.elibrary.backend.modules.book.entity;
 
+import com.elibrary.backend.modules.book.storage.BookCovers;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.sql.Timestamp;
 
 /**
  * Entity representing a book in the system
  */
 
-@Table(name = "book")
+@Table(name = "book", indexes = {
+        @Index(name = "idx_book_title", columnList = "title"),
+        @Index(name = "idx_book_category", columnList = "category")
+})
 @Data
 @Entity
 public class Book {
@@ -35,7 +45,45 @@ public class Book {
     @Column(name = "category")
     private String category;
 
+    @Column(name = "created_at", updatable = false)
+    @CreationTimestamp
+    private Timestamp createdAt;
+
+    /**
+     * Legacy cover, either an external image URL or a base64 image
+     * Inline images are moved into the cover store the first time the cover is requested, URLs are kept and exposed
+     * as the cover URL
+     */
+    @JsonIgnore
     @Column(name = "img", columnDefinition = "MEDIUMBLOB")
     @Lob
     private String img;
+
+    @JsonIgnore
+    @Column(name = "cover_hash", length = 64)
+    private String coverHash;
+
+    @JsonIgnore
+    @Column(name = "cover_content_type", length = 32)
+    private String coverContentType;
+
+    /**
+     * Gets the legacy image URL so clients reading the img field keep working, inline images are never exposed
+     */
+    @JsonProperty("img")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getImgUrl() {
+        return BookCovers.isExternalUrl(img) ? img.strip() : null;
+    }
+
+    /**
+     * Gets the URL the cover image is served from, versioned by the cover hash so it can be cached
+     */
+    @JsonProperty("coverUrl")
+    public String getCoverUrl() {
+        if (coverHash == null && BookCovers.isExternalUrl(img)) {
+            return img.strip();
+        }
+        return BookCovers.coverUrl(id, coverHash);
+    }
 }
@@ -0,0 +1,44 @@
+package com.elibrary.backend.modules.book.enums;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Represents the file formats a catalog can be bulk imported from
+ */
+public enum BookImportFormat {
+    CSV(MediaType.parseMediaType("text/csv")),
+    NDJSON(MediaType.parseMediaType("application/x-ndjson"));
+
+    private final MediaType mediaType;
+
+    BookImportFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    /**
+     * Gets the content type a request body in this format is sent with
+     */
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Finds the import format for a request content type
+     *
+     * @param contentType the content type of the request, may be null
+     * @return the matching format, or null if the content type is not supported
+     */
+    public static BookImportFormat fromContentType(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+
+        MediaType requested = MediaType.parseMediaType(contentType);
+        for (BookImportFormat format : values()) {
+            if (format.mediaType.isCompatibleWith(requested)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
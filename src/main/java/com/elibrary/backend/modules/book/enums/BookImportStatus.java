@@ -0,0 +1,10 @@
+package com.elibrary.backend.modules.book.enums;
+
+/**
+ * Represents the state of a bulk catalog import
+ */
+public enum BookImportStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,24 @@
+package com.elibrary.backend.modules.book.enums;
+
+/**
+ * Represents the pre-rendered sizes a book cover can be served in
+ */
+public enum CoverSize {
+    SMALL(64),
+    MEDIUM(200),
+    LARGE(480),
+    ORIGINAL(0);
+
+    private final int width;
+
+    CoverSize(int width) {
+        this.width = width;
+    }
+
+    /**
+     * Gets the target width in pixels, 0 for the original image
+     */
+    public int getWidth() {
+        return width;
+    }
+}
@@ -0,0 +1,9 @@
+package com.elibrary.backend.modules.book.enums;
+
+/**
+ * Represents what a search suggestion completes to
+ */
+public enum SuggestionType {
+    TITLE,
+    AUTHOR
+}
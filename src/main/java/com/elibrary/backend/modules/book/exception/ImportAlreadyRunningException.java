@@ -0,0 +1,10 @@
+package com.elibrary.backend.modules.book.exception;
+
+/**
+ * Exception thrown when a bulk import is started while another one is still running
+ */
+public class ImportAlreadyRunningException extends RuntimeException {
+    public ImportAlreadyRunningException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package com.elibrary.backend.modules.book.exception;
+
+/**
+ * Exception thrown when an uploaded cover is empty, too large or not a supported image
+ */
+public class InvalidCoverImageException extends RuntimeException {
+    public InvalidCoverImageException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package com.elibrary.backend.modules.book.exception;
+
+/**
+ * Exception thrown when a bulk import is sent with a content type that cannot be imported
+ */
+public class UnsupportedImportFormatException extends RuntimeException {
+    public UnsupportedImportFormatException(String message) {
+        super(message);
+    }
+}
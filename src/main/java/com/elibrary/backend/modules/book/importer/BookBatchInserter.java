@@ -0,0 +1,74 @@
+package com.elibrary.backend.modules.book.importer;
+
+import com.elibrary.backend.modules.book.entity.Book;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inserts new books with one JDBC batch per call, bypassing Hibernate
+ * Hibernate cannot batch inserts into an IDENTITY column because it needs each id straight away,
+ * here the ids are read back from the generated keys of the whole batch instead
+ * With rewriteBatchedStatements on the MySQL URL the batch is sent as multi-row INSERT statements
+ */
+@Component
+@RequiredArgsConstructor
+public class BookBatchInserter {
+
+    private static final String INSERT_BOOK = "INSERT INTO book "
+            + "(title, author, description, copies, copies_available, category, created_at, img) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the books and sets their generated ids, must run inside a transaction
+     *
+     * @param books the new books, without ids
+     */
+    public void insert(List<Book> books) {
+        KeyHolder keys = new GeneratedKeyHolder();
+
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_BOOK, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        Book book = books.get(i);
+                        statement.setString(1, book.getTitle());
+                        statement.setString(2, book.getAuthor());
+                        statement.setString(3, book.getDescription());
+                        statement.setInt(4, book.getCopies());
+                        statement.setInt(5, book.getCopiesAvailable());
+                        statement.setString(6, book.getCategory());
+                        statement.setTimestamp(7, book.getCreatedAt());
+                        statement.setString(8, book.getImg());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return books.size();
+                    }
+                },
+                keys);
+
+        // Generated keys come back in insert order, one per row
+        List<Map<String, Object>> generated = keys.getKeyList();
+        if (generated.size() != books.size()) {
+            throw new IllegalStateException("Expected " + books.size() + " generated ids but got " + generated.size());
+        }
+        for (int i = 0; i < books.size(); i++) {
+            Number id = (Number) generated.get(i).values().iterator().next();
+            books.get(i).setId(id.longValue());
+        }
+    }
+}
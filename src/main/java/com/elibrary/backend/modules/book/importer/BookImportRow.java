@@ -0,0 +1,17 @@
+package com.elibrary.backend.modules.book.importer;
+
+import com.elibrary.backend.modules.book.dto.BookRequestDTO;
+
+/**
+ * One row read from an import file, either a parsed book request or the reason it could not be parsed
+ */
+public record BookImportRow(long row, BookRequestDTO request, String error) {
+
+    static BookImportRow parsed(long row, BookRequestDTO request) {
+        return new BookImportRow(row, request, null);
+    }
+
+    static BookImportRow unreadable(long row, String error) {
+        return new BookImportRow(row, null, error);
+    }
+}
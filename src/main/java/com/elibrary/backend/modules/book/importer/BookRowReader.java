@@ -0,0 +1,18 @@
+package com.elibrary.backend.modules.book.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads book rows one at a time from an import stream, so a catalog never has to fit in memory
+ */
+public interface BookRowReader extends Closeable {
+
+    /**
+     * Reads the next row
+     *
+     * @return the next row, or null at the end of the stream
+     * @throws IOException if the stream cannot be read or is no longer parseable
+     */
+    BookImportRow next() throws IOException;
+}
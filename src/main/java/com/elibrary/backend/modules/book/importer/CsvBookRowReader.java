@@ -0,0 +1,66 @@
+package com.elibrary.backend.modules.book.importer;
+
+import com.elibrary.backend.modules.book.dto.BookRequestDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * Reads CSV with a header row naming the book fields, e.g. title,author,description,copies,copiesAvailable,category
+ * Records are read as text first and converted afterwards, so a bad value only rejects that row
+ */
+public class CsvBookRowReader implements BookRowReader {
+
+    private static final CsvMapper CSV_MAPPER = CsvMapper.builder()
+            .enable(CsvParser.Feature.TRIM_SPACES)
+            .enable(CsvParser.Feature.SKIP_EMPTY_LINES)
+            .build();
+
+    private final MappingIterator<Map<String, String>> records;
+
+    private final ObjectMapper objectMapper;
+
+    private long recordNumber;
+
+    public CsvBookRowReader(InputStream in, ObjectMapper objectMapper) throws IOException {
+        this.records = CSV_MAPPER.readerForMapOf(String.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .readValues(in);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public BookImportRow next() throws IOException {
+        Map<String, String> record;
+        try {
+            if (!records.hasNextValue()) {
+                return null;
+            }
+            record = records.nextValue();
+        } catch (JsonProcessingException | RuntimeJsonMappingException ex) {
+            // The parser cannot resynchronise after a broken record, so the rest of the file is unreadable
+            throw new IOException("Invalid CSV after record " + recordNumber + ": " + ex.getMessage(), ex);
+        }
+        recordNumber++;
+
+        try {
+            return BookImportRow.parsed(recordNumber, objectMapper.convertValue(record, BookRequestDTO.class));
+        } catch (IllegalArgumentException ex) {
+            String reason = ex.getCause() instanceof JsonProcessingException cause ? cause.getOriginalMessage() : ex.getMessage();
+            return BookImportRow.unreadable(recordNumber, "Invalid value: " + reason);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        records.close();
+    }
+}
@@ -0,0 +1,53 @@
+package com.elibrary.backend.modules.book.importer;
+
+import com.elibrary.backend.modules.book.dto.BookRequestDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads newline delimited JSON, one book object per line
+ * Each line is parsed on its own, so a malformed line only rejects that row
+ */
+public class NdjsonBookRowReader implements BookRowReader {
+
+    private final BufferedReader lines;
+
+    private final ObjectReader reader;
+
+    private long lineNumber;
+
+    public NdjsonBookRowReader(InputStream in, ObjectMapper objectMapper) {
+        this.lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.reader = objectMapper.readerFor(BookRequestDTO.class);
+    }
+
+    @Override
+    public BookImportRow next() throws IOException {
+        String line;
+        do {
+            line = lines.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.isBlank());
+
+        try {
+            return BookImportRow.parsed(lineNumber, reader.readValue(line));
+        } catch (JsonProcessingException ex) {
+            return BookImportRow.unreadable(lineNumber, "Invalid JSON: " + ex.getOriginalMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lines.close();
+    }
+}
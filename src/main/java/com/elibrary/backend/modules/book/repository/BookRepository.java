@@ -1,14 +1,24 @@
 package com.elibrary.backend.modules.book.repository;
 
+import com.elibrary.backend.modules.book.dto.BookCoverRef;
+import com.elibrary.backend.modules.book.dto.BookExportDTO;
+import com.elibrary.backend.modules.book.dto.BookFacetRef;
+import com.elibrary.backend.modules.book.dto.BookIndexRef;
+import com.elibrary.backend.modules.book.dto.BookStockDTO;
+import com.elibrary.backend.modules.book.dto.BookSummaryDTO;
+import com.elibrary.backend.modules.book.dto.CategoryFacetDTO;
 import com.elibrary.backend.modules.book.entity.Book;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 
 /**
@@ -35,4 +45,186 @@ public interface BookRepository extends JpaRepository<Book, Long> {
 
     @Query("SELECT o FROM Book o WHERE id IN :book_ids")
     List<Book> findBooksByBookIds(@Param("book_ids") List<Long> bookIds);
+
+    /**
+     * Fetches a page of book summaries without loading descriptions or cover images
+     *
+     * @param pageable pagination info like page number and size
+     * @return A paginated list of book summaries
+     */
+    @Query(value = "SELECT new com.elibrary.backend.modules.book.dto.BookSummaryDTO(" +
+            "b.id, b.title, b.author, b.category, b.copies, b.copiesAvailable, b.coverHash) FROM Book b",
+            countQuery = "SELECT COUNT(b) FROM Book b")
+    Page<BookSummaryDTO> findAllSummaries(Pageable pageable);
+
+    /**
+     * Fetches book summaries where the title contains the given search string
+     *
+     * @param title The text to search for in book titles
+     * @param pageable pagination info like page number and size
+     * @return A paginated list of book summaries matching the search text
+     */
+    @Query(value = "SELECT new com.elibrary.backend.modules.book.dto.BookSummaryDTO(" +
+            "b.id, b.title, b.author, b.category, b.copies, b.copiesAvailable, b.coverHash) FROM Book b " +
+            "WHERE b.title LIKE CONCAT('%', :title, '%')",
+            countQuery = "SELECT COUNT(b) FROM Book b WHERE b.title LIKE CONCAT('%', :title, '%')")
+    Page<BookSummaryDTO> findSummariesByTitleContaining(@Param("title") String title, Pageable pageable);
+
+    /**
+     * Fetches book summaries that belong to the specified category
+     *
+     * @param category The category to filter books by
+     * @param pageable Pagination info like page number and size
+     * @return A paginated list of book summaries in the given category
+     */
+    @Query(value = "SELECT new com.elibrary.backend.modules.book.dto.BookSummaryDTO(" +
+            "b.id, b.title, b.author, b.category, b.copies, b.copiesAvailable, b.coverHash) FROM Book b " +
+            "WHERE b.category = :category",
+            countQuery = "SELECT COUNT(b) FROM Book b WHERE b.category = :category")
+    Page<BookSummaryDTO> findSummariesByCategory(@Param("category") String category, Pageable pageable);
+
+    /**
+     * Fetches the cover columns of a book without loading the description or legacy image
+     *
+     * @param id the id of the book
+     * @return the cover reference, or empty if the book does not exist
+     */
+    @Query("SELECT new com.elibrary.backend.modules.book.dto.BookCoverRef(b.id, b.coverHash, b.coverContentType) " +
+            "FROM Book b WHERE b.id = :id")
+    Optional<BookCoverRef> findCoverRefById(@Param("id") Long id);
+
+    /**
+     * Fetches book summaries for the given ids, in no particular order
+     *
+     * @param bookIds the ids of the books to fetch
+     * @return the summaries of the books that exist
+     */
+    @Query("SELECT new com.elibrary.backend.modules.book.dto.BookSummaryDTO(" +
+            "b.id, b.title, b.author, b.category, b.copies, b.copiesAvailable, b.coverHash) FROM Book b " +
+            "WHERE b.id IN :book_ids")
+    List<BookSummaryDTO> findSummariesByIds(@Param("book_ids") List<Long> bookIds);
+
+    /**
+     * Finds the indexed fields of the books after the given id, in id order, used to walk the whole table
+     *
+     * @param afterId the id of the last book already read, 0 to start from the beginning
+     * @param limit   the maximum number of books to return
+     * @return the index fields of the next books
+     */
+    @Query("SELECT new com.elibrary.backend.modules.book.dto.BookIndexRef(" +
+            "b.id, b.title, b.author, b.category, b.description, b.copies, b.copiesAvailable, b.createdAt) " +
+            "FROM Book b WHERE b.id > :afterId ORDER BY b.id")
+    List<BookIndexRef> findIndexRefsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Finds the book summaries that come after the given id, in id order
+     * Used for keyset pagination, so no offset is skipped and no count query is run
+     *
+     * @param afterId the id of the last book already seen, 0 for the first page
+     * @param limit   the maximum number of books to return
+     * @return the next book summaries
+     */
+    @Query("SELECT new com.elibrary.backend.modules.book.dto.BookSummaryDTO(b.id, b.title, b.author, b.category, b.copies, b.copiesAvailable, b.coverHash) " +
+            "FROM Book b WHERE b.id > :afterId ORDER BY b.id")
+    List<BookSummaryDTO> findSummariesAfterId(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Finds the book summaries that come after the given title and id, in title order
+     * Used for keyset pagination, so no offset is skipped and no count query is run
+     *
+     * @param afterTitle the title of the last book already seen, empty for the first page
+     * @param afterId    the id of the last book already seen, 0 for the first page
+     * @param limit      the maximum number of books to return
+     * @return the next book summaries
+     */
+    @Query("SELECT new com.elibrary.backend.modules.book.dto.BookSummaryDTO(b.id, b.title, b.author, b.category, b.copies, b.copiesAvailable, b.coverHash) " +
+            "FROM Book b WHERE b.title > :afterTitle OR (b.title = :afterTitle AND b.id > :afterId) ORDER BY b.title, b.id")
+    List<BookSummaryDTO> findSummariesAfterTitle(@Param("afterTitle") String afterTitle, @Param("afterId") Long afterId,
+                                                 Limit limit);
+
+    /**
+     * Counts the books in each category, and how many of them have a copy available
+     *
+     * @return one count per category
+     */
+    @Query("SELECT new com.elibrary.backend.modules.book.dto.CategoryFacetDTO(b.category, COUNT(b), " +
+            "SUM(CASE WHEN b.copiesAvailable > 0 THEN 1 ELSE 0 END)) " +
+            "FROM Book b WHERE b.category IS NOT NULL GROUP BY b.category")
+    List<CategoryFacetDTO> countFacetsByCategory();
+
+    /**
+     * Finds the category and available copies of the books after the given id, in id order
+     *
+     * @param afterId the id of the last book already read, 0 to start from the beginning
+     * @param limit   the maximum number of books to return
+     * @return the facet fields of the next books
+     */
+    @Query("SELECT new com.elibrary.backend.modules.book.dto.BookFacetRef(b.id, b.category, b.copiesAvailable) " +
+            "FROM Book b WHERE b.id > :afterId ORDER BY b.id")
+    List<BookFacetRef> findFacetRefsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Finds the export fields of the books after the given id, in id order, without the legacy inline image
+     *
+     * @param afterId the id of the last book already exported, 0 to start from the beginning
+     * @param limit   the maximum number of books to return
+     * @return the next books to export
+     */
+    @Query("SELECT new com.elibrary.backend.modules.book.dto.BookExportDTO(b.id, b.title, b.author, b.description, " +
+            "b.copies, b.copiesAvailable, b.category, b.createdAt, b.coverHash, b.coverContentType) " +
+            "FROM Book b WHERE b.id > :afterId ORDER BY b.id")
+    List<BookExportDTO> findExportRowsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Fetches the legacy inline cover of a book, an external URL or a base64 image
+     *
+     * @param id the id of the book
+     * @return the legacy cover, or empty if the book has none
+     */
+    @Query("SELECT b.img FROM Book b WHERE b.id = :id")
+    Optional<String> findLegacyImgById(@Param("id") Long id);
+
+    /**
+     * Takes one available copy of a book, in a single statement so concurrent checkouts cannot oversell
+     * The persistence context is cleared so no stale copy count is written back afterwards
+     *
+     * @param id the id of the book
+     * @return 1 if a copy was taken, 0 if the book does not exist or has no copy available
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Book b SET b.copiesAvailable = b.copiesAvailable - 1 WHERE b.id = :id AND b.copiesAvailable > 0")
+    int decrementCopiesAvailable(@Param("id") Long id);
+
+    /**
+     * Puts one copy of a book back, in a single statement so concurrent returns cannot lose an increment
+     * Never raises the available copies above the total copies
+     *
+     * @param id the id of the book
+     * @return 1 if a copy was put back, 0 if the book does not exist or already has every copy available
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Book b SET b.copiesAvailable = b.copiesAvailable + 1 WHERE b.id = :id AND b.copiesAvailable < b.copies")
+    int incrementCopiesAvailable(@Param("id") Long id);
+
+    /**
+     * Fetches the total and available copies of a book without loading the rest of it
+     *
+     * @param id the id of the book
+     * @return the copy counts, or empty if the book does not exist
+     */
+    @Query("SELECT new com.elibrary.backend.modules.book.dto.BookStockDTO(b.id, b.copies, b.copiesAvailable) " +
+            "FROM Book b WHERE b.id = :id")
+    Optional<BookStockDTO> findStockById(@Param("id") Long id);
+
+    /**
+     * Adds the given number of copies to the available copies of a book, negative to take copies
+     * Used to write back copy changes that were already checked in memory
+     *
+     * @param id    the id of the book
+     * @param delta the number of copies to add
+     * @return the number of books updated
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Book b SET b.copiesAvailable = b.copiesAvailable + :delta WHERE b.id = :id")
+    int adjustCopiesAvailable(@Param("id") Long id, @Param("delta") int delta);
 }
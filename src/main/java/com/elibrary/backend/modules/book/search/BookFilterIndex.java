@@ -0,0 +1,342 @@
+package com.elibrary.backend.modules.book.search;
+
+import com.elibrary.backend.modules.book.dto.BookFilterRequest;
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.review.dto.BookRatingDTO;
+import com.elibrary.backend.modules.review.repository.ReviewRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compressed bitmap index over the catalog, keyed by book id
+ * Keeps one bitmap per category, author, availability, rating threshold and day added, so filters are answered with AND and OR
+ * Books saved before the added time was recorded have none and count as older than any addedAfter cutoff
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookFilterIndex implements CatalogIndex {
+
+    // Ratings are bucketed by half stars, bucket i holds books rated at least i / 2
+    private static final int RATING_BUCKETS = 11;
+
+    private final ReviewRepository reviewRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final RoaringBitmap allBooks = new RoaringBitmap();
+
+    private final RoaringBitmap availableBooks = new RoaringBitmap();
+
+    private final Map<String, RoaringBitmap> booksByCategory = new HashMap<>();
+
+    private final Map<String, RoaringBitmap> booksByAuthor = new HashMap<>();
+
+    private final TreeMap<Long, RoaringBitmap> booksByDayAdded = new TreeMap<>();
+
+    private final RoaringBitmap[] booksByRating = newRatingBuckets();
+
+    // What each book is filed under, so it can be taken out of the right bitmaps
+    private final Map<Integer, FilterKeys> keysByBook = new HashMap<>();
+
+    private final Map<Integer, Double> ratingsByBook = new HashMap<>();
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            allBooks.clear();
+            availableBooks.clear();
+            booksByCategory.clear();
+            booksByAuthor.clear();
+            booksByDayAdded.clear();
+            for (RoaringBitmap bucket : booksByRating) {
+                bucket.clear();
+            }
+            keysByBook.clear();
+            ratingsByBook.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Book book) {
+        int bookId = Math.toIntExact(book.getId());
+        FilterKeys keys = new FilterKeys(
+                normalize(book.getCategory()),
+                normalize(book.getAuthor()),
+                book.getCreatedAt() == null ? null : book.getCreatedAt().toLocalDateTime().toLocalDate().toEpochDay());
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(bookId);
+
+            keysByBook.put(bookId, keys);
+            allBooks.add(bookId);
+            addTo(booksByCategory, keys.category(), bookId);
+            addTo(booksByAuthor, keys.author(), bookId);
+            if (keys.dayAdded() != null) {
+                booksByDayAdded.computeIfAbsent(keys.dayAdded(), day -> new RoaringBitmap()).add(bookId);
+            }
+            setAvailableLocked(bookId, book.getCopiesAvailable());
+            setRatingLocked(bookId, ratingsByBook.get(bookId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(Math.toIntExact(bookId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void copiesChanged(Long bookId, int copiesAvailable) {
+        lock.writeLock().lock();
+        try {
+            int id = Math.toIntExact(bookId);
+            if (allBooks.contains(id)) {
+                setAvailableLocked(id, copiesAvailable);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void loaded() {
+        refreshRatings();
+    }
+
+    /**
+     * Updates the average review rating of a book, called after a review is posted
+     *
+     * @param bookId        the id of the reviewed book
+     * @param averageRating the new average rating
+     */
+    public void ratingChanged(Long bookId, double averageRating) {
+        lock.writeLock().lock();
+        try {
+            int id = Math.toIntExact(bookId);
+            ratingsByBook.put(id, averageRating);
+            if (allBooks.contains(id)) {
+                setRatingLocked(id, averageRating);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reloads the average rating of every reviewed book
+     */
+    @Scheduled(fixedDelayString = "${elibrary.search.filter.rating-refresh-ms:600000}",
+            initialDelayString = "${elibrary.search.filter.rating-refresh-ms:600000}")
+    public void refreshRatings() {
+        List<BookRatingDTO> ratings = reviewRepository.averageRatingPerBook();
+
+        lock.writeLock().lock();
+        try {
+            ratingsByBook.clear();
+            for (RoaringBitmap bucket : booksByRating) {
+                bucket.clear();
+            }
+            for (BookRatingDTO rating : ratings) {
+                int id = Math.toIntExact(rating.bookId());
+                ratingsByBook.put(id, rating.averageRating());
+                if (allBooks.contains(id)) {
+                    setRatingLocked(id, rating.averageRating());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Loaded average ratings for {} books into the filter index", ratings.size());
+    }
+
+    /**
+     * Finds the books matching every criterion of the filter
+     *
+     * @param filter the filter criteria, unset criteria match every book
+     * @return a bitmap of the matching book ids, owned by the caller
+     */
+    public RoaringBitmap filter(BookFilterRequest filter) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap result = allBooks.clone();
+
+            if (filter.getCategory() != null && !filter.getCategory().isEmpty()) {
+                List<RoaringBitmap> categories = new ArrayList<>();
+                for (String category : filter.getCategory()) {
+                    RoaringBitmap books = booksByCategory.get(normalize(category));
+                    if (books != null) {
+                        categories.add(books);
+                    }
+                }
+                result.and(FastAggregation.or(categories.iterator()));
+            }
+
+            if (filter.getAuthor() != null && !filter.getAuthor().isBlank()) {
+                result.and(booksByAuthor.getOrDefault(normalize(filter.getAuthor()), new RoaringBitmap()));
+            }
+
+            if (filter.isAvailable()) {
+                result.and(availableBooks);
+            }
+
+            if (filter.getMinRating() != null && filter.getMinRating() > 0) {
+                andMinRating(result, filter.getMinRating());
+            }
+
+            // Books without an added time are in no day bitmap, so any cutoff leaves them out
+            if (filter.getAddedAfter() != null) {
+                result.and(FastAggregation.or(
+                        booksByDayAdded.tailMap(filter.getAddedAfter().toEpochDay(), true).values().iterator()));
+            }
+
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads one page of book ids from a filter result, in id order
+     *
+     * @param books  the filter result
+     * @param offset the number of ids to skip
+     * @param limit  the maximum number of ids to return
+     * @return the book ids of the page
+     */
+    public static List<Long> page(RoaringBitmap books, long offset, int limit) {
+        if (offset >= books.getLongCardinality() || limit <= 0) {
+            return List.of();
+        }
+
+        // Jump straight to the first id of the page instead of walking past the skipped ones
+        PeekableIntIterator iterator = books.getIntIterator();
+        iterator.advanceIfNeeded(books.select((int) offset));
+
+        List<Long> bookIds = new ArrayList<>(limit);
+        while (iterator.hasNext() && bookIds.size() < limit) {
+            bookIds.add((long) iterator.next());
+        }
+        return bookIds;
+    }
+
+    /**
+     * Keeps the books whose average rating is at least the given value
+     * The half star bucket below the value does most of the work, only books inside that bucket are checked one by one
+     */
+    private void andMinRating(RoaringBitmap result, double minRating) {
+        int bucket = (int) Math.min(RATING_BUCKETS - 1, Math.floor(minRating * 2));
+        result.and(booksByRating[bucket]);
+
+        if (bucket * 0.5 == minRating) {
+            return;
+        }
+
+        RoaringBitmap tooLow = new RoaringBitmap();
+        RoaringBitmap boundary = bucket + 1 < RATING_BUCKETS
+                ? RoaringBitmap.andNot(result, booksByRating[bucket + 1])
+                : result;
+        boundary.forEach((int bookId) -> {
+            if (ratingsByBook.getOrDefault(bookId, 0.0) < minRating) {
+                tooLow.add(bookId);
+            }
+        });
+        result.andNot(tooLow);
+    }
+
+    private void removeLocked(int bookId) {
+        FilterKeys keys = keysByBook.remove(bookId);
+        if (keys == null) {
+            return;
+        }
+
+        allBooks.remove(bookId);
+        availableBooks.remove(bookId);
+        removeFrom(booksByCategory, keys.category(), bookId);
+        removeFrom(booksByAuthor, keys.author(), bookId);
+        if (keys.dayAdded() != null) {
+            removeFrom(booksByDayAdded, keys.dayAdded(), bookId);
+        }
+        for (RoaringBitmap bucket : booksByRating) {
+            bucket.remove(bookId);
+        }
+    }
+
+    private void setAvailableLocked(int bookId, int copiesAvailable) {
+        if (copiesAvailable > 0) {
+            availableBooks.add(bookId);
+        } else {
+            availableBooks.remove(bookId);
+        }
+    }
+
+    /**
+     * Files a book under every half star threshold its rating reaches
+     */
+    private void setRatingLocked(int bookId, Double rating) {
+        double value = rating == null ? 0.0 : rating;
+        for (int bucket = 0; bucket < RATING_BUCKETS; bucket++) {
+            if (value >= bucket * 0.5) {
+                booksByRating[bucket].add(bookId);
+            } else {
+                booksByRating[bucket].remove(bookId);
+            }
+        }
+    }
+
+    private static <K> void addTo(Map<K, RoaringBitmap> bitmaps, K key, int bookId) {
+        if (key != null) {
+            bitmaps.computeIfAbsent(key, k -> new RoaringBitmap()).add(bookId);
+        }
+    }
+
+    private static <K> void removeFrom(Map<K, RoaringBitmap> bitmaps, K key, int bookId) {
+        if (key == null) {
+            return;
+        }
+        RoaringBitmap books = bitmaps.get(key);
+        if (books != null) {
+            books.remove(bookId);
+            if (books.isEmpty()) {
+                bitmaps.remove(key);
+            }
+        }
+    }
+
+    private static String normalize(String value) {
+        return value == null || value.isBlank() ? null : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static RoaringBitmap[] newRatingBuckets() {
+        RoaringBitmap[] buckets = new RoaringBitmap[RATING_BUCKETS];
+        for (int i = 0; i < RATING_BUCKETS; i++) {
+            buckets[i] = new RoaringBitmap();
+        }
+        return buckets;
+    }
+
+    private record FilterKeys(String category, String author, Long dayAdded) { }
+}
@@ -0,0 +1,44 @@
+package com.elibrary.backend.modules.book.search;
+
+import com.elibrary.backend.modules.book.entity.Book;
+
+/**
+ * In-memory structure derived from the book catalog
+ * Implementations are filled at startup by the CatalogIndexLoader and kept in step by the book service
+ */
+public interface CatalogIndex {
+
+    /**
+     * Removes every book from the index, called before a full reload
+     */
+    void clear();
+
+    /**
+     * Adds a book to the index, replacing any earlier version of it
+     *
+     * @param book the saved book
+     */
+    void index(Book book);
+
+    /**
+     * Removes a book from the index
+     *
+     * @param bookId the id of the deleted book
+     */
+    void remove(Long bookId);
+
+    /**
+     * Updates the number of available copies of a book, called after checkouts and returns
+     *
+     * @param bookId          the id of the book
+     * @param copiesAvailable the new number of available copies
+     */
+    default void copiesChanged(Long bookId, int copiesAvailable) {
+    }
+
+    /**
+     * Called once a full reload has indexed every book
+     */
+    default void loaded() {
+    }
+}
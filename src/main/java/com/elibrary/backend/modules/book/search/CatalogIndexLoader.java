@@ -0,0 +1,83 @@
+package com.elibrary.backend.modules.book.search;
+
+import com.elibrary.backend.modules.book.dto.BookIndexRef;
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Fills every catalog index from the database once the application has started
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CatalogIndexLoader {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final BookRepository bookRepository;
+
+    private final List<CatalogIndex> catalogIndexes;
+
+    /**
+     * Loads the indexes when the application is ready to serve requests
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reload();
+    }
+
+    /**
+     * Clears and rebuilds every catalog index from the book table
+     * Books are read in id order batches so no OFFSET scan or count query is needed, and only the indexed
+     * fields are read so the legacy inline images never leave the database
+     */
+    public synchronized void reload() {
+        long started = System.currentTimeMillis();
+
+        catalogIndexes.forEach(CatalogIndex::clear);
+
+        long lastId = 0;
+        long loaded = 0;
+        List<BookIndexRef> batch;
+
+        do {
+            batch = bookRepository.findIndexRefsAfter(lastId, Limit.of(BATCH_SIZE));
+
+            for (BookIndexRef ref : batch) {
+                Book book = toBook(ref);
+                catalogIndexes.forEach(index -> index.index(book));
+                lastId = ref.id();
+            }
+            loaded += batch.size();
+        } while (batch.size() == BATCH_SIZE);
+
+        catalogIndexes.forEach(CatalogIndex::loaded);
+
+        log.info("Loaded {} books into {} catalog indexes in {} ms",
+                loaded, catalogIndexes.size(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Builds a detached book holding only the indexed fields, for the catalog indexes to read
+     */
+    private static Book toBook(BookIndexRef ref) {
+        Book book = new Book();
+        book.setId(ref.id());
+        book.setTitle(ref.title());
+        book.setAuthor(ref.author());
+        book.setCategory(ref.category());
+        book.setDescription(ref.description());
+        book.setCopies(ref.copies());
+        book.setCopiesAvailable(ref.copiesAvailable());
+        book.setCreatedAt(ref.createdAt());
+        return book;
+    }
+}
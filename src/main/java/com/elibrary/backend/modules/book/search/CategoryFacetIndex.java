@@ -0,0 +1,210 @@
+package com.elibrary.backend.modules.book.search;
+
+import com.elibrary.backend.modules.book.dto.BookFacetRef;
+import com.elibrary.backend.modules.book.dto.CategoryFacetDTO;
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.checkout.inventory.InventoryEngine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps per-category counts of titles and of titles with a copy available
+ * Counts are adjusted as books change and as copies are checked out or returned, and are checked against the database periodically
+ * Changes made while a rebuild reads the book table are recorded and replayed on the rebuilt counts before they are swapped in
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CategoryFacetIndex implements CatalogIndex {
+
+    private static final int REBUILD_BATCH_SIZE = 5000;
+
+    private final BookRepository bookRepository;
+
+    private final InventoryEngine inventoryEngine;
+
+    // The category and availability each book currently contributes
+    private Map<Long, BookFacetRef> books = new HashMap<>();
+
+    // Per category: index 0 holds the number of titles, index 1 the number with a copy available
+    private Map<String, long[]> counts = new HashMap<>();
+
+    // Sorted facets handed to readers, dropped whenever a count changes
+    private volatile List<CategoryFacetDTO> facets;
+
+    // Latest state of each book changed while a rebuild is reading, null for a removed book, null when not rebuilding
+    private Map<Long, BookFacetRef> changedDuringRebuild;
+
+    @Override
+    public synchronized void clear() {
+        books.clear();
+        counts.clear();
+        facets = null;
+    }
+
+    @Override
+    public synchronized void index(Book book) {
+        apply(new BookFacetRef(book.getId(), book.getCategory(), book.getCopiesAvailable()));
+    }
+
+    @Override
+    public synchronized void remove(Long bookId) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.put(bookId, null);
+        }
+        BookFacetRef previous = books.remove(bookId);
+        if (previous != null) {
+            add(counts, previous, -1);
+            facets = null;
+        }
+    }
+
+    @Override
+    public synchronized void copiesChanged(Long bookId, int copiesAvailable) {
+        BookFacetRef previous = books.get(bookId);
+        if (previous != null) {
+            apply(new BookFacetRef(bookId, previous.category(), copiesAvailable));
+        }
+    }
+
+    /**
+     * Fetches the counts for every category, sorted by category name
+     *
+     * @return the category facets
+     */
+    public List<CategoryFacetDTO> getFacets() {
+        List<CategoryFacetDTO> current = facets;
+        if (current != null) {
+            return current;
+        }
+
+        synchronized (this) {
+            if (facets == null) {
+                facets = counts.entrySet().stream()
+                        .filter(entry -> entry.getValue()[0] > 0)
+                        .map(entry -> new CategoryFacetDTO(entry.getKey(), entry.getValue()[0], entry.getValue()[1]))
+                        .sorted(Comparator.comparing(CategoryFacetDTO::category))
+                        .toList();
+            }
+            return facets;
+        }
+    }
+
+    /**
+     * Compares the counts with a GROUP BY on the book table and rebuilds them if they have drifted
+     * Drift can come from changes made outside the application or from updates lost to a crash
+     */
+    @Scheduled(fixedDelayString = "${elibrary.search.facets.reconcile-ms:300000}",
+            initialDelayString = "${elibrary.search.facets.reconcile-ms:300000}")
+    public void reconcile() {
+
+        // Write copy changes still held by the inventory engine, so the database is not behind the counts
+        inventoryEngine.flush();
+
+        List<CategoryFacetDTO> expected = bookRepository.countFacetsByCategory();
+        if (matches(expected)) {
+            return;
+        }
+
+        log.warn("Category facets have drifted from the database, rebuilding them");
+        rebuild();
+    }
+
+    /**
+     * Reads the category and availability of every book in id order and swaps in freshly built counts
+     * Changes made during the read are replayed on top, so none is lost to a book read before it changed
+     */
+    private void rebuild() {
+        Map<Long, BookFacetRef> freshBooks = new HashMap<>();
+        Map<String, long[]> freshCounts = new HashMap<>();
+
+        synchronized (this) {
+            changedDuringRebuild = new HashMap<>();
+        }
+
+        long lastId = 0;
+        List<BookFacetRef> batch;
+        try {
+            do {
+                batch = bookRepository.findFacetRefsAfter(lastId, Limit.of(REBUILD_BATCH_SIZE));
+                for (BookFacetRef book : batch) {
+                    freshBooks.put(book.id(), book);
+                    add(freshCounts, book, 1);
+                    lastId = book.id();
+                }
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+        } catch (RuntimeException ex) {
+            synchronized (this) {
+                changedDuringRebuild = null;
+            }
+            throw ex;
+        }
+
+        synchronized (this) {
+            changedDuringRebuild.forEach((bookId, book) -> {
+                BookFacetRef previous = book == null ? freshBooks.remove(bookId) : freshBooks.put(bookId, book);
+                if (previous != null) {
+                    add(freshCounts, previous, -1);
+                }
+                if (book != null) {
+                    add(freshCounts, book, 1);
+                }
+            });
+            changedDuringRebuild = null;
+
+            books = freshBooks;
+            counts = freshCounts;
+            facets = null;
+        }
+    }
+
+    /**
+     * Checks whether the in-memory counts equal the counts from the database
+     */
+    private boolean matches(List<CategoryFacetDTO> expected) {
+        Map<String, CategoryFacetDTO> actual = new HashMap<>();
+        for (CategoryFacetDTO facet : getFacets()) {
+            actual.put(facet.category(), facet);
+        }
+        return actual.size() == expected.size()
+                && expected.stream().allMatch(facet -> facet.equals(actual.get(facet.category())));
+    }
+
+    /**
+     * Replaces what a book contributes to the counts
+     */
+    private void apply(BookFacetRef book) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.put(book.id(), book);
+        }
+        BookFacetRef previous = books.put(book.id(), book);
+        if (previous != null) {
+            add(counts, previous, -1);
+        }
+        add(counts, book, 1);
+        facets = null;
+    }
+
+    /**
+     * Adds or subtracts one book from the counts of its category
+     */
+    private static void add(Map<String, long[]> counts, BookFacetRef book, int delta) {
+        if (book.category() == null) {
+            return;
+        }
+        long[] categoryCounts = counts.computeIfAbsent(book.category(), category -> new long[2]);
+        categoryCounts[0] += delta;
+        if (book.copiesAvailable() > 0) {
+            categoryCounts[1] += delta;
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.elibrary.backend.modules.book.search;
+
+import com.elibrary.backend.modules.book.entity.Book;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over book title, author, category and description
+ * Matches are ranked with BM25, using per-field weights so title and author hits count for more
+ */
+@Component
+public class InvertedIndex implements CatalogIndex {
+
+    private static final float TITLE_WEIGHT = 3.0f;
+
+    private static final float AUTHOR_WEIGHT = 2.0f;
+
+    private static final float CATEGORY_WEIGHT = 1.5f;
+
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    private static final float K1 = 1.2f;
+
+    private static final float B = 0.75f;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+
+    // Documents are stored by dense ordinal so postings can hold primitive ints
+    private final Map<Long, Integer> ordinalsByBookId = new HashMap<>();
+
+    private long[] bookIds = new long[1024];
+
+    private float[] documentLengths = new float[1024];
+
+    private String[][] documentTerms = new String[1024][];
+
+    private int[] freeOrdinals = new int[16];
+
+    private int freeOrdinalCount;
+
+    private int ordinalCount;
+
+    private int documentCount;
+
+    private double totalDocumentLength;
+
+    // Reusable per-thread score accumulator, sized to the number of ordinals
+    private final ThreadLocal<float[]> scoreBuffers = ThreadLocal.withInitial(() -> new float[0]);
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            ordinalsByBookId.clear();
+            bookIds = new long[1024];
+            documentLengths = new float[1024];
+            documentTerms = new String[1024][];
+            freeOrdinalCount = 0;
+            ordinalCount = 0;
+            documentCount = 0;
+            totalDocumentLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Book book) {
+        // Analyze outside the lock, only the structure updates need exclusive access
+        Map<String, Float> frequencies = new LinkedHashMap<>();
+        float length = 0;
+        length += addTerms(frequencies, book.getTitle(), TITLE_WEIGHT);
+        length += addTerms(frequencies, book.getAuthor(), AUTHOR_WEIGHT);
+        length += addTerms(frequencies, book.getCategory(), CATEGORY_WEIGHT);
+        length += addTerms(frequencies, book.getDescription(), DESCRIPTION_WEIGHT);
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(book.getId());
+
+            int ordinal = allocateOrdinal();
+            bookIds[ordinal] = book.getId();
+            documentLengths[ordinal] = length;
+            documentTerms[ordinal] = frequencies.keySet().toArray(new String[0]);
+            ordinalsByBookId.put(book.getId(), ordinal);
+            documentCount++;
+            totalDocumentLength += length;
+
+            for (Map.Entry<String, Float> entry : frequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), term -> new PostingList()).add(ordinal, entry.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Searches the index and returns one page of book ids, best match first
+     *
+     * @param query  the free text query
+     * @param offset the number of ranked hits to skip
+     * @param limit  the maximum number of hits to return
+     * @return the page of ranked book ids and the total number of matches
+     */
+    public SearchHits search(String query, long offset, int limit) {
+        List<String> queryTerms = TextAnalyzer.analyze(query).stream().distinct().toList();
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return new SearchHits(List.of(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            float[] scores = scoreBuffer();
+            int[] touched = new int[16];
+            int touchedCount = 0;
+            float averageLength = documentCount == 0 ? 1f : (float) (totalDocumentLength / documentCount);
+
+            // Accumulate the BM25 contribution of each query term into the score buffer
+            for (String term : queryTerms) {
+                PostingList list = postings.get(term);
+                if (list == null) {
+                    continue;
+                }
+
+                double idf = Math.log(1 + (documentCount - list.size + 0.5) / (list.size + 0.5));
+
+                for (int i = 0; i < list.size; i++) {
+                    int ordinal = list.ordinals[i];
+                    float tf = list.frequencies[i];
+                    float norm = K1 * (1 - B + B * documentLengths[ordinal] / averageLength);
+
+                    if (scores[ordinal] == 0f) {
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, touchedCount * 2);
+                        }
+                        touched[touchedCount++] = ordinal;
+                    }
+                    scores[ordinal] += (float) (idf * (tf * (K1 + 1)) / (tf + norm));
+                }
+            }
+
+            // Keep only the best offset + limit hits in a min-heap
+            long wanted = Math.min(offset + limit, touchedCount);
+            PriorityQueue<Integer> best = new PriorityQueue<>((a, b) -> compareHits(scores, a, b));
+            for (int i = 0; i < touchedCount; i++) {
+                best.add(touched[i]);
+                if (best.size() > wanted) {
+                    best.poll();
+                }
+            }
+
+            List<Long> ranked = new ArrayList<>(best.size());
+            while (!best.isEmpty()) {
+                ranked.add(bookIds[best.poll()]);
+            }
+
+            // Reset only the slots this query used so the buffer can be reused
+            for (int i = 0; i < touchedCount; i++) {
+                scores[touched[i]] = 0f;
+            }
+
+            // The heap drains worst first, so flip to best first before cutting the page
+            Collections.reverse(ranked);
+            int from = (int) Math.min(offset, ranked.size());
+            return new SearchHits(new ArrayList<>(ranked.subList(from, ranked.size())), touchedCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Orders hits by score, breaking ties by the lower book id
+     */
+    private int compareHits(float[] scores, int a, int b) {
+        int byScore = Float.compare(scores[a], scores[b]);
+        return byScore != 0 ? byScore : Long.compare(bookIds[b], bookIds[a]);
+    }
+
+    /**
+     * Adds the weighted frequencies of a field's terms and returns the weighted field length
+     */
+    private static float addTerms(Map<String, Float> frequencies, String text, float weight) {
+        List<String> terms = TextAnalyzer.analyze(text);
+        for (String term : terms) {
+            frequencies.merge(term, weight, Float::sum);
+        }
+        return terms.size() * weight;
+    }
+
+    private void removeLocked(Long bookId) {
+        Integer ordinal = ordinalsByBookId.remove(bookId);
+        if (ordinal == null) {
+            return;
+        }
+
+        for (String term : documentTerms[ordinal]) {
+            PostingList list = postings.get(term);
+            if (list != null) {
+                list.remove(ordinal);
+                if (list.size == 0) {
+                    postings.remove(term);
+                }
+            }
+        }
+
+        documentCount--;
+        totalDocumentLength -= documentLengths[ordinal];
+        documentTerms[ordinal] = null;
+        documentLengths[ordinal] = 0f;
+
+        if (freeOrdinalCount == freeOrdinals.length) {
+            freeOrdinals = Arrays.copyOf(freeOrdinals, freeOrdinalCount * 2);
+        }
+        freeOrdinals[freeOrdinalCount++] = ordinal;
+    }
+
+    private int allocateOrdinal() {
+        if (freeOrdinalCount > 0) {
+            return freeOrdinals[--freeOrdinalCount];
+        }
+
+        if (ordinalCount == bookIds.length) {
+            int capacity = ordinalCount * 2;
+            bookIds = Arrays.copyOf(bookIds, capacity);
+            documentLengths = Arrays.copyOf(documentLengths, capacity);
+            documentTerms = Arrays.copyOf(documentTerms, capacity);
+        }
+        return ordinalCount++;
+    }
+
+    private float[] scoreBuffer() {
+        float[] buffer = scoreBuffers.get();
+        if (buffer.length < ordinalCount) {
+            buffer = new float[bookIds.length];
+            scoreBuffers.set(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Growable list of document ordinals and weighted term frequencies for one term
+     */
+    private static final class PostingList {
+
+        private int[] ordinals = new int[4];
+
+        private float[] frequencies = new float[4];
+
+        private int size;
+
+        void add(int ordinal, float frequency) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            ordinals[size] = ordinal;
+            frequencies[size] = frequency;
+            size++;
+        }
+
+        void remove(int ordinal) {
+            for (int i = 0; i < size; i++) {
+                if (ordinals[i] == ordinal) {
+                    // Order does not matter, so fill the gap with the last entry
+                    size--;
+                    ordinals[i] = ordinals[size];
+                    frequencies[i] = frequencies[size];
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.elibrary.backend.modules.book.search;
+
+import java.util.List;
+
+/**
+ * Represents one page of ranked book ids and the total number of matching books
+ */
+public record SearchHits(List<Long> bookIds, long totalHits) { }
@@ -0,0 +1,342 @@
+package com.elibrary.backend.modules.book.search;
+
+import com.elibrary.backend.modules.book.dto.SuggestionDTO;
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.enums.SuggestionType;
+import com.elibrary.backend.modules.checkout.dto.BookCheckoutCountDTO;
+import com.elibrary.backend.modules.checkout.repository.CheckoutHistoryRepository;
+import com.elibrary.backend.modules.checkout.repository.CheckoutRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Autocomplete index of book titles and authors, answering prefix lookups from a compact trie
+ * Every trie node stores its best completions up front, ranked by checkout popularity
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SuggestionIndex implements CatalogIndex {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    // Keys are cut to this length, typing past it rarely narrows the results
+    private static final int MAX_KEY_LENGTH = 32;
+
+    // Completions also start at the first few inner words, so "hobb" finds "The Hobbit"
+    private static final int MAX_WORD_STARTS = 4;
+
+    private final CheckoutRepository checkoutRepository;
+
+    private final CheckoutHistoryRepository checkoutHistoryRepository;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private volatile Map<Long, Long> checkoutCounts = Map.of();
+
+    private volatile boolean dirty;
+
+    private volatile Trie trie = Trie.EMPTY;
+
+    @Override
+    public void clear() {
+        entries.clear();
+        dirty = true;
+    }
+
+    @Override
+    public void index(Book book) {
+        entries.put(book.getId(), new Entry(book.getTitle(), book.getAuthor()));
+        dirty = true;
+    }
+
+    @Override
+    public void remove(Long bookId) {
+        entries.remove(bookId);
+        dirty = true;
+    }
+
+    @Override
+    public void loaded() {
+        refreshPopularity();
+    }
+
+    /**
+     * Finds the most popular titles and authors starting with the given prefix
+     *
+     * @param prefix the text typed so far
+     * @param limit  the maximum number of suggestions, capped at MAX_SUGGESTIONS
+     * @return the suggestions, most popular first
+     */
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        return trie.lookup(key, Math.min(limit, MAX_SUGGESTIONS));
+    }
+
+    /**
+     * Rebuilds the trie when books have been added, changed or removed since the last build
+     */
+    @Scheduled(fixedDelayString = "${elibrary.search.suggest.rebuild-ms:30000}",
+            initialDelayString = "${elibrary.search.suggest.rebuild-ms:30000}")
+    public void rebuildIfDirty() {
+        if (dirty) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Reloads checkout counts per book, current and archived, and rebuilds the trie with the new ranking
+     */
+    @Scheduled(fixedDelayString = "${elibrary.search.suggest.popularity-refresh-ms:600000}",
+            initialDelayString = "${elibrary.search.suggest.popularity-refresh-ms:600000}")
+    public void refreshPopularity() {
+        Map<Long, Long> counts = new HashMap<>();
+        for (BookCheckoutCountDTO count : checkoutRepository.countCheckoutsPerBook()) {
+            counts.put(count.bookId(), count.checkouts());
+        }
+
+        // Returned loans are moved to the history table after a while, they still count towards popularity
+        for (BookCheckoutCountDTO count : checkoutHistoryRepository.countCheckoutsPerBook()) {
+            counts.merge(count.bookId(), count.checkouts(), Long::sum);
+        }
+        checkoutCounts = counts;
+        rebuild();
+    }
+
+    /**
+     * Builds a new trie from the current entries and swaps it in, readers keep using the old one meanwhile
+     */
+    private synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        dirty = false;
+
+        Map<Long, Long> counts = checkoutCounts;
+        Map<String, Candidate> candidates = new HashMap<>();
+
+        // Merge books with the same title or author into one suggestion, adding up their checkouts
+        entries.forEach((bookId, entry) -> {
+            long weight = counts.getOrDefault(bookId, 0L);
+            addCandidate(candidates, entry.title(), SuggestionType.TITLE, bookId, weight);
+            addCandidate(candidates, entry.author(), SuggestionType.AUTHOR, null, weight);
+        });
+
+        trie = Trie.build(new ArrayList<>(candidates.values()));
+        log.info("Built suggestion trie with {} suggestions and {} nodes in {} ms",
+                candidates.size(), trie.nodeCount(), System.currentTimeMillis() - started);
+    }
+
+    private static void addCandidate(Map<String, Candidate> candidates, String text, SuggestionType type,
+                                     Long bookId, long weight) {
+        String key = normalize(text);
+        if (key.isEmpty()) {
+            return;
+        }
+
+        candidates.merge(type + ":" + key, new Candidate(key, text.trim(), type, bookId, weight, weight),
+                (current, added) -> {
+                    // Titles point at their most checked out edition
+                    Candidate best = added.bookWeight > current.bookWeight ? added : current;
+                    return new Candidate(key, best.text, type, best.bookId,
+                            current.weight + added.weight, best.bookWeight);
+                });
+    }
+
+    /**
+     * Lowercases text and collapses everything that is not a letter or digit into single spaces
+     */
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String key = text.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+        return key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key;
+    }
+
+    private record Entry(String title, String author) { }
+
+    private record Candidate(String key, String text, SuggestionType type, Long bookId, long weight,
+                             long bookWeight) { }
+
+    private record Key(String key, int suggestion) { }
+
+    /**
+     * Immutable trie flattened into arrays, children of a node are stored next to each other sorted by label
+     * Each node holds the ordinals of its best suggestions, and ordinals are assigned in rank order
+     */
+    private static final class Trie {
+
+        static final Trie EMPTY = new Trie(new char[1], new int[1], new int[1], new int[][]{new int[0]},
+                new SuggestionDTO[0]);
+
+        private final char[] labels;
+
+        private final int[] firstChild;
+
+        private final int[] childCount;
+
+        private final int[][] best;
+
+        private final SuggestionDTO[] suggestions;
+
+        private Trie(char[] labels, int[] firstChild, int[] childCount, int[][] best, SuggestionDTO[] suggestions) {
+            this.labels = labels;
+            this.firstChild = firstChild;
+            this.childCount = childCount;
+            this.best = best;
+            this.suggestions = suggestions;
+        }
+
+        int nodeCount() {
+            return labels.length;
+        }
+
+        List<SuggestionDTO> lookup(String key, int limit) {
+            int node = 0;
+            for (int i = 0; i < key.length(); i++) {
+                int from = firstChild[node];
+                int index = Arrays.binarySearch(labels, from, from + childCount[node], key.charAt(i));
+                if (index < 0) {
+                    return List.of();
+                }
+                node = index;
+            }
+
+            int[] ordinals = best[node];
+            List<SuggestionDTO> result = new ArrayList<>(Math.min(limit, ordinals.length));
+            for (int i = 0; i < ordinals.length && i < limit; i++) {
+                result.add(suggestions[ordinals[i]]);
+            }
+            return result;
+        }
+
+        static Trie build(List<Candidate> candidates) {
+            // Rank first, so a lower ordinal always means a better suggestion
+            candidates.sort(Comparator.comparingLong(Candidate::weight).reversed()
+                    .thenComparingInt((Candidate candidate) -> candidate.key().length())
+                    .thenComparing(Candidate::key));
+
+            SuggestionDTO[] suggestions = new SuggestionDTO[candidates.size()];
+            List<Key> keys = new ArrayList<>();
+            for (int ordinal = 0; ordinal < candidates.size(); ordinal++) {
+                Candidate candidate = candidates.get(ordinal);
+                suggestions[ordinal] = new SuggestionDTO(candidate.text(), candidate.type(), candidate.bookId());
+
+                String key = candidate.key();
+                keys.add(new Key(key, ordinal));
+                int words = 1;
+                for (int i = key.indexOf(' '); i >= 0 && words < MAX_WORD_STARTS; i = key.indexOf(' ', i + 1)) {
+                    keys.add(new Key(key.substring(i + 1), ordinal));
+                    words++;
+                }
+            }
+
+            // With sorted keys a matching child is always the last one added, so no child lookups are needed
+            keys.sort(Comparator.comparing(Key::key).thenComparingInt(Key::suggestion));
+            Node root = new Node('\0');
+            for (Key key : keys) {
+                Node node = root;
+                for (int i = 0; i < key.key().length(); i++) {
+                    char label = key.key().charAt(i);
+                    Node last = node.children.isEmpty() ? null : node.children.get(node.children.size() - 1);
+                    if (last == null || last.label != label) {
+                        last = new Node(label);
+                        node.children.add(last);
+                    }
+                    node = last;
+                }
+                node.addTerminal(key.suggestion());
+            }
+            root.computeBest();
+
+            return flatten(root, suggestions);
+        }
+
+        /**
+         * Lays the nodes out breadth first so each node's children occupy one contiguous range
+         */
+        private static Trie flatten(Node root, SuggestionDTO[] suggestions) {
+            List<Node> order = new ArrayList<>();
+            ArrayDeque<Node> queue = new ArrayDeque<>();
+            queue.add(root);
+            while (!queue.isEmpty()) {
+                Node node = queue.poll();
+                order.add(node);
+                queue.addAll(node.children);
+            }
+
+            int size = order.size();
+            char[] labels = new char[size];
+            int[] firstChild = new int[size];
+            int[] childCount = new int[size];
+            int[][] best = new int[size][];
+
+            int next = 1;
+            for (int i = 0; i < size; i++) {
+                Node node = order.get(i);
+                labels[i] = node.label;
+                firstChild[i] = next;
+                childCount[i] = node.children.size();
+                best[i] = node.best;
+                next += node.children.size();
+            }
+            return new Trie(labels, firstChild, childCount, best, suggestions);
+        }
+    }
+
+    /**
+     * Mutable trie node, only used while building
+     */
+    private static final class Node {
+
+        private final char label;
+
+        private final List<Node> children = new ArrayList<>(1);
+
+        private int[] terminals = new int[0];
+
+        private int[] best;
+
+        Node(char label) {
+            this.label = label;
+        }
+
+        void addTerminal(int suggestion) {
+            terminals = Arrays.copyOf(terminals, terminals.length + 1);
+            terminals[terminals.length - 1] = suggestion;
+        }
+
+        int[] computeBest() {
+            // A chain node without its own completions shares its only child's array
+            if (terminals.length == 0 && children.size() == 1) {
+                best = children.get(0).computeBest();
+                return best;
+            }
+
+            int[] merged = terminals;
+            for (Node child : children) {
+                int[] childBest = child.computeBest();
+                int[] combined = Arrays.copyOf(merged, merged.length + childBest.length);
+                System.arraycopy(childBest, 0, combined, merged.length, childBest.length);
+                merged = combined;
+            }
+
+            best = Arrays.stream(merged).sorted().distinct().limit(MAX_SUGGESTIONS).toArray();
+            return best;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.elibrary.backend.modules.book.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Splits catalog text into lower-cased, lightly stemmed search terms
+ */
+public final class TextAnalyzer {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "into", "is", "it",
+            "of", "on", "or", "the", "to", "with");
+
+    private TextAnalyzer() {
+    }
+
+    /**
+     * Tokenizes text into search terms, dropping stop words
+     *
+     * @param text the text to analyze, may be null
+     * @return the terms in the order they appear
+     */
+    public static List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String token = lower.substring(start, i);
+                if (!STOP_WORDS.contains(token)) {
+                    terms.add(stem(token));
+                }
+                start = -1;
+            }
+        }
+
+        return terms;
+    }
+
+    /**
+     * Strips common English plural and verb suffixes so "stories" matches "story" and "running" matches "run"
+     */
+    static String stem(String token) {
+        int length = token.length();
+
+        if (length > 4 && token.endsWith("ies")) {
+            return token.substring(0, length - 3) + "y";
+        }
+        if (length > 5 && token.endsWith("ing")) {
+            return undouble(token.substring(0, length - 3));
+        }
+        if (length > 4 && token.endsWith("ed")) {
+            return undouble(token.substring(0, length - 2));
+        }
+        if (length > 4 && (token.endsWith("sses") || token.endsWith("xes") || token.endsWith("ches")
+                || token.endsWith("shes"))) {
+            return token.substring(0, length - 2);
+        }
+        if (length > 3 && token.endsWith("s") && !token.endsWith("ss") && !token.endsWith("us")) {
+            return token.substring(0, length - 1);
+        }
+        return token;
+    }
+
+    /**
+     * Reduces a trailing doubled consonant left by suffix stripping, "runn" becomes "run"
+     */
+    private static String undouble(String stem) {
+        int length = stem.length();
+        if (length > 2 && stem.charAt(length - 1) == stem.charAt(length - 2)
+                && "lsz".indexOf(stem.charAt(length - 1)) < 0
+                && Character.isLetter(stem.charAt(length - 1))) {
+            return stem.substring(0, length - 1);
+        }
+        return stem;
+    }
+}
@@ -0,0 +1,388 @@
+package com.elibrary.backend.modules.book.search;
+
+import com.elibrary.backend.common.collections.LongObjectHashMap;
+import com.elibrary.backend.modules.book.entity.Book;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index over book titles and authors, used for typo tolerant lookups
+ * Candidates sharing the most trigrams with the query are re-ranked by Damerau-Levenshtein distance
+ */
+@Component
+public class TrigramIndex implements CatalogIndex {
+
+    // How many of the best trigram candidates are re-ranked by edit distance
+    private static final int MAX_CANDIDATES = 200;
+
+    // Candidates below this similarity are not returned
+    private static final float MIN_SIMILARITY = 0.5f;
+
+    private final long budgetNanos;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Trigrams are packed into a long of three 16 bit chars and used as primitive keys, never boxed
+    private final LongObjectHashMap<IntPostingList> postings = new LongObjectHashMap<>();
+
+    private final Map<Long, Integer> ordinalsByBookId = new HashMap<>();
+
+    private long[] bookIds = new long[1024];
+
+    private String[] titles = new String[1024];
+
+    private String[] authors = new String[1024];
+
+    private long[][] documentTrigrams = new long[1024][];
+
+    private int[] freeOrdinals = new int[16];
+
+    private int freeOrdinalCount;
+
+    private int ordinalCount;
+
+    // Reusable per-thread overlap counters, sized to the number of ordinals
+    private final ThreadLocal<int[]> countBuffers = ThreadLocal.withInitial(() -> new int[0]);
+
+    public TrigramIndex(@Value("${elibrary.search.fuzzy.budget-ms:50}") long budgetMillis) {
+        this.budgetNanos = budgetMillis * 1_000_000L;
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            ordinalsByBookId.clear();
+            bookIds = new long[1024];
+            titles = new String[1024];
+            authors = new String[1024];
+            documentTrigrams = new long[1024][];
+            freeOrdinalCount = 0;
+            ordinalCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Book book) {
+        String title = normalize(book.getTitle());
+        String author = normalize(book.getAuthor());
+        long[] trigrams = trigrams(title + " " + author);
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(book.getId());
+
+            int ordinal = allocateOrdinal();
+            bookIds[ordinal] = book.getId();
+            titles[ordinal] = title;
+            authors[ordinal] = author;
+            documentTrigrams[ordinal] = trigrams;
+            ordinalsByBookId.put(book.getId(), ordinal);
+
+            for (long trigram : trigrams) {
+                IntPostingList list = postings.get(trigram);
+                if (list == null) {
+                    list = new IntPostingList();
+                    postings.put(trigram, list);
+                }
+                list.add(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds books whose title or author is close to the query, allowing for typos
+     * Stops re-ranking once the latency budget is spent and returns the best matches found so far
+     *
+     * @param query  the possibly misspelled title or author
+     * @param offset the number of ranked hits to skip
+     * @param limit  the maximum number of hits to return
+     * @return the page of ranked book ids and the number of matches found
+     */
+    public SearchHits search(String query, long offset, int limit) {
+        long deadline = System.nanoTime() + budgetNanos;
+        String normalized = normalize(query);
+        long[] queryTrigrams = trigrams(normalized);
+        if (queryTrigrams.length == 0 || limit <= 0) {
+            return new SearchHits(List.of(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            int[] counts = countBuffer();
+            int[] touched = new int[64];
+            int touchedCount = 0;
+
+            // Count how many query trigrams each book shares
+            for (long trigram : queryTrigrams) {
+                IntPostingList list = postings.get(trigram);
+                if (list == null) {
+                    continue;
+                }
+                for (int i = 0; i < list.size; i++) {
+                    int ordinal = list.ordinals[i];
+                    if (counts[ordinal]++ == 0) {
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, touchedCount * 2);
+                        }
+                        touched[touchedCount++] = ordinal;
+                    }
+                }
+            }
+
+            // Keep the books with the most shared trigrams as candidates
+            PriorityQueue<Integer> candidates = new PriorityQueue<>(
+                    (a, b) -> Integer.compare(counts[a], counts[b]));
+            for (int i = 0; i < touchedCount; i++) {
+                candidates.add(touched[i]);
+                if (candidates.size() > MAX_CANDIDATES) {
+                    candidates.poll();
+                }
+            }
+
+            for (int i = 0; i < touchedCount; i++) {
+                counts[touched[i]] = 0;
+            }
+
+            // Drain best first so the strongest candidates are scored before the budget runs out
+            int[] ordered = new int[candidates.size()];
+            for (int i = ordered.length - 1; i >= 0; i--) {
+                ordered[i] = candidates.poll();
+            }
+
+            List<ScoredBook> scored = new ArrayList<>(ordered.length);
+            for (int ordinal : ordered) {
+                if (System.nanoTime() > deadline) {
+                    break;
+                }
+                float similarity = Math.max(
+                        similarity(normalized, titles[ordinal]),
+                        similarity(normalized, authors[ordinal]));
+                if (similarity >= MIN_SIMILARITY) {
+                    scored.add(new ScoredBook(bookIds[ordinal], similarity));
+                }
+            }
+
+            scored.sort((a, b) -> a.similarity != b.similarity
+                    ? Float.compare(b.similarity, a.similarity)
+                    : Long.compare(a.bookId, b.bookId));
+
+            int from = (int) Math.min(offset, scored.size());
+            int to = (int) Math.min(offset + limit, scored.size());
+            List<Long> page = new ArrayList<>(to - from);
+            for (ScoredBook book : scored.subList(from, to)) {
+                page.add(book.bookId);
+            }
+            return new SearchHits(page, scored.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Scores how close the query is to a field, from 0 for unrelated to 1 for identical
+     * Single word queries are also compared to each word, so "tolkein" matches "j r r tolkien"
+     */
+    private static float similarity(String query, String field) {
+        if (field.isEmpty()) {
+            return 0f;
+        }
+
+        float best = similarityOf(query, field);
+        if (query.indexOf(' ') < 0) {
+            for (String word : field.split(" ")) {
+                best = Math.max(best, similarityOf(query, word));
+            }
+        }
+        return best;
+    }
+
+    private static float similarityOf(String a, String b) {
+        int longest = Math.max(a.length(), b.length());
+        if (longest == 0) {
+            return 0f;
+        }
+        int maxDistance = (int) (longest * (1 - MIN_SIMILARITY));
+        int distance = editDistance(a, b, maxDistance);
+        return distance > maxDistance ? 0f : 1f - (float) distance / longest;
+    }
+
+    /**
+     * Damerau-Levenshtein distance in its optimal string alignment form, counting adjacent swaps as one edit
+     * Gives up early and returns max + 1 once the distance is known to exceed max
+     */
+    static int editDistance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+
+        int[] previousPrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMinimum = i;
+
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previousPrevious[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMinimum = Math.min(rowMinimum, value);
+            }
+
+            if (rowMinimum > max) {
+                return max + 1;
+            }
+
+            int[] recycled = previousPrevious;
+            previousPrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * Lowercases text and collapses everything that is not a letter or digit into single spaces
+     */
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+
+    /**
+     * Splits normalized text into the distinct trigrams of each word, padded so word edges count too
+     */
+    private static long[] trigrams(String text) {
+        if (text.isEmpty()) {
+            return new long[0];
+        }
+
+        long[] result = new long[16];
+        int count = 0;
+        for (String word : text.split(" ")) {
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                long trigram = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = trigram;
+            }
+        }
+        return Arrays.stream(result, 0, count).distinct().toArray();
+    }
+
+    private void removeLocked(Long bookId) {
+        Integer ordinal = ordinalsByBookId.remove(bookId);
+        if (ordinal == null) {
+            return;
+        }
+
+        for (long trigram : documentTrigrams[ordinal]) {
+            IntPostingList list = postings.get(trigram);
+            if (list != null) {
+                list.remove(ordinal);
+                if (list.size == 0) {
+                    postings.remove(trigram);
+                }
+            }
+        }
+
+        titles[ordinal] = null;
+        authors[ordinal] = null;
+        documentTrigrams[ordinal] = null;
+
+        if (freeOrdinalCount == freeOrdinals.length) {
+            freeOrdinals = Arrays.copyOf(freeOrdinals, freeOrdinalCount * 2);
+        }
+        freeOrdinals[freeOrdinalCount++] = ordinal;
+    }
+
+    private int allocateOrdinal() {
+        if (freeOrdinalCount > 0) {
+            return freeOrdinals[--freeOrdinalCount];
+        }
+
+        if (ordinalCount == bookIds.length) {
+            int capacity = ordinalCount * 2;
+            bookIds = Arrays.copyOf(bookIds, capacity);
+            titles = Arrays.copyOf(titles, capacity);
+            authors = Arrays.copyOf(authors, capacity);
+            documentTrigrams = Arrays.copyOf(documentTrigrams, capacity);
+        }
+        return ordinalCount++;
+    }
+
+    private int[] countBuffer() {
+        int[] buffer = countBuffers.get();
+        if (buffer.length < ordinalCount) {
+            buffer = new int[bookIds.length];
+            countBuffers.set(buffer);
+        }
+        return buffer;
+    }
+
+    private record ScoredBook(long bookId, float similarity) { }
+
+    /**
+     * Growable list of document ordinals for one trigram
+     */
+    private static final class IntPostingList {
+
+        private int[] ordinals = new int[4];
+
+        private int size;
+
+        void add(int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+        void remove(int ordinal) {
+            for (int i = 0; i < size; i++) {
+                if (ordinals[i] == ordinal) {
+                    // Order does not matter, so fill the gap with the last entry
+                    ordinals[i] = ordinals[--size];
+                    return;
+                }
+            }
+        }
+    }
+}
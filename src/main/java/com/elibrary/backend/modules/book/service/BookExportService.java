@@ -0,0 +1,22 @@
+package com.elibrary.backend.modules.book.service;
+
+import com.elibrary.backend.modules.book.enums.BookImportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Service interface for catalog exports
+ */
+public interface BookExportService {
+
+    /**
+     * Writes every book to the stream in id order, in a format the bulk import can read back
+     *
+     * @param format        the format to write, CSV or NDJSON
+     * @param includeCovers whether to include each cover as a base64 data URI
+     * @param out           the stream to write to, left open
+     * @throws IOException if the stream cannot be written
+     */
+    void exportBooks(BookImportFormat format, boolean includeCovers, OutputStream out) throws IOException;
+}
@@ -0,0 +1,27 @@
+package com.elibrary.backend.modules.book.service;
+
+import com.elibrary.backend.modules.book.dto.BookImportReportDTO;
+
+import java.io.InputStream;
+
+/**
+ * Service interface for bulk catalog imports
+ */
+public interface BookImportService {
+
+    /**
+     * Imports every book in a CSV or NDJSON stream, rejecting invalid rows without stopping the import
+     *
+     * @param body        the import file, read as it arrives
+     * @param contentType the content type of the stream, text/csv or application/x-ndjson
+     * @return the outcome of the import and the rejected rows
+     */
+    BookImportReportDTO importBooks(InputStream body, String contentType);
+
+    /**
+     * Fetches the progress of the running import, or the outcome of the last one
+     *
+     * @return the import report
+     */
+    BookImportReportDTO getImportProgress();
+}
@@ -1,11 +1,24 @@
 package com.elibrary.backend.modules.book.service;
 
+import com.elibrary.backend.common.pagination.CursorPage;
+import com.elibrary.backend.modules.book.dto.BookCacheStatsDTO;
 import com.elibrary.backend.modules.book.dto.BookCountDTO;
+import com.elibrary.backend.modules.book.dto.BookFilterRequest;
 import com.elibrary.backend.modules.book.dto.BookRequestDTO;
+import com.elibrary.backend.modules.book.dto.BookSummaryDTO;
+import com.elibrary.backend.modules.book.dto.CategoryFacetDTO;
+import com.elibrary.backend.modules.book.dto.SuggestionDTO;
+import com.elibrary.backend.modules.book.dto.ThumbnailQueueStatsDTO;
 import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.enums.CoverSize;
+import com.elibrary.backend.modules.book.storage.CoverSource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -14,12 +27,22 @@ import java.util.Optional;
 public interface BookService {
 
     /**
-     * Fetches a paginated list of books from the database
+     * Fetches a paginated list of book summaries from the database
      *
      * @param pageable pagination info
-     * @return paginated list of books
+     * @return paginated list of book summaries
      */
-    Page<Book> getBooks(Pageable pageable);
+    Page<BookSummaryDTO> getBooks(Pageable pageable);
+
+    /**
+     * Fetches book summaries with keyset pagination, by id or by title
+     *
+     * @param cursor the cursor from the previous page, empty for the first page
+     * @param size   the maximum number of books to return
+     * @param sort   the requested sort order
+     * @return one page of book summaries and the cursor for the next page
+     */
+    CursorPage<BookSummaryDTO> scrollBooks(String cursor, int size, Sort sort);
 
     /**
      * Fetches a single book by its id
@@ -35,19 +58,62 @@ public interface BookService {
      *
      * @param title The text to search for in book titles
      * @param pageable Pagination info like page number and size
-     * @return A paginated list of books matching the search text
+     * @return A paginated list of book summaries matching the search text
+     */
+    Page<BookSummaryDTO> getBooksByTitle(String title, Pageable pageable);
+
+
+    /**
+     * Searches titles, authors, categories and descriptions, best match first
+     *
+     * @param query    the free text query
+     * @param pageable Pagination info like page number and size
+     * @return A paginated list of book summaries ranked by relevance
+     */
+    Page<BookSummaryDTO> searchBooks(String query, Pageable pageable);
+
+    /**
+     * Finds books whose title or author is close to the query, tolerating misspellings
+     *
+     * @param query    the possibly misspelled title or author
+     * @param pageable Pagination info like page number and size
+     * @return A paginated list of book summaries, closest match first
+     */
+    Page<BookSummaryDTO> searchBooksFuzzy(String query, Pageable pageable);
+
+    /**
+     * Suggests titles and authors starting with the given prefix, most checked out first
+     *
+     * @param prefix the text typed so far
+     * @param limit  the maximum number of suggestions
+     * @return the matching suggestions
+     */
+    List<SuggestionDTO> suggest(String prefix, int limit);
+
+    /**
+     * Fetches book summaries matching every given criterion, in id order
+     *
+     * @param filter   the filter criteria
+     * @param pageable Pagination info like page number and size
+     * @return A paginated list of matching book summaries
      */
-    Page<Book> getBooksByTitle(String title, Pageable pageable);
+    Page<BookSummaryDTO> filterBooks(BookFilterRequest filter, Pageable pageable);
 
+    /**
+     * Fetches per-category counts of titles and of titles with a copy available
+     *
+     * @return the category facets, sorted by category
+     */
+    List<CategoryFacetDTO> getCategoryFacets();
 
     /**
      * Fetches a list of books by category with pagination
      *
      * @param category The category to filter books by
      * @param pageable Pagination info like page number and size
-     * @return A paginated list of books matching the given category
+     * @return A paginated list of book summaries matching the given category
      */
-    Page<Book> getBooksByCategory(String category, Pageable pageable);
+    Page<BookSummaryDTO> getBooksByCategory(String category, Pageable pageable);
 
     /**
      * Fetches the total number of books
@@ -64,6 +130,15 @@ public interface BookService {
      */
     Book createBook(BookRequestDTO request);
 
+    /**
+     * Creates a new book with an uploaded cover image
+     *
+     * @param request a book request DTO containing the book details
+     * @param cover   the uploaded cover image, may be null
+     * @return the newly created book with all details
+     */
+    Book createBook(BookRequestDTO request, MultipartFile cover);
+
     /**
      * Updates an existing book
      *
@@ -73,6 +148,48 @@ public interface BookService {
      */
     Book updateBook(Long bookId, BookRequestDTO request);
 
+    /**
+     * Updates an existing book, replacing its cover when a new one is uploaded
+     *
+     * @param bookId  the id of the book to update
+     * @param request a book request DTO containing the updated book details
+     * @param cover   the uploaded cover image, may be null to keep the current cover
+     * @return the updated book with all details
+     */
+    Book updateBook(Long bookId, BookRequestDTO request, MultipartFile cover);
+
+    /**
+     * Replaces the cover image of a book with the given raw image bytes
+     *
+     * @param bookId  the id of the book
+     * @param content the raw image bytes
+     * @return the updated book
+     */
+    Book updateCover(Long bookId, InputStream content);
+
+    /**
+     * Fetches the cover image of a book in the requested size
+     *
+     * @param bookId the id of the book
+     * @param size   the requested cover size
+     * @return the stored cover image, the original if the thumbnail is not ready yet, or the external cover URL
+     */
+    CoverSource getCover(Long bookId, CoverSize size);
+
+    /**
+     * Fetches the state of the cover thumbnail queue
+     *
+     * @return queue depth and job counters
+     */
+    ThumbnailQueueStatsDTO getThumbnailQueueStats();
+
+    /**
+     * Fetches the hit, miss and eviction counters of the book detail cache
+     *
+     * @return the cache statistics
+     */
+    BookCacheStatsDTO getBookCacheStats();
+
     /**
      * Deletes a book by id
      *
@@ -0,0 +1,109 @@
+package com.elibrary.backend.modules.book.service.Impl;
+
+import com.elibrary.backend.modules.book.dto.BookExportDTO;
+import com.elibrary.backend.modules.book.enums.BookImportFormat;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.book.service.BookExportService;
+import com.elibrary.backend.modules.book.storage.CoverImageStore;
+import com.elibrary.backend.modules.book.storage.StoredCover;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Service implementation for catalog exports
+ * Books are read in id order batches and written as they are read, so memory use does not grow with the catalog
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BookExportServiceImpl implements BookExportService {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final CsvMapper CSV_MAPPER = CsvMapper.builder()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private final BookRepository bookRepository;
+
+    private final CoverImageStore coverImageStore;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Writes every book to the stream in id order, in a format the bulk import can read back
+     *
+     * @param format        the format to write, CSV or NDJSON
+     * @param includeCovers whether to include each cover as a base64 data URI
+     * @param out           the stream to write to, left open
+     * @throws IOException if the stream cannot be written
+     */
+    @Override
+    public void exportBooks(BookImportFormat format, boolean includeCovers, OutputStream out) throws IOException {
+        long started = System.currentTimeMillis();
+        long exported = 0;
+        long lastId = 0;
+        List<BookExportDTO> batch;
+
+        try (SequenceWriter writer = openWriter(format, out)) {
+            do {
+                // Seek past the last exported id instead of using an offset, every batch is an index range scan
+                batch = bookRepository.findExportRowsAfter(lastId, Limit.of(BATCH_SIZE));
+
+                for (BookExportDTO book : batch) {
+                    writer.write(includeCovers ? book.withImg(readCover(book)) : book);
+                    lastId = book.id();
+                }
+                exported += batch.size();
+
+                // Push each batch to the client instead of buffering the whole export
+                writer.flush();
+            } while (batch.size() == BATCH_SIZE);
+        }
+
+        log.info("Exported {} books as {} in {} ms", exported, format, System.currentTimeMillis() - started);
+    }
+
+    private SequenceWriter openWriter(BookImportFormat format, OutputStream out) throws IOException {
+        ObjectWriter writer = switch (format) {
+            case CSV -> CSV_MAPPER.writer(CSV_MAPPER.schemaFor(BookExportDTO.class).withHeader());
+            case NDJSON -> objectMapper.writerFor(BookExportDTO.class).withRootValueSeparator("\n");
+        };
+
+        // The response stream belongs to the servlet container, so it must not be closed here
+        return writer.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValues(out);
+    }
+
+    /**
+     * Reads the cover of a book as a base64 data URI, or the legacy inline cover if it was never moved to the store
+     */
+    private String readCover(BookExportDTO book) throws IOException {
+        if (book.coverHash() == null) {
+            return bookRepository.findLegacyImgById(book.id()).orElse(null);
+        }
+
+        Optional<StoredCover> cover = coverImageStore.find(book.coverHash(), book.coverContentType());
+        if (cover.isEmpty()) {
+            log.warn("Cover {} of book {} is missing from the cover store", book.coverHash(), book.id());
+            return null;
+        }
+
+        byte[] bytes = Files.readAllBytes(cover.get().path());
+        return "data:" + cover.get().contentType() + ";base64," + Base64.getEncoder().encodeToString(bytes);
+    }
+}
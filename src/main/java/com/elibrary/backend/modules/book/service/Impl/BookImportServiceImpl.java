@@ -0,0 +1,304 @@
+package com.elibrary.backend.modules.book.service.Impl;
+
+import com.elibrary.backend.common.exceptions.ResourceNotFoundExceptions;
+import com.elibrary.backend.modules.book.dto.BookImportErrorDTO;
+import com.elibrary.backend.modules.book.dto.BookImportReportDTO;
+import com.elibrary.backend.modules.book.dto.BookRequestDTO;
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.enums.BookImportFormat;
+import com.elibrary.backend.modules.book.enums.BookImportStatus;
+import com.elibrary.backend.modules.book.exception.ImportAlreadyRunningException;
+import com.elibrary.backend.modules.book.exception.UnsupportedImportFormatException;
+import com.elibrary.backend.modules.book.importer.BookBatchInserter;
+import com.elibrary.backend.modules.book.importer.BookImportRow;
+import com.elibrary.backend.modules.book.importer.BookRowReader;
+import com.elibrary.backend.modules.book.importer.CsvBookRowReader;
+import com.elibrary.backend.modules.book.importer.NdjsonBookRowReader;
+import com.elibrary.backend.modules.book.search.CatalogIndex;
+import com.elibrary.backend.modules.book.service.BookImportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Service implementation for bulk catalog imports
+ * Rows are validated as they are read and written in batched inserts, one transaction per chunk
+ */
+@Service
+@Slf4j
+public class BookImportServiceImpl implements BookImportService {
+
+    // Length of the title, author and category columns
+    private static final int MAX_TEXT_LENGTH = 255;
+
+    private final BookBatchInserter bookBatchInserter;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final List<CatalogIndex> catalogIndexes;
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    private final int chunkSize;
+
+    private final int maxReportedErrors;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile ImportProgress lastImport;
+
+    public BookImportServiceImpl(BookBatchInserter bookBatchInserter,
+                                 TransactionTemplate transactionTemplate,
+                                 List<CatalogIndex> catalogIndexes,
+                                 ObjectMapper objectMapper,
+                                 Validator validator,
+                                 @Value("${elibrary.books.import.chunk-size:1000}") int chunkSize,
+                                 @Value("${elibrary.books.import.max-reported-errors:1000}") int maxReportedErrors) {
+        this.bookBatchInserter = bookBatchInserter;
+        this.transactionTemplate = transactionTemplate;
+        this.catalogIndexes = catalogIndexes;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    /**
+     * Imports every book in a CSV or NDJSON stream, rejecting invalid rows without stopping the import
+     *
+     * @param body        the import file, read as it arrives
+     * @param contentType the content type of the stream, text/csv or application/x-ndjson
+     * @return the outcome of the import and the rejected rows
+     */
+    @Override
+    public BookImportReportDTO importBooks(InputStream body, String contentType) {
+        BookImportFormat format = BookImportFormat.fromContentType(contentType);
+        if (format == null) {
+            throw new UnsupportedImportFormatException("Books can only be imported from text/csv or application/x-ndjson");
+        }
+
+        // Imports share the id sequence and the catalog indexes, so only one runs at a time
+        if (!running.compareAndSet(false, true)) {
+            throw new ImportAlreadyRunningException("Another book import is still running");
+        }
+
+        ImportProgress progress = new ImportProgress(format, maxReportedErrors);
+        lastImport = progress;
+        log.info("Started {} book import", format);
+
+        try (BookRowReader reader = openReader(format, body)) {
+            List<Book> chunk = new ArrayList<>(chunkSize);
+            List<Long> chunkRows = new ArrayList<>(chunkSize);
+            Timestamp importedAt = new Timestamp(System.currentTimeMillis());
+
+            BookImportRow row;
+            while ((row = reader.next()) != null) {
+                progress.rowRead();
+
+                // Reject rows that could not be parsed or fail the same checks as a single created book
+                String error = row.error() != null ? row.error() : validate(row.request());
+                if (error != null) {
+                    progress.rejected(row.row(), error);
+                    continue;
+                }
+
+                chunk.add(toBook(row.request(), importedAt));
+                chunkRows.add(row.row());
+
+                if (chunk.size() >= chunkSize) {
+                    writeChunk(chunk, chunkRows, progress);
+                    chunk.clear();
+                    chunkRows.clear();
+                }
+            }
+            writeChunk(chunk, chunkRows, progress);
+
+            progress.finish(BookImportStatus.COMPLETED, null);
+        } catch (IOException | RuntimeException ex) {
+            // Chunks written so far stay committed, the report says how far the import got
+            log.error("Book import failed after {} rows", progress.rowsRead, ex);
+            progress.finish(BookImportStatus.FAILED, ex.getMessage());
+        } finally {
+            running.set(false);
+        }
+
+        BookImportReportDTO report = progress.toReport();
+        log.info("Finished {} book import with status {}: {} rows read, {} imported, {} rejected",
+                format, report.status(), report.rowsRead(), report.rowsImported(), report.rowsRejected());
+        return report;
+    }
+
+    /**
+     * Fetches the progress of the running import, or the outcome of the last one
+     *
+     * @return the import report
+     */
+    @Override
+    public BookImportReportDTO getImportProgress() {
+        ImportProgress progress = lastImport;
+        if (progress == null) {
+            throw new ResourceNotFoundExceptions("No book import has been run");
+        }
+        return progress.toReport();
+    }
+
+    private BookRowReader openReader(BookImportFormat format, InputStream body) throws IOException {
+        return switch (format) {
+            case CSV -> new CsvBookRowReader(body, objectMapper);
+            case NDJSON -> new NdjsonBookRowReader(body, objectMapper);
+        };
+    }
+
+    /**
+     * Writes one chunk in a single transaction and adds it to the catalog indexes
+     * If the batch fails for any reason, the chunk is retried row by row so only the rows that fail on their own are
+     * rejected
+     */
+    private void writeChunk(List<Book> chunk, List<Long> chunkRows, ImportProgress progress) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> bookBatchInserter.insert(chunk));
+            indexAll(chunk);
+            progress.imported(chunk.size());
+        } catch (RuntimeException ex) {
+            log.warn("Batch insert of {} books failed, retrying row by row: {}", chunk.size(), ex.getMessage());
+
+            for (int i = 0; i < chunk.size(); i++) {
+                List<Book> single = List.of(chunk.get(i));
+                try {
+                    transactionTemplate.executeWithoutResult(status -> bookBatchInserter.insert(single));
+                    indexAll(single);
+                    progress.imported(1);
+                } catch (RuntimeException rowEx) {
+                    progress.rejected(chunkRows.get(i), NestedExceptionUtils.getMostSpecificCause(rowEx).getMessage());
+                }
+            }
+        }
+        log.debug("Book import progress: {} rows read, {} imported", progress.rowsRead, progress.rowsImported);
+    }
+
+    private void indexAll(List<Book> books) {
+        for (Book book : books) {
+            catalogIndexes.forEach(index -> index.index(book));
+        }
+    }
+
+    /**
+     * Checks a row against the book request constraints and the column lengths
+     *
+     * @return the reason the row is invalid, or null if it can be imported
+     */
+    private String validate(BookRequestDTO request) {
+        List<String> problems = validator.validate(request).stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.toCollection(ArrayList::new));
+
+        if (tooLong(request.getTitle())) {
+            problems.add("Title must be at most " + MAX_TEXT_LENGTH + " characters");
+        }
+        if (tooLong(request.getAuthor())) {
+            problems.add("Author must be at most " + MAX_TEXT_LENGTH + " characters");
+        }
+        if (tooLong(request.getCategory())) {
+            problems.add("Category must be at most " + MAX_TEXT_LENGTH + " characters");
+        }
+
+        return problems.isEmpty() ? null : String.join(", ", problems);
+    }
+
+    private static boolean tooLong(String value) {
+        return value != null && value.length() > MAX_TEXT_LENGTH;
+    }
+
+    private static Book toBook(BookRequestDTO request, Timestamp importedAt) {
+        Book book = new Book();
+        book.setTitle(request.getTitle());
+        book.setAuthor(request.getAuthor());
+        book.setDescription(request.getDescription());
+        book.setCopies(request.getCopies());
+        book.setCopiesAvailable(request.getCopiesAvailable());
+        book.setCategory(request.getCategory());
+        book.setCreatedAt(importedAt);
+
+        // Image URLs stay external covers, inline images are moved into the cover store on first request
+        book.setImg(request.getImg());
+        return book;
+    }
+
+    /**
+     * Counters of one import, written by the importing thread and read by progress requests
+     */
+    private static class ImportProgress {
+
+        private final BookImportFormat format;
+
+        private final int maxReportedErrors;
+
+        private final LocalDateTime startedAt = LocalDateTime.now();
+
+        private final List<BookImportErrorDTO> errors = new ArrayList<>();
+
+        private volatile BookImportStatus status = BookImportStatus.RUNNING;
+
+        private volatile long rowsRead;
+
+        private volatile long rowsImported;
+
+        private volatile long rowsRejected;
+
+        private volatile String failure;
+
+        private volatile LocalDateTime finishedAt;
+
+        ImportProgress(BookImportFormat format, int maxReportedErrors) {
+            this.format = format;
+            this.maxReportedErrors = maxReportedErrors;
+        }
+
+        void rowRead() {
+            rowsRead++;
+        }
+
+        void imported(int rows) {
+            rowsImported += rows;
+        }
+
+        synchronized void rejected(long row, String message) {
+            rowsRejected++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new BookImportErrorDTO(row, message));
+            }
+        }
+
+        void finish(BookImportStatus status, String failure) {
+            this.failure = failure;
+            this.finishedAt = LocalDateTime.now();
+            this.status = status;
+        }
+
+        synchronized BookImportReportDTO toReport() {
+            return new BookImportReportDTO(status, format, rowsRead, rowsImported, rowsRejected,
+                    List.copyOf(errors), rowsRejected > errors.size(), failure, startedAt, finishedAt);
+        }
+    }
+}
@@ -1,18 +1,61 @@
 package com.elibrary.backend.modules.book.service.Impl;
 
+import com.elibrary.backend.common.exceptions.InvalidCursorException;
 import com.elibrary.backend.common.exceptions.ResourceNotFoundExceptions;
+import com.elibrary.backend.common.pagination.CursorCodec;
+import com.elibrary.backend.common.pagination.CursorPage;
+import com.elibrary.backend.modules.book.cache.BookDetailCache;
+import com.elibrary.backend.modules.book.dto.BookCacheStatsDTO;
 import com.elibrary.backend.modules.book.dto.BookCountDTO;
+import com.elibrary.backend.modules.book.dto.BookFilterRequest;
+import com.elibrary.backend.modules.book.dto.BookCoverRef;
 import com.elibrary.backend.modules.book.dto.BookRequestDTO;
+import com.elibrary.backend.modules.book.dto.BookSummaryDTO;
+import com.elibrary.backend.modules.book.dto.CategoryFacetDTO;
+import com.elibrary.backend.modules.book.dto.SuggestionDTO;
+import com.elibrary.backend.modules.book.dto.ThumbnailQueueStatsDTO;
 import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.enums.CoverSize;
+import com.elibrary.backend.modules.book.exception.InvalidCoverImageException;
 import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.book.search.BookFilterIndex;
+import com.elibrary.backend.modules.book.search.CatalogIndex;
+import com.elibrary.backend.modules.book.search.CategoryFacetIndex;
+import com.elibrary.backend.modules.book.search.InvertedIndex;
+import com.elibrary.backend.modules.book.search.SearchHits;
+import com.elibrary.backend.modules.book.search.SuggestionIndex;
+import com.elibrary.backend.modules.book.search.TrigramIndex;
 import com.elibrary.backend.modules.book.service.BookService;
+import com.elibrary.backend.modules.book.storage.BookCovers;
+import com.elibrary.backend.modules.book.storage.CoverImageStore;
+import com.elibrary.backend.modules.book.storage.CoverSource;
+import com.elibrary.backend.modules.book.storage.CoverThumbnailGenerator;
+import com.elibrary.backend.modules.book.storage.StoredCover;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Service implementation for business logic involving book
@@ -22,18 +65,87 @@ import java.util.Optional;
 @Service
 public class BookServiceImpl implements BookService {
 
+    private static final Sort SCROLL_BY_ID = Sort.by("id");
+
+    private static final Sort SCROLL_BY_TITLE = Sort.by("title", "id");
+
     private final BookRepository bookRepository;
 
+    private final CoverImageStore coverImageStore;
+
+    private final CoverThumbnailGenerator coverThumbnailGenerator;
+
+    private final InvertedIndex invertedIndex;
+
+    private final TrigramIndex trigramIndex;
+
+    private final SuggestionIndex suggestionIndex;
+
+    private final CategoryFacetIndex categoryFacetIndex;
+
+    private final BookFilterIndex bookFilterIndex;
+
+    private final BookDetailCache bookDetailCache;
+
+    private final List<CatalogIndex> catalogIndexes;
+
+    // Books whose legacy inline cover could not be decoded, they are answered with 404 without another attempt
+    private final Set<Long> unmigratableCovers = ConcurrentHashMap.newKeySet();
+
 
     /**
-     * Fetches a paginated list of books from the database
+     * Fetches a paginated list of book summaries from the database
      *
      * @param pageable pagination info
-     * @return paginated list of books
+     * @return paginated list of book summaries
      */
     @Override
-    public Page<Book> getBooks(Pageable pageable) {
-        return bookRepository.findAll(pageable);
+    public Page<BookSummaryDTO> getBooks(Pageable pageable) {
+        return bookRepository.findAllSummaries(pageable);
+    }
+
+    /**
+     * Fetches book summaries with keyset pagination, by id or by title
+     *
+     * @param cursor the cursor from the previous page, empty for the first page
+     * @param size   the maximum number of books to return
+     * @param sort   the requested sort order
+     * @return one page of book summaries and the cursor for the next page
+     */
+    @Override
+    public CursorPage<BookSummaryDTO> scrollBooks(String cursor, int size, Sort sort) {
+
+        // Only orders with a matching index and seek query are allowed
+        Sort scrollSort = CursorCodec.resolveSort(sort, SCROLL_BY_ID, Set.of("id", "title"));
+        if (!scrollSort.equals(SCROLL_BY_ID) && !scrollSort.equals(SCROLL_BY_TITLE)) {
+            throw new InvalidCursorException("Books can only be scrolled by id or by title in ascending order");
+        }
+
+        KeysetScrollPosition position = CursorCodec.decode(cursor, scrollSort);
+        Long afterId = CursorCodec.keyValue(position, "id", Long.class, 0L);
+
+        // Read one extra row to find out whether another page follows
+        Limit limit = CursorCodec.limit(size);
+        Limit lookahead = Limit.of(limit.max() + 1);
+        List<BookSummaryDTO> books = scrollSort.equals(SCROLL_BY_TITLE)
+                ? bookRepository.findSummariesAfterTitle(
+                        CursorCodec.keyValue(position, "title", String.class, ""), afterId, lookahead)
+                : bookRepository.findSummariesAfterId(afterId, lookahead);
+
+        if (books.size() <= limit.max()) {
+            return new CursorPage<>(books, books.size(), false, null);
+        }
+
+        // Encode the sort keys of the last book on this page as the next cursor
+        List<BookSummaryDTO> page = books.subList(0, limit.max());
+        BookSummaryDTO last = page.get(page.size() - 1);
+        Map<String, Object> keys = new LinkedHashMap<>();
+        if (scrollSort.equals(SCROLL_BY_TITLE)) {
+            keys.put("title", last.title());
+        }
+        keys.put("id", last.id());
+
+        return new CursorPage<>(List.copyOf(page), page.size(), true, CursorCodec.encode(keys, scrollSort));
     }
 
     /**
@@ -45,7 +157,8 @@ public class BookServiceImpl implements BookService {
     @Override
     public Optional<Book> getBookById(Long id) {
 
-        Optional<Book> book = bookRepository.findById(id);
+        // Served from the detail cache, which loads from the database on a miss
+        Optional<Book> book = bookDetailCache.get(id);
 
         if (book.isEmpty()) {
             throw new ResourceNotFoundExceptions("The requested book could not be found");
@@ -61,27 +174,97 @@ public class BookServiceImpl implements BookService {
      *
      * @param title    The text to search for in book titles
      * @param pageable Pagination info like page number and size
-     * @return A paginated list of books matching the search text
+     * @return A paginated list of book summaries matching the search text
      */
     @Override
-    public Page<Book> getBooksByTitle(String title, Pageable pageable) {
-        Page<Book> books = bookRepository.findByTitleContaining(title, pageable);
-        if (books.isEmpty()) {
-            throw new ResourceNotFoundExceptions("No books matching the given title were found");
+    public Page<BookSummaryDTO> getBooksByTitle(String title, Pageable pageable) {
+        Page<BookSummaryDTO> books = bookRepository.findSummariesByTitleContaining(title, pageable);
+
+        // Fall back to typo tolerant matching when the exact text is not in any title
+        if (books.getTotalElements() == 0) {
+            return searchBooksFuzzy(title, pageable);
         }
         return books;
     }
 
+    /**
+     * Finds books whose title or author is close to the query, tolerating misspellings
+     *
+     * @param query    the possibly misspelled title or author
+     * @param pageable Pagination info like page number and size
+     * @return A paginated list of book summaries, closest match first
+     */
+    @Override
+    public Page<BookSummaryDTO> searchBooksFuzzy(String query, Pageable pageable) {
+        SearchHits hits = trigramIndex.search(query, pageable.getOffset(), pageable.getPageSize());
+        return new PageImpl<>(findSummariesInOrder(hits.bookIds()), pageable, hits.totalHits());
+    }
+
+    /**
+     * Searches titles, authors, categories and descriptions, best match first
+     *
+     * @param query    the free text query
+     * @param pageable Pagination info like page number and size
+     * @return A paginated list of book summaries ranked by relevance
+     */
+    @Override
+    public Page<BookSummaryDTO> searchBooks(String query, Pageable pageable) {
+
+        // Rank matching book ids in memory, then load just this page of summaries
+        SearchHits hits = invertedIndex.search(query, pageable.getOffset(), pageable.getPageSize());
+
+        return new PageImpl<>(findSummariesInOrder(hits.bookIds()), pageable, hits.totalHits());
+    }
+
+    /**
+     * Suggests titles and authors starting with the given prefix, most checked out first
+     *
+     * @param prefix the text typed so far
+     * @param limit  the maximum number of suggestions
+     * @return the matching suggestions
+     */
+    @Override
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        return suggestionIndex.suggest(prefix, limit);
+    }
+
+    /**
+     * Fetches book summaries matching every given criterion, in id order
+     * The filtering is done on in-memory bitmaps, the database is only asked for the summaries of one page
+     *
+     * @param filter   the filter criteria
+     * @param pageable Pagination info like page number and size
+     * @return A paginated list of matching book summaries
+     */
+    @Override
+    public Page<BookSummaryDTO> filterBooks(BookFilterRequest filter, Pageable pageable) {
+        RoaringBitmap matches = bookFilterIndex.filter(filter);
+        List<Long> bookIds = BookFilterIndex.page(matches, pageable.getOffset(), pageable.getPageSize());
+
+        return new PageImpl<>(findSummariesInOrder(bookIds), pageable, matches.getLongCardinality());
+    }
+
+    /**
+     * Fetches per-category counts of titles and of titles with a copy available
+     * Served from memory, the counts are kept up to date as books and loans change
+     *
+     * @return the category facets, sorted by category
+     */
+    @Override
+    public List<CategoryFacetDTO> getCategoryFacets() {
+        return categoryFacetIndex.getFacets();
+    }
+
     /**
      * Fetches a list of books by category with pagination
      *
      * @param category The category to filter books by
      * @param pageable Pagination info like page number and size
-     * @return A paginated list of books matching the given category
+     * @return A paginated list of book summaries matching the given category
      */
     @Override
-    public Page<Book> getBooksByCategory(String category, Pageable pageable) {
-        Page<Book> books = bookRepository.findByCategory(category, pageable);
+    public Page<BookSummaryDTO> getBooksByCategory(String category, Pageable pageable) {
+        Page<BookSummaryDTO> books = bookRepository.findSummariesByCategory(category, pageable);
         if (books.isEmpty()) {
             throw new ResourceNotFoundExceptions("No books found in the specified category");
         }
@@ -110,16 +293,23 @@ public class BookServiceImpl implements BookService {
      */
     @Override
     public Book createBook(BookRequestDTO request) {
+        return createBook(request, null);
+    }
+
+    /**
+     * Creates a new book with an uploaded cover image
+     *
+     * @param request a book request DTO containing the book details
+     * @param cover   the uploaded cover image, may be null
+     * @return the newly created book with all details saved in the database
+     */
+    @Override
+    public Book createBook(BookRequestDTO request, MultipartFile cover) {
         Book book = new Book();
-        book.setTitle(request.getTitle());
-        book.setAuthor(request.getAuthor());
-        book.setDescription(request.getDescription());
-        book.setCopies(request.getCopies());
-        book.setCopiesAvailable(request.getCopiesAvailable());
-        book.setCategory(request.getCategory());
-        book.setImg(request.getImg());
+        applyRequest(book, request);
+        applyCover(book, request, cover);
 
-        return bookRepository.save(book);
+        return saveAndIndex(book);
     }
 
     /**
@@ -131,18 +321,94 @@ public class BookServiceImpl implements BookService {
      */
     @Override
     public Book updateBook(Long bookId, BookRequestDTO request) {
+        return updateBook(bookId, request, null);
+    }
+
+    /**
+     * Updates an existing book, replacing its cover when a new one is uploaded
+     *
+     * @param bookId  the id of the book to update
+     * @param request a book request DTO containing the updated book details
+     * @param cover   the uploaded cover image, may be null to keep the current cover
+     * @return the updated book with all details saved in the database
+     */
+    @Override
+    public Book updateBook(Long bookId, BookRequestDTO request, MultipartFile cover) {
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new ResourceNotFoundExceptions("The requested book could not be found"));
 
-        book.setTitle(request.getTitle());
-        book.setAuthor(request.getAuthor());
-        book.setDescription(request.getDescription());
-        book.setCopies(request.getCopies());
-        book.setCopiesAvailable(request.getCopiesAvailable());
-        book.setCategory(request.getCategory());
-        book.setImg(request.getImg());
+        applyRequest(book, request);
+        applyCover(book, request, cover);
+
+        return saveAndIndex(book);
+    }
+
+    /**
+     * Replaces the cover image of a book with the given raw image bytes
+     *
+     * @param bookId  the id of the book
+     * @param content the raw image bytes
+     * @return the updated book
+     */
+    @Override
+    public Book updateCover(Long bookId, InputStream content) {
+        Book book = bookRepository.findById(bookId)
+                .orElseThrow(() -> new ResourceNotFoundExceptions("The requested book could not be found"));
+
+        setStoredCover(book, coverImageStore.store(content));
+
+        return saveAndIndex(book);
+    }
+
+    /**
+     * Fetches the stored cover image of a book in the requested size
+     * Falls back to the original while a thumbnail has not been rendered yet, and for good when it cannot be
+     * Books still holding a legacy inline image have it moved into the cover store first, legacy image URLs are
+     * served as external covers
+     *
+     * @param bookId the id of the book
+     * @param size   the requested cover size
+     * @return the stored cover image
+     */
+    @Override
+    public CoverSource getCover(Long bookId, CoverSize size) {
+        CoverSource source = getOriginalCover(bookId);
+
+        // External covers have no thumbnails, the client is sent to the URL whatever the size
+        if (source.isExternal() || size == CoverSize.ORIGINAL) {
+            return source;
+        }
+
+        // Serve the thumbnail if it exists, otherwise queue it and serve the original for now
+        StoredCover original = source.stored();
+        return CoverSource.stored(coverImageStore.findVariant(original.hash(), size)
+                .orElseGet(() -> {
+                    if (coverThumbnailGenerator.isUnrenderable(original.hash())) {
+                        return original;
+                    }
+                    coverThumbnailGenerator.enqueue(original);
+                    return original.asFallback();
+                }));
+    }
 
-        return bookRepository.save(book);
+    /**
+     * Fetches the state of the cover thumbnail queue
+     *
+     * @return queue depth and job counters
+     */
+    @Override
+    public ThumbnailQueueStatsDTO getThumbnailQueueStats() {
+        return coverThumbnailGenerator.getStats();
+    }
+
+    /**
+     * Fetches the hit, miss and eviction counters of the book detail cache
+     *
+     * @return the cache statistics
+     */
+    @Override
+    public BookCacheStatsDTO getBookCacheStats() {
+        return bookDetailCache.getStats();
     }
 
     /**
@@ -156,8 +422,137 @@ public class BookServiceImpl implements BookService {
                 .orElseThrow(() -> new ResourceNotFoundExceptions("The requested book could not be found"));
 
         bookRepository.delete(book);
+        catalogIndexes.forEach(index -> index.remove(bookId));
     }
 
-}
+    /**
+     * Finds the original cover of a book, moving a legacy inline image into the store if needed
+     */
+    private CoverSource getOriginalCover(Long bookId) {
+        BookCoverRef ref = bookRepository.findCoverRefById(bookId)
+                .orElseThrow(() -> new ResourceNotFoundExceptions("The requested book could not be found"));
+
+        // Serve straight from the store when the cover has already been written there
+        if (ref.coverHash() != null) {
+            return CoverSource.stored(coverImageStore.find(ref.coverHash(), ref.coverContentType())
+                    .orElseThrow(() -> new ResourceNotFoundExceptions("The requested cover could not be found")));
+        }
 
+        // Legacy covers that already failed to move are not decoded and logged again
+        if (unmigratableCovers.contains(bookId)) {
+            throw new ResourceNotFoundExceptions("The requested book has no cover image");
+        }
 
+        Book book = bookRepository.findById(bookId)
+                .orElseThrow(() -> new ResourceNotFoundExceptions("The requested book could not be found"));
+
+        if (!StringUtils.hasText(book.getImg())) {
+            throw new ResourceNotFoundExceptions("The requested book has no cover image");
+        }
+
+        // Image URLs stay where they are hosted
+        if (BookCovers.isExternalUrl(book.getImg())) {
+            return CoverSource.external(book.getImg().strip());
+        }
+
+        // Otherwise move the legacy inline image into the store
+        StoredCover storedCover;
+        try {
+            storedCover = coverImageStore.store(BookCovers.decodeInlineImage(book.getImg()));
+        } catch (InvalidCoverImageException ex) {
+            unmigratableCovers.add(bookId);
+            log.warn("Legacy cover of book {} could not be migrated, not retrying: {}", bookId, ex.getMessage());
+            throw new ResourceNotFoundExceptions("The requested book has no cover image");
+        }
+
+        setStoredCover(book, storedCover);
+        saveAndIndex(book);
+        log.info("Moved legacy cover of book {} into the cover store", bookId);
+
+        return CoverSource.stored(storedCover);
+    }
+
+    /**
+     * Saves a book and refreshes it in every catalog index
+     */
+    private Book saveAndIndex(Book book) {
+        Book saved = bookRepository.save(book);
+        catalogIndexes.forEach(index -> index.index(saved));
+        return saved;
+    }
+
+    /**
+     * Loads book summaries for the given ids, keeping the order of the ids
+     */
+    private List<BookSummaryDTO> findSummariesInOrder(List<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, BookSummaryDTO> summariesById = bookRepository.findSummariesByIds(bookIds).stream()
+                .collect(Collectors.toMap(BookSummaryDTO::id, Function.identity()));
+
+        return bookIds.stream()
+                .map(summariesById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Copies the book details from the request onto the entity
+     */
+    private void applyRequest(Book book, BookRequestDTO request) {
+        book.setTitle(request.getTitle());
+        book.setAuthor(request.getAuthor());
+        book.setDescription(request.getDescription());
+        book.setCopies(request.getCopies());
+        book.setCopiesAvailable(request.getCopiesAvailable());
+        book.setCategory(request.getCategory());
+    }
+
+    /**
+     * Stores the cover from the upload, or from the image URL or base64 image in the request, when one is given
+     */
+    private void applyCover(Book book, BookRequestDTO request, MultipartFile cover) {
+        if (cover != null && !cover.isEmpty()) {
+            try (InputStream content = cover.getInputStream()) {
+                setStoredCover(book, coverImageStore.store(content));
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Unable to read uploaded cover image", ex);
+            }
+        } else if (BookCovers.isExternalUrl(request.getImg())) {
+            setExternalCover(book, request.getImg().strip());
+        } else if (StringUtils.hasText(request.getImg())) {
+            setStoredCover(book, coverImageStore.store(BookCovers.decodeInlineImage(request.getImg())));
+        }
+    }
+
+    /**
+     * Points the book at a stored cover, drops any legacy inline image and queues its thumbnails
+     */
+    private void setStoredCover(Book book, StoredCover storedCover) {
+        book.setCoverHash(storedCover.hash());
+        book.setCoverContentType(storedCover.contentType());
+        book.setImg(null);
+        forgetFailedMigration(book);
+
+        coverThumbnailGenerator.enqueue(storedCover);
+    }
+
+    /**
+     * Points the book at a cover hosted elsewhere, dropping any stored cover
+     */
+    private void setExternalCover(Book book, String url) {
+        book.setCoverHash(null);
+        book.setCoverContentType(null);
+        book.setImg(url);
+        forgetFailedMigration(book);
+    }
+
+    private void forgetFailedMigration(Book book) {
+        if (book.getId() != null) {
+            unmigratableCovers.remove(book.getId());
+        }
+    }
+
+}
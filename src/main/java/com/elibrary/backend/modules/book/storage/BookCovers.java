@@ -0,0 +1,65 @@
+package com.elibrary.backend.modules.book.storage;
+
+import com.elibrary.backend.modules.book.exception.InvalidCoverImageException;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * Helper for building book cover URLs and reading the covers books were created with before the cover store
+ */
+public final class BookCovers {
+
+    private BookCovers() {
+    }
+
+    /**
+     * Builds the cover URL for a book
+     * When the cover hash is known it is added as a version so clients can cache the image indefinitely
+     *
+     * @param bookId    the id of the book
+     * @param coverHash the hash of the stored cover, may be null
+     * @return the cover URL relative to the API root, or null if the book has not been saved yet
+     */
+    public static String coverUrl(Long bookId, String coverHash) {
+        if (bookId == null) {
+            return null;
+        }
+        return coverHash == null
+                ? "/books/" + bookId + "/cover"
+                : "/books/" + bookId + "/cover?v=" + coverHash;
+    }
+
+    /**
+     * Checks if a legacy cover value is an external image URL rather than an inline image
+     *
+     * @param img the legacy cover value, may be null
+     * @return true if the value is an http or https URL
+     */
+    public static boolean isExternalUrl(String img) {
+        if (img == null) {
+            return false;
+        }
+        String value = img.strip().toLowerCase(Locale.ROOT);
+        return value.startsWith("http://") || value.startsWith("https://");
+    }
+
+    /**
+     * Decodes a base64 image, with or without a data URI prefix
+     * Uses the strict decoder so text that is not base64, such as a URL, is rejected instead of decoded to garbage
+     *
+     * @param img the inline image
+     * @return the decoded image bytes
+     */
+    public static InputStream decodeInlineImage(String img) {
+        String base64 = img.startsWith("data:") ? img.substring(img.indexOf(',') + 1) : img;
+        try {
+            // Line breaks are allowed between base64 lines, anything else must be part of the alphabet
+            return new ByteArrayInputStream(Base64.getDecoder().decode(base64.strip().replaceAll("[\\r\\n]", "")));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidCoverImageException("Cover image must be an http(s) URL or base64 encoded");
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.elibrary.backend.modules.book.storage;
+
+import com.elibrary.backend.modules.book.enums.CoverSize;
+import com.elibrary.backend.modules.book.exception.InvalidCoverImageException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed store for book cover images on local disk
+ * Each file is named after the SHA-256 of its bytes, so identical covers are only stored once
+ */
+@Slf4j
+@Component
+public class CoverImageStore {
+
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private static final int SNIFF_LENGTH = 12;
+
+    private static final String THUMBNAIL_CONTENT_TYPE = "image/jpeg";
+
+    private final Path rootDirectory;
+
+    private final long maxCoverBytes;
+
+    public CoverImageStore(@Value("${elibrary.covers.directory:covers}") String rootDirectory,
+                           @Value("${elibrary.covers.max-bytes:10485760}") long maxCoverBytes) {
+        this.rootDirectory = Paths.get(rootDirectory).toAbsolutePath().normalize();
+        this.maxCoverBytes = maxCoverBytes;
+    }
+
+    /**
+     * Writes the given image bytes to the store
+     * The content is streamed to a temporary file while being hashed, then moved to its hash-named location
+     *
+     * @param content the raw image bytes
+     * @return the stored cover, or the already stored copy if the same bytes were written before
+     */
+    public StoredCover store(InputStream content) {
+        try {
+            Path tempDirectory = Files.createDirectories(rootDirectory.resolve("tmp"));
+            Path tempFile = Files.createTempFile(tempDirectory, "upload-", ".part");
+
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                byte[] head = new byte[SNIFF_LENGTH];
+                int headLength = 0;
+                long size = 0;
+
+                // Copy the upload to the temporary file, hashing it and keeping the first bytes for type detection
+                try (OutputStream out = new DigestOutputStream(Files.newOutputStream(tempFile), digest)) {
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = content.read(buffer)) != -1) {
+                        if (headLength < SNIFF_LENGTH) {
+                            int copied = Math.min(read, SNIFF_LENGTH - headLength);
+                            System.arraycopy(buffer, 0, head, headLength, copied);
+                            headLength += copied;
+                        }
+                        size += read;
+                        if (size > maxCoverBytes) {
+                            throw new InvalidCoverImageException("Cover image exceeds the maximum allowed size");
+                        }
+                        out.write(buffer, 0, read);
+                    }
+                }
+
+                if (size == 0) {
+                    throw new InvalidCoverImageException("Cover image is empty");
+                }
+
+                String contentType = detectContentType(head, headLength)
+                        .orElseThrow(() -> new InvalidCoverImageException("Cover must be a PNG, JPEG, GIF or WebP image"));
+
+                String hash = HexFormat.of().formatHex(digest.digest());
+                Path target = pathFor(hash);
+
+                // Only move the file in if this content is not already stored
+                if (!Files.exists(target)) {
+                    Files.createDirectories(target.getParent());
+                    Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+                    log.info("Stored new cover image {} ({} bytes)", hash, size);
+                }
+
+                return new StoredCover(hash, contentType, target, size);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to store cover image", ex);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    /**
+     * Finds a stored cover by its hash
+     *
+     * @param hash        the SHA-256 hash of the cover
+     * @param contentType the content type recorded for the cover
+     * @return the stored cover, or empty if no file exists for the hash
+     */
+    public Optional<StoredCover> find(String hash, String contentType) {
+        if (hash == null || !HASH_PATTERN.matcher(hash).matches()) {
+            return Optional.empty();
+        }
+
+        Path path = pathFor(hash);
+        try {
+            return Optional.of(new StoredCover(hash, contentType, path, Files.size(path)));
+        } catch (IOException ex) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Finds a pre-rendered thumbnail of a stored cover
+     *
+     * @param hash the SHA-256 hash of the original cover
+     * @param size the thumbnail size
+     * @return the thumbnail, or empty if it has not been rendered yet
+     */
+    public Optional<StoredCover> findVariant(String hash, CoverSize size) {
+        if (hash == null || !HASH_PATTERN.matcher(hash).matches()) {
+            return Optional.empty();
+        }
+
+        Path path = variantPathFor(hash, size);
+        try {
+            return Optional.of(new StoredCover(hash, THUMBNAIL_CONTENT_TYPE, path, Files.size(path)));
+        } catch (IOException ex) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Writes a rendered thumbnail next to its original cover
+     * The file is written to a temporary location first so readers never see a partial image
+     *
+     * @param hash   the SHA-256 hash of the original cover
+     * @param size   the thumbnail size
+     * @param writer writes the encoded thumbnail to the given stream
+     */
+    public void storeVariant(String hash, CoverSize size, VariantWriter writer) throws IOException {
+        Path target = variantPathFor(hash, size);
+        Path tempDirectory = Files.createDirectories(rootDirectory.resolve("tmp"));
+        Path tempFile = Files.createTempFile(tempDirectory, "variant-", ".part");
+
+        try {
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                writer.write(out);
+            }
+            Files.createDirectories(target.getParent());
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Writes an encoded thumbnail to an output stream
+     */
+    @FunctionalInterface
+    public interface VariantWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Resolves the location of a thumbnail, stored beside the original cover
+     */
+    private Path variantPathFor(String hash, CoverSize size) {
+        return pathFor(hash).resolveSibling(hash + "-" + size.name().toLowerCase() + ".jpg");
+    }
+
+    /**
+     * Resolves the location of a cover file, sharded by the first two hash characters
+     */
+    private Path pathFor(String hash) {
+        return rootDirectory.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /**
+     * Detects the image type from the leading bytes of the file
+     */
+    private static Optional<String> detectContentType(byte[] head, int length) {
+        if (length >= 8 && (head[0] & 0xFF) == 0x89 && head[1] == 'P' && head[2] == 'N' && head[3] == 'G') {
+            return Optional.of("image/png");
+        }
+        if (length >= 3 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xD8 && (head[2] & 0xFF) == 0xFF) {
+            return Optional.of("image/jpeg");
+        }
+        if (length >= 4 && head[0] == 'G' && head[1] == 'I' && head[2] == 'F' && head[3] == '8') {
+            return Optional.of("image/gif");
+        }
+        if (length >= 12 && head[0] == 'R' && head[1] == 'I' && head[2] == 'F' && head[3] == 'F'
+                && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') {
+            return Optional.of("image/webp");
+        }
+        return Optional.empty();
+    }
+}
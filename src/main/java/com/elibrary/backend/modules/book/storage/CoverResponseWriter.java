@@ -0,0 +1,98 @@
+package com.elibrary.backend.modules.book.storage;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes stored cover images to HTTP responses
+ * Uses the servlet container's sendfile support when available, otherwise copies with FileChannel.transferTo
+ */
+@Component
+public class CoverResponseWriter {
+
+    private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+
+    private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+
+    private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+
+    private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    private static final String REVALIDATE_CACHE_CONTROL = "public, no-cache";
+
+    /**
+     * Writes a cover to the response, or redirects to it when it is hosted elsewhere
+     *
+     * @param cover     the cover to send
+     * @param version   the cover version requested by the client, may be null
+     * @param request   the HTTP request
+     * @param response  the HTTP response
+     */
+    public void write(CoverSource cover, String version, HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+        if (cover.isExternal()) {
+            // The URL may be changed to a stored cover later, so the redirect is never cached for good
+            response.setHeader(HttpHeaders.CACHE_CONTROL, REVALIDATE_CACHE_CONTROL);
+            response.sendRedirect(cover.externalUrl());
+            return;
+        }
+        write(cover.stored(), version, request, response);
+    }
+
+    /**
+     * Writes a cover to the response, answering with 304 NOT MODIFIED when the client already has it
+     *
+     * @param cover     the stored cover to send
+     * @param version   the cover version requested by the client, may be null
+     * @param request   the HTTP request
+     * @param response  the HTTP response
+     */
+    public void write(StoredCover cover, String version, HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+        // The file name is the hash for originals and hash plus size for thumbnails
+        String etag = "\"" + cover.path().getFileName() + "\"";
+
+        // A versioned URL always points at the same bytes, so it can be cached forever, except while an original
+        // stands in for a thumbnail that will replace it under the same URL
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cover.hash().equals(version) && !cover.fallback()
+                ? IMMUTABLE_CACHE_CONTROL : REVALIDATE_CACHE_CONTROL);
+
+        // If the client already holds this cover, skip the body
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType(cover.contentType());
+        response.setContentLengthLong(cover.size());
+
+        // Let the container send the file with sendfile once the request completes
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, cover.path().toString());
+            request.setAttribute(SENDFILE_START_ATTRIBUTE, 0L);
+            request.setAttribute(SENDFILE_END_ATTRIBUTE, cover.size());
+            return;
+        }
+
+        // Otherwise copy the file channel straight into the response
+        try (FileChannel file = FileChannel.open(cover.path(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < cover.size()) {
+                position += file.transferTo(position, cover.size() - position, out);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.elibrary.backend.modules.book.storage;
+
+/**
+ * Represents where the cover of a book is served from, either a file in the cover store or an external URL
+ * External covers are legacy image URLs that were never stored locally, clients are redirected to them
+ */
+public record CoverSource(StoredCover stored, String externalUrl) {
+
+    /**
+     * Creates a source for a cover held in the cover store
+     *
+     * @param stored the stored cover file
+     * @return the cover source
+     */
+    public static CoverSource stored(StoredCover stored) {
+        return new CoverSource(stored, null);
+    }
+
+    /**
+     * Creates a source for a cover hosted elsewhere
+     *
+     * @param url the http or https URL of the cover
+     * @return the cover source
+     */
+    public static CoverSource external(String url) {
+        return new CoverSource(null, url);
+    }
+
+    /**
+     * Checks if the cover is hosted elsewhere
+     *
+     * @return true if clients must be redirected to the external URL
+     */
+    public boolean isExternal() {
+        return externalUrl != null;
+    }
+}
@@ -0,0 +1,199 @@
+package com.elibrary.backend.modules.book.storage;
+
+import com.elibrary.backend.modules.book.dto.ThumbnailQueueStatsDTO;
+import com.elibrary.backend.modules.book.enums.CoverSize;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Renders small, medium and large thumbnails of stored covers in the background
+ * Jobs go through a bounded queue worked by a fixed pool, and are dropped when the queue is full
+ */
+@Slf4j
+@Component
+public class CoverThumbnailGenerator {
+
+    private static final CoverSize[] THUMBNAIL_SIZES = {CoverSize.SMALL, CoverSize.MEDIUM, CoverSize.LARGE};
+
+    private final CoverImageStore coverImageStore;
+
+    private final ThreadPoolExecutor executor;
+
+    // Hashes that are queued or being rendered, so the same cover is never queued twice
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    // Hashes of covers that could not be decoded, they are served at full size and never queued again
+    private final Set<String> unrenderable = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong completed = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    public CoverThumbnailGenerator(CoverImageStore coverImageStore,
+                                   @Value("${elibrary.covers.thumbnails.workers:2}") int workers,
+                                   @Value("${elibrary.covers.thumbnails.queue-capacity:1000}") int queueCapacity) {
+        this.coverImageStore = coverImageStore;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "cover-thumbnail-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queues thumbnail rendering for a stored cover
+     * Covers whose thumbnails already exist, that are already queued or that cannot be decoded are skipped
+     *
+     * @param cover the stored original cover
+     */
+    public void enqueue(StoredCover cover) {
+        if (unrenderable.contains(cover.hash())
+                || coverImageStore.findVariant(cover.hash(), CoverSize.SMALL).isPresent()
+                || !pending.add(cover.hash())) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> render(cover));
+        } catch (RejectedExecutionException ex) {
+            // The queue is full, the original keeps being served until the cover is requested again
+            pending.remove(cover.hash());
+            rejected.incrementAndGet();
+            log.warn("Thumbnail queue is full, skipped cover {}", cover.hash());
+        }
+    }
+
+    /**
+     * Checks if a cover was found impossible to decode, so its original is the only size there will be
+     *
+     * @param hash the hash of the original cover
+     * @return true if no thumbnails can be rendered for the cover
+     */
+    public boolean isUnrenderable(String hash) {
+        return unrenderable.contains(hash);
+    }
+
+    /**
+     * Fetches the current state of the thumbnail queue
+     *
+     * @return queue depth, free capacity, busy workers and job counters
+     */
+    public ThumbnailQueueStatsDTO getStats() {
+        return new ThumbnailQueueStatsDTO(
+                executor.getQueue().size(),
+                executor.getQueue().remainingCapacity(),
+                executor.getActiveCount(),
+                completed.get(),
+                failed.get(),
+                rejected.get());
+    }
+
+    /**
+     * Decodes the original cover once and writes every thumbnail size from it
+     */
+    private void render(StoredCover cover) {
+        try {
+            BufferedImage original;
+            try {
+                original = ImageIO.read(cover.path().toFile());
+            } catch (IOException ex) {
+                original = null;
+            }
+
+            // Formats without an ImageIO reader, such as WebP, and broken images are served at full size for good
+            if (original == null) {
+                log.info("Unable to decode cover {}, thumbnails skipped", cover.hash());
+                unrenderable.add(cover.hash());
+                failed.incrementAndGet();
+                return;
+            }
+
+            for (CoverSize size : THUMBNAIL_SIZES) {
+                BufferedImage thumbnail = scaleToWidth(original, size.getWidth());
+                coverImageStore.storeVariant(cover.hash(), size, out -> ImageIO.write(thumbnail, "jpg", out));
+            }
+
+            completed.incrementAndGet();
+        } catch (IOException | RuntimeException ex) {
+            failed.incrementAndGet();
+            log.error("Failed to render thumbnails for cover {}: {}", cover.hash(), ex.getMessage());
+        } finally {
+            pending.remove(cover.hash());
+        }
+    }
+
+    /**
+     * Scales an image to the given width, keeping its aspect ratio
+     * Large reductions are done in halving steps, which keeps bilinear filtering sharp
+     */
+    private static BufferedImage scaleToWidth(BufferedImage source, int targetWidth) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+
+        // Never upscale small covers
+        if (width <= targetWidth) {
+            return copy(source, width, height);
+        }
+
+        int sourceWidth = width;
+        BufferedImage current = source;
+
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(1, Math.round((float) source.getHeight() * width / sourceWidth));
+            current = copy(current, width, height);
+        } while (width != targetWidth);
+
+        return current;
+    }
+
+    /**
+     * Draws an image onto an opaque RGB canvas of the given size, filling transparency with white
+     */
+    private static BufferedImage copy(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setBackground(Color.WHITE);
+            graphics.clearRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * Stops the workers when the application shuts down
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,24 @@
+package com.elibrary.backend.modules.book.storage;
+
+import java.nio.file.Path;
+
+/**
+ * Represents a cover image file held in the content-addressed cover store
+ * A fallback is an original served in place of a thumbnail that has not been rendered yet, so it must not be
+ * cached under the thumbnail's URL
+ */
+public record StoredCover(String hash, String contentType, Path path, long size, boolean fallback) {
+
+    public StoredCover(String hash, String contentType, Path path, long size) {
+        this(hash, contentType, path, size, false);
+    }
+
+    /**
+     * Marks this cover as served in place of a thumbnail that is not ready yet
+     *
+     * @return the same file flagged as a fallback
+     */
+    public StoredCover asFallback() {
+        return new StoredCover(hash, contentType, path, size, true);
+    }
+}
@@ -1,15 +1,22 @@
 package com.elibrary.backend.modules.checkout.controller;
 
+import com.elibrary.backend.common.pagination.CursorPage;
 import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.checkout.dto.BookStatusDTO;
 import com.elibrary.backend.modules.checkout.dto.CheckoutCountDTO;
 import com.elibrary.backend.modules.checkout.dto.CheckoutPerUserDTO;
 import com.elibrary.backend.modules.checkout.dto.CurrentLoanResponse;
+import com.elibrary.backend.modules.checkout.dto.LoanHistoryDTO;
 import com.elibrary.backend.modules.checkout.dto.LoanOverviewDTO;
+import com.elibrary.backend.modules.checkout.dto.LoanStatusSweepDTO;
+import com.elibrary.backend.modules.checkout.enums.LoanStatus;
+import com.elibrary.backend.modules.checkout.idempotency.IdempotencyStore;
 import com.elibrary.backend.modules.checkout.service.CheckoutService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -29,20 +36,25 @@ public class Checkout {
 
     private final CheckoutService checkoutService;
 
+    private final IdempotencyStore idempotencyStore;
+
     /**
      * Allows a user to check out a book
      *
-     * @param userDetails the authenticated user
-     * @param bookId      the id of the book to check out
+     * @param userDetails    the authenticated user
+     * @param idempotencyKey optional key that makes retries replay the first response
+     * @param bookId         the id of the book to check out
      * @return the checked out book
      */
     @PutMapping
     @PreAuthorize("hasAuthority('ADMIN') or hasAuthority('USER')")
     public ResponseEntity<Book> checkoutBook(@AuthenticationPrincipal UserDetails userDetails,
+                                             @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
                                              @RequestParam Long bookId) {
         String userEmail = userDetails.getUsername();
 
-        return ResponseEntity.ok(checkoutService.checkoutBookForUser(userEmail, bookId));
+        return idempotencyStore.execute(userEmail, idempotencyKey, "checkout:" + bookId, Book.class,
+                () -> ResponseEntity.ok(checkoutService.checkoutBookForUser(userEmail, bookId)));
 
     }
 
@@ -63,6 +75,21 @@ public class Checkout {
 
     }
 
+    /**
+     * Fetches the checkout, review and hold status of the user for many books at once, for the book grid
+     * Repeated ids are answered once, more than 100 distinct ids is a 400 BAD REQUEST
+     *
+     * @param userDetails the authenticated user
+     * @param bookIds     the ids of the books, up to 100
+     * @return one status per book, in the order the ids were given
+     */
+    @GetMapping(value = "/status", params = "bookIds")
+    @PreAuthorize("hasAuthority('ADMIN') or hasAuthority('USER')")
+    public ResponseEntity<List<BookStatusDTO>> getBookStatusesForUser(@AuthenticationPrincipal UserDetails userDetails,
+                                                                      @RequestParam List<Long> bookIds) {
+        return ResponseEntity.ok(checkoutService.getBookStatusesForUser(userDetails.getUsername(), bookIds));
+    }
+
     /**
      * Fetches the number of books currently on loan by the user
      *
@@ -94,37 +121,63 @@ public class Checkout {
     }
 
     /**
-     * Returns a book currently on loan by the user
+     * Fetches the archived book loans of the user, most recently returned first
      *
      * @param userDetails the authenticated user
-     * @param bookId      the id of the book to return
+     * @param pageable    pagination information
+     * @return a page of past loans
+     */
+    @GetMapping("/history")
+    @PreAuthorize("hasAuthority('ADMIN') or hasAuthority('USER')")
+    public ResponseEntity<Page<LoanHistoryDTO>> getLoanHistoryForUser(@AuthenticationPrincipal UserDetails userDetails,
+                                                                      Pageable pageable) {
+        String userEmail = userDetails.getUsername();
+
+        return ResponseEntity.ok(checkoutService.getLoanHistoryForUser(userEmail, pageable));
+    }
+
+    /**
+     * Returns a book currently on loan by the user
+     *
+     * @param userDetails    the authenticated user
+     * @param idempotencyKey optional key that makes retries replay the first response
+     * @param bookId         the id of the book to return
      * @return confirmation that the book has been returned
      */
     @PutMapping("/return")
     @PreAuthorize("hasAuthority('ADMIN') or hasAuthority('USER')")
     public ResponseEntity<Void> returnBook(
-            @AuthenticationPrincipal UserDetails userDetails, @RequestParam Long bookId) {
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+            @RequestParam Long bookId) {
         String userEmail = userDetails.getUsername();
 
-        checkoutService.returnBookForUser(userEmail, bookId);
-        return ResponseEntity.noContent().build();
+        return idempotencyStore.execute(userEmail, idempotencyKey, "return:" + bookId, Void.class, () -> {
+            checkoutService.returnBookForUser(userEmail, bookId);
+            return ResponseEntity.noContent().build();
+        });
     }
 
     /**
      * Renews a book loan for the user
      *
-     * @param userDetails the authenticated user
-     * @param bookId      the id of the book to renew
+     * @param userDetails    the authenticated user
+     * @param idempotencyKey optional key that makes retries replay the first response
+     * @param bookId         the id of the book to renew
      * @return confirmation that the book loan has been renewed
      */
     @PutMapping("/renew")
     @PreAuthorize("hasAuthority('ADMIN') or hasAuthority('USER')")
     public ResponseEntity<Void> renewBookLoan(
-            @AuthenticationPrincipal UserDetails userDetails, @RequestParam Long bookId) {
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+            @RequestParam Long bookId) {
         String userEmail = userDetails.getUsername();
 
-        checkoutService.renewBookLoanForUser(userEmail, bookId);
-        return ResponseEntity.noContent().build();
+        return idempotencyStore.execute(userEmail, idempotencyKey, "renew:" + bookId, Void.class, () -> {
+            checkoutService.renewBookLoanForUser(userEmail, bookId);
+            return ResponseEntity.noContent().build();
+        });
     }
 
     /**
@@ -139,21 +192,40 @@ public class Checkout {
     }
 
     /**
-     * Fetches the number of books checked out by each user
+     * Fetches the number of books checked out by each user, one page at a time
      *
-     * @return a list of users with their checkout counts
+     * @param pageable pagination info, sortable by checkoutCount, userId or userEmail
+     * @return a page of users with their checkout counts
      */
     @GetMapping("admin/checkout-counts-per-user")
     @PreAuthorize("hasAuthority('ADMIN')")
-    public ResponseEntity<List<CheckoutPerUserDTO>> getUserCheckoutCounts() {
-        return ResponseEntity.ok(checkoutService.getUserCheckoutCounts());
+    public ResponseEntity<Page<CheckoutPerUserDTO>> getUserCheckoutCounts(Pageable pageable) {
+        return ResponseEntity.ok(checkoutService.getUserCheckoutCounts(pageable));
     }
 
     @GetMapping("/admin/all-checkouts")
     @PreAuthorize("hasAuthority('ADMIN')")
-    public ResponseEntity<Page<LoanOverviewDTO>> adminGetAllCheckouts(Pageable pageable) {
+    public ResponseEntity<Page<LoanOverviewDTO>> adminGetAllCheckouts(@RequestParam(required = false) LoanStatus status,
+                                                                      Pageable pageable) {
 
-        return ResponseEntity.ok(checkoutService.adminGetAllCheckouts(pageable));
+        return ResponseEntity.ok(checkoutService.adminGetAllCheckouts(status, pageable));
+    }
+
+    /**
+     * Fetches all checkouts for admin with keyset pagination, used when the cursor parameter is given
+     * Pass an empty cursor for the first page, then the next cursor of each page
+     *
+     * @param cursor the cursor from the previous page
+     * @param size   the maximum number of checkouts to return
+     * @param sort   the sort order, checkoutDate descending (the default), returnDate ascending or id ascending
+     * @return one page of loan overviews and the cursor for the next page
+     */
+    @GetMapping(value = "/admin/all-checkouts", params = "cursor")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<CursorPage<LoanOverviewDTO>> adminScrollAllCheckouts(@RequestParam String cursor,
+                                                                              @RequestParam(defaultValue = "20") int size,
+                                                                              Sort sort) {
+        return ResponseEntity.ok(checkoutService.adminScrollAllCheckouts(cursor, size, sort));
     }
 
     /**
@@ -183,4 +255,15 @@ public class Checkout {
         checkoutService.adminReturnBook(userId, bookId);
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * Fetches the details of the last loan status sweep for admin
+     *
+     * @return when the sweep ran, how long it took and how many loans it updated
+     */
+    @GetMapping("/admin/status-sweep")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<LoanStatusSweepDTO> getLastLoanStatusSweep() {
+        return ResponseEntity.ok(checkoutService.getLastLoanStatusSweep());
+    }
 }
@@ -0,0 +1,6 @@
+package com.elibrary.backend.modules.checkout.dto;
+
+/**
+ * Represents how many times a book has been checked out
+ */
+public record BookCheckoutCountDTO(Long bookId, long checkouts) { }
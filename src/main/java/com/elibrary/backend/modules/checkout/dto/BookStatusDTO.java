@@ -0,0 +1,9 @@
+package com.elibrary.backend.modules.checkout.dto;
+
+import com.elibrary.backend.modules.hold.enums.HoldStatus;
+
+/**
+ * Represents what a user has done with a book, for showing many books at once
+ * The hold status is null when the user has no waiting or ready hold on the book
+ */
+public record BookStatusDTO(Long bookId, boolean checkedOut, boolean reviewed, HoldStatus holdStatus) { }
@@ -0,0 +1,8 @@
+package com.elibrary.backend.modules.checkout.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Represents a book a user has a checkout record for, with the date it was returned if it was
+ */
+public record BorrowedBookDTO(Long bookId, LocalDate returnedDate) { }
@@ -1,11 +1,14 @@
 package com.elibrary.backend.modules.checkout.dto;
 
-import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.dto.BookSummaryDTO;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
 /**
  * Represents the current book loan details for a user
  */
@@ -15,7 +18,16 @@ import lombok.NoArgsConstructor;
 @Builder
 public class CurrentLoanResponse {
 
-    private Book book;
+    private BookSummaryDTO book;
 
     private int daysLeft;
+
+    /**
+     * Creates the loan details from a row of the current loans query
+     */
+    public CurrentLoanResponse(Long bookId, String title, String author, String category, int copies,
+                               int copiesAvailable, String coverHash, LocalDate returnDate, LocalDate today) {
+        this.book = new BookSummaryDTO(bookId, title, author, category, copies, copiesAvailable, coverHash);
+        this.daysLeft = (int) ChronoUnit.DAYS.between(today, returnDate);
+    }
 }
@@ -0,0 +1,10 @@
+package com.elibrary.backend.modules.checkout.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Represents a past loan of a user, with the book it was for
+ */
+public record LoanHistoryDTO(Long checkoutId, Long bookId, String bookTitle, String bookAuthor,
+                             LocalDate checkoutDate, LocalDate returnDate, LocalDate returnedDate,
+                             int renewalCount) { }
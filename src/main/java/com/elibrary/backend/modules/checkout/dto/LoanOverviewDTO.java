@@ -7,6 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 
 /**
  * Represents the current book loan details for a user
@@ -43,4 +44,18 @@ public class LoanOverviewDTO {
 
     private int renewalCount;
 
+    /**
+     * Creates the loan overview from a row of the admin loans query, where the status is worked out in SQL
+     */
+    public LoanOverviewDTO(Long id, String userEmail, String userName, String userId, Long bookId, String bookTitle,
+                           String bookAuthor, LocalDate checkoutDate, LocalDate returnDate, LocalDate returnedDate,
+                           String status, int renewalCount, LocalDate today) {
+        this(id, userEmail, userName, userId, bookId, bookTitle, bookAuthor, checkoutDate, returnDate, returnedDate,
+                LoanStatus.valueOf(status), 0, renewalCount);
+
+        // Returned loans have no days left
+        if (returnedDate == null) {
+            this.remainingDays = (int) ChronoUnit.DAYS.between(today, returnDate);
+        }
+    }
 }
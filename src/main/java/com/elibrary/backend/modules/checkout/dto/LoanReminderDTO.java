@@ -0,0 +1,11 @@
+package com.elibrary.backend.modules.checkout.dto;
+
+import com.elibrary.backend.modules.checkout.enums.ReminderType;
+
+import java.time.LocalDate;
+
+/**
+ * Represents a due soon or overdue reminder for a loan, handed to the reminder sender
+ */
+public record LoanReminderDTO(ReminderType type, String userEmail, String userName, Long bookId, String bookTitle,
+                              LocalDate returnDate) { }
@@ -0,0 +1,9 @@
+package com.elibrary.backend.modules.checkout.dto;
+
+import java.time.Instant;
+
+/**
+ * Represents one run of the loan status sweeper, how long it took and how many loans it went through
+ */
+public record LoanStatusSweepDTO(Instant startedAt, long durationMillis, int chunks, long rowsScanned,
+                                 long rowsUpdated) { }
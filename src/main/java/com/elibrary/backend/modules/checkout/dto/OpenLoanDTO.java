@@ -0,0 +1,10 @@
+package com.elibrary.backend.modules.checkout.dto;
+
+import com.elibrary.backend.modules.checkout.enums.ReminderType;
+
+import java.time.LocalDate;
+
+/**
+ * Represents a loan still out, with the last reminder sent for it
+ */
+public record OpenLoanDTO(Long id, Long userId, Long bookId, LocalDate returnDate, ReminderType lastReminder) { }
@@ -1,6 +1,8 @@
 package com.elibrary.backend.modules.checkout.entity;
 
 
+import com.elibrary.backend.modules.checkout.enums.LoanStatus;
+import com.elibrary.backend.modules.checkout.enums.ReminderType;
 import com.elibrary.backend.modules.user.entity.User;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
@@ -16,7 +18,14 @@ import java.time.LocalDate;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "checkout")
+@Table(name = "checkout", indexes = {
+        @Index(name = "idx_checkout_checkout_date", columnList = "checkout_date desc, id desc"),
+        @Index(name = "idx_checkout_return_date", columnList = "return_date"),
+        @Index(name = "idx_checkout_user_returned", columnList = "user_id, returned_date"),
+        @Index(name = "idx_checkout_user_book", columnList = "user_id, book_id, returned_date"),
+        @Index(name = "idx_checkout_returned_return_date", columnList = "returned_date, return_date"),
+        @Index(name = "idx_checkout_loan_status", columnList = "loan_status, return_date")
+})
 public class Checkout {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -41,5 +50,19 @@ public class Checkout {
 
     @Column(name = "renewal_count", nullable = false)
     private int renewalCount = 0;
+
+    /**
+     * Stored loan status, kept current by the loan status sweeper as due dates pass and read by the admin status filters
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "loan_status", length = 16)
+    private LoanStatus loanStatus = LoanStatus.ACTIVE;
+
+    /**
+     * Last reminder sent for the current due date, cleared when the loan is renewed
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "last_reminder", length = 16)
+    private ReminderType lastReminder;
 }
 
@@ -0,0 +1,53 @@
+package com.elibrary.backend.modules.checkout.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+/**
+ * Entity representing a returned checkout moved out of the checkout table
+ * The table is partitioned by the month of the returned date, so it has no foreign keys and the user is kept by id
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@IdClass(CheckoutHistoryId.class)
+@Table(name = "checkout_history", indexes = {
+        @Index(name = "idx_checkout_history_user_returned", columnList = "user_id, returned_date")
+})
+public class CheckoutHistory {
+
+    /**
+     * Id the checkout had in the checkout table
+     */
+    @Id
+    @Column(name = "id")
+    private Long id;
+
+    @Id
+    @Column(name = "returned_date", nullable = false)
+    private LocalDate returnedDate;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "book_id")
+    private Long bookId;
+
+    @Column(name = "checkout_date")
+    private LocalDate checkoutDate;
+
+    @Column(name = "return_date")
+    private LocalDate returnDate;
+
+    @Column(name = "renewal_count", nullable = false)
+    private int renewalCount;
+
+    @Column(name = "archived_at", nullable = false)
+    private Timestamp archivedAt;
+}
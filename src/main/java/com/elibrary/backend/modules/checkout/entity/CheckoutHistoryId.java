@@ -0,0 +1,21 @@
+package com.elibrary.backend.modules.checkout.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Primary key of an archived checkout, the returned date is part of it because the table is partitioned on it
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CheckoutHistoryId implements Serializable {
+
+    private Long id;
+
+    private LocalDate returnedDate;
+}
@@ -0,0 +1,57 @@
+package com.elibrary.backend.modules.checkout.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+
+/**
+ * Entity representing the stored outcome of a checkout request sent with an idempotency key
+ * A row is inserted before the request runs, so a retry arriving on another instance sees it is taken
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "idempotency_record", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_idempotency_record_user_key", columnNames = {"user_email", "key_hash"})
+}, indexes = {
+        @Index(name = "idx_idempotency_record_created_at", columnList = "created_at")
+})
+public class IdempotencyRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "user_email", nullable = false)
+    private String userEmail;
+
+    /**
+     * SHA-256 of the key sent by the client, so keys of any length fit the unique index
+     */
+    @Column(name = "key_hash", length = 64, nullable = false)
+    private String keyHash;
+
+    /**
+     * The operation and book the key was first used for
+     */
+    @Column(name = "request_fingerprint", nullable = false)
+    private String requestFingerprint;
+
+    @Column(name = "completed", nullable = false)
+    private boolean completed;
+
+    @Column(name = "status_code")
+    private Integer statusCode;
+
+    @Lob
+    @Column(name = "response_body", columnDefinition = "LONGTEXT")
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private Timestamp createdAt;
+}
@@ -0,0 +1,11 @@
+package com.elibrary.backend.modules.checkout.enums;
+
+/**
+ * Represents a change recorded by the in-memory inventory engine
+ */
+public enum InventoryOperationType {
+    CHECKOUT,
+    HELD_CHECKOUT,
+    RELEASE,
+    ABORT
+}
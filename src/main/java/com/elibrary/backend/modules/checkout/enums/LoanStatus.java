@@ -1,5 +1,7 @@
 package com.elibrary.backend.modules.checkout.enums;
 
+import java.time.LocalDate;
+
 /**
  * Represents the status of a book loan
  */
@@ -7,5 +9,24 @@ public enum LoanStatus {
     ACTIVE,
     DUE_SOON,
     OVERDUE,
-    RETURNED
+    RETURNED;
+
+    /**
+     * Number of days before the due date a loan counts as due soon
+     */
+    public static final int DUE_SOON_DAYS = 3;
+
+    /**
+     * Works out the status of a loan still out from its due date, the same rule the loan status sweeper applies
+     *
+     * @param returnDate the due date of the loan
+     * @param today      the date the status is worked out for
+     * @return OVERDUE, DUE_SOON or ACTIVE
+     */
+    public static LoanStatus fromDueDate(LocalDate returnDate, LocalDate today) {
+        if (returnDate.isBefore(today)) {
+            return OVERDUE;
+        }
+        return returnDate.isAfter(today.plusDays(DUE_SOON_DAYS)) ? ACTIVE : DUE_SOON;
+    }
 }
@@ -0,0 +1,9 @@
+package com.elibrary.backend.modules.checkout.enums;
+
+/**
+ * Represents the reminders sent for a book loan, in the order they are sent
+ */
+public enum ReminderType {
+    DUE_SOON,
+    OVERDUE
+}
@@ -0,0 +1,9 @@
+package com.elibrary.backend.modules.checkout.event;
+
+import java.util.Set;
+
+/**
+ * Published once a batch of inventory changes is written to the database, naming the books whose available
+ * copies the database now shows
+ */
+public record InventoryFlushedEvent(Set<Long> bookIds) { }
@@ -0,0 +1,12 @@
+package com.elibrary.backend.modules.checkout.event;
+
+import java.time.LocalDate;
+
+/**
+ * Published when a loan starts, is renewed or ends, handled after the change commits
+ *
+ * @param userId     the id of the borrower
+ * @param bookId     the id of the book
+ * @param returnDate the new due date, or null once the loan has ended
+ */
+public record LoanDueDateChangedEvent(Long userId, Long bookId, LocalDate returnDate) { }
@@ -0,0 +1,10 @@
+package com.elibrary.backend.modules.checkout.exception;
+
+/**
+ * Exception thrown when an idempotency key is still in use by another request or was used for a different request
+ */
+public class IdempotencyKeyConflictException extends RuntimeException {
+    public IdempotencyKeyConflictException(String message) {
+        super(message);
+    }
+}
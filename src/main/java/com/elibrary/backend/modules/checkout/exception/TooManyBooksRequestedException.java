@@ -0,0 +1,10 @@
+package com.elibrary.backend.modules.checkout.exception;
+
+/**
+ * Exception thrown when a single request asks about more books than it may
+ */
+public class TooManyBooksRequestedException extends RuntimeException {
+    public TooManyBooksRequestedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,92 @@
+package com.elibrary.backend.modules.checkout.history;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Keeps the checkout history table partitioned by the month of the returned date
+ * Hibernate creates the table plainly, it is partitioned the first time loans are archived and a partition is
+ * added for each new month after that, only on MySQL
+ */
+@Slf4j
+@Component
+public class CheckoutHistoryPartitions {
+
+    // MySQL TO_DAYS value of 1970-01-01, the start of LocalDate epoch days
+    private static final long TO_DAYS_EPOCH = 719528;
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private Boolean supported;
+
+    // Exclusive upper bound of the last partition, null until read or while the table is not partitioned
+    private LocalDate partitionedUntil;
+
+    public CheckoutHistoryPartitions(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Makes sure there is a partition for every month up to and including the month of the given date
+     *
+     * @param date the latest returned date that is about to be archived
+     */
+    public synchronized void ensurePartitionsThrough(LocalDate date) {
+        if (!isSupported()) {
+            return;
+        }
+
+        if (partitionedUntil == null) {
+            partitionedUntil = readPartitionedUntil();
+        }
+        LocalDate upperBound = date.withDayOfMonth(1).plusMonths(1);
+
+        // The first partition also holds every loan returned before its month
+        if (partitionedUntil == null) {
+            jdbcTemplate.execute("ALTER TABLE checkout_history PARTITION BY RANGE (TO_DAYS(returned_date)) ("
+                    + partition(upperBound) + ")");
+            partitionedUntil = upperBound;
+            log.info("Partitioned checkout_history by month, first partition ends {}", upperBound);
+        }
+
+        while (partitionedUntil.isBefore(upperBound)) {
+            LocalDate next = partitionedUntil.plusMonths(1);
+            jdbcTemplate.execute("ALTER TABLE checkout_history ADD PARTITION (" + partition(next) + ")");
+            partitionedUntil = next;
+            log.info("Added checkout_history partition ending {}", next);
+        }
+    }
+
+    private boolean isSupported() {
+        if (supported == null) {
+            String product = jdbcTemplate.execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            supported = "MySQL".equalsIgnoreCase(product);
+        }
+        return supported;
+    }
+
+    /**
+     * Reads the upper bound of the last partition, or null if the table is not partitioned yet
+     */
+    private LocalDate readPartitionedUntil() {
+        Long toDays = jdbcTemplate.queryForObject(
+                "SELECT MAX(CAST(PARTITION_DESCRIPTION AS UNSIGNED)) FROM information_schema.PARTITIONS " +
+                        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'checkout_history' " +
+                        "AND PARTITION_NAME IS NOT NULL",
+                Long.class);
+        return toDays == null ? null : LocalDate.ofEpochDay(toDays - TO_DAYS_EPOCH);
+    }
+
+    private static String partition(LocalDate upperBound) {
+        return "PARTITION " + upperBound.minusMonths(1).format(PARTITION_NAME)
+                + " VALUES LESS THAN (TO_DAYS('" + upperBound + "'))";
+    }
+}
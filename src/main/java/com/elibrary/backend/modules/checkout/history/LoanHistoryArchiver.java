@@ -0,0 +1,121 @@
+package com.elibrary.backend.modules.checkout.history;
+
+import com.elibrary.backend.modules.checkout.repository.CheckoutHistoryRepository;
+import com.elibrary.backend.modules.checkout.repository.CheckoutRepository;
+import com.elibrary.backend.modules.user.cache.UserBookStateCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves returned checkouts older than the configured age from the checkout table into the checkout history table
+ * Works in bounded batches, each copied and deleted in one transaction, so the checkout table stays close to the
+ * number of active loans
+ */
+@Slf4j
+@Component
+public class LoanHistoryArchiver {
+
+    private final CheckoutRepository checkoutRepository;
+
+    private final CheckoutHistoryRepository checkoutHistoryRepository;
+
+    private final CheckoutHistoryPartitions checkoutHistoryPartitions;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final UserBookStateCache userBookStateCache;
+
+    private final int archiveAfterDays;
+
+    private final int batchSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public LoanHistoryArchiver(CheckoutRepository checkoutRepository,
+                               CheckoutHistoryRepository checkoutHistoryRepository,
+                               CheckoutHistoryPartitions checkoutHistoryPartitions,
+                               TransactionTemplate transactionTemplate,
+                               UserBookStateCache userBookStateCache,
+                               @Value("${elibrary.checkout.history.archive-after-days:90}") int archiveAfterDays,
+                               @Value("${elibrary.checkout.history.batch-size:500}") int batchSize) {
+        this.checkoutRepository = checkoutRepository;
+        this.checkoutHistoryRepository = checkoutHistoryRepository;
+        this.checkoutHistoryPartitions = checkoutHistoryPartitions;
+        this.transactionTemplate = transactionTemplate;
+        this.userBookStateCache = userBookStateCache;
+        this.archiveAfterDays = archiveAfterDays;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Archives every checkout returned before the cutoff
+     * Skipped when an archive run is already in progress
+     *
+     * @return the number of checkouts moved into the history table
+     */
+    @Scheduled(cron = "${elibrary.checkout.history.cron:0 30 3 * * *}")
+    public long archive() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+
+        try {
+            long startedAt = System.currentTimeMillis();
+            LocalDate cutoff = LocalDate.now().minusDays(archiveAfterDays);
+
+            // Every archived loan was returned before the cutoff, so partitions up to it are enough
+            checkoutHistoryPartitions.ensurePartitionsThrough(cutoff);
+
+            long archived = 0;
+            int batches = 0;
+            long afterId = 0;
+            while (true) {
+                List<Long> ids = checkoutRepository.findReturnedIdsBefore(cutoff, afterId, Limit.of(batchSize));
+                if (ids.isEmpty()) {
+                    break;
+                }
+
+                Integer moved = transactionTemplate.execute(status -> {
+                    int copied = checkoutHistoryRepository.copyFromCheckouts(ids);
+                    int deleted = checkoutRepository.deleteReturnedByIdIn(ids);
+
+                    // Roll the batch back rather than lose or duplicate a loan
+                    if (copied != deleted) {
+                        throw new IllegalStateException("Copied " + copied + " checkouts but deleted " + deleted);
+                    }
+                    return deleted;
+                });
+
+                archived += moved == null ? 0 : moved;
+                batches++;
+                afterId = ids.get(ids.size() - 1);
+
+                if (ids.size() < batchSize) {
+                    break;
+                }
+            }
+
+            // Archived loans no longer count as borrowed, reload every user's state rather than track each one
+            if (archived > 0) {
+                userBookStateCache.clear();
+            }
+
+            log.info("Archived {} checkouts returned before {} in {} batches, took {} ms",
+                    archived, cutoff, batches, System.currentTimeMillis() - startedAt);
+            return archived;
+        } catch (RuntimeException ex) {
+            log.error("Checkout archiving failed", ex);
+            return 0;
+        } finally {
+            running.set(false);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.elibrary.backend.modules.checkout.idempotency;
+
+import com.elibrary.backend.modules.checkout.entity.IdempotencyRecord;
+import com.elibrary.backend.modules.checkout.exception.IdempotencyKeyConflictException;
+import com.elibrary.backend.modules.checkout.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Runs checkout requests sent with an idempotency key at most once and replays the first response to retries
+ * Finished responses are kept in a bounded in-memory cache so most retries never reach the database, the
+ * database row claims the key before the request runs so a retry sent to another instance is caught too
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final Cache<String, StoredResponse> responses;
+
+    private final Duration timeToLive;
+
+    public IdempotencyStore(IdempotencyRecordRepository idempotencyRecordRepository,
+                            ObjectMapper objectMapper,
+                            @Value("${elibrary.checkout.idempotency.max-entries:10000}") long maximumEntries,
+                            @Value("${elibrary.checkout.idempotency.ttl-ms:86400000}") long timeToLiveMillis) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.timeToLive = Duration.ofMillis(timeToLiveMillis);
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maximumEntries)
+                .expireAfterWrite(timeToLive)
+                .build();
+    }
+
+    /**
+     * Runs a request once per idempotency key, or replays the stored response if the key was already used
+     * Requests without a key always run
+     *
+     * @param userEmail   the email of the user sending the request
+     * @param key         the idempotency key sent by the client, or null
+     * @param fingerprint the operation and its arguments, a key may only be reused for the same fingerprint
+     * @param bodyType    the type of the response body
+     * @param request     the request to run
+     * @return the response of the request, or the stored response of its first run
+     */
+    public <T> ResponseEntity<T> execute(String userEmail, String key, String fingerprint, Class<T> bodyType,
+                                         Supplier<ResponseEntity<T>> request) {
+        if (key == null || key.isBlank()) {
+            return request.get();
+        }
+
+        String keyHash = hash(key);
+        String cacheKey = userEmail + "\n" + keyHash;
+
+        // Retries landing on this instance are answered from memory
+        StoredResponse cached = responses.getIfPresent(cacheKey);
+        if (cached != null) {
+            return replay(cached, fingerprint, bodyType);
+        }
+
+        // Claim the key, or replay what the instance that claimed it first stored
+        Optional<IdempotencyRecord> claimed = claim(userEmail, keyHash, fingerprint);
+        if (claimed.isEmpty()) {
+            IdempotencyRecord existing = idempotencyRecordRepository.findByUserEmailAndKeyHash(userEmail, keyHash)
+                    .orElseThrow(() -> new IdempotencyKeyConflictException(
+                            "A request with this idempotency key is still being processed"));
+            if (!existing.isCompleted()) {
+                throw new IdempotencyKeyConflictException("A request with this idempotency key is still being processed");
+            }
+
+            StoredResponse stored = new StoredResponse(existing.getRequestFingerprint(),
+                    existing.getStatusCode(), existing.getResponseBody());
+            responses.put(cacheKey, stored);
+            return replay(stored, fingerprint, bodyType);
+        }
+
+        // Run the request, releasing the key if it fails so the client can try again
+        ResponseEntity<T> response;
+        try {
+            response = request.get();
+        } catch (RuntimeException ex) {
+            idempotencyRecordRepository.deleteById(claimed.get().getId());
+            throw ex;
+        }
+
+        // Keep the response for retries on this instance and on the others
+        StoredResponse stored = new StoredResponse(fingerprint, response.getStatusCode().value(),
+                toJson(response.getBody()));
+        idempotencyRecordRepository.complete(claimed.get().getId(), stored.statusCode(), stored.body());
+        responses.put(cacheKey, stored);
+
+        return response;
+    }
+
+    /**
+     * Deletes stored responses older than the time to live, along with keys left claimed by a crashed instance
+     */
+    @Scheduled(fixedDelayString = "${elibrary.checkout.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        int deleted = idempotencyRecordRepository.deleteCreatedBefore(expiryCutoff());
+        if (deleted > 0) {
+            log.info("Deleted {} expired idempotency records", deleted);
+        }
+    }
+
+    /**
+     * Inserts the row for a key, replacing an expired one
+     *
+     * @return the new row, or empty if another request holds the key
+     */
+    private Optional<IdempotencyRecord> claim(String userEmail, String keyHash, String fingerprint) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            IdempotencyRecord record = new IdempotencyRecord();
+            record.setUserEmail(userEmail);
+            record.setKeyHash(keyHash);
+            record.setRequestFingerprint(fingerprint);
+            record.setCreatedAt(new Timestamp(System.currentTimeMillis()));
+
+            try {
+                return Optional.of(idempotencyRecordRepository.save(record));
+            } catch (DataIntegrityViolationException ex) {
+                // The key is taken, free it only if its row outlived the time to live and was not purged yet
+                Optional<IdempotencyRecord> existing =
+                        idempotencyRecordRepository.findByUserEmailAndKeyHash(userEmail, keyHash);
+                if (existing.isEmpty() || !existing.get().getCreatedAt().before(expiryCutoff())) {
+                    return Optional.empty();
+                }
+                idempotencyRecordRepository.deleteById(existing.get().getId());
+            }
+        }
+        return Optional.empty();
+    }
+
+    private <T> ResponseEntity<T> replay(StoredResponse stored, String fingerprint, Class<T> bodyType) {
+        if (!stored.fingerprint().equals(fingerprint)) {
+            throw new IdempotencyKeyConflictException("This idempotency key was already used for a different request");
+        }
+
+        try {
+            // Computed properties such as a book's cover url are in the JSON but are not settable, they are
+            // recomputed when the replayed body is written
+            T body = stored.body() == null ? null : objectMapper.readerFor(bodyType)
+                    .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                    .readValue(stored.body());
+            return ResponseEntity.status(stored.statusCode()).header(REPLAYED_HEADER, "true").body(body);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Unable to read the stored response", ex);
+        }
+    }
+
+    private String toJson(Object body) {
+        if (body == null) {
+            return null;
+        }
+
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Unable to store the response", ex);
+        }
+    }
+
+    private Timestamp expiryCutoff() {
+        return new Timestamp(System.currentTimeMillis() - timeToLive.toMillis());
+    }
+
+    private static String hash(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    private record StoredResponse(String fingerprint, int statusCode, String body) { }
+}
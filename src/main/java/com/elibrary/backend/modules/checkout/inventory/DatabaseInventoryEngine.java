@@ -0,0 +1,83 @@
+package com.elibrary.backend.modules.checkout.inventory;
+
+import com.elibrary.backend.common.exceptions.ResourceNotFoundExceptions;
+import com.elibrary.backend.modules.book.dto.BookStockDTO;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.checkout.entity.Checkout;
+import com.elibrary.backend.modules.checkout.repository.CheckoutRepository;
+import com.elibrary.backend.modules.user.entity.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.OptionalInt;
+
+/**
+ * Inventory engine that keeps the copy counts in the book table, the default
+ * Every checkout is a conditional update of the book row inside the caller's transaction
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "elibrary.checkout.inventory.engine", havingValue = "database", matchIfMissing = true)
+public class DatabaseInventoryEngine implements InventoryEngine {
+
+    private final BookRepository bookRepository;
+
+    private final CheckoutRepository checkoutRepository;
+
+    @Override
+    public int checkout(User user, Long bookId, LocalDate checkoutDate, LocalDate returnDate) {
+
+        // Take a copy only if one is still available, checked and decremented in one statement
+        if (bookRepository.decrementCopiesAvailable(bookId) == 0) {
+            throw new ResourceNotFoundExceptions("No copies available for checkout");
+        }
+
+        // Create and save a new checkout record, in the same transaction as the decrement
+        saveCheckout(user, bookId, checkoutDate, returnDate);
+
+        return copiesAvailable(bookId);
+    }
+
+    @Override
+    public int checkoutHeldCopy(User user, Long bookId, LocalDate checkoutDate, LocalDate returnDate) {
+
+        // The copy was taken off the shelf when it was set aside, only the loan is new
+        saveCheckout(user, bookId, checkoutDate, returnDate);
+
+        return copiesAvailable(bookId);
+    }
+
+    @Override
+    public OptionalInt release(Long bookId) {
+        if (bookRepository.incrementCopiesAvailable(bookId) == 0) {
+            return OptionalInt.empty();
+        }
+        return OptionalInt.of(copiesAvailable(bookId));
+    }
+
+    @Override
+    public boolean hasPendingLoan(User user, Long bookId) {
+        return false;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    private void saveCheckout(User user, Long bookId, LocalDate checkoutDate, LocalDate returnDate) {
+        Checkout checkout = new Checkout();
+        checkout.setUser(user);
+        checkout.setCheckoutDate(checkoutDate);
+        checkout.setReturnDate(returnDate);
+        checkout.setBookId(bookId);
+        checkoutRepository.save(checkout);
+    }
+
+    private int copiesAvailable(Long bookId) {
+        return bookRepository.findStockById(bookId)
+                .map(BookStockDTO::copiesAvailable)
+                .orElseThrow(() -> new ResourceNotFoundExceptions("The requested book could not be found"));
+    }
+}
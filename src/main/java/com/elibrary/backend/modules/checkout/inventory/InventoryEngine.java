@@ -0,0 +1,57 @@
+package com.elibrary.backend.modules.checkout.inventory;
+
+import com.elibrary.backend.modules.user.entity.User;
+
+import java.time.LocalDate;
+import java.util.OptionalInt;
+
+/**
+ * Keeps the available copies of books and records loans for the checkout service
+ * Selected per deployment with elibrary.checkout.inventory.engine, database or memory
+ */
+public interface InventoryEngine {
+
+    /**
+     * Takes a copy of a book for a user and records the loan
+     *
+     * @param user         the borrower
+     * @param bookId       the id of the book
+     * @param checkoutDate the day the loan starts
+     * @param returnDate   the day the loan is due
+     * @return the copies left after this checkout
+     */
+    int checkout(User user, Long bookId, LocalDate checkoutDate, LocalDate returnDate);
+
+    /**
+     * Records the loan of a copy that was set aside for the user's hold, the available copies do not change
+     *
+     * @param user         the borrower
+     * @param bookId       the id of the book
+     * @param checkoutDate the day the loan starts
+     * @param returnDate   the day the loan is due
+     * @return the copies available, unchanged by this checkout
+     */
+    int checkoutHeldCopy(User user, Long bookId, LocalDate checkoutDate, LocalDate returnDate);
+
+    /**
+     * Puts a returned copy of a book back
+     *
+     * @param bookId the id of the book
+     * @return the copies available afterwards, or empty if every copy was already available
+     */
+    OptionalInt release(Long bookId);
+
+    /**
+     * Checks if the user has a loan of the book that is not written to the checkout table yet
+     *
+     * @param user   the borrower
+     * @param bookId the id of the book
+     * @return true if such a loan is waiting to be written
+     */
+    boolean hasPendingLoan(User user, Long bookId);
+
+    /**
+     * Writes every waiting change to the database, called before loans are looked up in the checkout table
+     */
+    void flush();
+}
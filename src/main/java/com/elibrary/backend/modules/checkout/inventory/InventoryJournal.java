@@ -0,0 +1,159 @@
+package com.elibrary.backend.modules.checkout.inventory;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only file of inventory operations that have been granted but may not be in the database yet
+ * Appends are cheap and synced to disk in groups, so concurrent checkouts share one fsync
+ */
+@Slf4j
+public class InventoryJournal implements Closeable {
+
+    private final Path path;
+
+    private final FileChannel channel;
+
+    private final Object syncLock = new Object();
+
+    private long lastWritten;
+
+    private volatile long lastSynced;
+
+    public InventoryJournal(Path path) {
+        this.path = path.toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(this.path.getParent());
+            this.channel = FileChannel.open(this.path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.channel.position(this.channel.size());
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to open inventory journal " + this.path, ex);
+        }
+    }
+
+    /**
+     * Reads every complete operation in the journal, a line cut short by a crash is skipped
+     *
+     * @return the operations in the order they were written
+     */
+    public synchronized List<InventoryOperation> readAll() {
+        List<InventoryOperation> operations = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    operations.add(InventoryOperation.fromJournalLine(line));
+                } catch (IllegalArgumentException ex) {
+                    log.warn("Skipping unreadable inventory journal line: {}", line);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to read inventory journal " + path, ex);
+        }
+        return operations;
+    }
+
+    /**
+     * Appends an operation, callers must hold the journal lock so operations are written in sequence order
+     * The operation is only durable once sync has been called with its sequence number, an abort reuses the
+     * sequence of the operation it cancels and is only durable once syncAll has been called
+     *
+     * @param operation the operation to append
+     */
+    public synchronized void append(InventoryOperation operation) {
+        ByteBuffer line = ByteBuffer.wrap((operation.toJournalLine() + "\n").getBytes(StandardCharsets.UTF_8));
+        try {
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to write inventory journal " + path, ex);
+        }
+        lastWritten = Math.max(lastWritten, operation.sequence());
+    }
+
+    /**
+     * Waits until the operation with the given sequence number is on disk
+     * One fsync covers every operation appended before it, so waiting threads are released together
+     *
+     * @param sequence the sequence number of the operation
+     */
+    public void sync(long sequence) {
+        if (lastSynced >= sequence) {
+            return;
+        }
+
+        synchronized (syncLock) {
+            if (lastSynced >= sequence) {
+                return;
+            }
+
+            long written;
+            synchronized (this) {
+                written = lastWritten;
+            }
+            try {
+                channel.force(false);
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Unable to sync inventory journal " + path, ex);
+            }
+            lastSynced = written;
+        }
+    }
+
+    /**
+     * Forces everything appended so far to disk, for entries such as aborts that reuse an older sequence number
+     */
+    public void syncAll() {
+        synchronized (syncLock) {
+            long written;
+            synchronized (this) {
+                written = lastWritten;
+            }
+            try {
+                channel.force(false);
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Unable to sync inventory journal " + path, ex);
+            }
+            lastSynced = written;
+        }
+    }
+
+    /**
+     * Empties the journal if nothing after the given sequence number has been appended
+     *
+     * @param flushedSequence the last sequence number written to the database
+     */
+    public synchronized void truncateIfFlushed(long flushedSequence) {
+        if (lastWritten > flushedSequence) {
+            return;
+        }
+
+        try {
+            channel.truncate(0);
+            channel.position(0);
+            channel.force(false);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to truncate inventory journal " + path, ex);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,100 @@
+package com.elibrary.backend.modules.checkout.inventory;
+
+import com.elibrary.backend.modules.checkout.enums.InventoryOperationType;
+
+import java.time.LocalDate;
+
+/**
+ * One change recorded by the in-memory inventory engine, numbered in the order it was granted
+ * Release operations carry no user or dates, held checkouts record a loan without changing the copy count
+ * An abort carries the sequence of a journaled operation whose transaction rolled back, so it is not replayed
+ */
+public record InventoryOperation(long sequence,
+                                 InventoryOperationType type,
+                                 Long bookId,
+                                 Long userId,
+                                 LocalDate checkoutDate,
+                                 LocalDate returnDate) {
+
+    private static final String NONE = "-";
+
+    static InventoryOperation checkout(Long bookId, Long userId, LocalDate checkoutDate, LocalDate returnDate) {
+        return new InventoryOperation(0, InventoryOperationType.CHECKOUT, bookId, userId, checkoutDate, returnDate);
+    }
+
+    static InventoryOperation heldCheckout(Long bookId, Long userId, LocalDate checkoutDate, LocalDate returnDate) {
+        return new InventoryOperation(0, InventoryOperationType.HELD_CHECKOUT, bookId, userId, checkoutDate, returnDate);
+    }
+
+    static InventoryOperation release(Long bookId) {
+        return new InventoryOperation(0, InventoryOperationType.RELEASE, bookId, null, null, null);
+    }
+
+    static InventoryOperation abort(long sequence, Long bookId) {
+        return new InventoryOperation(sequence, InventoryOperationType.ABORT, bookId, null, null, null);
+    }
+
+    /**
+     * Copies the operation with its journal sequence number
+     */
+    InventoryOperation withSequence(long sequence) {
+        return new InventoryOperation(sequence, type, bookId, userId, checkoutDate, returnDate);
+    }
+
+    /**
+     * Gets the change this operation makes to the available copies of its book
+     */
+    int copiesDelta() {
+        return switch (type) {
+            case CHECKOUT -> -1;
+            case HELD_CHECKOUT, ABORT -> 0;
+            case RELEASE -> 1;
+        };
+    }
+
+    /**
+     * Checks if this operation records a loan that needs a checkout row
+     */
+    boolean recordsLoan() {
+        return type == InventoryOperationType.CHECKOUT || type == InventoryOperationType.HELD_CHECKOUT;
+    }
+
+    /**
+     * Checks if this entry cancels the journaled operation with the same sequence
+     */
+    boolean isAbort() {
+        return type == InventoryOperationType.ABORT;
+    }
+
+    /**
+     * Formats the operation as one journal line, without the line break
+     */
+    String toJournalLine() {
+        return sequence + " " + type + " " + bookId + " " + format(userId) + " "
+                + format(checkoutDate) + " " + format(returnDate);
+    }
+
+    /**
+     * Parses a journal line written by toJournalLine
+     *
+     * @throws IllegalArgumentException if the line is incomplete or malformed
+     */
+    static InventoryOperation fromJournalLine(String line) {
+        String[] parts = line.split(" ");
+        if (parts.length != 6) {
+            throw new IllegalArgumentException("Malformed inventory journal line: " + line);
+        }
+
+        return new InventoryOperation(
+                Long.parseLong(parts[0]),
+                InventoryOperationType.valueOf(parts[1]),
+                Long.parseLong(parts[2]),
+                NONE.equals(parts[3]) ? null : Long.parseLong(parts[3]),
+                NONE.equals(parts[4]) ? null : LocalDate.parse(parts[4]),
+                NONE.equals(parts[5]) ? null : LocalDate.parse(parts[5]));
+    }
+
+    private static String format(Object value) {
+        return value == null ? NONE : value.toString();
+    }
+}
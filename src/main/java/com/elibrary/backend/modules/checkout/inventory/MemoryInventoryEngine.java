@@ -0,0 +1,616 @@
+package com.elibrary.backend.modules.checkout.inventory;
+
+import com.elibrary.backend.common.exceptions.DuplicateResourceException;
+import com.elibrary.backend.common.exceptions.ResourceNotFoundExceptions;
+import com.elibrary.backend.modules.book.dto.BookStockDTO;
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.book.search.CatalogIndex;
+import com.elibrary.backend.modules.checkout.entity.Checkout;
+import com.elibrary.backend.modules.checkout.entity.InventoryCheckpoint;
+import com.elibrary.backend.modules.checkout.event.InventoryFlushedEvent;
+import com.elibrary.backend.modules.checkout.repository.CheckoutRepository;
+import com.elibrary.backend.modules.checkout.repository.InventoryCheckpointRepository;
+import com.elibrary.backend.modules.user.entity.User;
+import com.elibrary.backend.modules.user.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Inventory engine that grants checkouts from in-memory copy counters, for deployments with very hot titles
+ * Counters are guarded by striped locks, so checkouts of different books rarely wait on each other
+ * A change made inside the caller's transaction holds the copy back and is appended to the journal and synced just
+ * before that transaction commits, so a return is on disk before its returned date is. It is only written to the
+ * database once the transaction has committed, and a rollback journals an abort so the change is never replayed
+ * Changes are written to the database in batches and the journal is replayed on startup, so a crash loses nothing
+ * that was committed. A crash between the journal sync and the database commit replays the change anyway
+ * The database lags behind the counters by at most one flush interval
+ * Single instance only: the counters live in this JVM, and the copies written by adjustCopiesAvailable are not
+ * bounds checked in the database, so two instances sharing a database would oversell
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "elibrary.checkout.inventory.engine", havingValue = "memory")
+public class MemoryInventoryEngine implements InventoryEngine, CatalogIndex {
+
+    private static final int STRIPES = 64;
+
+    private final BookRepository bookRepository;
+
+    private final CheckoutRepository checkoutRepository;
+
+    private final UserRepository userRepository;
+
+    private final InventoryCheckpointRepository checkpointRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final InventoryJournal journal;
+
+    private final int batchSize;
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    // Copy counts of the books checked out since startup, guarded by the stripe of the book
+    private final Map<Long, BookCounter> counters = new ConcurrentHashMap<>();
+
+    // Copy changes granted but not written to the database yet, guarded by the stripe of the book
+    private final Map<Long, Integer> pendingDeltas = new ConcurrentHashMap<>();
+
+    private final Set<LoanKey> pendingLoans = ConcurrentHashMap.newKeySet();
+
+    // Copies held back by checkouts and returns whose transaction has not committed yet, guarded by the stripe
+    private final Map<Long, Integer> reservedCheckouts = new ConcurrentHashMap<>();
+
+    private final Map<Long, Integer> reservedReturns = new ConcurrentHashMap<>();
+
+    // Operations waiting to be written, in sequence order because they are queued under the journal lock
+    private final ConcurrentLinkedQueue<InventoryOperation> queue = new ConcurrentLinkedQueue<>();
+
+    // Sequences journaled whose transaction has not finished yet, the flush stops at the first of them
+    private final Set<Long> preparedSequences = ConcurrentHashMap.newKeySet();
+
+    // Sequences whose transaction rolled back after they were journaled, the flush skips them
+    private final Set<Long> abortedSequences = ConcurrentHashMap.newKeySet();
+
+    private final Object flushLock = new Object();
+
+    private long lastSequence;
+
+    public MemoryInventoryEngine(BookRepository bookRepository,
+                                 CheckoutRepository checkoutRepository,
+                                 UserRepository userRepository,
+                                 InventoryCheckpointRepository checkpointRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 ApplicationEventPublisher eventPublisher,
+                                 @Value("${elibrary.checkout.inventory.journal:./data/inventory.journal}") String journalPath,
+                                 @Value("${elibrary.checkout.inventory.batch-size:500}") int batchSize) {
+        this.bookRepository = bookRepository;
+        this.checkoutRepository = checkoutRepository;
+        this.userRepository = userRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.eventPublisher = eventPublisher;
+        this.journal = new InventoryJournal(Paths.get(journalPath));
+        this.batchSize = batchSize;
+
+        // Flushes commit on their own, even when called from inside a checkout service transaction
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Replays the journal entries the database has not seen yet, before any checkout is served
+     */
+    @PostConstruct
+    public void recover() {
+        long checkpoint = checkpointRepository.findById(InventoryCheckpoint.ID)
+                .map(InventoryCheckpoint::getLastSequence)
+                .orElse(0L);
+
+        // Changes whose transaction rolled back are followed by an abort with the same sequence
+        List<InventoryOperation> operations = journal.readAll();
+        Set<Long> aborted = new TreeSet<>();
+        for (InventoryOperation operation : operations) {
+            if (operation.isAbort()) {
+                aborted.add(operation.sequence());
+            }
+        }
+
+        int replayed = 0;
+        lastSequence = checkpoint;
+        for (InventoryOperation operation : operations) {
+            lastSequence = Math.max(lastSequence, operation.sequence());
+            if (operation.sequence() <= checkpoint || operation.isAbort() || aborted.contains(operation.sequence())) {
+                continue;
+            }
+
+            pendingDeltas.merge(operation.bookId(), operation.copiesDelta(), Integer::sum);
+            if (operation.recordsLoan()) {
+                pendingLoans.add(new LoanKey(operation.userId(), operation.bookId()));
+            }
+            queue.add(operation);
+            replayed++;
+        }
+
+        if (replayed > 0) {
+            log.info("Replaying {} inventory journal entries after checkpoint {}", replayed, checkpoint);
+        }
+        flush();
+    }
+
+    @Override
+    public int checkout(User user, Long bookId, LocalDate checkoutDate, LocalDate returnDate) {
+
+        // Claim the loan first, so two concurrent checkouts by the same user cannot both be granted
+        LoanKey loan = new LoanKey(user.getId(), bookId);
+        if (!pendingLoans.add(loan)) {
+            throw new DuplicateResourceException("Book already checked out by this user");
+        }
+
+        // Hold the copy back until the caller's transaction commits, so no other checkout can take it meanwhile
+        int copiesLeft;
+        ReentrantLock stripe = stripeFor(bookId);
+        stripe.lock();
+        try {
+            BookCounter counter = counterFor(bookId);
+            if (counter.available <= 0) {
+                throw new ResourceNotFoundExceptions("No copies available for checkout");
+            }
+
+            counter.available--;
+            reservedCheckouts.merge(bookId, 1, Integer::sum);
+            copiesLeft = counter.available;
+        } catch (RuntimeException ex) {
+            pendingLoans.remove(loan);
+            throw ex;
+        } finally {
+            stripe.unlock();
+        }
+
+        InventoryOperation operation = InventoryOperation.checkout(bookId, user.getId(), checkoutDate, returnDate);
+        onCompletion(new PendingChange(operation, reservedCheckouts, 0, 1, loan));
+        return copiesLeft;
+    }
+
+    @Override
+    public int checkoutHeldCopy(User user, Long bookId, LocalDate checkoutDate, LocalDate returnDate) {
+        LoanKey loan = new LoanKey(user.getId(), bookId);
+        if (!pendingLoans.add(loan)) {
+            throw new DuplicateResourceException("Book already checked out by this user");
+        }
+
+        // The copy was taken off the shelf when it was set aside, so the counter stays as it is
+        int copiesAvailable;
+        ReentrantLock stripe = stripeFor(bookId);
+        stripe.lock();
+        try {
+            copiesAvailable = counterFor(bookId).available;
+        } catch (RuntimeException ex) {
+            pendingLoans.remove(loan);
+            throw ex;
+        } finally {
+            stripe.unlock();
+        }
+
+        InventoryOperation operation = InventoryOperation.heldCheckout(bookId, user.getId(), checkoutDate, returnDate);
+        onCompletion(new PendingChange(operation, null, 0, 0, loan));
+        return copiesAvailable;
+    }
+
+    @Override
+    public OptionalInt release(Long bookId) {
+
+        // The copy goes back on the shelf only once the return commits, until then it is counted as returning
+        int copiesAvailable;
+        ReentrantLock stripe = stripeFor(bookId);
+        stripe.lock();
+        try {
+            BookCounter counter = counterFor(bookId);
+            int returning = reservedReturns.getOrDefault(bookId, 0);
+            if (counter.available + returning >= counter.copies) {
+                return OptionalInt.empty();
+            }
+
+            reservedReturns.merge(bookId, 1, Integer::sum);
+            copiesAvailable = counter.available + returning + 1;
+        } finally {
+            stripe.unlock();
+        }
+
+        InventoryOperation operation = InventoryOperation.release(bookId);
+        onCompletion(new PendingChange(operation, reservedReturns, 1, 0, null));
+        return OptionalInt.of(copiesAvailable);
+    }
+
+    @Override
+    public boolean hasPendingLoan(User user, Long bookId) {
+        return pendingLoans.contains(new LoanKey(user.getId(), bookId));
+    }
+
+    /**
+     * Writes waiting operations to the database in batches, one transaction per batch
+     * Each batch inserts its checkouts, applies the summed copy change of every book and moves the checkpoint
+     * Stops at the first operation whose transaction is still committing, the next flush picks it up
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${elibrary.checkout.inventory.flush-ms:200}")
+    public void flush() {
+        synchronized (flushLock) {
+            List<InventoryOperation> batch;
+            do {
+                batch = nextBatch();
+                if (batch.isEmpty()) {
+                    return;
+                }
+
+                try {
+                    writeBatch(batch);
+                } catch (RuntimeException ex) {
+                    // The batch stays queued and is retried on the next flush
+                    log.error("Unable to write {} inventory operations, will retry", batch.size(), ex);
+                    return;
+                }
+
+                for (int i = 0; i < batch.size(); i++) {
+                    queue.poll();
+                }
+                journal.truncateIfFlushed(batch.get(batch.size() - 1).sequence());
+            } while (batch.size() == batchSize);
+        }
+    }
+
+    /**
+     * Writes the remaining operations before the application stops
+     */
+    @PreDestroy
+    public void shutdown() throws IOException {
+        flush();
+        journal.close();
+    }
+
+    @Override
+    public void clear() {
+        // Counters are loaded from the database on first use, so a catalog reload has nothing to drop
+    }
+
+    /**
+     * Picks up a book saved outside the checkout flow, such as an admin edit of its copies
+     * Waiting changes are applied on top of the saved value, so the counter follows what the database will hold
+     */
+    @Override
+    public void index(Book book) {
+        ReentrantLock stripe = stripeFor(book.getId());
+        stripe.lock();
+        try {
+            BookCounter counter = counters.get(book.getId());
+            if (counter != null) {
+                counter.copies = book.getCopies();
+                counter.available = book.getCopiesAvailable() + pendingDeltas.getOrDefault(book.getId(), 0)
+                        - reservedCheckouts.getOrDefault(book.getId(), 0);
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long bookId) {
+        ReentrantLock stripe = stripeFor(bookId);
+        stripe.lock();
+        try {
+            counters.remove(bookId);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Journals a change just before the caller's transaction commits, applies it once it has committed and gives
+     * its reservation back if it does not, or does all of it right away outside a transaction
+     */
+    private void onCompletion(PendingChange change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.prepare();
+            change.commit();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(change);
+    }
+
+    /**
+     * Drops one reservation of a book, must be called holding the stripe of the book
+     */
+    private static void unreserve(Long bookId, Map<Long, Integer> reservations) {
+        if (reservations != null) {
+            reservations.computeIfPresent(bookId, (id, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    /**
+     * Assigns the next sequence number, then journals and queues the operation as prepared under one lock
+     * so the queue is always in sequence order
+     */
+    private InventoryOperation record(InventoryOperation operation) {
+        synchronized (journal) {
+            InventoryOperation recorded = operation.withSequence(++lastSequence);
+            journal.append(recorded);
+            preparedSequences.add(recorded.sequence());
+            queue.add(recorded);
+            return recorded;
+        }
+    }
+
+    /**
+     * Gets the counter of a book, loading it from the database plus any change not written yet
+     * Must be called holding the stripe of the book
+     */
+    private BookCounter counterFor(Long bookId) {
+        BookCounter counter = counters.get(bookId);
+        if (counter == null) {
+            BookStockDTO stock = bookRepository.findStockById(bookId)
+                    .orElseThrow(() -> new ResourceNotFoundExceptions("The requested book could not be found"));
+
+            counter = new BookCounter(stock.copies(), stock.copiesAvailable() + pendingDeltas.getOrDefault(bookId, 0)
+                    - reservedCheckouts.getOrDefault(bookId, 0));
+            counters.put(bookId, counter);
+        }
+        return counter;
+    }
+
+    /**
+     * Takes the next operations off the head of the queue, up to the first one whose transaction is still open
+     */
+    private List<InventoryOperation> nextBatch() {
+        List<InventoryOperation> batch = new ArrayList<>(batchSize);
+        Iterator<InventoryOperation> iterator = queue.iterator();
+        while (iterator.hasNext() && batch.size() < batchSize) {
+            InventoryOperation operation = iterator.next();
+            if (preparedSequences.contains(operation.sequence())) {
+                break;
+            }
+            batch.add(operation);
+        }
+        return batch;
+    }
+
+    /**
+     * Commits one batch while holding the stripes of its books, so no counter is loaded halfway through
+     */
+    private void writeBatch(List<InventoryOperation> batch) {
+
+        // Rolled back operations are only passed over, they still move the checkpoint
+        List<InventoryOperation> committed = batch.stream()
+                .filter(operation -> !abortedSequences.contains(operation.sequence()))
+                .toList();
+
+        Map<Long, Integer> deltas = new LinkedHashMap<>();
+        for (InventoryOperation operation : committed) {
+            deltas.merge(operation.bookId(), operation.copiesDelta(), Integer::sum);
+        }
+
+        // Stripes are always taken in index order, so two flushes can never deadlock
+        Set<Integer> stripeIndexes = new TreeSet<>();
+        deltas.keySet().forEach(bookId -> stripeIndexes.add(stripeIndex(bookId)));
+        stripeIndexes.forEach(index -> stripes[index].lock());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                checkoutRepository.saveAll(committed.stream()
+                        .filter(InventoryOperation::recordsLoan)
+                        .map(this::toCheckout)
+                        .toList());
+                deltas.forEach((bookId, delta) -> {
+                    if (delta != 0) {
+                        bookRepository.adjustCopiesAvailable(bookId, delta);
+                    }
+                });
+                checkpointRepository.save(new InventoryCheckpoint(InventoryCheckpoint.ID,
+                        batch.get(batch.size() - 1).sequence()));
+            });
+
+            // The changes are in the database now, so they no longer count as pending
+            deltas.forEach((bookId, delta) -> pendingDeltas.computeIfPresent(bookId,
+                    (id, pending) -> pending - delta == 0 ? null : pending - delta));
+        } finally {
+            stripeIndexes.forEach(index -> stripes[index].unlock());
+        }
+
+        for (InventoryOperation operation : committed) {
+            if (operation.recordsLoan()) {
+                pendingLoans.remove(new LoanKey(operation.userId(), operation.bookId()));
+            }
+        }
+        batch.forEach(operation -> abortedSequences.remove(operation.sequence()));
+
+        // Let caches reading books from the database drop the copy counts they loaded before this batch
+        Set<Long> changedBooks = new TreeSet<>();
+        deltas.forEach((bookId, delta) -> {
+            if (delta != 0) {
+                changedBooks.add(bookId);
+            }
+        });
+        if (!changedBooks.isEmpty()) {
+            eventPublisher.publishEvent(new InventoryFlushedEvent(changedBooks));
+        }
+        log.debug("Wrote {} inventory operations up to sequence {}", batch.size(), batch.get(batch.size() - 1).sequence());
+    }
+
+    private Checkout toCheckout(InventoryOperation operation) {
+        Checkout checkout = new Checkout();
+        checkout.setUser(userRepository.getReferenceById(operation.userId()));
+        checkout.setBookId(operation.bookId());
+        checkout.setCheckoutDate(operation.checkoutDate());
+        checkout.setReturnDate(operation.returnDate());
+        return checkout;
+    }
+
+    private ReentrantLock stripeFor(Long bookId) {
+        return stripes[stripeIndex(bookId)];
+    }
+
+    private static int stripeIndex(Long bookId) {
+        return Long.hashCode(bookId) & (STRIPES - 1);
+    }
+
+    private record LoanKey(Long userId, Long bookId) { }
+
+    /**
+     * A change granted inside the caller's transaction, moving from reserved to journaled to applied or aborted
+     */
+    private final class PendingChange implements TransactionSynchronization {
+
+        private final InventoryOperation operation;
+
+        // The reservations the change is counted in, or null if none
+        private final Map<Long, Integer> reservations;
+
+        // The change the counter still needs on commit, the copy of a checkout was taken when reserved
+        private final int commitDelta;
+
+        // The copies to put back on the counter if the change is dropped
+        private final int cancelDelta;
+
+        // The claimed loan to drop if the change is dropped, or null if none
+        private final LoanKey loan;
+
+        private InventoryOperation recorded;
+
+        private PendingChange(InventoryOperation operation, Map<Long, Integer> reservations, int commitDelta,
+                              int cancelDelta, LoanKey loan) {
+            this.operation = operation;
+            this.reservations = reservations;
+            this.commitDelta = commitDelta;
+            this.cancelDelta = cancelDelta;
+            this.loan = loan;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            prepare();
+        }
+
+        @Override
+        public void afterCommit() {
+            commit();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status != STATUS_COMMITTED) {
+                rollback();
+            }
+        }
+
+        /**
+         * Appends the change to the journal and waits until it is on disk, a failure here rolls the caller back
+         */
+        private void prepare() {
+            recorded = record(operation);
+            journal.sync(recorded.sequence());
+        }
+
+        /**
+         * Applies the change to the counters and lets the flush write it
+         */
+        private void commit() {
+            Long bookId = operation.bookId();
+            ReentrantLock stripe = stripeFor(bookId);
+            stripe.lock();
+            try {
+                pendingDeltas.merge(bookId, recorded.copiesDelta(), Integer::sum);
+                unreserve(bookId, reservations);
+                BookCounter counter = counters.get(bookId);
+                if (counter != null) {
+                    counter.available += commitDelta;
+                }
+                preparedSequences.remove(recorded.sequence());
+            } finally {
+                stripe.unlock();
+            }
+        }
+
+        /**
+         * Journals an abort for a change that was already journaled, then gives back what the change held
+         * The flush skips the change even if the abort cannot be written
+         */
+        private void rollback() {
+            try {
+                if (recorded != null) {
+                    synchronized (journal) {
+                        abortedSequences.add(recorded.sequence());
+                        preparedSequences.remove(recorded.sequence());
+                        journal.append(InventoryOperation.abort(recorded.sequence(), recorded.bookId()));
+                    }
+                    journal.syncAll();
+                }
+            } finally {
+                giveBack();
+            }
+        }
+
+        /**
+         * Gives back the reservation and the claimed loan of the change
+         */
+        private void giveBack() {
+            Long bookId = operation.bookId();
+            ReentrantLock stripe = stripeFor(bookId);
+            stripe.lock();
+            try {
+                unreserve(bookId, reservations);
+                BookCounter counter = counters.get(bookId);
+                if (counter != null) {
+                    counter.available += cancelDelta;
+                }
+            } finally {
+                stripe.unlock();
+            }
+            if (loan != null) {
+                pendingLoans.remove(loan);
+            }
+        }
+    }
+
+    private static class BookCounter {
+
+        private int copies;
+
+        private int available;
+
+        BookCounter(int copies, int available) {
+            this.copies = copies;
+            this.available = available;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.elibrary.backend.modules.checkout.reminder;
+
+import com.elibrary.backend.modules.checkout.dto.LoanReminderDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reminder sender that appends each reminder to a local file as one JSON line, for an outbox picked up by
+ * another process
+ */
+@Component
+@ConditionalOnProperty(name = "elibrary.reminders.sender", havingValue = "file")
+public class FileReminderSender implements ReminderSender {
+
+    private final ObjectMapper objectMapper;
+
+    private final Path file;
+
+    public FileReminderSender(ObjectMapper objectMapper,
+                              @Value("${elibrary.reminders.file:./data/reminders.jsonl}") String file) throws IOException {
+        this.objectMapper = objectMapper;
+        this.file = Path.of(file);
+
+        if (this.file.getParent() != null) {
+            Files.createDirectories(this.file.getParent());
+        }
+    }
+
+    @Override
+    public synchronized void send(LoanReminderDTO reminder) {
+        try {
+            String line = objectMapper.writeValueAsString(reminder) + System.lineSeparator();
+            Files.writeString(file, line, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Unable to write the reminder", ex);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to append to the reminder file " + file, ex);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.elibrary.backend.modules.checkout.reminder;
+
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.checkout.dto.LoanReminderDTO;
+import com.elibrary.backend.modules.checkout.dto.OpenLoanDTO;
+import com.elibrary.backend.modules.checkout.enums.LoanStatus;
+import com.elibrary.backend.modules.checkout.enums.ReminderType;
+import com.elibrary.backend.modules.checkout.event.LoanDueDateChangedEvent;
+import com.elibrary.backend.modules.checkout.repository.CheckoutRepository;
+import com.elibrary.backend.modules.user.entity.User;
+import com.elibrary.backend.modules.user.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Sends due soon and overdue reminders for loans from a timing wheel instead of scanning the checkout table
+ * Open loans are loaded once at startup, after that the wheel follows checkouts, renewals and returns. Each loan
+ * has one pending reminder, the overdue one is scheduled when the due soon one fires
+ * A reminder is recorded on its loan before it is sent, so it goes out at most once across restarts and instances
+ */
+@Slf4j
+@Component
+public class LoanReminderScheduler {
+
+    private final CheckoutRepository checkoutRepository;
+
+    private final UserRepository userRepository;
+
+    private final BookRepository bookRepository;
+
+    private final ReminderSender reminderSender;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private final long tickMillis;
+
+    private final int sendHour;
+
+    private final int chunkSize;
+
+    private final TimingWheel<PendingReminder> wheel;
+
+    private final Map<LoanKey, TimingWheel.Timer<PendingReminder>> timers = new HashMap<>();
+
+    public LoanReminderScheduler(CheckoutRepository checkoutRepository,
+                                 UserRepository userRepository,
+                                 BookRepository bookRepository,
+                                 ReminderSender reminderSender,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${elibrary.reminders.tick-ms:60000}") long tickMillis,
+                                 @Value("${elibrary.reminders.send-hour:9}") int sendHour,
+                                 @Value("${elibrary.reminders.chunk-size:1000}") int chunkSize) {
+        this.checkoutRepository = checkoutRepository;
+        this.userRepository = userRepository;
+        this.bookRepository = bookRepository;
+        this.reminderSender = reminderSender;
+        this.transactionTemplate = transactionTemplate;
+        this.tickMillis = tickMillis;
+        this.sendHour = sendHour;
+        this.chunkSize = chunkSize;
+        this.wheel = new TimingWheel<>(tickMillis, System.currentTimeMillis());
+    }
+
+    /**
+     * Loads the next reminder of every open loan, one chunk at a time
+     * Loans already changed by a request since startup keep the reminder that request scheduled
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long startedAt = System.currentTimeMillis();
+        long loaded = 0;
+        long afterId = 0;
+
+        while (true) {
+            List<OpenLoanDTO> loans = checkoutRepository.findOpenLoansAfter(afterId, Limit.of(chunkSize));
+            if (loans.isEmpty()) {
+                break;
+            }
+
+            synchronized (this) {
+                for (OpenLoanDTO loan : loans) {
+                    LoanKey key = new LoanKey(loan.userId(), loan.bookId());
+                    if (!timers.containsKey(key)) {
+                        schedule(key, loan.returnDate(), loan.lastReminder());
+                    }
+                }
+            }
+
+            loaded += loans.size();
+            afterId = loans.get(loans.size() - 1).id();
+
+            if (loans.size() < chunkSize) {
+                break;
+            }
+        }
+
+        log.info("Loaded reminders for {} open loans in {} ms", loaded, System.currentTimeMillis() - startedAt);
+    }
+
+    /**
+     * Moves the wheel to the current time and sends the reminders that fell due
+     * A chunk that fails goes back into the wheel for the next tick, so its loans keep their next reminder
+     */
+    @Scheduled(fixedDelayString = "${elibrary.reminders.tick-ms:60000}")
+    public void tick() {
+        List<PendingReminder> due;
+        synchronized (this) {
+            due = wheel.advance(System.currentTimeMillis());
+            for (PendingReminder reminder : due) {
+                timers.computeIfPresent(reminder.key(), (key, timer) -> timer.getValue() == reminder ? null : timer);
+            }
+        }
+
+        for (int from = 0; from < due.size(); from += chunkSize) {
+            List<PendingReminder> chunk = due.subList(from, Math.min(due.size(), from + chunkSize));
+            try {
+                send(chunk);
+            } catch (RuntimeException ex) {
+                log.error("Unable to send {} loan reminders, retrying on the next tick", chunk.size(), ex);
+                retry(chunk);
+            }
+        }
+    }
+
+    /**
+     * Reschedules the reminders of a loan once a checkout, renewal or return has committed
+     *
+     * @param event the loan and its new due date
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onDueDateChanged(LoanDueDateChangedEvent event) {
+        LoanKey key = new LoanKey(event.userId(), event.bookId());
+
+        TimingWheel.Timer<PendingReminder> timer = timers.remove(key);
+        if (timer != null) {
+            wheel.cancel(timer);
+        }
+
+        // A new or renewed loan starts again from the due soon reminder
+        if (event.returnDate() != null) {
+            schedule(key, event.returnDate(), null);
+        }
+    }
+
+    /**
+     * Counts the loans with a reminder waiting in the wheel
+     *
+     * @return the number of pending reminders
+     */
+    public synchronized int getPendingCount() {
+        return wheel.size();
+    }
+
+    /**
+     * Records and sends a chunk of due reminders, then schedules the overdue reminder of loans now due soon
+     */
+    private void send(List<PendingReminder> due) {
+
+        // Record each reminder on its loan, skipping loans returned, renewed or already reminded elsewhere
+        List<PendingReminder> claimed = transactionTemplate.execute(status -> due.stream()
+                .filter(reminder -> checkoutRepository.claimReminder(reminder.key().userId(),
+                        reminder.key().bookId(), reminder.returnDate(), reminder.type(),
+                        reminder.type() == ReminderType.OVERDUE ? ReminderType.DUE_SOON : null) == 1)
+                .toList());
+
+        // Look up the borrowers and books of the whole chunk at once
+        Set<Long> userIds = claimed.stream().map(reminder -> reminder.key().userId()).collect(Collectors.toSet());
+        Set<Long> bookIds = claimed.stream().map(reminder -> reminder.key().bookId()).collect(Collectors.toSet());
+        Map<Long, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        Map<Long, Book> books = bookRepository.findAllById(bookIds).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+
+        for (PendingReminder reminder : claimed) {
+            User user = users.get(reminder.key().userId());
+            Book book = books.get(reminder.key().bookId());
+            if (user == null) {
+                continue;
+            }
+
+            reminderSender.send(new LoanReminderDTO(reminder.type(), user.getEmail(), user.getName(),
+                    reminder.key().bookId(), book == null ? null : book.getTitle(), reminder.returnDate()));
+        }
+
+        // Loans now due soon wait for their overdue reminder, unless a request rescheduled them meanwhile
+        synchronized (this) {
+            for (PendingReminder reminder : due) {
+                if (reminder.type() == ReminderType.DUE_SOON && !timers.containsKey(reminder.key())) {
+                    schedule(reminder.key(), reminder.returnDate(), ReminderType.DUE_SOON);
+                }
+            }
+        }
+
+        log.info("Sent {} of {} due loan reminders", claimed.size(), due.size());
+    }
+
+    /**
+     * Puts the reminders of a failed chunk back into the wheel one tick from now
+     * Reminders already recorded on their loan are skipped when they come round again, loans rescheduled by a
+     * request meanwhile keep the reminder that request scheduled
+     */
+    private synchronized void retry(List<PendingReminder> chunk) {
+        long retryAt = System.currentTimeMillis() + tickMillis;
+        for (PendingReminder reminder : chunk) {
+            if (!timers.containsKey(reminder.key())) {
+                timers.put(reminder.key(), wheel.schedule(retryAt, reminder));
+            }
+        }
+    }
+
+    /**
+     * Puts the next reminder of a loan in the wheel, given the last one sent for its due date
+     */
+    private void schedule(LoanKey key, LocalDate returnDate, ReminderType lastReminder) {
+        if (lastReminder == ReminderType.OVERDUE) {
+            return;
+        }
+
+        long dueSoonAt = sendTime(returnDate.minusDays(LoanStatus.DUE_SOON_DAYS));
+        long overdueAt = sendTime(returnDate.plusDays(1));
+
+        // A loan already overdue skips the due soon reminder it never got
+        PendingReminder reminder;
+        long deadline;
+        if (lastReminder == null && System.currentTimeMillis() < overdueAt) {
+            reminder = new PendingReminder(key, returnDate, ReminderType.DUE_SOON);
+            deadline = dueSoonAt;
+        } else {
+            reminder = new PendingReminder(key, returnDate, ReminderType.OVERDUE);
+            deadline = overdueAt;
+        }
+
+        timers.put(key, wheel.schedule(deadline, reminder));
+    }
+
+    private long sendTime(LocalDate date) {
+        return date.atTime(sendHour, 0).atZone(zone).toInstant().toEpochMilli();
+    }
+
+    private record LoanKey(Long userId, Long bookId) { }
+
+    private record PendingReminder(LoanKey key, LocalDate returnDate, ReminderType type) { }
+}
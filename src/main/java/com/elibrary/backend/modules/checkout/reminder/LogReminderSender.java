@@ -0,0 +1,21 @@
+package com.elibrary.backend.modules.checkout.reminder;
+
+import com.elibrary.backend.modules.checkout.dto.LoanReminderDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reminder sender that writes each reminder to the application log, the default
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "elibrary.reminders.sender", havingValue = "log", matchIfMissing = true)
+public class LogReminderSender implements ReminderSender {
+
+    @Override
+    public void send(LoanReminderDTO reminder) {
+        log.info("{} reminder for {}: \"{}\" (book {}) is due {}", reminder.type(), reminder.userEmail(),
+                reminder.bookTitle(), reminder.bookId(), reminder.returnDate());
+    }
+}
@@ -0,0 +1,18 @@
+package com.elibrary.backend.modules.checkout.reminder;
+
+import com.elibrary.backend.modules.checkout.dto.LoanReminderDTO;
+
+/**
+ * Delivers loan reminders to borrowers
+ * Implementations are picked with elibrary.reminders.sender, the built in ones write to the log or a local file
+ * until an email or push provider is plugged in
+ */
+public interface ReminderSender {
+
+    /**
+     * Delivers one reminder
+     *
+     * @param reminder the reminder and the loan it is for
+     */
+    void send(LoanReminderDTO reminder);
+}
@@ -0,0 +1,228 @@
+package com.elibrary.backend.modules.checkout.reminder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel holding timers by the tick they are due on
+ * Each level has 64 buckets, a bucket on level n covers 64^n ticks, so five levels cover over 2000 years of
+ * one minute ticks. Scheduling and cancelling a timer are constant time, advancing the clock touches only the
+ * bucket due at each tick and, once per turn of a level, the bucket that moves down from the level above
+ * Not thread safe, callers synchronize
+ *
+ * @param <T> the value carried by each timer
+ */
+public class TimingWheel<T> {
+
+    private static final int WHEEL_BITS = 6;
+
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private static final int LEVELS = 5;
+
+    /**
+     * Extra level with a single bucket for timers already past their deadline, emptied on every advance
+     */
+    private static final int OVERDUE = LEVELS;
+
+    private final long tickMillis;
+
+    private final Timer<T>[][] buckets;
+
+    /**
+     * The next tick to expire, every earlier tick has been handled
+     */
+    private long currentTick;
+
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.buckets = (Timer<T>[][]) new Timer<?>[LEVELS + 1][];
+        for (int level = 0; level < LEVELS; level++) {
+            buckets[level] = (Timer<T>[]) new Timer<?>[WHEEL_SIZE];
+        }
+        buckets[OVERDUE] = (Timer<T>[]) new Timer<?>[1];
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Adds a timer, a deadline already past expires on the next advance
+     *
+     * @param deadlineMillis when the timer is due, in epoch milliseconds
+     * @param value          the value handed back when the timer expires
+     * @return the timer, used to cancel it
+     */
+    public Timer<T> schedule(long deadlineMillis, T value) {
+        Timer<T> timer = new Timer<>(deadlineMillis / tickMillis, value);
+        place(timer);
+        size++;
+        return timer;
+    }
+
+    /**
+     * Removes a timer before it expires
+     *
+     * @param timer the timer to remove
+     * @return true if the timer was still pending
+     */
+    public boolean cancel(Timer<T> timer) {
+        if (timer.level < 0) {
+            return false;
+        }
+
+        unlink(timer);
+        size--;
+        return true;
+    }
+
+    /**
+     * Moves the clock forward and collects the timers that fell due
+     *
+     * @param nowMillis the current time in epoch milliseconds
+     * @return the values of the expired timers
+     */
+    public List<T> advance(long nowMillis) {
+        List<T> expired = new ArrayList<>();
+        long targetTick = nowMillis / tickMillis;
+
+        // Timers added after their deadline are due whether or not a tick has passed
+        expire(OVERDUE, 0, expired);
+
+        while (currentTick <= targetTick) {
+
+            // Move timers down from the top level first, so a timer can move more than one level in a tick
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) == 0) {
+                    cascade(level, slot(currentTick, level));
+                }
+            }
+
+            // Every timer in the bottom bucket for this tick is due
+            expire(0, slot(currentTick, 0), expired);
+
+            currentTick++;
+        }
+
+        return expired;
+    }
+
+    /**
+     * Counts the pending timers
+     *
+     * @return the number of timers not yet expired or cancelled
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Puts a timer in the bucket matching how far away its deadline is
+     */
+    private void place(Timer<T> timer) {
+        long delta = timer.deadlineTick - currentTick;
+
+        int level;
+        int slot;
+        if (delta < 0) {
+            level = OVERDUE;
+            slot = 0;
+        } else {
+            level = delta < WHEEL_SIZE
+                    ? 0 : Math.min(LEVELS - 1, (63 - Long.numberOfLeadingZeros(delta)) / WHEEL_BITS);
+            slot = slot(timer.deadlineTick, level);
+        }
+
+        Timer<T> head = buckets[level][slot];
+        timer.level = level;
+        timer.slot = slot;
+        timer.prev = null;
+        timer.next = head;
+        if (head != null) {
+            head.prev = timer;
+        }
+        buckets[level][slot] = timer;
+    }
+
+    /**
+     * Empties a bucket of an upper level and puts each of its timers back, now one level closer to due
+     */
+    private void cascade(int level, int slot) {
+        Timer<T> timer = buckets[level][slot];
+        buckets[level][slot] = null;
+        while (timer != null) {
+            Timer<T> next = timer.next;
+            place(timer);
+            timer = next;
+        }
+    }
+
+    /**
+     * Empties a bucket and collects the values of its timers
+     */
+    private void expire(int level, int slot, List<T> expired) {
+        Timer<T> timer = buckets[level][slot];
+        buckets[level][slot] = null;
+        while (timer != null) {
+            Timer<T> next = timer.next;
+            timer.detach();
+            expired.add(timer.value);
+            size--;
+            timer = next;
+        }
+    }
+
+    private void unlink(Timer<T> timer) {
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else {
+            buckets[timer.level][timer.slot] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.detach();
+    }
+
+    private static int slot(long tick, int level) {
+        return (int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+    }
+
+    /**
+     * A pending timer, linked into its bucket so it can be removed in constant time
+     *
+     * @param <T> the value carried by the timer
+     */
+    public static final class Timer<T> {
+
+        private final long deadlineTick;
+
+        private final T value;
+
+        private Timer<T> prev;
+
+        private Timer<T> next;
+
+        private int level = -1;
+
+        private int slot;
+
+        private Timer(long deadlineTick, T value) {
+            this.deadlineTick = deadlineTick;
+            this.value = value;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        private void detach() {
+            prev = null;
+            next = null;
+            level = -1;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.elibrary.backend.modules.checkout.repository;
+
+import com.elibrary.backend.modules.checkout.dto.BookCheckoutCountDTO;
+import com.elibrary.backend.modules.checkout.dto.LoanHistoryDTO;
+import com.elibrary.backend.modules.checkout.entity.CheckoutHistory;
+import com.elibrary.backend.modules.checkout.entity.CheckoutHistoryId;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for managing archived checkouts
+ */
+@Repository
+public interface CheckoutHistoryRepository extends JpaRepository<CheckoutHistory, CheckoutHistoryId> {
+
+    /**
+     * Finds the archived loans of a user with the title and author of each book, most recently returned first
+     * Books deleted since the loan are still listed, without a title or author
+     *
+     * @param userId   the internal id of the user
+     * @param pageable pagination information
+     * @return one page of past loans
+     */
+    @Query(value = "SELECT new com.elibrary.backend.modules.checkout.dto.LoanHistoryDTO(" +
+            "h.id, h.bookId, b.title, b.author, h.checkoutDate, h.returnDate, h.returnedDate, h.renewalCount) " +
+            "FROM CheckoutHistory h LEFT JOIN Book b ON b.id = h.bookId " +
+            "WHERE h.userId = :userId " +
+            "ORDER BY h.returnedDate DESC, h.id DESC",
+            countQuery = "SELECT COUNT(h) FROM CheckoutHistory h WHERE h.userId = :userId")
+    Page<LoanHistoryDTO> findLoanHistoryByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Counts how many archived checkouts each book has
+     *
+     * @return one archived checkout count per book that has any
+     */
+    @Query("SELECT new com.elibrary.backend.modules.checkout.dto.BookCheckoutCountDTO(h.bookId, COUNT(h)) " +
+            "FROM CheckoutHistory h GROUP BY h.bookId")
+    List<BookCheckoutCountDTO> countCheckoutsPerBook();
+
+    /**
+     * Copies returned checkouts into the history table, keeping their ids
+     *
+     * @param ids the ids of the checkouts to copy
+     * @return the number of checkouts copied
+     */
+    @Modifying
+    @Query(value = "INSERT INTO checkout_history " +
+            "(id, returned_date, user_id, book_id, checkout_date, return_date, renewal_count, archived_at) " +
+            "SELECT id, returned_date, user_id, book_id, checkout_date, return_date, renewal_count, CURRENT_TIMESTAMP " +
+            "FROM checkout WHERE id IN (:ids) AND returned_date IS NOT NULL",
+            nativeQuery = true)
+    int copyFromCheckouts(@Param("ids") List<Long> ids);
+
+    /**
+     * Deletes the archived loans of a user
+     *
+     * @param userId the internal id of the user
+     */
+    @Modifying
+    @Query("DELETE FROM CheckoutHistory h WHERE h.userId = :userId")
+    void deleteByUserId(@Param("userId") Long userId);
+}
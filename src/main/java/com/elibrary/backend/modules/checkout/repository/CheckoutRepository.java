@@ -1,10 +1,25 @@
 package com.elibrary.backend.modules.checkout.repository;
 
+import com.elibrary.backend.modules.checkout.dto.BookCheckoutCountDTO;
+import com.elibrary.backend.modules.checkout.dto.BorrowedBookDTO;
+import com.elibrary.backend.modules.checkout.dto.CheckoutPerUserDTO;
+import com.elibrary.backend.modules.checkout.dto.CurrentLoanResponse;
+import com.elibrary.backend.modules.checkout.dto.LoanOverviewDTO;
+import com.elibrary.backend.modules.checkout.dto.OpenLoanDTO;
 import com.elibrary.backend.modules.checkout.entity.Checkout;
+import com.elibrary.backend.modules.checkout.enums.LoanStatus;
+import com.elibrary.backend.modules.checkout.enums.ReminderType;
 import com.elibrary.backend.modules.user.entity.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -13,6 +28,22 @@ import java.util.List;
 @Repository
 public interface CheckoutRepository extends JpaRepository<Checkout, Long> {
 
+    // Loan overview row with the borrower and book joined, the status is derived from the due and returned dates
+    String LOAN_OVERVIEW_SELECT = "SELECT new com.elibrary.backend.modules.checkout.dto.LoanOverviewDTO(" +
+            "c.id, u.email AS userEmail, u.name, u.userId, b.id, b.title AS bookTitle, b.author, " +
+            "c.checkoutDate, c.returnDate, c.returnedDate, " +
+            "CASE WHEN c.returnedDate IS NOT NULL THEN 'RETURNED' " +
+            "WHEN c.returnDate < :today THEN 'OVERDUE' " +
+            "WHEN c.returnDate <= :dueSoon THEN 'DUE_SOON' " +
+            "ELSE 'ACTIVE' END AS status, " +
+            "c.renewalCount, :today) " +
+            "FROM Checkout c JOIN c.user u JOIN Book b ON b.id = c.bookId ";
+
+    // Status of a loan still out, worked out from its due date like LoanStatus.fromDueDate, used by the loan status sweeper
+    String LOAN_STATUS_FROM_DUE_DATE = "CASE WHEN c.returnDate < :today THEN :overdue " +
+            "WHEN c.returnDate <= :dueSoon THEN :dueSoonStatus " +
+            "ELSE :active END";
+
     /**
      * Finds a checkout in the database by user email and book id
      *
@@ -30,4 +61,238 @@ public interface CheckoutRepository extends JpaRepository<Checkout, Long> {
      */
     List<Checkout> findBooksByUser(User user);
 
+    /**
+     * Finds the active loans of a user with the listing fields of each book, in one joined query
+     * Returned loans are left out, so the result does not grow with the user's history
+     *
+     * @param email the email of the user
+     * @param today the date the days left are counted from
+     * @return the active loans, soonest due first
+     */
+    @Query("SELECT new com.elibrary.backend.modules.checkout.dto.CurrentLoanResponse(" +
+            "b.id, b.title, b.author, b.category, b.copies, b.copiesAvailable, b.coverHash, c.returnDate, :today) " +
+            "FROM Checkout c JOIN Book b ON b.id = c.bookId " +
+            "WHERE c.user.email = :email AND c.returnedDate IS NULL " +
+            "ORDER BY c.returnDate, c.id")
+    List<CurrentLoanResponse> findCurrentLoansByUserEmail(@Param("email") String email, @Param("today") LocalDate today);
+
+    /**
+     * Counts how many times each book has been checked out
+     *
+     * @return one checkout count per book that has ever been checked out
+     */
+    @Query("SELECT new com.elibrary.backend.modules.checkout.dto.BookCheckoutCountDTO(c.bookId, COUNT(c)) " +
+            "FROM Checkout c GROUP BY c.bookId")
+    List<BookCheckoutCountDTO> countCheckoutsPerBook();
+
+    /**
+     * Counts the checkouts of every user in one grouped query, users without checkouts count zero
+     * Sortable by the aliases checkoutCount, userId and userEmail
+     *
+     * @param pageable pagination and sort information
+     * @return one page of users with their checkout counts
+     */
+    @Query(value = "SELECT new com.elibrary.backend.modules.checkout.dto.CheckoutPerUserDTO(" +
+            "u.userId AS userId, u.email AS userEmail, COUNT(c.id) AS checkoutCount) " +
+            "FROM User u LEFT JOIN u.checkouts c GROUP BY u.id, u.userId, u.email",
+            countQuery = "SELECT COUNT(u) FROM User u")
+    Page<CheckoutPerUserDTO> countCheckoutsPerUser(Pageable pageable);
+
+    /**
+     * Finds one page of loans for the admin overview, with the borrower and book joined in the same query
+     * Sortable by id, checkoutDate, returnDate, returnedDate, renewalCount and the aliases userEmail, bookTitle and status
+     *
+     * @param today    the date the status and days left are worked out for
+     * @param dueSoon  the last due date that still counts as due soon
+     * @param pageable pagination and sort information
+     * @return one page of loan overviews
+     */
+    @Query(value = LOAN_OVERVIEW_SELECT,
+            countQuery = "SELECT COUNT(c) FROM Checkout c JOIN Book b ON b.id = c.bookId")
+    Page<LoanOverviewDTO> findLoanOverviews(@Param("today") LocalDate today, @Param("dueSoon") LocalDate dueSoon,
+                                            Pageable pageable);
+
+    /**
+     * Finds one page of the loans still out with a stored status, for the overdue, due soon and active filters
+     * Reads the index on stored status and due date, the status is kept current by the loan status sweeper
+     *
+     * @param status   the stored status to filter by
+     * @param today    the date the status and days left are worked out for
+     * @param dueSoon  the last due date that still counts as due soon
+     * @param pageable pagination and sort information
+     * @return one page of loan overviews
+     */
+    @Query(value = LOAN_OVERVIEW_SELECT + "WHERE c.loanStatus = :status AND c.returnedDate IS NULL",
+            countQuery = "SELECT COUNT(c) FROM Checkout c JOIN Book b ON b.id = c.bookId " +
+                    "WHERE c.loanStatus = :status AND c.returnedDate IS NULL")
+    Page<LoanOverviewDTO> findOpenLoanOverviewsByStatus(@Param("status") LoanStatus status,
+                                                        @Param("today") LocalDate today,
+                                                        @Param("dueSoon") LocalDate dueSoon, Pageable pageable);
+
+    /**
+     * Finds one page of the loans that have been returned
+     *
+     * @param today    the date the status and days left are worked out for
+     * @param dueSoon  the last due date that still counts as due soon
+     * @param pageable pagination and sort information
+     * @return one page of loan overviews
+     */
+    @Query(value = LOAN_OVERVIEW_SELECT + "WHERE c.returnedDate IS NOT NULL",
+            countQuery = "SELECT COUNT(c) FROM Checkout c JOIN Book b ON b.id = c.bookId WHERE c.returnedDate IS NOT NULL")
+    Page<LoanOverviewDTO> findReturnedLoanOverviews(@Param("today") LocalDate today, @Param("dueSoon") LocalDate dueSoon,
+                                                    Pageable pageable);
+
+    /**
+     * Finds the ids of the next loans still out, in id order, so active loans can be walked in chunks
+     *
+     * @param afterId the last id of the previous chunk, or 0 for the first chunk
+     * @param limit   the maximum number of ids to return
+     * @return the ids of the next active loans
+     */
+    @Query("SELECT c.id FROM Checkout c WHERE c.returnedDate IS NULL AND c.id > :afterId ORDER BY c.id")
+    List<Long> findActiveIdsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Finds the next chunk of loans still out, in id order, with the last reminder sent for each
+     *
+     * @param afterId the last id of the previous chunk, or 0 for the first chunk
+     * @param limit   the maximum number of loans to return
+     * @return the next loans still out
+     */
+    @Query("SELECT new com.elibrary.backend.modules.checkout.dto.OpenLoanDTO(" +
+            "c.id, c.user.id, c.bookId, c.returnDate, c.lastReminder) " +
+            "FROM Checkout c WHERE c.returnedDate IS NULL AND c.id > :afterId ORDER BY c.id")
+    List<OpenLoanDTO> findOpenLoansAfter(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Records that a reminder is being sent for a loan, only if the loan is still out with the same due date and
+     * the reminder has not been sent yet
+     *
+     * @param userId     the id of the borrower
+     * @param bookId     the id of the book
+     * @param returnDate the due date the reminder is for
+     * @param reminder   the reminder being sent
+     * @param previous   the reminder that may already have been sent, or null if none may have been
+     * @return 1 if this caller should send the reminder, 0 otherwise
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Checkout c SET c.lastReminder = :reminder " +
+            "WHERE c.user.id = :userId AND c.bookId = :bookId AND c.returnedDate IS NULL " +
+            "AND c.returnDate = :returnDate AND (c.lastReminder IS NULL OR c.lastReminder = :previous)")
+    int claimReminder(@Param("userId") Long userId, @Param("bookId") Long bookId,
+                      @Param("returnDate") LocalDate returnDate, @Param("reminder") ReminderType reminder,
+                      @Param("previous") ReminderType previous);
+
+    /**
+     * Stores the status of a chunk of active loans in one update, worked out from each loan's due date
+     * Only loans whose stored status differs are written, so the count is the number of loans that changed
+     *
+     * @param ids           the ids of the loans to update
+     * @param today         the date the status is worked out for
+     * @param dueSoon       the last due date that still counts as due soon
+     * @param overdue       the overdue status
+     * @param dueSoonStatus the due soon status
+     * @param active        the active status
+     * @return the number of loans updated
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Checkout c SET c.loanStatus = " + LOAN_STATUS_FROM_DUE_DATE + " " +
+            "WHERE c.id IN :ids AND c.returnedDate IS NULL " +
+            "AND (c.loanStatus IS NULL OR c.loanStatus <> " + LOAN_STATUS_FROM_DUE_DATE + ")")
+    int updateLoanStatuses(@Param("ids") List<Long> ids, @Param("today") LocalDate today,
+                           @Param("dueSoon") LocalDate dueSoon, @Param("overdue") LoanStatus overdue,
+                           @Param("dueSoonStatus") LoanStatus dueSoonStatus, @Param("active") LoanStatus active);
+
+    /**
+     * Counts the loans a user still has out
+     *
+     * @param user the user
+     * @return the number of books on loan to the user
+     */
+    long countByUserAndReturnedDateIsNull(User user);
+
+    /**
+     * Finds every book a user has a checkout record for, returned or not
+     *
+     * @param userId the id of the user
+     * @return the books with their returned dates
+     */
+    @Query("SELECT new com.elibrary.backend.modules.checkout.dto.BorrowedBookDTO(c.bookId, c.returnedDate) " +
+            "FROM Checkout c WHERE c.user.id = :userId")
+    List<BorrowedBookDTO> findBorrowedBooksByUserId(@Param("userId") Long userId);
+
+    /**
+     * Finds the ids of the next checkouts returned before a date, in id order, so they can be archived in batches
+     *
+     * @param cutoff  the date the checkouts must have been returned before
+     * @param afterId the last id of the previous batch, or 0 for the first batch
+     * @param limit   the maximum number of ids to return
+     * @return the ids of the next returned checkouts
+     */
+    @Query("SELECT c.id FROM Checkout c WHERE c.returnedDate < :cutoff AND c.id > :afterId ORDER BY c.id")
+    List<Long> findReturnedIdsBefore(@Param("cutoff") LocalDate cutoff, @Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Deletes returned checkouts by id, loans still out are never deleted
+     *
+     * @param ids the ids of the checkouts to delete
+     * @return the number of checkouts deleted
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Checkout c WHERE c.id IN :ids AND c.returnedDate IS NOT NULL")
+    int deleteReturnedByIdIn(@Param("ids") List<Long> ids);
+
+    /**
+     * Finds the loan overviews checked out before the given date and id, newest first
+     * Used for keyset pagination, so no offset is skipped and no count query is run. The plain date bound lets the
+     * checkout date index drive the join
+     *
+     * @param beforeDate the checkout date of the last loan already seen, the latest date for the first page
+     * @param beforeId   the id of the last loan already seen, the largest id for the first page
+     * @param today      the date the status and days left are worked out for
+     * @param dueSoon    the last due date that still counts as due soon
+     * @param limit      the maximum number of loans to return
+     * @return the next loan overviews
+     */
+    @Query(LOAN_OVERVIEW_SELECT +
+            "WHERE c.checkoutDate <= :beforeDate AND (c.checkoutDate < :beforeDate OR c.id < :beforeId) " +
+            "ORDER BY c.checkoutDate DESC, c.id DESC")
+    List<LoanOverviewDTO> findLoanOverviewsBeforeCheckoutDate(@Param("beforeDate") LocalDate beforeDate,
+                                                              @Param("beforeId") Long beforeId,
+                                                              @Param("today") LocalDate today,
+                                                              @Param("dueSoon") LocalDate dueSoon, Limit limit);
+
+    /**
+     * Finds the loan overviews due after the given date and id, soonest due first
+     * Used for keyset pagination, so no offset is skipped and no count query is run. The plain date bound lets the
+     * due date index drive the join
+     *
+     * @param afterDate the due date of the last loan already seen, the earliest date for the first page
+     * @param afterId   the id of the last loan already seen, 0 for the first page
+     * @param today     the date the status and days left are worked out for
+     * @param dueSoon   the last due date that still counts as due soon
+     * @param limit     the maximum number of loans to return
+     * @return the next loan overviews
+     */
+    @Query(LOAN_OVERVIEW_SELECT +
+            "WHERE c.returnDate >= :afterDate AND (c.returnDate > :afterDate OR c.id > :afterId) " +
+            "ORDER BY c.returnDate, c.id")
+    List<LoanOverviewDTO> findLoanOverviewsAfterReturnDate(@Param("afterDate") LocalDate afterDate,
+                                                           @Param("afterId") Long afterId,
+                                                           @Param("today") LocalDate today,
+                                                           @Param("dueSoon") LocalDate dueSoon, Limit limit);
+
+    /**
+     * Finds the loan overviews after the given id, in id order
+     * Used for keyset pagination, so no offset is skipped and no count query is run
+     *
+     * @param afterId the id of the last loan already seen, 0 for the first page
+     * @param today   the date the status and days left are worked out for
+     * @param dueSoon the last due date that still counts as due soon
+     * @param limit   the maximum number of loans to return
+     * @return the next loan overviews
+     */
+    @Query(LOAN_OVERVIEW_SELECT + "WHERE c.id > :afterId ORDER BY c.id")
+    List<LoanOverviewDTO> findLoanOverviewsAfterId(@Param("afterId") Long afterId, @Param("today") LocalDate today,
+                                                   @Param("dueSoon") LocalDate dueSoon, Limit limit);
 }
@@ -0,0 +1,54 @@
+package com.elibrary.backend.modules.checkout.repository;
+
+import com.elibrary.backend.modules.checkout.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.Optional;
+
+/**
+ * Repository for managing stored idempotent request outcomes
+ */
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    /**
+     * Finds the record of an idempotency key sent by a user
+     *
+     * @param userEmail the email of the user
+     * @param keyHash   the hash of the key
+     * @return the record, or empty if the key has not been used
+     */
+    Optional<IdempotencyRecord> findByUserEmailAndKeyHash(String userEmail, String keyHash);
+
+    /**
+     * Stores the response of a request that holds a key
+     *
+     * @param id           the id of the record
+     * @param statusCode   the status code of the response
+     * @param responseBody the response body as JSON, or null if there is none
+     * @return 1 if the record was updated
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.completed = true, r.statusCode = :statusCode, " +
+            "r.responseBody = :responseBody WHERE r.id = :id")
+    int complete(@Param("id") Long id, @Param("statusCode") int statusCode,
+                 @Param("responseBody") String responseBody);
+
+    /**
+     * Deletes records created before the given time, whether they completed or not
+     *
+     * @param cutoff the oldest creation time to keep
+     * @return the number of records deleted
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") Timestamp cutoff);
+}
@@ -0,0 +1,12 @@
+package com.elibrary.backend.modules.checkout.repository;
+
+import com.elibrary.backend.modules.checkout.entity.InventoryCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for managing the inventory journal checkpoint
+ */
+@Repository
+public interface InventoryCheckpointRepository extends JpaRepository<InventoryCheckpoint, Integer> {
+}
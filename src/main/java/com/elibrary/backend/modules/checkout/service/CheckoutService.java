@@ -1,12 +1,18 @@
 package com.elibrary.backend.modules.checkout.service;
 
+import com.elibrary.backend.common.pagination.CursorPage;
 import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.checkout.dto.BookStatusDTO;
 import com.elibrary.backend.modules.checkout.dto.CheckoutCountDTO;
 import com.elibrary.backend.modules.checkout.dto.CheckoutPerUserDTO;
 import com.elibrary.backend.modules.checkout.dto.CurrentLoanResponse;
+import com.elibrary.backend.modules.checkout.dto.LoanHistoryDTO;
 import com.elibrary.backend.modules.checkout.dto.LoanOverviewDTO;
+import com.elibrary.backend.modules.checkout.dto.LoanStatusSweepDTO;
+import com.elibrary.backend.modules.checkout.enums.LoanStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 import java.util.List;
 
@@ -33,6 +39,15 @@ public interface CheckoutService {
      */
     boolean isBookCheckedOutByUser(String userEmail, Long bookId);
 
+    /**
+     * Fetches the checkout, review and hold status of a user for many books at once
+     *
+     * @param userEmail the email of the user
+     * @param bookIds   the ids of the books, at most 100 distinct ids
+     * @return one status per book, in the order the ids were given
+     */
+    List<BookStatusDTO> getBookStatusesForUser(String userEmail, List<Long> bookIds);
+
     /**
      * Fetches the total number of books a user currently has checked out
      *
@@ -73,19 +88,31 @@ public interface CheckoutService {
     CheckoutCountDTO getTotalCheckouts();
 
     /**
-     * Fetches the number of books currently checked out by each user
+     * Fetches the number of books checked out by each user, one page at a time
      *
-     * @return a list of objects containing the user ID, email and total number of checkouts
+     * @param pageable pagination and sort information, sortable by checkoutCount, userId or userEmail
+     * @return a page of objects containing the user ID, email and total number of checkouts
      */
-    List<CheckoutPerUserDTO> getUserCheckoutCounts();
+    Page<CheckoutPerUserDTO> getUserCheckoutCounts(Pageable pageable);
 
     /**
      * Fetches all current user loans
      *
+     * @param status   the loan status to filter by, or null for every loan
      * @param pageable the pagination information
      * @return a page of LoanOverviewDTO objects representing current loans
      */
-    Page<LoanOverviewDTO> adminGetAllCheckouts(Pageable pageable);
+    Page<LoanOverviewDTO> adminGetAllCheckouts(LoanStatus status, Pageable pageable);
+
+    /**
+     * Fetches all user checkouts with loan details using keyset pagination
+     *
+     * @param cursor the cursor from the previous page, empty for the first page
+     * @param size   the maximum number of checkouts to return
+     * @param sort   the requested sort order
+     * @return one page of loan overviews and the cursor for the next page
+     */
+    CursorPage<LoanOverviewDTO> adminScrollAllCheckouts(String cursor, int size, Sort sort);
 
     /**
      * Allows an admin to renew a user's loan
@@ -102,4 +129,20 @@ public interface CheckoutService {
      * @param bookId the id of the book being returned
      */
     void adminReturnBook(String userId, Long bookId);
+
+    /**
+     * Fetches the details of the last loan status sweep
+     *
+     * @return when the sweep ran, how long it took and how many loans it updated
+     */
+    LoanStatusSweepDTO getLastLoanStatusSweep();
+
+    /**
+     * Fetches the archived loans of a user, most recently returned first
+     *
+     * @param userEmail the email of the user
+     * @param pageable  the pagination information
+     * @return a page of past loans with the book title and author
+     */
+    Page<LoanHistoryDTO> getLoanHistoryForUser(String userEmail, Pageable pageable);
 }
@@ -1,32 +1,57 @@
 package com.elibrary.backend.modules.checkout.service.Impl;
 
 import com.elibrary.backend.common.exceptions.DuplicateResourceException;
+import com.elibrary.backend.common.exceptions.InvalidCursorException;
 import com.elibrary.backend.common.exceptions.ResourceNotFoundExceptions;
+import com.elibrary.backend.common.pagination.CursorCodec;
+import com.elibrary.backend.common.pagination.CursorPage;
 import com.elibrary.backend.modules.book.entity.Book;
 import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.book.search.CatalogIndex;
+import com.elibrary.backend.modules.checkout.dto.BookStatusDTO;
 import com.elibrary.backend.modules.checkout.dto.CheckoutCountDTO;
 import com.elibrary.backend.modules.checkout.dto.CheckoutPerUserDTO;
 import com.elibrary.backend.modules.checkout.dto.CurrentLoanResponse;
+import com.elibrary.backend.modules.checkout.dto.LoanHistoryDTO;
 import com.elibrary.backend.modules.checkout.dto.LoanOverviewDTO;
+import com.elibrary.backend.modules.checkout.dto.LoanStatusSweepDTO;
 import com.elibrary.backend.modules.checkout.entity.Checkout;
 import com.elibrary.backend.modules.checkout.enums.LoanStatus;
+import com.elibrary.backend.modules.checkout.event.LoanDueDateChangedEvent;
 import com.elibrary.backend.modules.checkout.exception.BookAlreadyReturnedException;
 import com.elibrary.backend.modules.checkout.exception.LoanOverdueException;
 import com.elibrary.backend.modules.checkout.exception.MaximumRenewalsReachedException;
+import com.elibrary.backend.modules.checkout.exception.TooManyBooksRequestedException;
+import com.elibrary.backend.modules.checkout.inventory.InventoryEngine;
+import com.elibrary.backend.modules.checkout.repository.CheckoutHistoryRepository;
 import com.elibrary.backend.modules.checkout.repository.CheckoutRepository;
 import com.elibrary.backend.modules.checkout.service.CheckoutService;
+import com.elibrary.backend.modules.checkout.status.LoanStatusSweeper;
+import com.elibrary.backend.modules.hold.enums.HoldStatus;
+import com.elibrary.backend.modules.hold.service.HoldService;
+import com.elibrary.backend.modules.user.cache.UserBookStateCache;
 import com.elibrary.backend.modules.user.entity.User;
 import com.elibrary.backend.modules.user.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 
@@ -42,12 +67,50 @@ public class CheckoutServiceImpl implements CheckoutService {
 
     private final CheckoutRepository checkoutRepository;
 
+    private final CheckoutHistoryRepository checkoutHistoryRepository;
+
     private final UserRepository userRepository;
 
+    private final List<CatalogIndex> catalogIndexes;
+
+    private final InventoryEngine inventoryEngine;
+
+    private final LoanStatusSweeper loanStatusSweeper;
+
+    private final HoldService holdService;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final UserBookStateCache userBookStateCache;
+
     private static final int MAX_LOAN_DAYS = 7;
 
     private static final int MAX_RENEWALS = 2;
 
+    // Most books a single status request answers for, about a few pages of the book grid
+    private static final int MAX_STATUS_BOOKS = 100;
+
+    private static final Sort DEFAULT_LOAN_OVERVIEW_SORT = Sort.by(Sort.Order.asc("returnDate"), Sort.Order.asc("id"));
+
+    private static final Set<String> LOAN_OVERVIEW_SORT_PROPERTIES = Set.of(
+            "id", "checkoutDate", "returnDate", "returnedDate", "renewalCount", "userEmail", "bookTitle", "status");
+
+    private static final Sort SCROLL_BY_CHECKOUT_DATE = Sort.by(Sort.Order.desc("checkoutDate"), Sort.Order.desc("id"));
+
+    private static final Sort SCROLL_BY_RETURN_DATE = Sort.by("returnDate", "id");
+
+    private static final Sort SCROLL_BY_ID = Sort.by("id");
+
+    private static final LocalDate EARLIEST_SCROLL_DATE = LocalDate.of(1000, 1, 1);
+
+    private static final LocalDate LATEST_SCROLL_DATE = LocalDate.of(9999, 12, 31);
+
+    private static final Set<String> SCROLL_SORT_PROPERTIES = Set.of("id", "checkoutDate", "returnDate");
+
+    private static final Sort DEFAULT_CHECKOUT_COUNT_SORT = Sort.by(Sort.Order.desc("checkoutCount"), Sort.Order.asc("userId"));
+
+    private static final Set<String> CHECKOUT_COUNT_SORT_PROPERTIES = Set.of("checkoutCount", "userId", "userEmail");
+
 
     /**
      * Allows a user to check out a book
@@ -57,47 +120,45 @@ public class CheckoutServiceImpl implements CheckoutService {
      * @return the details of the checked-out book
      */
     @Override
+    @Transactional
     public Book checkoutBookForUser(String userEmail, Long bookId) {
 
         // Find the user by their email, or throw an exception if not found
         User user = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new ResourceNotFoundExceptions("User not found"));
 
-        // Find the book by its id, or throw an exception if not found
-        Book book = bookRepository.findById(bookId).orElseThrow(
-                () -> new ResourceNotFoundExceptions("The requested book could not be found"));
-
-        // Check if the book is already checked out by the user
-        Checkout existingCheckout = checkoutRepository.findByUserAndBookId(user, bookId);
-
-        // If a user has checked out throw an exception
-        if (existingCheckout != null) {
-            throw new DuplicateResourceException("Book already checked out by this user");
+        // Check the book exists, or throw an exception if not found
+        if (!bookRepository.existsById(bookId)) {
+            throw new ResourceNotFoundExceptions("The requested book could not be found");
         }
 
-        // Check if there are any copies of the book available for checkout
-        if (book.getCopiesAvailable() <= 0) {
-            throw new ResourceNotFoundExceptions("No copies available for checkout");
+        // Check if the book is already checked out by the user, including loans not written to the table yet
+        if (inventoryEngine.hasPendingLoan(user, bookId) || checkoutRepository.findByUserAndBookId(user, bookId) != null) {
+            throw new DuplicateResourceException("Book already checked out by this user");
         }
 
-        // Decrease the number of available copies for the book
-        book.setCopiesAvailable(book.getCopiesAvailable() - 1);
-
-        // Save the updated book information back to the database
-        bookRepository.save(book);
+        // Take a copy and record the loan, using the copy set aside for the user's hold if there is one,
+        // throws if no copy is left
+        LocalDate today = LocalDate.now();
+        LocalDate returnDate = today.plusDays(MAX_LOAN_DAYS);
+        int copiesLeft = holdService.claimReadyHold(user, bookId)
+                ? inventoryEngine.checkoutHeldCopy(user, bookId, today, returnDate)
+                : inventoryEngine.checkout(user, bookId, today, returnDate);
+        catalogIndexes.forEach(index -> index.copiesChanged(bookId, copiesLeft));
 
-        // Create and save a new checkout record
-        Checkout checkout = new Checkout();
-        checkout.setUser(user);
-        checkout.setCheckoutDate(LocalDate.now());
-        checkout.setReturnDate(LocalDate.now().plusDays(MAX_LOAN_DAYS));
-        checkout.setBookId(book.getId());
+        // Schedule the reminders of the new loan and record it in the user's cached state once it commits
+        eventPublisher.publishEvent(new LoanDueDateChangedEvent(user.getId(), bookId, returnDate));
+        userBookStateCache.loanStarted(userEmail, bookId);
 
-        // Save the new checkout to the database
-        checkoutRepository.save(checkout);
+        // Read the book and report the copy count this checkout left, which the database may not show yet
+        Book book = bookRepository.findById(bookId).orElseThrow(
+                () -> new ResourceNotFoundExceptions("The requested book could not be found"));
+        Book checkedOutBook = new Book();
+        BeanUtils.copyProperties(book, checkedOutBook);
+        checkedOutBook.setCopiesAvailable(copiesLeft);
 
         // Return the book the user checked out
-        return book;
+        return checkedOutBook;
     }
 
     /**
@@ -110,15 +171,39 @@ public class CheckoutServiceImpl implements CheckoutService {
     @Override
     public boolean isBookCheckedOutByUser(String userEmail, Long bookId) {
 
-        // Find the user by their email, or throw an exception if not found
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResourceNotFoundExceptions("User not found"));
+        // Check the user's cached checkout records, loaded on first access, throws if the user is not found
+        return userBookStateCache.hasBorrowed(userEmail, bookId);
+    }
 
-        // Check if the book is already checked out by the user
-        Checkout existingCheckout = checkoutRepository.findByUserAndBookId(user, bookId);
+    /**
+     * Fetches the checkout, review and hold status of a user for many books at once
+     *
+     * @param userEmail the email of the user
+     * @param bookIds   the ids of the books, at most 100 distinct ids
+     * @return one status per book, in the order the ids were given
+     */
+    @Override
+    public List<BookStatusDTO> getBookStatusesForUser(String userEmail, List<Long> bookIds) {
+
+        // Drop empty and repeated ids, keeping the order they were asked for in
+        List<Long> ids = List.copyOf(bookIds.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+
+        // Refuse more books than one request may ask about instead of leaving some unanswered
+        if (ids.size() > MAX_STATUS_BOOKS) {
+            throw new TooManyBooksRequestedException(
+                    "At most " + MAX_STATUS_BOOKS + " books can be asked about at once, got " + ids.size());
+        }
+
+        // Look up the open holds on all the books in one query
+        Map<Long, HoldStatus> holdStatuses = holdService.getOpenHoldStatusesForUser(userEmail, ids);
 
-        // If found, return true. If not, return false
-        return existingCheckout != null;
+        // Read the checkout and review flags from the user's cached state, throws if the user is not found
+        return ids.stream()
+                .map(id -> new BookStatusDTO(id, userBookStateCache.hasBorrowed(userEmail, id),
+                        userBookStateCache.hasReviewed(userEmail, id), holdStatuses.get(id)))
+                .toList();
     }
 
     /**
@@ -130,12 +215,8 @@ public class CheckoutServiceImpl implements CheckoutService {
     @Override
     public int getCurrentLoanCountForUser(String userEmail) {
 
-        // Find the user by their email, or throw an exception if not found
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResourceNotFoundExceptions("User not found"));
-
-        // Find all checkout records for the user and return the total count
-        return checkoutRepository.findBooksByUser(user).size();
+        // Count the loans the user has not returned yet from the cached state, throws if the user is not found
+        return userBookStateCache.getActiveLoanCount(userEmail);
     }
 
     /**
@@ -147,41 +228,19 @@ public class CheckoutServiceImpl implements CheckoutService {
     @Override
     public List<CurrentLoanResponse> getCurrentLoansForUser(String userEmail) {
 
-        // Find the user by their email, or throw an exception if not found
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResourceNotFoundExceptions("User not found"));
-
-        // Create an empty list to store the details of the books currently on loan
-        List<CurrentLoanResponse> currentLoanResponses = new ArrayList<>();
+        // Write any waiting loans so they show up on the shelf
+        inventoryEngine.flush();
 
-        // Get all the user's current checkouts
-        List<Checkout> checkoutList = checkoutRepository.findBooksByUser(user);
+        // Get the user's active loans joined with their books, soonest due first
+        List<CurrentLoanResponse> currentLoans = checkoutRepository.findCurrentLoansByUserEmail(userEmail, LocalDate.now());
 
-        // Get the id of all books the user checked out
-        List<Long> bookIdList = checkoutList.stream()
-                .map(checkout -> checkout.getBookId())
-                .collect(Collectors.toList());
-
-        // Get all books corresponding to the extracted book id
-        List<Book> books = bookRepository.findBooksByBookIds(bookIdList);
-
-        // Get the current date
-        LocalDate today = LocalDate.now();
-
-        // Finds each book matching checkout record and determines the remaining days until its due date
-        for (Book book : books) {
-            checkoutList.stream()
-                    .filter(checkout -> checkout.getBookId() == book.getId())
-                    .findFirst()
-                    .ifPresent(checkout -> {
-                        LocalDate dueDate = checkout.getReturnDate();
-                        long daysLeft = ChronoUnit.DAYS.between(today, dueDate);
-                        currentLoanResponses.add(new CurrentLoanResponse(book, (int) daysLeft));
-                    });
+        // If there are no loans and the user does not exist, throw an exception
+        if (currentLoans.isEmpty() && !userRepository.existsByEmail(userEmail)) {
+            throw new ResourceNotFoundExceptions("User not found");
         }
 
         // Return the list of current loans
-        return currentLoanResponses;
+        return currentLoans;
     }
 
     /**
@@ -191,16 +250,20 @@ public class CheckoutServiceImpl implements CheckoutService {
      * @param bookId    the id of the book being returned
      */
     @Override
+    @Transactional
     public void returnBookForUser(String userEmail, Long bookId) {
 
         // Find the user by their email, or throw an exception if not found
         User user = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new ResourceNotFoundExceptions("User not found"));
 
-        // Find the book by its id. Throw exceptions if not found
-        Book book = bookRepository.findById(bookId)
-                .orElseThrow(() -> new ResourceNotFoundExceptions("The requested book could not be found"));
+        // Check the book exists, or throw an exception if not found
+        if (!bookRepository.existsById(bookId)) {
+            throw new ResourceNotFoundExceptions("The requested book could not be found");
+        }
 
+        // Write any waiting loans so the checkout below can be found
+        inventoryEngine.flush();
 
         // Check if the book is already checked out by the user
         Checkout existingCheckout = checkoutRepository.findByUserAndBookId(user, bookId);
@@ -217,11 +280,15 @@ public class CheckoutServiceImpl implements CheckoutService {
 
         // Update the checkout with the return date
         existingCheckout.setReturnedDate(LocalDate.now());
+        existingCheckout.setLoanStatus(LoanStatus.RETURNED);
         checkoutRepository.save(existingCheckout);
 
-        // Increases available copies and saves the book
-        book.setCopiesAvailable(book.getCopiesAvailable() + 1);
-        bookRepository.save(book);
+        // Set the copy aside for the next hold, or put it back, in the same transaction as the return
+        holdService.passOnReturnedCopy(bookId);
+
+        // Drop the reminders of the loan and update the user's cached state once the return commits
+        eventPublisher.publishEvent(new LoanDueDateChangedEvent(user.getId(), bookId, null));
+        userBookStateCache.loanReturned(userEmail, bookId);
     }
 
     /**
@@ -245,6 +312,11 @@ public class CheckoutServiceImpl implements CheckoutService {
             throw new ResourceNotFoundExceptions("This book is not currently checked out under this account");
         }
 
+        // A returned loan cannot be renewed
+        if (existingCheckout.getReturnedDate() != null) {
+            throw new BookAlreadyReturnedException("This book has already been returned");
+        }
+
         // If the maximum number of renewals has been reached, throw an exception
         if (existingCheckout.getRenewalCount() >= MAX_RENEWALS) {
             throw new MaximumRenewalsReachedException("Maximum number of renewals reached for this loan");
@@ -266,6 +338,8 @@ public class CheckoutServiceImpl implements CheckoutService {
 
         // Update the return date
         existingCheckout.setReturnDate(newReturnDate);
+        existingCheckout.setLoanStatus(LoanStatus.fromDueDate(newReturnDate, today));
+        existingCheckout.setLastReminder(null);
 
         // Increment the renewal count for this checkout
         existingCheckout.setRenewalCount(existingCheckout.getRenewalCount() + 1);
@@ -273,6 +347,9 @@ public class CheckoutServiceImpl implements CheckoutService {
 
         // Save the updated checkout record to the database
         checkoutRepository.save(existingCheckout);
+
+        // Move the reminders of the loan to the new due date
+        eventPublisher.publishEvent(new LoanDueDateChangedEvent(user.getId(), bookId, newReturnDate));
     }
 
     /**
@@ -290,87 +367,123 @@ public class CheckoutServiceImpl implements CheckoutService {
     }
 
     /**
-     * Fetches the number of books currently checked out by each user
+     * Fetches the number of books checked out by each user, one page at a time
+     * Sorted by checkoutCount, userId or userEmail, other sort properties are ignored, most checkouts first by default
      *
-     * @return a list of objects containing the user ID, email and total number of checkouts
+     * @param pageable pagination and sort information
+     * @return a page of objects containing the user ID, email and total number of checkouts
      */
     @Override
-    public List<CheckoutPerUserDTO> getUserCheckoutCounts() {
-        List<User> users = userRepository.findAll();
-
-        List<CheckoutPerUserDTO> checkoutPerUser = users.stream().map(
-                user -> {
-
-                    String userId = user.getUserId();
-
-                    String userEmail = user.getEmail();
-
-                    long totalCheckouts = checkoutRepository.findBooksByUser(user).size();
-
-                    return new CheckoutPerUserDTO(userId, userEmail, totalCheckouts);
-                }).toList();
+    public Page<CheckoutPerUserDTO> getUserCheckoutCounts(Pageable pageable) {
+
+        // Keep only the sort properties the grouped query exposes
+        Sort sort = Sort.by(pageable.getSort().stream()
+                .filter(order -> CHECKOUT_COUNT_SORT_PROPERTIES.contains(order.getProperty()))
+                .toList());
+        if (sort.isUnsorted()) {
+            sort = DEFAULT_CHECKOUT_COUNT_SORT;
+        }
 
-        return checkoutPerUser;
+        // Count every user's checkouts in one grouped query
+        return checkoutRepository.countCheckoutsPerUser(
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort));
     }
 
     /**
      * Fetches all current user checkouts with loan details
+     * Sorted by id, checkoutDate, returnDate, returnedDate, renewalCount, userEmail, bookTitle or status,
+     * other sort properties are ignored, soonest due first by default
      *
+     * @param status   the loan status to filter by, or null for every loan
      * @param pageable the pagination information
      * @return a page of LoanOverviewDTO objects representing current checkouts
      */
     @Override
-    public Page<LoanOverviewDTO> adminGetAllCheckouts(Pageable pageable) {
+    public Page<LoanOverviewDTO> adminGetAllCheckouts(LoanStatus status, Pageable pageable) {
 
         // Get the current date
         LocalDate today = LocalDate.now();
 
-        // Get all checkout records
-        Page<Checkout> checkoutPage = checkoutRepository.findAll(pageable);
-
-        // Transform each checkout record into a LoanOverviewDTO
-        return checkoutPage.map(checkout -> {
-
-            // Find the book for the checkout's book ID, or throw an exception if not found
-            Book book = bookRepository.findById(checkout.getBookId())
-                    .orElseThrow(() -> new ResourceNotFoundExceptions("Book not found"));
-
-            // Get the user who borrowed the book
-            User user = checkout.getUser();
-
-            // Get the number of days remaining until the due date
-            int daysLeft = (int) ChronoUnit.DAYS.between(today, checkout.getReturnDate());
-
-            // Build the loan overview response object
-            LoanOverviewDTO loanOverviewDTO = new LoanOverviewDTO();
-            loanOverviewDTO.setId(checkout.getId());
-            loanOverviewDTO.setUserId(user.getUserId());
-            loanOverviewDTO.setUserName(user.getName());
-            loanOverviewDTO.setUserEmail(user.getEmail());
-            loanOverviewDTO.setBookId(book.getId());
-            loanOverviewDTO.setBookTitle(book.getTitle());
-            loanOverviewDTO.setBookAuthor(book.getAuthor());
-            loanOverviewDTO.setCheckoutDate(checkout.getCheckoutDate());
-            loanOverviewDTO.setReturnDate(checkout.getReturnDate());
-            loanOverviewDTO.setRenewalCount(checkout.getRenewalCount());
-            loanOverviewDTO.setReturnedDate(checkout.getReturnedDate());
-            loanOverviewDTO.setRemainingDays(daysLeft);
-
-            // Set the loan status based on returned date and days left
-            if (checkout.getReturnedDate() != null) {
-                loanOverviewDTO.setStatus(LoanStatus.RETURNED);
-                loanOverviewDTO.setRemainingDays(0);
-            } else if (daysLeft < 0) {
-                loanOverviewDTO.setStatus(LoanStatus.OVERDUE);
-            } else if (daysLeft <= 3) {
-                loanOverviewDTO.setStatus(LoanStatus.DUE_SOON);
-            } else {
-                loanOverviewDTO.setStatus(LoanStatus.ACTIVE);
-            }
-
-            // Return the LoanOverviewDTO for the current checkout
-            return loanOverviewDTO;
-        });
+        // Keep only the sort properties the overview query exposes
+        Sort sort = Sort.by(pageable.getSort().stream()
+                .filter(order -> LOAN_OVERVIEW_SORT_PROPERTIES.contains(order.getProperty()))
+                .toList());
+        if (sort.isUnsorted()) {
+            sort = DEFAULT_LOAN_OVERVIEW_SORT;
+        }
+
+        // Load the page of loans with their borrowers, books and statuses in one query
+        // Open loans are filtered on their stored status, returned loans on the returned date index
+        LocalDate dueSoon = today.plusDays(LoanStatus.DUE_SOON_DAYS);
+        PageRequest pageRequest = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
+        if (status == null) {
+            return checkoutRepository.findLoanOverviews(today, dueSoon, pageRequest);
+        }
+        return switch (status) {
+            case RETURNED -> checkoutRepository.findReturnedLoanOverviews(today, dueSoon, pageRequest);
+            case OVERDUE, DUE_SOON, ACTIVE ->
+                    checkoutRepository.findOpenLoanOverviewsByStatus(status, today, dueSoon, pageRequest);
+        };
+    }
+
+    /**
+     * Fetches all user checkouts with loan details using keyset pagination
+     *
+     * @param cursor the cursor from the previous page, empty for the first page
+     * @param size   the maximum number of checkouts to return
+     * @param sort   the requested sort order
+     * @return one page of loan overviews and the cursor for the next page
+     */
+    @Override
+    public CursorPage<LoanOverviewDTO> adminScrollAllCheckouts(String cursor, int size, Sort sort) {
+
+        // Get the current date and the last due date that still counts as due soon
+        LocalDate today = LocalDate.now();
+        LocalDate dueSoon = today.plusDays(LoanStatus.DUE_SOON_DAYS);
+
+        // Only orders with a matching seek query are allowed
+        Sort scrollSort = CursorCodec.resolveSort(sort, SCROLL_BY_CHECKOUT_DATE, SCROLL_SORT_PROPERTIES);
+        if (!scrollSort.equals(SCROLL_BY_CHECKOUT_DATE) && !scrollSort.equals(SCROLL_BY_RETURN_DATE)
+                && !scrollSort.equals(SCROLL_BY_ID)) {
+            throw new InvalidCursorException(
+                    "Checkouts can only be scrolled by newest checkout date, by due date or by id");
+        }
+
+        KeysetScrollPosition position = CursorCodec.decode(cursor, scrollSort);
+
+        // Read one extra row to find out whether another page follows, joined with the borrower and the book
+        Limit limit = CursorCodec.limit(size);
+        Limit lookahead = Limit.of(limit.max() + 1);
+        List<LoanOverviewDTO> loans;
+        if (scrollSort.equals(SCROLL_BY_CHECKOUT_DATE)) {
+            loans = checkoutRepository.findLoanOverviewsBeforeCheckoutDate(
+                    CursorCodec.keyValue(position, "checkoutDate", LocalDate.class, LATEST_SCROLL_DATE),
+                    CursorCodec.keyValue(position, "id", Long.class, Long.MAX_VALUE), today, dueSoon, lookahead);
+        } else if (scrollSort.equals(SCROLL_BY_RETURN_DATE)) {
+            loans = checkoutRepository.findLoanOverviewsAfterReturnDate(
+                    CursorCodec.keyValue(position, "returnDate", LocalDate.class, EARLIEST_SCROLL_DATE),
+                    CursorCodec.keyValue(position, "id", Long.class, 0L), today, dueSoon, lookahead);
+        } else {
+            loans = checkoutRepository.findLoanOverviewsAfterId(
+                    CursorCodec.keyValue(position, "id", Long.class, 0L), today, dueSoon, lookahead);
+        }
+
+        if (loans.size() <= limit.max()) {
+            return new CursorPage<>(loans, loans.size(), false, null);
+        }
+
+        // Encode the sort keys of the last loan on this page as the next cursor
+        List<LoanOverviewDTO> page = loans.subList(0, limit.max());
+        LoanOverviewDTO last = page.get(page.size() - 1);
+        Map<String, Object> keys = new LinkedHashMap<>();
+        if (scrollSort.equals(SCROLL_BY_CHECKOUT_DATE)) {
+            keys.put("checkoutDate", last.getCheckoutDate());
+        } else if (scrollSort.equals(SCROLL_BY_RETURN_DATE)) {
+            keys.put("returnDate", last.getReturnDate());
+        }
+        keys.put("id", last.getId());
+
+        return new CursorPage<>(List.copyOf(page), page.size(), true, CursorCodec.encode(keys, scrollSort));
     }
 
     /**
@@ -394,22 +507,33 @@ public class CheckoutServiceImpl implements CheckoutService {
             throw new ResourceNotFoundExceptions("This book is not currently checked out under this account");
         }
 
+        // A returned loan cannot be renewed
+        if (checkout.getReturnedDate() != null) {
+            throw new BookAlreadyReturnedException("This book has already been returned");
+        }
+
         // If the maximum number of renewals has been reached, throw an exception
         if (checkout.getRenewalCount() >= MAX_RENEWALS) {
             throw new MaximumRenewalsReachedException("Maximum number of renewals reached for this loan");
         }
 
         // Update the return date by adding the maximum loan days
-        LocalDate newReturnDate = LocalDate.now().plusDays(MAX_LOAN_DAYS);
+        LocalDate today = LocalDate.now();
+        LocalDate newReturnDate = today.plusDays(MAX_LOAN_DAYS);
 
         // Update the return date
         checkout.setReturnDate(newReturnDate);
+        checkout.setLoanStatus(LoanStatus.fromDueDate(newReturnDate, today));
+        checkout.setLastReminder(null);
 
         // Increment the renewal count for this checkout
         checkout.setRenewalCount(checkout.getRenewalCount() + 1);
 
         // Save the updated checkout record to the database
         checkoutRepository.save(checkout);
+
+        // Move the reminders of the loan to the new due date
+        eventPublisher.publishEvent(new LoanDueDateChangedEvent(user.getId(), bookId, newReturnDate));
     }
 
 
@@ -421,15 +545,20 @@ public class CheckoutServiceImpl implements CheckoutService {
      * @param bookId the id of the book being returned
      */
     @Override
+    @Transactional
     public void adminReturnBook(String userId, Long bookId) {
 
         // Find the user by their id, or throw an exception if not found
         User user = userRepository.findByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundExceptions("User not found"));
 
-        // Find the book by its id, or throw an exception if not found
-        Book book = bookRepository.findById(bookId)
-                .orElseThrow(() -> new ResourceNotFoundExceptions("Book not found"));
+        // Check the book exists, or throw an exception if not found
+        if (!bookRepository.existsById(bookId)) {
+            throw new ResourceNotFoundExceptions("Book not found");
+        }
+
+        // Write any waiting loans so the checkout below can be found
+        inventoryEngine.flush();
 
         // Check if the book is already checked out by the user
         Checkout checkout = checkoutRepository.findByUserAndBookId(user, bookId);
@@ -439,11 +568,47 @@ public class CheckoutServiceImpl implements CheckoutService {
             throw new ResourceNotFoundExceptions("No checkout record found for this user and book");
         }
 
-        // Increases available copies and saves the book
-        book.setCopiesAvailable(book.getCopiesAvailable() + 1);
-        bookRepository.save(book);
-
         // Delete the checkout record from the database
         checkoutRepository.deleteById(checkout.getId());
+
+        // Put the copy back unless the loan was already returned, which gave its copy back then
+        if (checkout.getReturnedDate() == null) {
+            holdService.passOnReturnedCopy(bookId);
+        }
+
+        // Drop the reminders of the loan and update the user's cached state once the delete commits
+        eventPublisher.publishEvent(new LoanDueDateChangedEvent(user.getId(), bookId, null));
+        userBookStateCache.loanRemoved(user.getEmail(), bookId);
+    }
+
+    /**
+     * Fetches the details of the last loan status sweep
+     *
+     * @return when the sweep ran, how long it took and how many loans it updated
+     */
+    @Override
+    public LoanStatusSweepDTO getLastLoanStatusSweep() {
+
+        // Get the last finished sweep, or throw an exception if none has finished yet
+        return loanStatusSweeper.getLastSweep()
+                .orElseThrow(() -> new ResourceNotFoundExceptions("No loan status sweep has finished yet"));
+    }
+
+    /**
+     * Fetches the archived loans of a user, most recently returned first
+     *
+     * @param userEmail the email of the user
+     * @param pageable  the pagination information
+     * @return a page of past loans with the book title and author
+     */
+    @Override
+    public Page<LoanHistoryDTO> getLoanHistoryForUser(String userEmail, Pageable pageable) {
+
+        // Find the user by their email, or throw an exception if not found
+        User user = userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new ResourceNotFoundExceptions("User not found"));
+
+        // Read the user's loans from the history table
+        return checkoutHistoryRepository.findLoanHistoryByUserId(user.getId(), pageable);
     }
-}
\ No newline at end of file
+}
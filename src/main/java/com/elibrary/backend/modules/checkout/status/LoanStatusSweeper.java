@@ -0,0 +1,114 @@
+package com.elibrary.backend.modules.checkout.status;
+
+import com.elibrary.backend.modules.checkout.dto.LoanStatusSweepDTO;
+import com.elibrary.backend.modules.checkout.enums.LoanStatus;
+import com.elibrary.backend.modules.checkout.repository.CheckoutRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the stored status of active loans current as due dates pass
+ * Walks the active loans in id order, one chunk at a time, and stores the status of each chunk with a single update
+ */
+@Slf4j
+@Component
+public class LoanStatusSweeper {
+
+    private final CheckoutRepository checkoutRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int chunkSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile LoanStatusSweepDTO lastSweep;
+
+    public LoanStatusSweeper(CheckoutRepository checkoutRepository,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${elibrary.checkout.status-sweep.chunk-size:1000}") int chunkSize) {
+        this.checkoutRepository = checkoutRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Sweeps again right after midnight, when loans move on to due soon and overdue, so the status filters do not
+     * wait for the next interval
+     */
+    @Scheduled(cron = "${elibrary.checkout.status-sweep.day-start-cron:5 0 0 * * *}")
+    public void sweepAtDayStart() {
+        sweep();
+    }
+
+    /**
+     * Stores the current status of every active loan
+     * Skipped when a sweep is already running
+     */
+    @Scheduled(fixedDelayString = "${elibrary.checkout.status-sweep.interval-ms:3600000}",
+            initialDelayString = "${elibrary.checkout.status-sweep.initial-delay-ms:60000}")
+    public void sweep() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            Instant startedAt = Instant.now();
+            LocalDate today = LocalDate.now();
+            LocalDate dueSoon = today.plusDays(LoanStatus.DUE_SOON_DAYS);
+
+            int chunks = 0;
+            long rowsScanned = 0;
+            long rowsUpdated = 0;
+            long afterId = 0;
+
+            // Each chunk commits on its own, so a long sweep never holds locks on more than one chunk
+            while (true) {
+                List<Long> ids = checkoutRepository.findActiveIdsAfter(afterId, Limit.of(chunkSize));
+                if (ids.isEmpty()) {
+                    break;
+                }
+
+                Integer updated = transactionTemplate.execute(status -> checkoutRepository.updateLoanStatuses(
+                        ids, today, dueSoon, LoanStatus.OVERDUE, LoanStatus.DUE_SOON, LoanStatus.ACTIVE));
+
+                chunks++;
+                rowsScanned += ids.size();
+                rowsUpdated += updated == null ? 0 : updated;
+                afterId = ids.get(ids.size() - 1);
+
+                if (ids.size() < chunkSize) {
+                    break;
+                }
+            }
+
+            long durationMillis = Instant.now().toEpochMilli() - startedAt.toEpochMilli();
+            lastSweep = new LoanStatusSweepDTO(startedAt, durationMillis, chunks, rowsScanned, rowsUpdated);
+            log.info("Loan status sweep changed {} of {} active loans in {} chunks, took {} ms",
+                    rowsUpdated, rowsScanned, chunks, durationMillis);
+        } catch (RuntimeException ex) {
+            log.error("Loan status sweep failed", ex);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Fetches the details of the last completed sweep
+     *
+     * @return the last sweep, or empty if none has finished yet
+     */
+    public Optional<LoanStatusSweepDTO> getLastSweep() {
+        return Optional.ofNullable(lastSweep);
+    }
+}
@@ -0,0 +1,92 @@
+package com.elibrary.backend.modules.hold.controller;
+
+import com.elibrary.backend.modules.hold.dto.HoldDTO;
+import com.elibrary.backend.modules.hold.notification.HoldEventBroadcaster;
+import com.elibrary.backend.modules.hold.service.HoldService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+/**
+ * Controller to manage holds on books with no copies available
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/holds")
+@Slf4j
+public class HoldController {
+
+    private final HoldService holdService;
+
+    private final HoldEventBroadcaster holdEventBroadcaster;
+
+    /**
+     * Places a hold on a book for the user
+     *
+     * @param userDetails the authenticated user
+     * @param bookId      the id of the book
+     * @return the new hold with its place in the queue
+     */
+    @PostMapping
+    @PreAuthorize("hasAuthority('ADMIN') or hasAuthority('USER')")
+    public ResponseEntity<HoldDTO> placeHold(@AuthenticationPrincipal UserDetails userDetails,
+                                             @RequestParam Long bookId) {
+        String userEmail = userDetails.getUsername();
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(holdService.placeHold(userEmail, bookId));
+    }
+
+    /**
+     * Fetches the open holds of the user
+     *
+     * @param userDetails the authenticated user
+     * @return the waiting and ready holds, oldest first
+     */
+    @GetMapping
+    @PreAuthorize("hasAuthority('ADMIN') or hasAuthority('USER')")
+    public ResponseEntity<List<HoldDTO>> getHolds(@AuthenticationPrincipal UserDetails userDetails) {
+        String userEmail = userDetails.getUsername();
+
+        return ResponseEntity.ok(holdService.getHoldsForUser(userEmail));
+    }
+
+    /**
+     * Cancels a hold of the user
+     *
+     * @param userDetails the authenticated user
+     * @param holdId      the id of the hold
+     * @return no content
+     */
+    @DeleteMapping("/{holdId}")
+    @PreAuthorize("hasAuthority('ADMIN') or hasAuthority('USER')")
+    public ResponseEntity<Void> cancelHold(@AuthenticationPrincipal UserDetails userDetails,
+                                           @PathVariable Long holdId) {
+        String userEmail = userDetails.getUsername();
+
+        holdService.cancelHold(userEmail, holdId);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Opens a server-sent event stream that tells the user when a copy is ready or a ready hold expires
+     *
+     * @param userDetails the authenticated user
+     * @return the event stream
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAuthority('ADMIN') or hasAuthority('USER')")
+    public SseEmitter streamHoldEvents(@AuthenticationPrincipal UserDetails userDetails) {
+        String userEmail = userDetails.getUsername();
+
+        return holdEventBroadcaster.subscribe(userEmail);
+    }
+}
@@ -0,0 +1,8 @@
+package com.elibrary.backend.modules.hold.dto;
+
+import com.elibrary.backend.modules.hold.enums.HoldStatus;
+
+/**
+ * Represents the status of a user's open hold on a book
+ */
+public record BookHoldStatusDTO(Long bookId, HoldStatus status) { }
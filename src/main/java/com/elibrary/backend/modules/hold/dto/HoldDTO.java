@@ -0,0 +1,12 @@
+package com.elibrary.backend.modules.hold.dto;
+
+import com.elibrary.backend.modules.hold.enums.HoldStatus;
+
+import java.sql.Timestamp;
+
+/**
+ * Represents a user's hold on a book, with the place in the queue while it is waiting
+ * The position is 1 for the next hold to be served and 0 once a copy is set aside
+ */
+public record HoldDTO(Long id, Long bookId, String bookTitle, HoldStatus status, long position,
+                      Timestamp createdAt, Timestamp expiresAt) { }
@@ -0,0 +1,53 @@
+package com.elibrary.backend.modules.hold.entity;
+
+import com.elibrary.backend.modules.hold.enums.HoldStatus;
+import com.elibrary.backend.modules.user.entity.User;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.sql.Timestamp;
+
+/**
+ * Entity representing a user's place in the queue for a book with no copies available
+ * Holds of a book are served in id order, a ready hold has a copy set aside until it expires
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "book_hold", indexes = {
+        @Index(name = "idx_book_hold_book_status", columnList = "book_id, status, id"),
+        @Index(name = "idx_book_hold_user_status", columnList = "user_id, status"),
+        @Index(name = "idx_book_hold_status_expires_at", columnList = "status, expires_at")
+})
+public class Hold {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "user_id")
+    private User user;
+
+    @Column(name = "book_id")
+    private Long bookId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 16, nullable = false)
+    private HoldStatus status = HoldStatus.WAITING;
+
+    @Column(name = "created_at", updatable = false)
+    @CreationTimestamp
+    private Timestamp createdAt;
+
+    @Column(name = "ready_at")
+    private Timestamp readyAt;
+
+    @Column(name = "expires_at")
+    private Timestamp expiresAt;
+}
@@ -0,0 +1,12 @@
+package com.elibrary.backend.modules.hold.enums;
+
+/**
+ * Represents the status of a hold on a book
+ */
+public enum HoldStatus {
+    WAITING,
+    READY,
+    FULFILLED,
+    EXPIRED,
+    CANCELLED
+}
@@ -0,0 +1,8 @@
+package com.elibrary.backend.modules.hold.event;
+
+import com.elibrary.backend.modules.hold.dto.HoldDTO;
+
+/**
+ * Published when a copy is set aside for a hold or a ready hold expires, pushed to the user after commit
+ */
+public record HoldChangedEvent(String userEmail, HoldDTO hold) { }
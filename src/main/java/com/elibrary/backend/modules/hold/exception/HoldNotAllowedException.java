@@ -0,0 +1,10 @@
+package com.elibrary.backend.modules.hold.exception;
+
+/**
+ * Exception thrown when a hold is placed on a book that has copies available or is already on loan to the user
+ */
+public class HoldNotAllowedException extends RuntimeException {
+    public HoldNotAllowedException(String message) {
+        super(message);
+    }
+}
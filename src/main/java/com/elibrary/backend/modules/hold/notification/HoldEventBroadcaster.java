@@ -0,0 +1,77 @@
+package com.elibrary.backend.modules.hold.notification;
+
+import com.elibrary.backend.modules.hold.event.HoldChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Pushes hold changes to the open server-sent event streams of each user
+ * Streams are kept in memory, so a user only hears from the instance they are connected to
+ */
+@Slf4j
+@Component
+public class HoldEventBroadcaster {
+
+    private final Map<String, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+
+    private final long timeoutMillis;
+
+    public HoldEventBroadcaster(@Value("${elibrary.holds.sse-timeout-ms:1800000}") long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Opens a stream of hold changes for a user
+     *
+     * @param userEmail the email of the user
+     * @return the stream, closed by the client or when it times out
+     */
+    public SseEmitter subscribe(String userEmail) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        List<SseEmitter> userEmitters = emitters.computeIfAbsent(userEmail, email -> new CopyOnWriteArrayList<>());
+        userEmitters.add(emitter);
+
+        // Drop the stream once it ends for any reason
+        Runnable remove = () -> emitters.computeIfPresent(userEmail, (email, list) -> {
+            list.remove(emitter);
+            return list.isEmpty() ? null : list;
+        });
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(ex -> remove.run());
+
+        return emitter;
+    }
+
+    /**
+     * Sends a hold change to every open stream of its user, only once the change has committed
+     *
+     * @param event the hold change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHoldChanged(HoldChangedEvent event) {
+        List<SseEmitter> userEmitters = emitters.get(event.userEmail());
+        if (userEmitters == null) {
+            return;
+        }
+
+        String eventName = "hold-" + event.hold().status().name().toLowerCase();
+        for (SseEmitter emitter : userEmitters) {
+            try {
+                emitter.send(SseEmitter.event().name(eventName).data(event.hold()));
+            } catch (IOException | IllegalStateException ex) {
+                log.debug("Dropping closed hold stream of {}", event.userEmail());
+                emitter.completeWithError(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.elibrary.backend.modules.hold.repository;
+
+import com.elibrary.backend.modules.hold.dto.BookHoldStatusDTO;
+import com.elibrary.backend.modules.hold.dto.HoldDTO;
+import com.elibrary.backend.modules.hold.entity.Hold;
+import com.elibrary.backend.modules.hold.enums.HoldStatus;
+import com.elibrary.backend.modules.user.entity.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for managing holds
+ */
+@Repository
+public interface HoldRepository extends JpaRepository<Hold, Long> {
+
+    /**
+     * Finds and locks the oldest hold of a book in the given status after a given id, the head of its queue for
+     * waiting holds. The lock makes the read see the latest committed status instead of the transaction's snapshot
+     *
+     * @param bookId  the id of the book
+     * @param status  the status of the hold
+     * @param afterId the id the hold must come after, 0 for the whole queue
+     * @return the oldest matching hold, or empty if there is none
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Hold> findFirstByBookIdAndStatusAndIdGreaterThanOrderByIdAsc(Long bookId, HoldStatus status, Long afterId);
+
+    /**
+     * Checks if a user has a hold on a book in one of the given statuses
+     *
+     * @param user     the user
+     * @param bookId   the id of the book
+     * @param statuses the statuses to look for
+     * @return true if such a hold exists
+     */
+    boolean existsByUserAndBookIdAndStatusIn(User user, Long bookId, Collection<HoldStatus> statuses);
+
+    /**
+     * Finds a hold belonging to a user
+     *
+     * @param id   the id of the hold
+     * @param user the user
+     * @return the hold, or empty if the user has no hold with that id
+     */
+    Optional<Hold> findByIdAndUser(Long id, User user);
+
+    /**
+     * Finds holds in a status that expired before the given time, oldest first
+     *
+     * @param status the status of the holds
+     * @param now    the current time
+     * @param limit  the maximum number of holds to return
+     * @return the expired holds
+     */
+    List<Hold> findByStatusAndExpiresAtBeforeOrderByExpiresAtAsc(HoldStatus status, Timestamp now, Limit limit);
+
+    /**
+     * Counts the waiting holds of a book up to and including the given one, the place of that hold in the queue
+     *
+     * @param bookId the id of the book
+     * @param status the waiting status
+     * @param id     the id of the hold
+     * @return the number of waiting holds served before or with this one
+     */
+    long countByBookIdAndStatusAndIdLessThanEqual(Long bookId, HoldStatus status, Long id);
+
+    /**
+     * Finds the open holds of a user with the title of each book and the place of waiting holds in their queue
+     *
+     * @param user     the user
+     * @param statuses the statuses of open holds
+     * @param waiting  the waiting status
+     * @return the open holds, oldest first
+     */
+    @Query("SELECT new com.elibrary.backend.modules.hold.dto.HoldDTO(" +
+            "h.id, h.bookId, b.title, h.status, " +
+            "(SELECT COUNT(w) FROM Hold w WHERE w.bookId = h.bookId AND w.status = :waiting AND w.id <= h.id), " +
+            "h.createdAt, h.expiresAt) " +
+            "FROM Hold h LEFT JOIN Book b ON b.id = h.bookId " +
+            "WHERE h.user = :user AND h.status IN :statuses " +
+            "ORDER BY h.id")
+    List<HoldDTO> findOpenHoldsByUser(@Param("user") User user,
+                                      @Param("statuses") Collection<HoldStatus> statuses,
+                                      @Param("waiting") HoldStatus waiting);
+
+    /**
+     * Finds the status of a user's holds on any of the given books, in one query
+     *
+     * @param email    the email of the user
+     * @param bookIds  the ids of the books
+     * @param statuses the statuses of the holds to look for
+     * @return the book id and status of each matching hold
+     */
+    @Query("SELECT new com.elibrary.backend.modules.hold.dto.BookHoldStatusDTO(h.bookId, h.status) " +
+            "FROM Hold h WHERE h.user.email = :email AND h.bookId IN :bookIds AND h.status IN :statuses")
+    List<BookHoldStatusDTO> findHoldStatusesByUserEmail(@Param("email") String email,
+                                                        @Param("bookIds") Collection<Long> bookIds,
+                                                        @Param("statuses") Collection<HoldStatus> statuses);
+
+    /**
+     * Moves a hold from one status to another, only if it is still in the expected status
+     *
+     * @param id        the id of the hold
+     * @param from      the status the hold must be in
+     * @param to        the new status
+     * @param readyAt   when a copy was set aside, or null to keep it unset
+     * @param expiresAt when the set aside copy is released, or null to keep it unset
+     * @return 1 if the hold was moved, 0 if another request changed it first
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Hold h SET h.status = :to, " +
+            "h.readyAt = COALESCE(:readyAt, h.readyAt), h.expiresAt = COALESCE(:expiresAt, h.expiresAt) " +
+            "WHERE h.id = :id AND h.status = :from")
+    int updateStatus(@Param("id") Long id, @Param("from") HoldStatus from, @Param("to") HoldStatus to,
+                     @Param("readyAt") Timestamp readyAt, @Param("expiresAt") Timestamp expiresAt);
+
+    /**
+     * Marks the ready hold of a user on a book as picked up
+     *
+     * @param user   the user
+     * @param bookId the id of the book
+     * @param ready  the ready status
+     * @param done   the fulfilled status
+     * @return 1 if the user had a copy set aside, 0 otherwise
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Hold h SET h.status = :done WHERE h.user = :user AND h.bookId = :bookId AND h.status = :ready")
+    int fulfilReadyHold(@Param("user") User user, @Param("bookId") Long bookId,
+                        @Param("ready") HoldStatus ready, @Param("done") HoldStatus done);
+}
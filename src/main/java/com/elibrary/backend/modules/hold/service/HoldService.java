@@ -0,0 +1,71 @@
+package com.elibrary.backend.modules.hold.service;
+
+import com.elibrary.backend.modules.hold.dto.HoldDTO;
+import com.elibrary.backend.modules.hold.enums.HoldStatus;
+import com.elibrary.backend.modules.user.entity.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service interface for the hold queues of books with no copies available
+ */
+public interface HoldService {
+
+    /**
+     * Places a hold for a user on a book with no copies available
+     *
+     * @param userEmail the email of the user
+     * @param bookId    the id of the book
+     * @return the new hold with its place in the queue
+     */
+    HoldDTO placeHold(String userEmail, Long bookId);
+
+    /**
+     * Fetches the waiting and ready holds of a user
+     *
+     * @param userEmail the email of the user
+     * @return the open holds, oldest first
+     */
+    List<HoldDTO> getHoldsForUser(String userEmail);
+
+    /**
+     * Fetches the status of a user's waiting and ready holds on the given books
+     *
+     * @param userEmail the email of the user
+     * @param bookIds   the ids of the books
+     * @return the hold status by book id, books without an open hold are left out
+     */
+    Map<Long, HoldStatus> getOpenHoldStatusesForUser(String userEmail, Collection<Long> bookIds);
+
+    /**
+     * Cancels a hold of a user, a copy set aside for it goes to the next hold in the queue
+     *
+     * @param userEmail the email of the user
+     * @param holdId    the id of the hold
+     */
+    void cancelHold(String userEmail, Long holdId);
+
+    /**
+     * Gives a returned copy to the next waiting hold, or puts it back on the shelf if nobody is waiting
+     * Called inside the return transaction
+     *
+     * @param bookId the id of the returned book
+     */
+    void passOnReturnedCopy(Long bookId);
+
+    /**
+     * Marks the ready hold of a user on a book as picked up
+     *
+     * @param user   the borrower
+     * @param bookId the id of the book
+     * @return true if a copy was set aside for the user, false otherwise
+     */
+    boolean claimReadyHold(User user, Long bookId);
+
+    /**
+     * Expires ready holds whose pickup window has passed and passes their copies on
+     */
+    void expireReadyHolds();
+}
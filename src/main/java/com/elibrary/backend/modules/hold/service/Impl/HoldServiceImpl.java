@@ -0,0 +1,295 @@
+package com.elibrary.backend.modules.hold.service.Impl;
+
+import com.elibrary.backend.common.exceptions.DuplicateResourceException;
+import com.elibrary.backend.common.exceptions.ResourceNotFoundExceptions;
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.book.search.CatalogIndex;
+import com.elibrary.backend.modules.checkout.inventory.InventoryEngine;
+import com.elibrary.backend.modules.checkout.repository.CheckoutRepository;
+import com.elibrary.backend.modules.hold.dto.BookHoldStatusDTO;
+import com.elibrary.backend.modules.hold.dto.HoldDTO;
+import com.elibrary.backend.modules.hold.entity.Hold;
+import com.elibrary.backend.modules.hold.enums.HoldStatus;
+import com.elibrary.backend.modules.hold.event.HoldChangedEvent;
+import com.elibrary.backend.modules.hold.exception.HoldNotAllowedException;
+import com.elibrary.backend.modules.hold.repository.HoldRepository;
+import com.elibrary.backend.modules.hold.service.HoldService;
+import com.elibrary.backend.modules.user.entity.User;
+import com.elibrary.backend.modules.user.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Service implementation for the hold queues of books with no copies available
+ * A returned copy goes to the oldest waiting hold and is set aside for a pickup window, the user is told over
+ * server-sent events once the return commits
+ */
+@Service
+@Slf4j
+public class HoldServiceImpl implements HoldService {
+
+    private static final Set<HoldStatus> OPEN_STATUSES = Set.of(HoldStatus.WAITING, HoldStatus.READY);
+
+    private static final int EXPIRY_BATCH_SIZE = 100;
+
+    private final HoldRepository holdRepository;
+
+    private final BookRepository bookRepository;
+
+    private final CheckoutRepository checkoutRepository;
+
+    private final UserRepository userRepository;
+
+    private final InventoryEngine inventoryEngine;
+
+    private final List<CatalogIndex> catalogIndexes;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Duration pickupWindow;
+
+    public HoldServiceImpl(HoldRepository holdRepository,
+                           BookRepository bookRepository,
+                           CheckoutRepository checkoutRepository,
+                           UserRepository userRepository,
+                           InventoryEngine inventoryEngine,
+                           List<CatalogIndex> catalogIndexes,
+                           ApplicationEventPublisher eventPublisher,
+                           TransactionTemplate transactionTemplate,
+                           @Value("${elibrary.holds.pickup-window-hours:48}") long pickupWindowHours) {
+        this.holdRepository = holdRepository;
+        this.bookRepository = bookRepository;
+        this.checkoutRepository = checkoutRepository;
+        this.userRepository = userRepository;
+        this.inventoryEngine = inventoryEngine;
+        this.catalogIndexes = catalogIndexes;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.pickupWindow = Duration.ofHours(pickupWindowHours);
+    }
+
+    /**
+     * Places a hold for a user on a book with no copies available
+     *
+     * @param userEmail the email of the user
+     * @param bookId    the id of the book
+     * @return the new hold with its place in the queue
+     */
+    @Override
+    @Transactional
+    public HoldDTO placeHold(String userEmail, Long bookId) {
+
+        // Find the user by their email, or throw an exception if not found
+        User user = userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new ResourceNotFoundExceptions("User not found"));
+
+        // Write any waiting loans so the loan and copy checks below see them
+        inventoryEngine.flush();
+
+        // Find the book, or throw an exception if not found
+        Book book = bookRepository.findById(bookId)
+                .orElseThrow(() -> new ResourceNotFoundExceptions("The requested book could not be found"));
+
+        // A hold must lead to a checkout, so it follows the same rule as checking out
+        if (inventoryEngine.hasPendingLoan(user, bookId) || checkoutRepository.findByUserAndBookId(user, bookId) != null) {
+            throw new HoldNotAllowedException("Book already checked out by this user");
+        }
+
+        // Only one open hold per user and book
+        if (holdRepository.existsByUserAndBookIdAndStatusIn(user, bookId, OPEN_STATUSES)) {
+            throw new DuplicateResourceException("You already have a hold on this book");
+        }
+
+        // Holds are only for books with every copy out
+        if (book.getCopiesAvailable() > 0) {
+            throw new HoldNotAllowedException("Copies of this book are available, check it out instead");
+        }
+
+        // Join the end of the queue
+        Hold hold = new Hold();
+        hold.setUser(user);
+        hold.setBookId(bookId);
+        holdRepository.save(hold);
+
+        long position = holdRepository.countByBookIdAndStatusAndIdLessThanEqual(bookId, HoldStatus.WAITING, hold.getId());
+        return new HoldDTO(hold.getId(), bookId, book.getTitle(), hold.getStatus(), position,
+                hold.getCreatedAt(), hold.getExpiresAt());
+    }
+
+    /**
+     * Fetches the waiting and ready holds of a user
+     *
+     * @param userEmail the email of the user
+     * @return the open holds, oldest first
+     */
+    @Override
+    public List<HoldDTO> getHoldsForUser(String userEmail) {
+
+        // Find the user by their email, or throw an exception if not found
+        User user = userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new ResourceNotFoundExceptions("User not found"));
+
+        // Load the holds with their book titles and queue positions in one query
+        return holdRepository.findOpenHoldsByUser(user, OPEN_STATUSES, HoldStatus.WAITING);
+    }
+
+    /**
+     * Fetches the status of a user's waiting and ready holds on the given books
+     *
+     * @param userEmail the email of the user
+     * @param bookIds   the ids of the books
+     * @return the hold status by book id, books without an open hold are left out
+     */
+    @Override
+    public Map<Long, HoldStatus> getOpenHoldStatusesForUser(String userEmail, Collection<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return Map.of();
+        }
+
+        // Look up the open holds on all the books in one query, a user has at most one open hold per book
+        return holdRepository.findHoldStatusesByUserEmail(userEmail, bookIds, OPEN_STATUSES).stream()
+                .collect(Collectors.toMap(BookHoldStatusDTO::bookId, BookHoldStatusDTO::status, (first, second) -> first));
+    }
+
+    /**
+     * Cancels a hold of a user, a copy set aside for it goes to the next hold in the queue
+     *
+     * @param userEmail the email of the user
+     * @param holdId    the id of the hold
+     */
+    @Override
+    @Transactional
+    public void cancelHold(String userEmail, Long holdId) {
+
+        // Find the user by their email, or throw an exception if not found
+        User user = userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new ResourceNotFoundExceptions("User not found"));
+
+        // Find the hold among the user's own, or throw an exception if not found
+        Hold hold = holdRepository.findByIdAndUser(holdId, user)
+                .orElseThrow(() -> new ResourceNotFoundExceptions("Hold not found"));
+
+        // A waiting hold just leaves the queue
+        if (hold.getStatus() == HoldStatus.WAITING
+                && holdRepository.updateStatus(holdId, HoldStatus.WAITING, HoldStatus.CANCELLED, null, null) == 1) {
+            return;
+        }
+
+        // A ready hold gives up its copy to the next in line
+        if (hold.getStatus() == HoldStatus.READY
+                && holdRepository.updateStatus(holdId, HoldStatus.READY, HoldStatus.CANCELLED, null, null) == 1) {
+            passOnReturnedCopy(hold.getBookId());
+            return;
+        }
+
+        throw new HoldNotAllowedException("This hold is no longer open");
+    }
+
+    /**
+     * Gives a returned copy to the next waiting hold, or puts it back on the shelf if nobody is waiting
+     * Called inside the return transaction
+     *
+     * @param bookId the id of the returned book
+     */
+    @Override
+    public void passOnReturnedCopy(Long bookId) {
+
+        // Set the copy aside for the oldest waiting hold, moving past it if another return served it first, so
+        // a stale read of the same hold can never be retried
+        long afterId = 0;
+        Optional<Hold> next;
+        while ((next = holdRepository.findFirstByBookIdAndStatusAndIdGreaterThanOrderByIdAsc(
+                bookId, HoldStatus.WAITING, afterId)).isPresent()) {
+            Hold hold = next.get();
+            afterId = hold.getId();
+            Timestamp readyAt = new Timestamp(System.currentTimeMillis());
+            Timestamp expiresAt = new Timestamp(readyAt.getTime() + pickupWindow.toMillis());
+
+            if (holdRepository.updateStatus(hold.getId(), HoldStatus.WAITING, HoldStatus.READY, readyAt, expiresAt) == 1) {
+                hold.setStatus(HoldStatus.READY);
+                hold.setExpiresAt(expiresAt);
+                publishChange(hold);
+                return;
+            }
+        }
+
+        // Nobody is waiting, so the copy goes back on the shelf
+        OptionalInt copiesAvailable = inventoryEngine.release(bookId);
+        if (copiesAvailable.isEmpty()) {
+            log.warn("Book {} already has every copy available, the returned copy was not added", bookId);
+            return;
+        }
+
+        catalogIndexes.forEach(index -> index.copiesChanged(bookId, copiesAvailable.getAsInt()));
+    }
+
+    /**
+     * Marks the ready hold of a user on a book as picked up
+     *
+     * @param user   the borrower
+     * @param bookId the id of the book
+     * @return true if a copy was set aside for the user, false otherwise
+     */
+    @Override
+    public boolean claimReadyHold(User user, Long bookId) {
+        return holdRepository.fulfilReadyHold(user, bookId, HoldStatus.READY, HoldStatus.FULFILLED) > 0;
+    }
+
+    /**
+     * Expires ready holds whose pickup window has passed and passes their copies on
+     * Each hold is handled in its own transaction, so one failure does not hold back the rest
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${elibrary.holds.expiry-check-ms:60000}")
+    public void expireReadyHolds() {
+        List<Hold> expired = holdRepository.findByStatusAndExpiresAtBeforeOrderByExpiresAtAsc(
+                HoldStatus.READY, new Timestamp(System.currentTimeMillis()), Limit.of(EXPIRY_BATCH_SIZE));
+
+        for (Hold hold : expired) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (holdRepository.updateStatus(hold.getId(), HoldStatus.READY, HoldStatus.EXPIRED, null, null) == 1) {
+                        hold.setStatus(HoldStatus.EXPIRED);
+                        publishChange(hold);
+                        passOnReturnedCopy(hold.getBookId());
+                    }
+                });
+            } catch (RuntimeException ex) {
+                log.error("Unable to expire hold {}", hold.getId(), ex);
+            }
+        }
+
+        if (!expired.isEmpty()) {
+            log.info("Expired {} holds that were not picked up", expired.size());
+        }
+    }
+
+    /**
+     * Publishes the new state of a hold, delivered to the user after the current transaction commits
+     */
+    private void publishChange(Hold hold) {
+        String bookTitle = bookRepository.findById(hold.getBookId()).map(Book::getTitle).orElse(null);
+        HoldDTO holdDTO = new HoldDTO(hold.getId(), hold.getBookId(), bookTitle, hold.getStatus(), 0,
+                hold.getCreatedAt(), hold.getExpiresAt());
+        eventPublisher.publishEvent(new HoldChangedEvent(hold.getUser().getEmail(), holdDTO));
+    }
+}
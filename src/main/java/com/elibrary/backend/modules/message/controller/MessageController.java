@@ -1,5 +1,6 @@
 package com.elibrary.backend.modules.message.controller;
 
+import com.elibrary.backend.common.pagination.CursorPage;
 import com.elibrary.backend.modules.message.dto.AdminReplyRequestDTO;
 import com.elibrary.backend.modules.message.dto.MessageCountsDTO;
 import com.elibrary.backend.modules.message.dto.MessageRequestDTO;
@@ -11,6 +12,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -78,6 +80,23 @@ public class MessageController {
         return ResponseEntity.ok(messages);
     }
 
+    /**
+     * Fetches all messages for admin with keyset pagination, used when the cursor parameter is given
+     * Pass an empty cursor for the first page, then the next cursor of each page
+     *
+     * @param cursor the cursor from the previous page
+     * @param size   the maximum number of messages to return
+     * @param sort   the sort order, by createdAt or id
+     * @return one page of messages and the cursor for the next page
+     */
+    @GetMapping(value = "admin/messages", params = "cursor")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<CursorPage<MessageResponseDTO>> scrollAllMessages(@RequestParam String cursor,
+                                                                           @RequestParam(defaultValue = "20") int size,
+                                                                           Sort sort) {
+        return ResponseEntity.ok(messageService.scrollAllMessages(cursor, size, sort));
+    }
+
     /**
      * Fetches messages filtered by status for admin
      *
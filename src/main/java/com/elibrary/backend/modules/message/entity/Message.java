@@ -16,7 +16,10 @@ import java.time.LocalDate;
 @Entity
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "messages")
+@Table(name = "messages", indexes = {
+        @Index(name = "idx_messages_created_at", columnList = "created_at"),
+        @Index(name = "idx_messages_status_created_at", columnList = "status, created_at")
+})
 public class Message {
 
     @Id
@@ -5,6 +5,10 @@ import com.elibrary.backend.modules.message.enums.MessageStatus;
 import com.elibrary.backend.modules.user.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -40,5 +44,13 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
      */
     long countByMessageStatus(MessageStatus messageStatus);
 
-
+    /**
+     * Scrolls through all messages with keyset pagination, without an offset or count query
+     *
+     * @param position the position after the last row already seen
+     * @param sort     the sort order, ending with the id
+     * @param limit    the maximum number of messages to return
+     * @return a window of messages
+     */
+    Window<Message> findAllBy(ScrollPosition position, Sort sort, Limit limit);
 }
@@ -2,6 +2,8 @@ package com.elibrary.backend.modules.message.service.Impl;
 
 import com.elibrary.backend.common.exceptions.DuplicateResourceException;
 import com.elibrary.backend.common.exceptions.ResourceNotFoundExceptions;
+import com.elibrary.backend.common.pagination.CursorCodec;
+import com.elibrary.backend.common.pagination.CursorPage;
 import com.elibrary.backend.modules.message.dto.AdminReplyRequestDTO;
 import com.elibrary.backend.modules.message.dto.MessageCountsDTO;
 import com.elibrary.backend.modules.message.dto.MessageRequestDTO;
@@ -17,10 +19,13 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Service implementation for handling all message business logic
@@ -30,6 +35,10 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class MessageServiceImpl implements MessageService {
 
+    private static final Sort DEFAULT_SCROLL_SORT = Sort.by(Sort.Direction.DESC, "createdAt");
+
+    private static final Set<String> SCROLL_SORT_PROPERTIES = Set.of("id", "createdAt");
+
     private final MessageRepository messageRepository;
 
     private final MessageMapper messageMapper;
@@ -116,6 +125,26 @@ public class MessageServiceImpl implements MessageService {
         return messageResponse;
     }
 
+    /**
+     * Fetches all messages in the system with keyset pagination (admin only)
+     *
+     * @param cursor the cursor from the previous page, empty for the first page
+     * @param size   the maximum number of messages to return
+     * @param sort   the requested sort order
+     * @return one page of messages and the cursor for the next page
+     */
+    @Override
+    public CursorPage<MessageResponseDTO> scrollAllMessages(String cursor, int size, Sort sort) {
+
+        // Resolve the sort and continue right after the last message of the previous page
+        Sort scrollSort = CursorCodec.resolveSort(sort, DEFAULT_SCROLL_SORT, SCROLL_SORT_PROPERTIES);
+        Window<Message> messages = messageRepository.findAllBy(CursorCodec.decode(cursor, scrollSort),
+                scrollSort, CursorCodec.limit(size));
+
+        // Convert the message entities to message DTOs
+        return CursorPage.of(messages, scrollSort, messageMapper::mapToResponseDTO);
+    }
+
     /**
      * Fetches messages filtered by their status (admin only)
      *
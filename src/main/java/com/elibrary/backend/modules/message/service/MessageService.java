@@ -1,5 +1,6 @@
 package com.elibrary.backend.modules.message.service;
 
+import com.elibrary.backend.common.pagination.CursorPage;
 import com.elibrary.backend.modules.message.dto.AdminReplyRequestDTO;
 import com.elibrary.backend.modules.message.dto.MessageCountsDTO;
 import com.elibrary.backend.modules.message.dto.MessageRequestDTO;
@@ -7,6 +8,7 @@ import com.elibrary.backend.modules.message.dto.MessageResponseDTO;
 import com.elibrary.backend.modules.message.enums.MessageStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 /**
  * Service interface for handling all message operations
@@ -39,6 +41,16 @@ public interface MessageService {
      */
     Page<MessageResponseDTO> getAllMessages(Pageable pageable);
 
+    /**
+     * Fetches all messages in the system with keyset pagination (admin only)
+     *
+     * @param cursor the cursor from the previous page, empty for the first page
+     * @param size   the maximum number of messages to return
+     * @param sort   the requested sort order
+     * @return one page of messages and the cursor for the next page
+     */
+    CursorPage<MessageResponseDTO> scrollAllMessages(String cursor, int size, Sort sort);
+
     /**
      * Fetches messages filtered by their status (admin only)
      *
@@ -1,5 +1,6 @@
 package com.elibrary.backend.modules.review.controller;
 
+import com.elibrary.backend.common.pagination.CursorPage;
 import com.elibrary.backend.modules.review.dto.CreateReviewRequest;
 import com.elibrary.backend.modules.review.dto.ReviewDTO;
 import com.elibrary.backend.modules.review.service.ReviewService;
@@ -7,6 +8,7 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -38,6 +40,24 @@ public class ReviewController {
         return ResponseEntity.ok(reviews);
     }
 
+    /**
+     * Fetches reviews for a specific book with keyset pagination, used when the cursor parameter is given
+     * Pass an empty cursor for the first page, then the next cursor of each page
+     *
+     * @param bookId the id of the book to fetch reviews for
+     * @param cursor the cursor from the previous page
+     * @param size   the maximum number of reviews to return
+     * @param sort   the sort order, by date, rating or id
+     * @return one page of reviews and the cursor for the next page
+     */
+    @GetMapping(value = "/book/{bookId}", params = "cursor")
+    public ResponseEntity<CursorPage<ReviewDTO>> scrollReviewsByBookId(@PathVariable Long bookId,
+                                                                      @RequestParam String cursor,
+                                                                      @RequestParam(defaultValue = "20") int size,
+                                                                      Sort sort) {
+        return ResponseEntity.ok(reviewService.scrollReviewsByBookId(bookId, cursor, size, sort));
+    }
+
     /**
      * Checks if the user has submitted a review for a book
      *
@@ -0,0 +1,6 @@
+package com.elibrary.backend.modules.review.dto;
+
+/**
+ * Represents the average review rating of a book
+ */
+public record BookRatingDTO(Long bookId, double averageRating) { }
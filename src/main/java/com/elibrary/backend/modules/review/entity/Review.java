@@ -11,7 +11,11 @@ import java.time.LocalDate;
  * Entity representing a review for a book in the system
  */
 @Entity
-@Table(name = "review")
+@Table(name = "review", indexes = {
+        @Index(name = "idx_review_book_date", columnList = "book_id, date"),
+        @Index(name = "idx_review_book_rating", columnList = "book_id, rating"),
+        @Index(name = "idx_review_user_book", columnList = "user_id, book_id")
+})
 @Data
 public class Review {
 
@@ -1,10 +1,17 @@
 package com.elibrary.backend.modules.review.repository;
 
+import com.elibrary.backend.modules.review.dto.BookRatingDTO;
 import com.elibrary.backend.modules.review.entity.Review;
 import com.elibrary.backend.modules.user.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -34,6 +41,15 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
      */
     Review findByUserAndBookId(User user, Long bookId);
 
+    /**
+     * Finds the ids of every book a user has reviewed
+     *
+     * @param userId the id of the user
+     * @return the ids of the reviewed books
+     */
+    @Query("SELECT r.bookId FROM Review r WHERE r.user.id = :userId")
+    List<Long> findBookIdsByUserId(@Param("userId") Long userId);
+
     /**
      * Finds all reviews for a book id
      *
@@ -41,4 +57,33 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
      * @return list of all reviews for the specified book
      */
     List<Review> findAllByBookId(Long bookId);
+
+    /**
+     * Scrolls through the reviews of a book with keyset pagination, without an offset or count query
+     *
+     * @param bookId   the id of the book to fetch reviews for
+     * @param position the position after the last review already seen
+     * @param sort     the sort order, ending with the id
+     * @param limit    the maximum number of reviews to return
+     * @return a window of reviews for the specified book
+     */
+    Window<Review> findByBookId(Long bookId, ScrollPosition position, Sort sort, Limit limit);
+
+    /**
+     * Calculates the average rating of every book that has reviews
+     *
+     * @return one average rating per reviewed book
+     */
+    @Query("SELECT new com.elibrary.backend.modules.review.dto.BookRatingDTO(r.bookId, AVG(r.rating)) " +
+            "FROM Review r GROUP BY r.bookId")
+    List<BookRatingDTO> averageRatingPerBook();
+
+    /**
+     * Calculates the average rating of a book
+     *
+     * @param bookId the id of the book
+     * @return the average rating, or null if the book has no reviews
+     */
+    @Query("SELECT AVG(r.rating) FROM Review r WHERE r.bookId = :bookId")
+    Double averageRatingByBookId(@Param("bookId") Long bookId);
 }
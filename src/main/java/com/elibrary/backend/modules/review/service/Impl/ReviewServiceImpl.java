@@ -2,24 +2,31 @@ package com.elibrary.backend.modules.review.service.Impl;
 
 import com.elibrary.backend.common.exceptions.DuplicateResourceException;
 import com.elibrary.backend.common.exceptions.ResourceNotFoundExceptions;
+import com.elibrary.backend.common.pagination.CursorCodec;
+import com.elibrary.backend.common.pagination.CursorPage;
 import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.book.search.BookFilterIndex;
 import com.elibrary.backend.modules.review.dto.CreateReviewRequest;
 import com.elibrary.backend.modules.review.dto.ReviewDTO;
 import com.elibrary.backend.modules.review.entity.Review;
 import com.elibrary.backend.modules.review.mapper.ReviewMapper;
 import com.elibrary.backend.modules.review.repository.ReviewRepository;
 import com.elibrary.backend.modules.review.service.ReviewService;
+import com.elibrary.backend.modules.user.cache.UserBookStateCache;
 import com.elibrary.backend.modules.user.entity.User;
 import com.elibrary.backend.modules.user.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Service implementation for business logic involving reviews
@@ -29,14 +36,22 @@ import java.util.List;
 @Slf4j
 public class ReviewServiceImpl implements ReviewService {
 
+    private static final Sort DEFAULT_SCROLL_SORT = Sort.by(Sort.Direction.DESC, "date");
+
+    private static final Set<String> SCROLL_SORT_PROPERTIES = Set.of("id", "date", "rating");
+
     private final ReviewRepository reviewRepository;
 
     private final BookRepository bookRepository;
 
+    private final BookFilterIndex bookFilterIndex;
+
     private final UserRepository userRepository;
 
     private final ReviewMapper reviewMapper;
 
+    private final UserBookStateCache userBookStateCache;
+
 
     /**
      * Fetches a paginated list of reviews for a specific book id
@@ -66,6 +81,32 @@ public class ReviewServiceImpl implements ReviewService {
         return reviewResponse;
     }
 
+    /**
+     * Fetches reviews for a specific book id with keyset pagination
+     *
+     * @param bookId the id of the book to fetch reviews for
+     * @param cursor the cursor from the previous page, empty for the first page
+     * @param size   the maximum number of reviews to return
+     * @param sort   the requested sort order
+     * @return one page of reviews and the cursor for the next page
+     */
+    @Override
+    public CursorPage<ReviewDTO> scrollReviewsByBookId(Long bookId, String cursor, int size, Sort sort) {
+
+        // Resolve the sort and continue right after the last review of the previous page
+        Sort scrollSort = CursorCodec.resolveSort(sort, DEFAULT_SCROLL_SORT, SCROLL_SORT_PROPERTIES);
+        Window<Review> reviews = reviewRepository.findByBookId(bookId, CursorCodec.decode(cursor, scrollSort),
+                scrollSort, CursorCodec.limit(size));
+
+        // If no reviews found and book does not exist, throw not found exception
+        if (reviews.isEmpty() && !bookRepository.existsById(bookId)) {
+            throw new ResourceNotFoundExceptions("The requested book could not be found");
+        }
+
+        // Convert the review entities to review DTOs
+        return CursorPage.of(reviews, scrollSort, reviewMapper::toReviewDTOFromReview);
+    }
+
     /**
      * CChecks if the user has submitted a review for a book
      *
@@ -76,16 +117,8 @@ public class ReviewServiceImpl implements ReviewService {
     @Override
     public boolean isBookReviewedByUser(String userEmail, Long bookId) {
 
-        // Find the user by their email, or throw an exception if not found
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResourceNotFoundExceptions("User not found"));
-
-        // Check if the book exists by its id
-        Review existingReview = reviewRepository.findByUserAndBookId(user, bookId);
-
-        // Return true if a review by user for the given book exists, else false
-        return existingReview != null;
-
+        // Check the user's cached reviews, loaded on first access, throws if the user is not found
+        return userBookStateCache.hasReviewed(userEmail, bookId);
     }
 
     /**
@@ -167,6 +200,10 @@ public class ReviewServiceImpl implements ReviewService {
 
         // Save the new review to the database
         reviewRepository.save(review);
+        userBookStateCache.reviewAdded(userEmail, review.getBookId());
+
+        // Refresh the book's average rating in the catalog filter
+        bookFilterIndex.ratingChanged(review.getBookId(), reviewRepository.averageRatingByBookId(review.getBookId()));
     }
 
 }
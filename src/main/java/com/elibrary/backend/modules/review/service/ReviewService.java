@@ -1,9 +1,11 @@
 package com.elibrary.backend.modules.review.service;
 
+import com.elibrary.backend.common.pagination.CursorPage;
 import com.elibrary.backend.modules.review.dto.CreateReviewRequest;
 import com.elibrary.backend.modules.review.dto.ReviewDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 /**
  * Service interface for review operations
@@ -19,6 +21,17 @@ public interface ReviewService {
      */
     Page<ReviewDTO> getReviewsByBookId(Long bookId, Pageable pageable);
 
+    /**
+     * Fetches reviews for a specific book id with keyset pagination
+     *
+     * @param bookId the id of the book to fetch reviews for
+     * @param cursor the cursor from the previous page, empty for the first page
+     * @param size   the maximum number of reviews to return
+     * @param sort   the requested sort order
+     * @return one page of reviews and the cursor for the next page
+     */
+    CursorPage<ReviewDTO> scrollReviewsByBookId(Long bookId, String cursor, int size, Sort sort);
+
     /**
      * Checks if the user has submitted a review for a book
      *
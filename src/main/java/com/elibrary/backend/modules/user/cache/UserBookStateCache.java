@@ -0,0 +1,255 @@
+package com.elibrary.backend.modules.user.cache;
+
+import com.elibrary.backend.common.collections.LongHashSet;
+import com.elibrary.backend.common.exceptions.ResourceNotFoundExceptions;
+import com.elibrary.backend.modules.checkout.dto.BorrowedBookDTO;
+import com.elibrary.backend.modules.checkout.inventory.InventoryEngine;
+import com.elibrary.backend.modules.checkout.repository.CheckoutRepository;
+import com.elibrary.backend.modules.review.repository.ReviewRepository;
+import com.elibrary.backend.modules.user.entity.User;
+import com.elibrary.backend.modules.user.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Per user cache of the books a user has borrowed, has on loan and has reviewed, held in primitive long sets
+ * A user's sets are loaded on first access and then kept up to date by checkouts, returns and reviews once their
+ * transaction commits. Users inactive for the configured time are evicted
+ */
+@Component
+public class UserBookStateCache {
+
+    private final UserRepository userRepository;
+
+    private final CheckoutRepository checkoutRepository;
+
+    private final ReviewRepository reviewRepository;
+
+    private final InventoryEngine inventoryEngine;
+
+    private final Cache<String, UserBookState> cache;
+
+    public UserBookStateCache(UserRepository userRepository,
+                              CheckoutRepository checkoutRepository,
+                              ReviewRepository reviewRepository,
+                              InventoryEngine inventoryEngine,
+                              @Value("${elibrary.users.book-state-cache.max-users:100000}") long maximumUsers,
+                              @Value("${elibrary.users.book-state-cache.expire-after-access-ms:1800000}") long expireAfterAccessMillis) {
+        this.userRepository = userRepository;
+        this.checkoutRepository = checkoutRepository;
+        this.reviewRepository = reviewRepository;
+        this.inventoryEngine = inventoryEngine;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumUsers)
+                .expireAfterAccess(Duration.ofMillis(expireAfterAccessMillis))
+                .build();
+    }
+
+    /**
+     * Checks if a user has a checkout record for a book, returned or not
+     *
+     * @param userEmail the email of the user
+     * @param bookId    the id of the book
+     * @return true if the user has borrowed the book
+     */
+    public boolean hasBorrowed(String userEmail, Long bookId) {
+        return state(userEmail).hasBorrowed(bookId);
+    }
+
+    /**
+     * Counts the books a user has not returned yet
+     *
+     * @param userEmail the email of the user
+     * @return the number of books on loan to the user
+     */
+    public int getActiveLoanCount(String userEmail) {
+        return state(userEmail).activeLoanCount();
+    }
+
+    /**
+     * Checks if a user has reviewed a book
+     *
+     * @param userEmail the email of the user
+     * @param bookId    the id of the book
+     * @return true if the user has reviewed the book
+     */
+    public boolean hasReviewed(String userEmail, Long bookId) {
+        return state(userEmail).hasReviewed(bookId);
+    }
+
+    /**
+     * Records a new loan once the current transaction commits
+     *
+     * @param userEmail the email of the borrower
+     * @param bookId    the id of the book
+     */
+    public void loanStarted(String userEmail, Long bookId) {
+        afterCommit(userEmail, state -> state.loanStarted(bookId));
+    }
+
+    /**
+     * Records a returned loan once the current transaction commits, the checkout record stays
+     *
+     * @param userEmail the email of the borrower
+     * @param bookId    the id of the book
+     */
+    public void loanReturned(String userEmail, Long bookId) {
+        afterCommit(userEmail, state -> state.loanReturned(bookId));
+    }
+
+    /**
+     * Records a deleted checkout record once the current transaction commits
+     *
+     * @param userEmail the email of the borrower
+     * @param bookId    the id of the book
+     */
+    public void loanRemoved(String userEmail, Long bookId) {
+        afterCommit(userEmail, state -> state.loanRemoved(bookId));
+    }
+
+    /**
+     * Records a new review once the current transaction commits
+     *
+     * @param userEmail the email of the reviewer
+     * @param bookId    the id of the book
+     */
+    public void reviewAdded(String userEmail, Long bookId) {
+        afterCommit(userEmail, state -> state.reviewAdded(bookId));
+    }
+
+    /**
+     * Drops the cached state of a user now and again once the current transaction commits, so a load in between
+     * cannot keep rows the transaction changes
+     *
+     * @param userEmail the email of the user
+     */
+    public void evict(String userEmail) {
+        cache.invalidate(userEmail);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(userEmail);
+                }
+            });
+        }
+    }
+
+    /**
+     * Drops the cached state of every user, for changes that touch many users at once
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    private UserBookState state(String userEmail) {
+        return cache.get(userEmail, this::load);
+    }
+
+    /**
+     * Reads the checkouts and reviews of a user in two queries
+     */
+    private UserBookState load(String userEmail) {
+
+        // Find the user by their email, or throw an exception if not found
+        User user = userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new ResourceNotFoundExceptions("User not found"));
+
+        // Write any waiting loans so they are loaded
+        inventoryEngine.flush();
+
+        List<BorrowedBookDTO> borrowed = checkoutRepository.findBorrowedBooksByUserId(user.getId());
+        List<Long> reviewed = reviewRepository.findBookIdsByUserId(user.getId());
+
+        UserBookState state = new UserBookState(borrowed.size(), reviewed.size());
+        for (BorrowedBookDTO book : borrowed) {
+            state.borrowed.add(book.bookId());
+            if (book.returnedDate() == null) {
+                state.active.add(book.bookId());
+            }
+        }
+        reviewed.forEach(state.reviewed::add);
+        return state;
+    }
+
+    /**
+     * Applies a change to a cached user after the surrounding transaction commits, or right away outside one
+     * Users not cached are left alone, their next access loads the committed rows
+     */
+    private void afterCommit(String userEmail, Consumer<UserBookState> change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(userEmail, change);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(userEmail, change);
+            }
+        });
+    }
+
+    private void apply(String userEmail, Consumer<UserBookState> change) {
+        cache.asMap().computeIfPresent(userEmail, (email, state) -> {
+            change.accept(state);
+            return state;
+        });
+    }
+
+    /**
+     * Book ids of one user, guarded by its own lock so readers never see a set mid resize
+     */
+    private static final class UserBookState {
+
+        private final LongHashSet borrowed;
+
+        private final LongHashSet active;
+
+        private final LongHashSet reviewed;
+
+        private UserBookState(int borrowedCount, int reviewedCount) {
+            this.borrowed = new LongHashSet(borrowedCount);
+            this.active = new LongHashSet();
+            this.reviewed = new LongHashSet(reviewedCount);
+        }
+
+        private synchronized boolean hasBorrowed(long bookId) {
+            return borrowed.contains(bookId);
+        }
+
+        private synchronized int activeLoanCount() {
+            return active.size();
+        }
+
+        private synchronized boolean hasReviewed(long bookId) {
+            return reviewed.contains(bookId);
+        }
+
+        private synchronized void loanStarted(long bookId) {
+            borrowed.add(bookId);
+            active.add(bookId);
+        }
+
+        private synchronized void loanReturned(long bookId) {
+            active.remove(bookId);
+        }
+
+        private synchronized void loanRemoved(long bookId) {
+            borrowed.remove(bookId);
+            active.remove(bookId);
+        }
+
+        private synchronized void reviewAdded(long bookId) {
+            reviewed.add(bookId);
+        }
+    }
+}
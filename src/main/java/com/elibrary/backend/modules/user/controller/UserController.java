@@ -1,5 +1,6 @@
 package com.elibrary.backend.modules.user.controller;
 
+import com.elibrary.backend.common.pagination.CursorPage;
 import com.elibrary.backend.modules.user.dto.AdminUpdateUserRequest;
 import com.elibrary.backend.modules.user.dto.UserCountDTO;
 import com.elibrary.backend.modules.user.dto.UserDTO;
@@ -8,6 +9,7 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -29,6 +31,22 @@ public class UserController {
         return ResponseEntity.ok( userService.getAllUsers(pageable));
     }
 
+    /**
+     * Fetches all users with keyset pagination, used when the cursor parameter is given
+     * Pass an empty cursor for the first page, then the next cursor of each page
+     *
+     * @param cursor the cursor from the previous page
+     * @param size   the maximum number of users to return
+     * @param sort   the sort order, by id, createdAt or email
+     * @return one page of users and the cursor for the next page
+     */
+    @GetMapping(params = "cursor")
+    public ResponseEntity<CursorPage<UserDTO>> scrollAllUsers(@RequestParam String cursor,
+                                                             @RequestParam(defaultValue = "20") int size,
+                                                             Sort sort) {
+        return ResponseEntity.ok(userService.scrollAllUsers(cursor, size, sort));
+    }
+
     /**
      * Gets the total count of users
      *
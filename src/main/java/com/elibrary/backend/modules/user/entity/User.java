@@ -1,6 +1,7 @@
 package com.elibrary.backend.modules.user.entity;
 
 import com.elibrary.backend.modules.checkout.entity.Checkout;
+import com.elibrary.backend.modules.hold.entity.Hold;
 import com.elibrary.backend.modules.message.entity.Message;
 import com.elibrary.backend.modules.review.entity.Review;
 import jakarta.persistence.*;
@@ -22,7 +23,9 @@ import java.util.List;
  * Entity representing a user account in the database
  */
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_created_at", columnList = "created_at")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -61,6 +64,9 @@ public class User implements UserDetails {
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Checkout> checkouts;
 
+    @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
+    private List<Hold> holds;
+
 
 
     @Override
@@ -1,6 +1,10 @@
 package com.elibrary.backend.modules.user.repository;
 
 import com.elibrary.backend.modules.user.entity.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -36,5 +40,13 @@ public interface UserRepository extends JpaRepository<User,Long> {
      */
     Optional<User> findByUserId(String userId);
 
-
+    /**
+     * Scrolls through all users with keyset pagination, without an offset or count query
+     *
+     * @param position the position after the last row already seen
+     * @param sort     the sort order, ending with the id
+     * @param limit    the maximum number of users to return
+     * @return a window of users
+     */
+    Window<User> findAllBy(ScrollPosition position, Sort sort, Limit limit);
 }
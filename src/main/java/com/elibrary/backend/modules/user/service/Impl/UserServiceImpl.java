@@ -2,6 +2,10 @@ package com.elibrary.backend.modules.user.service.Impl;
 
 import com.elibrary.backend.common.exceptions.DuplicateResourceException;
 import com.elibrary.backend.common.exceptions.ResourceNotFoundExceptions;
+import com.elibrary.backend.common.pagination.CursorCodec;
+import com.elibrary.backend.common.pagination.CursorPage;
+import com.elibrary.backend.modules.checkout.repository.CheckoutHistoryRepository;
+import com.elibrary.backend.modules.user.cache.UserBookStateCache;
 import com.elibrary.backend.modules.user.dto.AdminUpdateUserRequest;
 import com.elibrary.backend.modules.user.dto.UserCountDTO;
 import com.elibrary.backend.modules.user.dto.UserDTO;
@@ -13,7 +17,12 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Set;
 
 /**
  * Service implementation for handling all user business logic
@@ -23,10 +32,18 @@ import org.springframework.stereotype.Service;
 @Slf4j
 public class UserServiceImpl implements UserService {
 
+    private static final Sort DEFAULT_SCROLL_SORT = Sort.by("id");
+
+    private static final Set<String> SCROLL_SORT_PROPERTIES = Set.of("id", "createdAt", "email");
+
     private final UserRepository userRepository;
 
+    private final CheckoutHistoryRepository checkoutHistoryRepository;
+
     private final UserMapper userMapper;
 
+    private final UserBookStateCache userBookStateCache;
+
     /**
      * Fetches all users with pagination
      *
@@ -49,6 +66,26 @@ public class UserServiceImpl implements UserService {
         return userResponse;
     }
 
+    /**
+     * Fetches all users with keyset pagination
+     *
+     * @param cursor the cursor from the previous page, empty for the first page
+     * @param size   the maximum number of users to return
+     * @param sort   the requested sort order
+     * @return one page of users and the cursor for the next page
+     */
+    @Override
+    public CursorPage<UserDTO> scrollAllUsers(String cursor, int size, Sort sort) {
+
+        // Resolve the sort and continue right after the last user of the previous page
+        Sort scrollSort = CursorCodec.resolveSort(sort, DEFAULT_SCROLL_SORT, SCROLL_SORT_PROPERTIES);
+        Window<User> users = userRepository.findAllBy(CursorCodec.decode(cursor, scrollSort),
+                scrollSort, CursorCodec.limit(size));
+
+        // Convert the user entities to user DTOs
+        return CursorPage.of(users, scrollSort, userMapper::toUserDTOFromUser);
+    }
+
     /**
      * Gets the total count of users
      *
@@ -84,6 +121,9 @@ public class UserServiceImpl implements UserService {
 
         }
 
+        // Drop the cached loan and review state kept under the old email
+        userBookStateCache.evict(user.getEmail());
+
         // Update the existing user's details with the new values
         user.setName(adminUpdateUserRequest.getName());
         user.setEmail(adminUpdateUserRequest.getEmail());
@@ -103,14 +143,19 @@ public class UserServiceImpl implements UserService {
      * @return confirmation user has been deleted
      */
     @Override
+    @Transactional
     public void deleteUser(String userId) {
 
         // Find the user by their id, or throw an exception if not found
         User user = userRepository.findByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundExceptions("User not found"));
 
-        // Delete the user from the database
+        // Delete the user's archived loans, the history table has no foreign key to cascade from
+        checkoutHistoryRepository.deleteByUserId(user.getId());
+
+        // Delete the user from the database and drop their cached loan and review state
         userRepository.delete(user);
+        userBookStateCache.evict(user.getEmail());
     }
 
 }
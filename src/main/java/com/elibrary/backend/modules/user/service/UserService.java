@@ -1,10 +1,12 @@
 package com.elibrary.backend.modules.user.service;
 
+import com.elibrary.backend.common.pagination.CursorPage;
 import com.elibrary.backend.modules.user.dto.AdminUpdateUserRequest;
 import com.elibrary.backend.modules.user.dto.UserCountDTO;
 import com.elibrary.backend.modules.user.dto.UserDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 /**
  * Service interface for handling user operations
@@ -19,6 +21,16 @@ public interface UserService {
      */
     Page<UserDTO> getAllUsers(Pageable pageable);
 
+    /**
+     * Fetches all users with keyset pagination
+     *
+     * @param cursor the cursor from the previous page, empty for the first page
+     * @param size   the maximum number of users to return
+     * @param sort   the requested sort order
+     * @return one page of users and the cursor for the next page
+     */
+    CursorPage<UserDTO> scrollAllUsers(String cursor, int size, Sort sort);
+
     /**
      * Gets the total count of users
      *
@@ -37,7 +37,7 @@ public class SecurityConfig {
         return httpSecurity.csrf(csrf -> csrf.disable())
                 .cors(Customizer.withDefaults())
                 .authorizeHttpRequests(auth -> auth
-                .requestMatchers("/auth/**","/books/**", "/reviews/**","/checkouts/**","/messages/**")
+                .requestMatchers("/auth/**","/books/**", "/reviews/**","/checkouts/**","/messages/**","/holds/**")
                 .permitAll()
                         .requestMatchers("/admin/**")  // restrict all /admin URLs
                         .hasAuthority("ADMIN")
@@ -0,0 +1,246 @@
+package com.elibrary.backend;
+
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.checkout.entity.Checkout;
+import com.elibrary.backend.modules.checkout.enums.LoanStatus;
+import com.elibrary.backend.modules.checkout.repository.CheckoutRepository;
+import com.elibrary.backend.modules.message.entity.Message;
+import com.elibrary.backend.modules.message.enums.MessageStatus;
+import com.elibrary.backend.modules.message.repository.MessageRepository;
+import com.elibrary.backend.modules.review.entity.Review;
+import com.elibrary.backend.modules.review.repository.ReviewRepository;
+import com.elibrary.backend.modules.user.entity.User;
+import com.elibrary.backend.modules.user.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Captures the query plan of every statement the hot repository methods run on a seeded database
+ * Fails when any of them reads a whole table instead of going through an index
+ */
+@Slf4j
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.elibrary.backend.RepositoryQueryPlanTest$RecordingStatementInspector",
+        "spring.jpa.show-sql=false"
+})
+class RepositoryQueryPlanTest {
+
+    private static final int USERS = 50;
+
+    private static final int BOOKS = 200;
+
+    private static final int ROWS_PER_USER = 20;
+
+    private static final String[] CATEGORIES = {"FE", "BE", "Data", "DevOps", "AI"};
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CheckoutRepository checkoutRepository;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    private Long bookId;
+
+    @BeforeEach
+    void seed() {
+        LocalDate today = LocalDate.now();
+
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            Book book = new Book();
+            book.setTitle("Book " + i);
+            book.setAuthor("Author " + i % 20);
+            book.setCategory(CATEGORIES[i % CATEGORIES.length]);
+            book.setCopies(3);
+            book.setCopiesAvailable(3);
+            books.add(book);
+        }
+        books = bookRepository.saveAll(books);
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(User.builder().userId("user-" + i).name("User " + i).email("user" + i + "@elibrary.com")
+                    .role("USER").build());
+        }
+        users = userRepository.saveAll(users);
+
+        // Every user borrows, reviews and asks about a spread of books
+        List<Checkout> checkouts = new ArrayList<>();
+        List<Review> reviews = new ArrayList<>();
+        List<Message> messages = new ArrayList<>();
+        for (int u = 0; u < USERS; u++) {
+            for (int i = 0; i < ROWS_PER_USER; i++) {
+                Book book = books.get((u * 7 + i * 13) % BOOKS);
+
+                Checkout checkout = new Checkout();
+                checkout.setUser(users.get(u));
+                checkout.setBookId(book.getId());
+                checkout.setCheckoutDate(today.minusDays(i));
+                checkout.setReturnDate(today.plusDays(7 - i));
+                checkout.setReturnedDate(i % 3 == 0 ? today : null);
+                checkouts.add(checkout);
+
+                Review review = new Review();
+                review.setUser(users.get(u));
+                review.setBookId(book.getId());
+                review.setRating(i % 5 + 1);
+                reviews.add(review);
+
+                Message message = new Message();
+                message.setUser(users.get(u));
+                message.setTitle("Question " + i);
+                message.setMessageStatus(MessageStatus.values()[i % MessageStatus.values().length]);
+                message.setCreatedAt(today.minusDays(i));
+                messages.add(message);
+            }
+        }
+        checkoutRepository.saveAll(checkouts);
+        reviewRepository.saveAll(reviews);
+        messageRepository.saveAll(messages);
+
+        user = users.get(USERS / 2);
+        bookId = checkouts.get(USERS / 2 * ROWS_PER_USER).getBookId();
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void checkoutByUserAndBookUsesIndex() {
+        assertNoTableScans(() -> checkoutRepository.findByUserAndBookId(user, bookId));
+    }
+
+    @Test
+    void checkoutsByUserUseIndex() {
+        assertNoTableScans(() -> checkoutRepository.findBooksByUser(user));
+    }
+
+    @Test
+    void currentLoansByUserUseIndex() {
+        assertNoTableScans(() -> checkoutRepository.findCurrentLoansByUserEmail(user.getEmail(), LocalDate.now()));
+    }
+
+    @Test
+    void overdueLoanOverviewUsesIndex() {
+        LocalDate today = LocalDate.now();
+        assertNoTableScans(() -> checkoutRepository.findOpenLoanOverviewsByStatus(LoanStatus.OVERDUE,
+                today, today.plusDays(3), PageRequest.of(0, 20, Sort.by("returnDate", "id"))));
+    }
+
+    @Test
+    void loanOverviewScrollByCheckoutDateUsesIndex() {
+        LocalDate today = LocalDate.now();
+        assertNoTableScans(() -> checkoutRepository.findLoanOverviewsBeforeCheckoutDate(today.minusDays(2), 50L,
+                today, today.plusDays(3), Limit.of(21)));
+    }
+
+    @Test
+    void loanOverviewScrollByReturnDateUsesIndex() {
+        LocalDate today = LocalDate.now();
+        assertNoTableScans(() -> checkoutRepository.findLoanOverviewsAfterReturnDate(today.plusDays(2), 50L,
+                today, today.plusDays(3), Limit.of(21)));
+    }
+
+    @Test
+    void borrowedBooksByUserUseIndex() {
+        assertNoTableScans(() -> checkoutRepository.findBorrowedBooksByUserId(user.getId()));
+    }
+
+    @Test
+    void reviewedBooksByUserUseIndex() {
+        assertNoTableScans(() -> reviewRepository.findBookIdsByUserId(user.getId()));
+    }
+
+    @Test
+    void reviewsByBookUseIndex() {
+        assertNoTableScans(() -> reviewRepository.findByBookId(bookId, PageRequest.of(0, 5, Sort.by(Sort.Direction.DESC, "date"))));
+    }
+
+    @Test
+    void reviewByUserAndBookUsesIndex() {
+        assertNoTableScans(() -> reviewRepository.findByUserAndBookId(user, bookId));
+    }
+
+    @Test
+    void messagesByStatusUseIndex() {
+        assertNoTableScans(() -> messageRepository.findByMessageStatus(MessageStatus.PENDING,
+                PageRequest.of(0, 5, Sort.by(Sort.Direction.DESC, "createdAt"))));
+    }
+
+    @Test
+    void booksByCategoryUseIndex() {
+        assertNoTableScans(() -> bookRepository.findByCategory("Data", PageRequest.of(0, 5)));
+    }
+
+    /**
+     * Runs a repository call, then explains every select it issued and fails on any table scan
+     */
+    private void assertNoTableScans(Runnable repositoryCall) {
+        RecordingStatementInspector.STATEMENTS.clear();
+        repositoryCall.run();
+
+        List<String> selects = RecordingStatementInspector.STATEMENTS.stream()
+                .filter(sql -> sql.trim().toLowerCase(Locale.ROOT).startsWith("select"))
+                .toList();
+        assertFalse(selects.isEmpty(), "The repository call did not run a query");
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (String sql : selects) {
+            String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+            log.info("Query plan:\n{}", plan);
+            assertFalse(plan.contains(".tableScan"), () -> "Full table scan in plan:\n" + plan);
+        }
+    }
+
+    /**
+     * Records the SQL of every statement Hibernate prepares
+     */
+    public static class RecordingStatementInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.elibrary.backend.common.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the map against a boxed hash map through random puts and removes, including zero and resizes
+ */
+class LongObjectHashMapTest {
+
+    @Test
+    void matchesAHashMap() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            // A small range keeps probe runs long and makes removes hit keys that are present
+            long key = random.nextInt(5_000) - 100;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "v" + i;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+
+        for (long key = -100; key < 4_900; key++) {
+            assertEquals(expected.get(key), map.get(key), "key " + key);
+        }
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(null, map.get(0));
+        assertEquals(null, map.get(1));
+    }
+}
@@ -0,0 +1,95 @@
+package com.elibrary.backend.modules.book.cache;
+
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.checkout.event.InventoryFlushedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that cached books are copies and that a read racing a change does not keep the old row once it commits
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Import(BookDetailCache.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookDetailCacheTest {
+
+    @Autowired
+    private BookDetailCache bookDetailCache;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        bookDetailCache.clear();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void callersGetTheirOwnCopy() {
+        Long bookId = saveBook(3);
+
+        bookDetailCache.get(bookId).orElseThrow().setCopiesAvailable(0);
+
+        assertEquals(3, bookDetailCache.get(bookId).orElseThrow().getCopiesAvailable());
+    }
+
+    @Test
+    void readDuringAChangeIsDroppedOnCommit() {
+        Long bookId = saveBook(3);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Book book = bookRepository.findById(bookId).orElseThrow();
+            book.setCopiesAvailable(2);
+            bookRepository.saveAndFlush(book);
+            bookDetailCache.copiesChanged(bookId, 2);
+
+            // Another request reads the committed row before this change commits and caches it
+            int seen = CompletableFuture.supplyAsync(() -> bookDetailCache.get(bookId).orElseThrow().getCopiesAvailable())
+                    .join();
+            assertEquals(3, seen);
+        });
+
+        assertEquals(2, bookDetailCache.get(bookId).orElseThrow().getCopiesAvailable());
+    }
+
+    @Test
+    void inventoryFlushDropsTheBooksWritten() {
+        Long bookId = saveBook(3);
+        assertEquals(3, bookDetailCache.get(bookId).orElseThrow().getCopiesAvailable());
+
+        // The memory inventory engine writes its copy changes later, outside the checkout transaction
+        transactionTemplate.executeWithoutResult(status -> bookRepository.adjustCopiesAvailable(bookId, -1));
+        assertEquals(3, bookDetailCache.get(bookId).orElseThrow().getCopiesAvailable());
+
+        bookDetailCache.onInventoryFlushed(new InventoryFlushedEvent(Set.of(bookId)));
+        assertEquals(2, bookDetailCache.get(bookId).orElseThrow().getCopiesAvailable());
+    }
+
+    private Long saveBook(int copies) {
+        Book book = new Book();
+        book.setTitle("Dune");
+        book.setAuthor("Frank Herbert");
+        book.setCopies(copies);
+        book.setCopiesAvailable(copies);
+        return bookRepository.save(book).getId();
+    }
+}
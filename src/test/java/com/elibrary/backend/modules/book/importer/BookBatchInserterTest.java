@@ -0,0 +1,90 @@
+package com.elibrary.backend.modules.book.importer;
+
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks that one batch insert hands every book the id the database generated for its row
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Import(BookBatchInserter.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookBatchInserterTest {
+
+    private static final String URL = "https://example.com/cover.jpg";
+
+    @Autowired
+    private BookBatchInserter bookBatchInserter;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @AfterEach
+    void cleanUp() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void generatedIdsAreSetInInsertOrder() {
+        Timestamp importedAt = Timestamp.valueOf("2024-03-01 10:00:00");
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            books.add(book("Book " + i, i + 1, importedAt));
+        }
+
+        bookBatchInserter.insert(books);
+
+        assertEquals(5, bookRepository.count());
+        for (int i = 0; i < books.size(); i++) {
+            Book inserted = books.get(i);
+            assertNotNull(inserted.getId());
+
+            Book stored = bookRepository.findById(inserted.getId()).orElseThrow();
+            assertEquals("Book " + i, stored.getTitle());
+            assertEquals(i + 1, stored.getCopies());
+            assertEquals(importedAt, stored.getCreatedAt());
+        }
+    }
+
+    @Test
+    void importedImageUrlIsServedAsExternalCover() {
+        Book book = book("Dune", 1, new Timestamp(System.currentTimeMillis()));
+        book.setImg(URL);
+
+        bookBatchInserter.insert(List.of(book));
+
+        Book stored = bookRepository.findById(book.getId()).orElseThrow();
+        assertNull(stored.getCoverHash());
+        assertEquals(URL, stored.getCoverUrl());
+    }
+
+    private static Book book(String title, int copies, Timestamp createdAt) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor("Author");
+        book.setDescription("Description");
+        book.setCopies(copies);
+        book.setCopiesAvailable(1);
+        book.setCategory("Fiction");
+        book.setCreatedAt(createdAt);
+        return book;
+    }
+}
@@ -0,0 +1,125 @@
+package com.elibrary.backend.modules.book.importer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that both import formats number their rows and reject a bad row without losing the rows after it
+ */
+class BookRowReaderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void csvRowsAreNumberedAfterTheHeader() throws IOException {
+        String csv = """
+                title,author,description,copies,copiesAvailable,category,img
+                Dune,Frank Herbert,Desert planet,2,2,Science Fiction,https://example.com/dune.jpg
+
+                 Emma , Jane Austen ,Matchmaking,1,1,Classics,
+                """;
+
+        try (BookRowReader reader = new CsvBookRowReader(stream(csv), objectMapper)) {
+            BookImportRow dune = reader.next();
+            assertEquals(1, dune.row());
+            assertNull(dune.error());
+            assertEquals("Dune", dune.request().getTitle());
+            assertEquals(2, dune.request().getCopies());
+            assertEquals("https://example.com/dune.jpg", dune.request().getImg());
+
+            // Empty lines are skipped and values are trimmed
+            BookImportRow emma = reader.next();
+            assertEquals(2, emma.row());
+            assertEquals("Emma", emma.request().getTitle());
+            assertEquals("Jane Austen", emma.request().getAuthor());
+
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void csvValueThatCannotBeConvertedOnlyRejectsItsRow() throws IOException {
+        String csv = """
+                title,author,description,copies,copiesAvailable,category
+                Dune,Frank Herbert,Desert planet,two,2,Science Fiction
+                Emma,Jane Austen,Matchmaking,1,1,Classics
+                """;
+
+        try (BookRowReader reader = new CsvBookRowReader(stream(csv), objectMapper)) {
+            BookImportRow bad = reader.next();
+            assertEquals(1, bad.row());
+            assertNull(bad.request());
+            assertTrue(bad.error().startsWith("Invalid value"), bad.error());
+
+            BookImportRow emma = reader.next();
+            assertEquals(2, emma.row());
+            assertEquals("Emma", emma.request().getTitle());
+
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void csvRecordWithTooManyColumnsFailsTheStream() throws IOException {
+        String csv = """
+                title,author
+                Dune,Frank Herbert
+                Emma,Jane Austen,Matchmaking
+                """;
+
+        try (BookRowReader reader = new CsvBookRowReader(stream(csv), objectMapper)) {
+            assertEquals("Dune", reader.next().request().getTitle());
+
+            IOException failure = assertThrows(IOException.class, reader::next);
+            assertTrue(failure.getMessage().startsWith("Invalid CSV after record 1"), failure.getMessage());
+        }
+    }
+
+    @Test
+    void ndjsonRowsAreLineNumbersAndMalformedLinesOnlyRejectThemselves() throws IOException {
+        String ndjson = """
+                {"title":"Dune","author":"Frank Herbert","copies":2}
+
+                {"title":"Emma",
+                {"title":"Beloved","copies":"many"}
+                {"title":"Ulysses","author":"James Joyce"}
+                """;
+
+        try (BookRowReader reader = new NdjsonBookRowReader(stream(ndjson), objectMapper)) {
+            BookImportRow dune = reader.next();
+            assertEquals(1, dune.row());
+            assertEquals("Dune", dune.request().getTitle());
+            assertEquals(2, dune.request().getCopies());
+
+            // The blank line is skipped but still counted
+            BookImportRow truncated = reader.next();
+            assertEquals(3, truncated.row());
+            assertNull(truncated.request());
+            assertTrue(truncated.error().startsWith("Invalid JSON"), truncated.error());
+
+            BookImportRow wrongType = reader.next();
+            assertEquals(4, wrongType.row());
+            assertTrue(wrongType.error().startsWith("Invalid JSON"), wrongType.error());
+
+            BookImportRow ulysses = reader.next();
+            assertEquals(5, ulysses.row());
+            assertEquals("James Joyce", ulysses.request().getAuthor());
+
+            assertNull(reader.next());
+        }
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,187 @@
+package com.elibrary.backend.modules.book.search;
+
+import com.elibrary.backend.modules.book.dto.BookFilterRequest;
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.review.dto.BookRatingDTO;
+import com.elibrary.backend.modules.review.repository.ReviewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks each filter of the bitmap index on its own and combined, against a small catalog
+ */
+class BookFilterIndexTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 15);
+
+    private final ReviewRepository reviewRepository = mock(ReviewRepository.class);
+
+    private final BookFilterIndex index = new BookFilterIndex(reviewRepository);
+
+    @BeforeEach
+    void setUp() {
+        index.index(book(1, "Science Fiction", "Frank Herbert", 2, 30));
+        index.index(book(2, "Science Fiction", "Andy Weir", 0, 3));
+        index.index(book(3, "Fantasy", "Ursula K. Le Guin", 1, 10));
+        index.index(book(4, "Fantasy", "Frank Herbert", 0, 1));
+        index.index(book(5, "History", "Mary Beard", 3, 0));
+
+        when(reviewRepository.averageRatingPerBook()).thenReturn(List.of(
+                new BookRatingDTO(1L, 4.5),
+                new BookRatingDTO(2L, 3.9),
+                new BookRatingDTO(3L, 4.0),
+                new BookRatingDTO(5L, 2.0)));
+        index.loaded();
+    }
+
+    @Test
+    void emptyFilterMatchesEveryBook() {
+        assertEquals(List.of(1, 2, 3, 4, 5), ids(new BookFilterRequest()));
+    }
+
+    @Test
+    void categoriesMatchAnyListedIgnoringCase() {
+        BookFilterRequest filter = new BookFilterRequest();
+        filter.setCategory(List.of(" fantasy", "HISTORY", "Poetry"));
+        assertEquals(List.of(3, 4, 5), ids(filter));
+
+        filter.setCategory(List.of("Poetry"));
+        assertEquals(List.of(), ids(filter));
+    }
+
+    @Test
+    void authorMatchesIgnoringCase() {
+        BookFilterRequest filter = new BookFilterRequest();
+        filter.setAuthor("frank herbert ");
+        assertEquals(List.of(1, 4), ids(filter));
+    }
+
+    @Test
+    void availableFollowsCopyChanges() {
+        BookFilterRequest filter = new BookFilterRequest();
+        filter.setAvailable(true);
+        assertEquals(List.of(1, 3, 5), ids(filter));
+
+        index.copiesChanged(3L, 0);
+        index.copiesChanged(2L, 1);
+        assertEquals(List.of(1, 2, 5), ids(filter));
+    }
+
+    @Test
+    void minRatingChecksValuesInsideTheHalfStarBucket() {
+        BookFilterRequest filter = new BookFilterRequest();
+        filter.setMinRating(4.0);
+        assertEquals(List.of(1, 3), ids(filter));
+
+        // 3.9 and 4.0 share the 3.5 bucket, only the exact check tells them apart
+        filter.setMinRating(3.95);
+        assertEquals(List.of(1, 3), ids(filter));
+
+        filter.setMinRating(3.5);
+        assertEquals(List.of(1, 2, 3), ids(filter));
+
+        index.ratingChanged(4L, 5.0);
+        filter.setMinRating(4.75);
+        assertEquals(List.of(4), ids(filter));
+    }
+
+    @Test
+    void addedAfterIncludesTheDayItself() {
+        BookFilterRequest filter = new BookFilterRequest();
+        filter.setAddedAfter(TODAY.minusDays(3));
+        assertEquals(List.of(2, 4, 5), ids(filter));
+
+        filter.setAddedAfter(TODAY.plusDays(1));
+        assertEquals(List.of(), ids(filter));
+    }
+
+    @Test
+    void booksWithoutAddedTimeAreOlderThanAnyCutoff() {
+        Book undated = book(6, "History", "Mary Beard", 1, 0);
+        undated.setCreatedAt(null);
+        index.index(undated);
+
+        BookFilterRequest filter = new BookFilterRequest();
+        filter.setCategory(List.of("History"));
+        assertEquals(List.of(5, 6), ids(filter));
+
+        filter.setAddedAfter(LocalDate.MIN);
+        assertEquals(List.of(5), ids(filter));
+    }
+
+    @Test
+    void criteriaAreCombinedWithAnd() {
+        BookFilterRequest filter = new BookFilterRequest();
+        filter.setCategory(List.of("Science Fiction", "Fantasy"));
+        filter.setAvailable(true);
+        assertEquals(List.of(1, 3), ids(filter));
+
+        filter.setMinRating(4.2);
+        assertEquals(List.of(1), ids(filter));
+
+        filter.setAddedAfter(TODAY.minusDays(10));
+        assertEquals(List.of(), ids(filter));
+
+        filter.setMinRating(null);
+        assertEquals(List.of(3), ids(filter));
+
+        filter.setAuthor("Frank Herbert");
+        assertEquals(List.of(), ids(filter));
+    }
+
+    @Test
+    void reindexedAndRemovedBooksLeaveTheirOldBitmaps() {
+        index.index(book(1, "History", "Mary Beard", 0, 0));
+        index.remove(5L);
+
+        BookFilterRequest filter = new BookFilterRequest();
+        filter.setCategory(List.of("History"));
+        assertEquals(List.of(1), ids(filter));
+
+        filter = new BookFilterRequest();
+        filter.setAuthor("Frank Herbert");
+        assertEquals(List.of(4), ids(filter));
+
+        filter = new BookFilterRequest();
+        filter.setAvailable(true);
+        assertEquals(List.of(3), ids(filter));
+
+        // The rating of a reindexed book is kept
+        filter = new BookFilterRequest();
+        filter.setMinRating(4.5);
+        assertEquals(List.of(1), ids(filter));
+    }
+
+    @Test
+    void pageSkipsToTheOffset() {
+        RoaringBitmap books = RoaringBitmap.bitmapOf(2, 4, 8, 16, 32);
+        assertEquals(List.of(8L, 16L), BookFilterIndex.page(books, 2, 2));
+        assertEquals(List.of(32L), BookFilterIndex.page(books, 4, 10));
+        assertEquals(List.of(), BookFilterIndex.page(books, 5, 10));
+    }
+
+    private List<Integer> ids(BookFilterRequest filter) {
+        return index.filter(filter).stream().boxed().toList();
+    }
+
+    private static Book book(long id, String category, String author, int copiesAvailable, int daysAgo) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle("Book " + id);
+        book.setCategory(category);
+        book.setAuthor(author);
+        book.setCopies(3);
+        book.setCopiesAvailable(copiesAvailable);
+        book.setCreatedAt(Timestamp.valueOf(TODAY.minusDays(daysAgo).atTime(12, 0)));
+        return book;
+    }
+}
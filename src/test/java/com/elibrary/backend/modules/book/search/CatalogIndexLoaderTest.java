@@ -0,0 +1,79 @@
+package com.elibrary.backend.modules.book.search;
+
+import com.elibrary.backend.modules.book.dto.BookFilterRequest;
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks that loading the catalog leaves books saved before the added time was recorded untouched, and that they
+ * count as older than any addedAfter cutoff
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Import({CatalogIndexLoader.class, BookFilterIndex.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CatalogIndexLoaderTest {
+
+    @Autowired
+    private CatalogIndexLoader catalogIndexLoader;
+
+    @Autowired
+    private BookFilterIndex bookFilterIndex;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        bookRepository.deleteAll();
+        bookFilterIndex.clear();
+    }
+
+    @Test
+    void booksWithoutAddedTimeKeepNoneAndPredateEveryCutoff() {
+        Long oldBookId = saveBook("Dune");
+        Long newBookId = saveBook("Project Hail Mary");
+
+        // Rows from before the column existed have no added time
+        jdbcTemplate.update("UPDATE book SET created_at = NULL WHERE id = ?", oldBookId);
+
+        catalogIndexLoader.reload();
+
+        assertNull(bookRepository.findById(oldBookId).orElseThrow().getCreatedAt());
+
+        BookFilterRequest filter = new BookFilterRequest();
+        assertEquals(List.of(oldBookId.intValue(), newBookId.intValue()),
+                bookFilterIndex.filter(filter).stream().boxed().toList());
+
+        filter.setAddedAfter(LocalDate.of(1970, 1, 1));
+        assertEquals(List.of(newBookId.intValue()), bookFilterIndex.filter(filter).stream().boxed().toList());
+    }
+
+    private Long saveBook(String title) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor("Author");
+        book.setCopies(1);
+        book.setCopiesAvailable(1);
+        return bookRepository.save(book).getId();
+    }
+}
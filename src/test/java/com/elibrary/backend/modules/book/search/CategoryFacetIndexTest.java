@@ -0,0 +1,85 @@
+package com.elibrary.backend.modules.book.search;
+
+import com.elibrary.backend.modules.book.dto.BookFacetRef;
+import com.elibrary.backend.modules.book.dto.CategoryFacetDTO;
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.checkout.inventory.InventoryEngine;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that a facet rebuild keeps the changes made while it was reading the book table
+ */
+class CategoryFacetIndexTest {
+
+    private final BookRepository bookRepository = mock(BookRepository.class);
+
+    private final InventoryEngine inventoryEngine = mock(InventoryEngine.class);
+
+    private final CategoryFacetIndex index = new CategoryFacetIndex(bookRepository, inventoryEngine);
+
+    @Test
+    void changesDuringRebuildAreReplayed() {
+        index.index(book(1L, "Fantasy", 1));
+        index.index(book(2L, "History", 2));
+
+        // The database disagrees, so the reconcile rebuilds
+        when(bookRepository.countFacetsByCategory()).thenReturn(List.of(
+                new CategoryFacetDTO("Fantasy", 1, 1),
+                new CategoryFacetDTO("History", 1, 1),
+                new CategoryFacetDTO("Poetry", 1, 0)));
+
+        // While the scan runs the last copy of book 1 goes out, book 2 is deleted and book 3 is added
+        when(bookRepository.findFacetRefsAfter(anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+            index.copiesChanged(1L, 0);
+            index.remove(2L);
+            index.index(book(3L, "Science Fiction", 4));
+            return List.of(
+                    new BookFacetRef(1L, "Fantasy", 1),
+                    new BookFacetRef(2L, "History", 2),
+                    new BookFacetRef(4L, "Poetry", 0));
+        });
+
+        index.reconcile();
+
+        assertEquals(List.of(
+                new CategoryFacetDTO("Fantasy", 1, 0),
+                new CategoryFacetDTO("Poetry", 1, 0),
+                new CategoryFacetDTO("Science Fiction", 1, 1)), index.getFacets());
+
+        // Later changes apply to the rebuilt counts as usual
+        index.copiesChanged(4L, 1);
+        assertEquals(new CategoryFacetDTO("Poetry", 1, 1), index.getFacets().get(1));
+    }
+
+    @Test
+    void inventoryIsWrittenBeforeCounting() {
+        when(bookRepository.countFacetsByCategory()).thenReturn(List.of());
+
+        index.reconcile();
+
+        InOrder order = inOrder(inventoryEngine, bookRepository);
+        order.verify(inventoryEngine).flush();
+        order.verify(bookRepository).countFacetsByCategory();
+    }
+
+    private static Book book(Long id, String category, int copiesAvailable) {
+        Book book = new Book();
+        book.setId(id);
+        book.setCategory(category);
+        book.setCopies(4);
+        book.setCopiesAvailable(copiesAvailable);
+        return book;
+    }
+}
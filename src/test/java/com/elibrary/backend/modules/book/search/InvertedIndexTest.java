@@ -0,0 +1,100 @@
+package com.elibrary.backend.modules.book.search;
+
+import com.elibrary.backend.modules.book.entity.Book;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the BM25 ranking of the inverted index: term rarity, document length, field weights and paging
+ */
+class InvertedIndexTest {
+
+    private final InvertedIndex index = new InvertedIndex();
+
+    @Test
+    void rareTermsOutweighCommonOnes() {
+        index.index(book(1L, "Dragon Night", null));
+        index.index(book(2L, "Castle Night", null));
+        index.index(book(3L, "Castle Day", null));
+        index.index(book(4L, "Castle Morning", null));
+
+        // The dragon is in one title and the castle in three, equal scores fall back to the lower id
+        SearchHits hits = index.search("castle dragon", 0, 10);
+        assertEquals(List.of(1L, 2L, 3L, 4L), hits.bookIds());
+        assertEquals(4, hits.totalHits());
+    }
+
+    @Test
+    void shorterDocumentsRankHigherForTheSameMatch() {
+        index.index(book(1L, "Ocean Voyage Adventure Tale Saga", null));
+        index.index(book(2L, "Ocean Voyage", null));
+        index.index(book(3L, "Mountain Trail", null));
+
+        assertEquals(List.of(2L, 1L), index.search("ocean", 0, 10).bookIds());
+    }
+
+    @Test
+    void titleHitsOutrankDescriptionHits() {
+        index.index(book(1L, "Garden Year", "A quiet winter spent planning the spring beds"));
+        index.index(book(2L, "Winter", null));
+
+        assertEquals(List.of(2L, 1L), index.search("winter", 0, 10).bookIds());
+    }
+
+    @Test
+    void repeatedTermsRankHigherAtEqualLength() {
+        index.index(book(1L, "Sea Sky", null));
+        index.index(book(2L, "Sea Sea", null));
+        index.index(book(3L, "Sky Sky", null));
+
+        assertEquals(List.of(2L, 1L), index.search("sea", 0, 10).bookIds());
+    }
+
+    @Test
+    void queriesAreStemmedLikeTheCatalog() {
+        index.index(book(1L, "Running Stories", null));
+
+        assertEquals(List.of(1L), index.search("run story", 0, 10).bookIds());
+        assertEquals(List.of(), index.search("the of", 0, 10).bookIds());
+    }
+
+    @Test
+    void pagesKeepTheRankingAndTotal() {
+        for (long id = 1; id <= 5; id++) {
+            index.index(book(id, "Atlas " + "map ".repeat((int) id), null));
+        }
+
+        SearchHits all = index.search("atlas", 0, 10);
+        SearchHits page = index.search("atlas", 1, 2);
+        assertEquals(all.bookIds().subList(1, 3), page.bookIds());
+        assertEquals(5, page.totalHits());
+        assertEquals(List.of(), index.search("atlas", 5, 2).bookIds());
+    }
+
+    @Test
+    void reindexedAndRemovedBooksStopMatching() {
+        index.index(book(1L, "Dune", null));
+        index.index(book(2L, "Dune Messiah", null));
+
+        index.index(book(1L, "Arrakis", null));
+        index.remove(2L);
+
+        assertEquals(List.of(), index.search("dune", 0, 10).bookIds());
+        assertEquals(List.of(1L), index.search("arrakis", 0, 10).bookIds());
+
+        // A freed slot is reused without leaking the old terms
+        index.index(book(3L, "Children of Dune", null));
+        assertEquals(List.of(3L), index.search("dune", 0, 10).bookIds());
+    }
+
+    private static Book book(Long id, String title, String description) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setDescription(description);
+        return book;
+    }
+}
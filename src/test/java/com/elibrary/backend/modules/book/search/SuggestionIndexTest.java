@@ -0,0 +1,102 @@
+package com.elibrary.backend.modules.book.search;
+
+import com.elibrary.backend.modules.book.dto.SuggestionDTO;
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.enums.SuggestionType;
+import com.elibrary.backend.modules.checkout.dto.BookCheckoutCountDTO;
+import com.elibrary.backend.modules.checkout.repository.CheckoutHistoryRepository;
+import com.elibrary.backend.modules.checkout.repository.CheckoutRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks prefix lookups, popularity ranking across current and archived loans, and removal
+ */
+class SuggestionIndexTest {
+
+    private final CheckoutRepository checkoutRepository = mock(CheckoutRepository.class);
+
+    private final CheckoutHistoryRepository checkoutHistoryRepository = mock(CheckoutHistoryRepository.class);
+
+    private final SuggestionIndex index = new SuggestionIndex(checkoutRepository, checkoutHistoryRepository);
+
+    @BeforeEach
+    void setUp() {
+        index.index(book(1L, "The Hobbit", "J. R. R. Tolkien"));
+        index.index(book(2L, "The Two Towers", "J. R. R. Tolkien"));
+        index.index(book(3L, "Hobbit Lore", "Anon"));
+        index.index(book(4L, "Holes", "Louis Sachar"));
+
+        // Book 3 has few current loans but a long archived history
+        when(checkoutRepository.countCheckoutsPerBook()).thenReturn(List.of(
+                new BookCheckoutCountDTO(1L, 5L),
+                new BookCheckoutCountDTO(3L, 1L),
+                new BookCheckoutCountDTO(4L, 3L)));
+        when(checkoutHistoryRepository.countCheckoutsPerBook()).thenReturn(List.of(
+                new BookCheckoutCountDTO(3L, 9L),
+                new BookCheckoutCountDTO(2L, 2L)));
+        index.loaded();
+    }
+
+    @Test
+    void prefixesMatchTitleStartsAndInnerWords() {
+        assertEquals(List.of("Hobbit Lore", "The Hobbit"), texts(index.suggest("hobb", 10)));
+        assertEquals(List.of("The Hobbit", "The Two Towers"), texts(index.suggest("THE ", 10)));
+        assertEquals(List.of(), index.suggest("hobbits", 10));
+        assertEquals(List.of(), index.suggest("  ", 10));
+    }
+
+    @Test
+    void archivedLoansCountTowardsRanking() {
+        // 10 loans for Hobbit Lore, 5 for The Hobbit, 3 for Holes
+        assertEquals(List.of("Hobbit Lore", "The Hobbit", "Holes"), texts(index.suggest("ho", 10)));
+    }
+
+    @Test
+    void authorsAddUpTheLoansOfTheirBooks() {
+        List<SuggestionDTO> suggestions = index.suggest("tolk", 10);
+        assertEquals(List.of(new SuggestionDTO("J. R. R. Tolkien", SuggestionType.AUTHOR, null)), suggestions);
+
+        // Tolkien has 7 loans over two books, more than any single title
+        assertEquals(SuggestionType.AUTHOR, index.suggest("j", 10).get(0).type());
+    }
+
+    @Test
+    void limitKeepsTheTopSuggestions() {
+        assertEquals(List.of("Hobbit Lore", "The Hobbit"), texts(index.suggest("ho", 2)));
+        assertEquals(List.of(), index.suggest("ho", 0));
+    }
+
+    @Test
+    void titlesPointAtTheirBook() {
+        assertEquals(new SuggestionDTO("Holes", SuggestionType.TITLE, 4L), index.suggest("holes", 1).get(0));
+    }
+
+    @Test
+    void removedBooksDisappearAfterTheRebuild() {
+        index.remove(3L);
+        index.index(book(5L, "Howl's Moving Castle", "Diana Wynne Jones"));
+        index.rebuildIfDirty();
+
+        assertEquals(List.of("The Hobbit", "Holes", "Howl's Moving Castle"), texts(index.suggest("ho", 10)));
+        assertEquals(List.of(), index.suggest("lore", 10));
+    }
+
+    private static List<String> texts(List<SuggestionDTO> suggestions) {
+        return suggestions.stream().map(SuggestionDTO::text).toList();
+    }
+
+    private static Book book(Long id, String title, String author) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        return book;
+    }
+}
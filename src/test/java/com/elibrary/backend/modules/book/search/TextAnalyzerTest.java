@@ -0,0 +1,59 @@
+package com.elibrary.backend.modules.book.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks tokenizing, stop words and the light suffix stemming of catalog text
+ */
+class TextAnalyzerTest {
+
+    @Test
+    void splitsOnNonLettersAndDropsStopWords() {
+        assertEquals(List.of("lord", "ring", "vol", "1"), TextAnalyzer.analyze("The Lord of the Rings, Vol. 1"));
+        assertEquals(List.of("l", "engle", "wrinkle", "time"), TextAnalyzer.analyze("L'Engle: A Wrinkle in Time"));
+    }
+
+    @Test
+    void emptyAndNullTextHaveNoTerms() {
+        assertEquals(List.of(), TextAnalyzer.analyze(null));
+        assertEquals(List.of(), TextAnalyzer.analyze(""));
+        assertEquals(List.of(), TextAnalyzer.analyze("  -- the of --  "));
+    }
+
+    @Test
+    void stemsPluralsAndVerbEndings() {
+        assertEquals("story", TextAnalyzer.stem("stories"));
+        assertEquals("book", TextAnalyzer.stem("books"));
+        assertEquals("box", TextAnalyzer.stem("boxes"));
+        assertEquals("class", TextAnalyzer.stem("classes"));
+        assertEquals("church", TextAnalyzer.stem("churches"));
+        assertEquals("tie", TextAnalyzer.stem("ties"));
+        assertEquals("run", TextAnalyzer.stem("running"));
+        assertEquals("stop", TextAnalyzer.stem("stopped"));
+    }
+
+    @Test
+    void keepsDoubledLettersThatBelongToTheWord() {
+        assertEquals("fall", TextAnalyzer.stem("falling"));
+        assertEquals("buzz", TextAnalyzer.stem("buzzing"));
+        assertEquals("pass", TextAnalyzer.stem("passed"));
+    }
+
+    @Test
+    void leavesShortWordsAndFalsePluralsAlone() {
+        assertEquals("glass", TextAnalyzer.stem("glass"));
+        assertEquals("status", TextAnalyzer.stem("status"));
+        assertEquals("bus", TextAnalyzer.stem("bus"));
+        assertEquals("sing", TextAnalyzer.stem("sing"));
+        assertEquals("red", TextAnalyzer.stem("red"));
+    }
+
+    @Test
+    void queryAndCatalogFormsMeet() {
+        assertEquals(TextAnalyzer.analyze("Running Stories"), TextAnalyzer.analyze("run story"));
+    }
+}
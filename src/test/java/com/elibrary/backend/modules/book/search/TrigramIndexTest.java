@@ -0,0 +1,110 @@
+package com.elibrary.backend.modules.book.search;
+
+import com.elibrary.backend.modules.book.entity.Book;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Checks the edit distance, the similarity cutoff and the ranking of typo tolerant lookups
+ */
+class TrigramIndexTest {
+
+    private final TrigramIndex index = new TrigramIndex(10_000);
+
+    @Test
+    void adjacentSwapsCountAsOneEdit() {
+        assertEquals(1, TrigramIndex.editDistance("tolkein", "tolkien", 3));
+        assertEquals(1, TrigramIndex.editDistance("ab", "ba", 3));
+
+        // Optimal string alignment never edits a swapped pair again, so this takes three edits, not two
+        assertEquals(3, TrigramIndex.editDistance("ca", "abc", 3));
+    }
+
+    @Test
+    void insertionsDeletionsAndSubstitutionsCountOnce() {
+        assertEquals(0, TrigramIndex.editDistance("dune", "dune", 3));
+        assertEquals(1, TrigramIndex.editDistance("dun", "dune", 3));
+        assertEquals(1, TrigramIndex.editDistance("dunes", "dune", 3));
+        assertEquals(1, TrigramIndex.editDistance("dune", "dane", 3));
+        assertEquals(3, TrigramIndex.editDistance("kitten", "sitting", 5));
+        assertEquals(4, TrigramIndex.editDistance("", "dune", 5));
+    }
+
+    @Test
+    void distanceGivesUpPastTheMaximum() {
+        assertEquals(3, TrigramIndex.editDistance("kitten", "sitting", 2));
+        assertEquals(2, TrigramIndex.editDistance("kitten", "sitting", 1));
+        assertEquals(3, TrigramIndex.editDistance("a", "abcdef", 2));
+        assertEquals(0, TrigramIndex.editDistance("abcd", "abcd", 0));
+    }
+
+    @Test
+    void resultsAreRankedBySimilarityThenId() {
+        index.index(book(4L, "Dude", "Anon"));
+        index.index(book(3L, "Dunes", "Anon"));
+        index.index(book(2L, "Dune", "Frank Herbert"));
+        index.index(book(1L, "Dune", "Brian Herbert"));
+
+        SearchHits hits = index.search("dune", 0, 10);
+        assertEquals(List.of(1L, 2L, 3L, 4L), hits.bookIds());
+        assertEquals(4, hits.totalHits());
+        assertEquals(List.of(2L, 3L), index.search("dune", 1, 2).bookIds());
+    }
+
+    @Test
+    void misspelledAuthorWordsMatch() {
+        index.index(book(1L, "The Hobbit", "J. R. R. Tolkien"));
+        index.index(book(2L, "Dune", "Frank Herbert"));
+
+        assertEquals(List.of(1L), index.search("tolkein", 0, 10).bookIds());
+        assertEquals(List.of(2L), index.search("frank herbret", 0, 10).bookIds());
+    }
+
+    @Test
+    void candidatesBelowHalfSimilarityAreDropped() {
+        index.index(book(1L, "Cat", "Anon"));
+        index.index(book(2L, "Catalogue", "Anon"));
+
+        // Both share trigrams with the query, but "cat" is four edits from "catalog"
+        assertEquals(List.of(2L), index.search("catalog", 0, 10).bookIds());
+        assertEquals(List.of(), index.search("xyz", 0, 10).bookIds());
+    }
+
+    @Test
+    void bestMatchSurvivesTheCandidateCut() {
+        // Far more books share a trigram or two with the query than are re-ranked
+        for (long id = 1; id <= 500; id++) {
+            index.index(book(id, "Harbor Notes " + id, "Anon"));
+        }
+        index.index(book(1000L, "Harry Potter", "J. K. Rowling"));
+
+        List<Long> hits = index.search("hary poter", 0, 5).bookIds();
+        assertFalse(hits.isEmpty());
+        assertEquals(1000L, hits.get(0));
+    }
+
+    @Test
+    void reindexedAndRemovedBooksStopMatching() {
+        index.index(book(1L, "Ulysses", "James Joyce"));
+        index.index(book(2L, "Emma", "Jane Austen"));
+
+        index.index(book(1L, "Persuasion", "Jane Austen"));
+        index.remove(2L);
+
+        assertEquals(List.of(), index.search("ulysses", 0, 10).bookIds());
+        assertEquals(List.of(), index.search("emma", 0, 10).bookIds());
+        assertEquals(List.of(1L), index.search("persuasion", 0, 10).bookIds());
+    }
+
+    private static Book book(Long id, String title, String author) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        return book;
+    }
+}
@@ -0,0 +1,185 @@
+package com.elibrary.backend.modules.book.service;
+
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.enums.BookImportFormat;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.book.service.Impl.BookExportServiceImpl;
+import com.elibrary.backend.modules.book.storage.CoverImageStore;
+import com.elibrary.backend.modules.book.storage.StoredCover;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks that an export writes every book once in id order across batch boundaries, in both formats, with and
+ * without covers
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Import({BookExportServiceImpl.class, BookExportServiceTest.Config.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookExportServiceTest {
+
+    // Two full batches of 500 and one book in a third
+    private static final int BOOKS = 1001;
+
+    private static final String URL = "https://example.com/cover.jpg";
+
+    @Autowired
+    private BookExportService bookExportService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CoverImageStore coverImageStore;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private List<Long> ids;
+
+    private byte[] png;
+
+    @BeforeEach
+    void seed() throws IOException {
+        png = png();
+        StoredCover cover = coverImageStore.store(new ByteArrayInputStream(png));
+
+        // The first book has a stored cover and the last an image URL never moved to the store
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            Book book = new Book();
+            book.setTitle("Book " + i);
+            book.setAuthor("Author, " + i);
+            book.setDescription("Line one\nline two");
+            book.setCategory("Fiction");
+            book.setCopies(2);
+            book.setCopiesAvailable(1);
+            books.add(book);
+        }
+        books.get(0).setCoverHash(cover.hash());
+        books.get(0).setCoverContentType(cover.contentType());
+        books.get(BOOKS - 1).setImg(URL);
+        ids = bookRepository.saveAll(books).stream().map(Book::getId).toList();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void csvExportWritesEveryBook() throws IOException {
+        assertExport(csv(false), false);
+        assertExport(csv(true), true);
+    }
+
+    @Test
+    void ndjsonExportWritesEveryBook() throws IOException {
+        assertExport(ndjson(false), false);
+        assertExport(ndjson(true), true);
+    }
+
+    private void assertExport(List<Map<String, String>> rows, boolean includeCovers) {
+        assertEquals(ids, rows.stream().map(row -> Long.valueOf(row.get("id"))).toList());
+
+        Map<String, String> last = rows.get(BOOKS - 1);
+        assertEquals("Book " + (BOOKS - 1), last.get("title"));
+        assertEquals("Author, " + (BOOKS - 1), last.get("author"));
+        assertEquals("Line one\nline two", last.get("description"));
+        assertEquals("2", last.get("copies"));
+
+        if (!includeCovers) {
+            rows.forEach(row -> assertNull(row.get("img")));
+            return;
+        }
+
+        String stored = rows.get(0).get("img");
+        String prefix = "data:image/png;base64,";
+        assertEquals(prefix, stored.substring(0, prefix.length()));
+        assertArrayEquals(png, Base64.getDecoder().decode(stored.substring(prefix.length())));
+        assertEquals(URL, last.get("img"));
+        rows.subList(1, BOOKS - 1).forEach(row -> assertNull(row.get("img")));
+    }
+
+    private List<Map<String, String>> csv(boolean includeCovers) throws IOException {
+        List<Map<String, String>> rows = new CsvMapper().readerForMapOf(String.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .<Map<String, String>>readValues(export(BookImportFormat.CSV, includeCovers))
+                .readAll();
+
+        // CSV writes a missing cover as an empty column
+        rows.forEach(row -> row.computeIfPresent("img", (name, img) -> img.isEmpty() ? null : img));
+        return rows;
+    }
+
+    private List<Map<String, String>> ndjson(boolean includeCovers) throws IOException {
+        List<Map<String, String>> rows = new ArrayList<>();
+        for (String line : new String(export(BookImportFormat.NDJSON, includeCovers), StandardCharsets.UTF_8).split("\n")) {
+            Map<String, String> row = new HashMap<>();
+            objectMapper.readTree(line).fields().forEachRemaining(field -> row.put(field.getKey(), text(field.getValue())));
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private byte[] export(BookImportFormat format, boolean includeCovers) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bookExportService.exportBooks(format, includeCovers, out);
+        return out.toByteArray();
+    }
+
+    private static String text(JsonNode value) {
+        return value.isNull() ? null : value.asText();
+    }
+
+    private static byte[] png() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+
+        @Bean
+        CoverImageStore coverImageStore() throws IOException {
+            return new CoverImageStore(Files.createTempDirectory("covers").toString(), 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.elibrary.backend.modules.book.service;
+
+import com.elibrary.backend.modules.book.dto.BookImportErrorDTO;
+import com.elibrary.backend.modules.book.dto.BookImportReportDTO;
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.enums.BookImportStatus;
+import com.elibrary.backend.modules.book.importer.BookBatchInserter;
+import com.elibrary.backend.modules.book.search.CatalogIndex;
+import com.elibrary.backend.modules.book.service.Impl.BookImportServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Checks that an import reports every rejected row and keeps going, whether a row fails to parse, fails validation
+ * or fails to insert
+ */
+class BookImportServiceTest {
+
+    private static final String HEADER = "title,author,description,copies,copiesAvailable,category\n";
+
+    private final BookBatchInserter bookBatchInserter = mock(BookBatchInserter.class);
+
+    private final List<Book> indexed = new ArrayList<>();
+
+    private final AtomicLong ids = new AtomicLong();
+
+    private BookImportService bookImportService;
+
+    @BeforeEach
+    void setUp() {
+        bookImportService = new BookImportServiceImpl(bookBatchInserter,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), List.of(recordingIndex()),
+                new ObjectMapper(), Validation.buildDefaultValidatorFactory().getValidator(), 2, 10);
+
+        // Books titled Broken are refused, which fails any batch they are in
+        doAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            if (books.stream().anyMatch(book -> book.getTitle().equals("Broken"))) {
+                throw new IllegalStateException("Expected " + books.size() + " generated ids but got 0");
+            }
+            books.forEach(book -> book.setId(ids.incrementAndGet()));
+            return null;
+        }).when(bookBatchInserter).insert(anyList());
+    }
+
+    @Test
+    void csvImportRejectsBadRowsAndImportsTheRest() {
+        String csv = HEADER
+                + "Dune,Frank Herbert,Desert planet,2,2,Science Fiction\n"
+                + "Emma,Jane Austen,Matchmaking,one,1,Classics\n"
+                + ",Toni Morrison,Haunting,1,1,Fiction\n"
+                + "Ulysses,James Joyce,Dublin,1,1,Classics\n";
+
+        BookImportReportDTO report = bookImportService.importBooks(stream(csv), "text/csv");
+
+        assertEquals(BookImportStatus.COMPLETED, report.status());
+        assertEquals(4, report.rowsRead());
+        assertEquals(2, report.rowsImported());
+        assertEquals(2, report.rowsRejected());
+        assertEquals(List.of(2L, 3L), report.errors().stream().map(BookImportErrorDTO::row).toList());
+        assertTrue(report.errors().get(0).message().startsWith("Invalid value"));
+        assertEquals("Title is required", report.errors().get(1).message());
+        assertEquals(List.of("Dune", "Ulysses"), indexed.stream().map(Book::getTitle).toList());
+    }
+
+    @Test
+    void ndjsonImportRejectsMalformedLinesAndImportsTheRest() {
+        String ndjson = """
+                {"title":"Dune","author":"Frank Herbert","description":"Desert planet","copies":2,"copiesAvailable":2,"category":"Science Fiction","img":"https://example.com/dune.jpg"}
+                {"title":"Emma",
+                {"title":"Beloved","author":"Toni Morrison","description":"Haunting","copies":0,"copiesAvailable":0,"category":"Fiction"}
+                """;
+
+        BookImportReportDTO report = bookImportService.importBooks(stream(ndjson), "application/x-ndjson");
+
+        assertEquals(BookImportStatus.COMPLETED, report.status());
+        assertEquals(3, report.rowsRead());
+        assertEquals(1, report.rowsImported());
+        assertEquals(List.of(2L, 3L), report.errors().stream().map(BookImportErrorDTO::row).toList());
+        assertEquals("Copies must be at least 1", report.errors().get(1).message());
+
+        // Image URLs are kept for the cover endpoint to redirect to
+        assertEquals("https://example.com/dune.jpg", indexed.get(0).getCoverUrl());
+    }
+
+    @Test
+    void failedBatchIsRetriedRowByRowWhateverTheException() {
+        String csv = HEADER
+                + "Dune,Frank Herbert,Desert planet,2,2,Science Fiction\n"
+                + "Broken,Nobody,Fails to insert,1,1,Fiction\n"
+                + "Emma,Jane Austen,Matchmaking,1,1,Classics\n";
+
+        BookImportReportDTO report = bookImportService.importBooks(stream(csv), "text/csv");
+
+        // The first chunk holds Dune and Broken, only Broken is rejected when it is retried on its own
+        assertEquals(BookImportStatus.COMPLETED, report.status());
+        assertEquals(2, report.rowsImported());
+        assertEquals(1, report.rowsRejected());
+        assertEquals(new BookImportErrorDTO(2, "Expected 1 generated ids but got 0"), report.errors().get(0));
+        assertEquals(List.of("Dune", "Emma"), indexed.stream().map(Book::getTitle).toList());
+    }
+
+    private CatalogIndex recordingIndex() {
+        return new CatalogIndex() {
+            @Override
+            public void clear() {
+            }
+
+            @Override
+            public void index(Book book) {
+                indexed.add(book);
+            }
+
+            @Override
+            public void remove(Long bookId) {
+            }
+        };
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
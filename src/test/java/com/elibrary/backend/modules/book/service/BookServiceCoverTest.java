@@ -0,0 +1,167 @@
+package com.elibrary.backend.modules.book.service;
+
+import com.elibrary.backend.common.exceptions.ResourceNotFoundExceptions;
+import com.elibrary.backend.modules.book.cache.BookDetailCache;
+import com.elibrary.backend.modules.book.dto.BookCoverRef;
+import com.elibrary.backend.modules.book.dto.BookRequestDTO;
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.enums.CoverSize;
+import com.elibrary.backend.modules.book.exception.InvalidCoverImageException;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.book.search.BookFilterIndex;
+import com.elibrary.backend.modules.book.search.CategoryFacetIndex;
+import com.elibrary.backend.modules.book.search.InvertedIndex;
+import com.elibrary.backend.modules.book.search.SuggestionIndex;
+import com.elibrary.backend.modules.book.search.TrigramIndex;
+import com.elibrary.backend.modules.book.service.Impl.BookServiceImpl;
+import com.elibrary.backend.modules.book.storage.CoverImageStore;
+import com.elibrary.backend.modules.book.storage.CoverSource;
+import com.elibrary.backend.modules.book.storage.CoverThumbnailGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that legacy image URLs stay external covers, inline images move into the store and broken ones are only
+ * tried once
+ */
+class BookServiceCoverTest {
+
+    private static final String URL = "https://example.com/cover.jpg";
+
+    @TempDir
+    Path directory;
+
+    private final BookRepository bookRepository = mock(BookRepository.class);
+
+    private BookService bookService;
+
+    @BeforeEach
+    void setUp() {
+        bookService = new BookServiceImpl(bookRepository, new CoverImageStore(directory.toString(), 1_000_000),
+                mock(CoverThumbnailGenerator.class), mock(InvertedIndex.class), mock(TrigramIndex.class),
+                mock(SuggestionIndex.class), mock(CategoryFacetIndex.class), mock(BookFilterIndex.class),
+                mock(BookDetailCache.class), List.of());
+        when(bookRepository.save(any(Book.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void createKeepsImageUrlAsExternalCover() {
+        Book book = bookService.createBook(request(URL));
+
+        assertEquals(URL, book.getImg());
+        assertNull(book.getCoverHash());
+        assertEquals(URL, book.getCoverUrl());
+    }
+
+    @Test
+    void createStoresInlineImage() throws Exception {
+        Book book = bookService.createBook(request("data:image/png;base64," + Base64.getEncoder().encodeToString(png())));
+
+        assertNull(book.getImg());
+        assertNotNull(book.getCoverHash());
+        assertEquals("image/png", book.getCoverContentType());
+    }
+
+    @Test
+    void createRejectsTextThatIsNeitherUrlNorBase64() {
+        assertThrows(InvalidCoverImageException.class, () -> bookService.createBook(request("www.example.com/cover.jpg")));
+    }
+
+    @Test
+    void legacyUrlCoverRedirectsWithoutMigrating() {
+        Book book = legacyBook(URL);
+
+        CoverSource cover = bookService.getCover(book.getId(), CoverSize.SMALL);
+
+        assertTrue(cover.isExternal());
+        assertEquals(URL, cover.externalUrl());
+        assertEquals(URL, book.getImg());
+        verify(bookRepository, times(0)).save(any(Book.class));
+    }
+
+    @Test
+    void legacyInlineCoverIsMovedIntoTheStore() throws Exception {
+        Book book = legacyBook(Base64.getEncoder().encodeToString(png()));
+
+        CoverSource cover = bookService.getCover(book.getId(), CoverSize.ORIGINAL);
+
+        assertFalse(cover.isExternal());
+        assertEquals(cover.stored().hash(), book.getCoverHash());
+        assertNull(book.getImg());
+    }
+
+    @Test
+    void brokenLegacyCoverIsOnlyTriedOnce() {
+        Book book = legacyBook(Base64.getEncoder().encodeToString("not an image".getBytes(StandardCharsets.UTF_8)));
+
+        assertThrows(ResourceNotFoundExceptions.class, () -> bookService.getCover(book.getId(), CoverSize.ORIGINAL));
+        assertThrows(ResourceNotFoundExceptions.class, () -> bookService.getCover(book.getId(), CoverSize.ORIGINAL));
+
+        verify(bookRepository, times(1)).findById(book.getId());
+    }
+
+    @Test
+    void bookJsonKeepsImageUrlButNeverInlineImages() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        JsonNode external = objectMapper.valueToTree(legacyBook(URL));
+        assertEquals(URL, external.get("img").asText());
+        assertEquals(URL, external.get("coverUrl").asText());
+
+        JsonNode inline = objectMapper.valueToTree(legacyBook("aGVsbG8="));
+        assertFalse(inline.has("img"));
+        assertEquals("/books/1/cover", inline.get("coverUrl").asText());
+    }
+
+    private Book legacyBook(String img) {
+        Book book = new Book();
+        book.setId(1L);
+        book.setTitle("Dune");
+        book.setImg(img);
+        when(bookRepository.findCoverRefById(1L)).thenReturn(Optional.of(new BookCoverRef(1L, null, null)));
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+        return book;
+    }
+
+    private static BookRequestDTO request(String img) {
+        return BookRequestDTO.builder()
+                .title("Dune")
+                .author("Frank Herbert")
+                .description("Desert planet")
+                .copies(2)
+                .copiesAvailable(2)
+                .category("Science Fiction")
+                .img(img)
+                .build();
+    }
+
+    private static byte[] png() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,50 @@
+package com.elibrary.backend.modules.book.storage;
+
+import com.elibrary.backend.modules.book.exception.InvalidCoverImageException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that legacy cover values are told apart strictly, so a URL is never decoded as an image
+ */
+class BookCoversTest {
+
+    private static final byte[] IMAGE = "not really a png, but any bytes will do".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void recognisesHttpAndHttpsUrls() {
+        assertTrue(BookCovers.isExternalUrl("https://example.com/cover.jpg"));
+        assertTrue(BookCovers.isExternalUrl(" HTTP://example.com/cover.jpg"));
+        assertFalse(BookCovers.isExternalUrl("data:image/png;base64,AAAA"));
+        assertFalse(BookCovers.isExternalUrl("ftp://example.com/cover.jpg"));
+        assertFalse(BookCovers.isExternalUrl(null));
+    }
+
+    @Test
+    void urlIsNotBase64() {
+        assertThrows(InvalidCoverImageException.class,
+                () -> BookCovers.decodeInlineImage("https://example.com/cover.jpg"));
+    }
+
+    @Test
+    void decodesDataUriAndBareBase64() throws Exception {
+        String base64 = Base64.getEncoder().encodeToString(IMAGE);
+
+        assertArrayEquals(IMAGE, BookCovers.decodeInlineImage("data:image/png;base64," + base64).readAllBytes());
+        assertArrayEquals(IMAGE, BookCovers.decodeInlineImage(base64).readAllBytes());
+    }
+
+    @Test
+    void acceptsLineBrokenBase64() throws Exception {
+        String base64 = Base64.getMimeEncoder(16, "\r\n".getBytes(StandardCharsets.US_ASCII)).encodeToString(IMAGE);
+
+        assertArrayEquals(IMAGE, BookCovers.decodeInlineImage(base64 + "\n").readAllBytes());
+    }
+}
@@ -0,0 +1,60 @@
+package com.elibrary.backend.modules.book.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that only a cover matching its versioned URL is cached forever, never an original standing in for a thumbnail
+ */
+class CoverResponseWriterTest {
+
+    private static final String HASH = "a".repeat(64);
+
+    private final CoverResponseWriter writer = new CoverResponseWriter();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void fallbackIsNotCachedUnderTheThumbnailUrl() throws Exception {
+        byte[] bytes = {1, 2, 3};
+        Path file = Files.write(directory.resolve(HASH), bytes);
+        StoredCover original = new StoredCover(HASH, "image/png", file, bytes.length);
+
+        MockHttpServletResponse exact = write(original, HASH);
+        assertEquals("public, max-age=31536000, immutable", exact.getHeader(HttpHeaders.CACHE_CONTROL));
+        assertArrayEquals(bytes, exact.getContentAsByteArray());
+
+        MockHttpServletResponse fallback = write(original.asFallback(), HASH);
+        assertEquals("public, no-cache", fallback.getHeader(HttpHeaders.CACHE_CONTROL));
+        assertArrayEquals(bytes, fallback.getContentAsByteArray());
+
+        MockHttpServletResponse unversioned = write(original, null);
+        assertEquals("public, no-cache", unversioned.getHeader(HttpHeaders.CACHE_CONTROL));
+    }
+
+    @Test
+    void externalCoverRedirectsWithoutCaching() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        writer.write(CoverSource.external("https://example.com/cover.jpg"), null, new MockHttpServletRequest(), response);
+
+        assertEquals(302, response.getStatus());
+        assertEquals("https://example.com/cover.jpg", response.getRedirectedUrl());
+        assertEquals("public, no-cache", response.getHeader(HttpHeaders.CACHE_CONTROL));
+    }
+
+    private MockHttpServletResponse write(StoredCover cover, String version) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        writer.write(cover, version, new MockHttpServletRequest(), response);
+        return response;
+    }
+}
@@ -0,0 +1,84 @@
+package com.elibrary.backend.modules.book.storage;
+
+import com.elibrary.backend.modules.book.enums.CoverSize;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that decodable covers get thumbnails and covers that cannot be decoded are only tried once
+ */
+class CoverThumbnailGeneratorTest {
+
+    @TempDir
+    Path directory;
+
+    private CoverImageStore store;
+
+    private CoverThumbnailGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        store = new CoverImageStore(directory.toString(), 1_000_000);
+        generator = new CoverThumbnailGenerator(store, 1, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        generator.shutdown();
+    }
+
+    @Test
+    void rendersThumbnailsOfADecodableCover() throws Exception {
+        BufferedImage image = new BufferedImage(800, 1200, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        StoredCover cover = store.store(new ByteArrayInputStream(png.toByteArray()));
+
+        generator.enqueue(cover);
+        waitFor(() -> generator.getStats().completed() == 1);
+
+        assertTrue(store.findVariant(cover.hash(), CoverSize.SMALL).isPresent());
+        assertFalse(generator.isUnrenderable(cover.hash()));
+    }
+
+    @Test
+    void coverWithoutAReaderIsNotQueuedAgain() throws Exception {
+        // A WebP header passes the upload check, but ImageIO has no WebP reader
+        byte[] webp = "RIFF\0\0\0\0WEBPVP8 not really an image".getBytes(StandardCharsets.US_ASCII);
+        StoredCover cover = store.store(new ByteArrayInputStream(webp));
+
+        generator.enqueue(cover);
+        waitFor(() -> generator.isUnrenderable(cover.hash()));
+
+        // Later requests neither queue it nor count another failure
+        generator.enqueue(cover);
+        generator.enqueue(cover);
+        assertEquals(0, generator.getStats().queueDepth());
+        assertEquals(1, generator.getStats().failed());
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Timed out waiting for the thumbnail worker");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
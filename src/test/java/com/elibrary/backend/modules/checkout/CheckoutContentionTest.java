@@ -0,0 +1,200 @@
+package com.elibrary.backend.modules.checkout;
+
+import com.elibrary.backend.common.exceptions.ResourceNotFoundExceptions;
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.book.search.CatalogIndex;
+import com.elibrary.backend.modules.checkout.inventory.DatabaseInventoryEngine;
+import com.elibrary.backend.modules.checkout.repository.CheckoutRepository;
+import com.elibrary.backend.modules.checkout.service.CheckoutService;
+import com.elibrary.backend.modules.checkout.service.Impl.CheckoutServiceImpl;
+import com.elibrary.backend.modules.checkout.status.LoanStatusSweeper;
+import com.elibrary.backend.modules.hold.service.Impl.HoldServiceImpl;
+import com.elibrary.backend.modules.user.cache.UserBookStateCache;
+import com.elibrary.backend.modules.user.entity.User;
+import com.elibrary.backend.modules.user.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that concurrent checkouts and returns keep the available copies of a book exact
+ * Runs against an embedded database, every call commits in its own transaction like a real request
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Import({CheckoutServiceImpl.class, DatabaseInventoryEngine.class, LoanStatusSweeper.class, HoldServiceImpl.class,
+        UserBookStateCache.class, CheckoutContentionTest.Config.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CheckoutContentionTest {
+
+    private static final int COPIES = 25;
+
+    private static final int BORROWERS = 2000;
+
+    private static final int THREADS = 32;
+
+    @Autowired
+    private CheckoutService checkoutService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CheckoutRepository checkoutRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void cleanUp() {
+        checkoutRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentCheckoutsNeverOversell() throws Exception {
+        Long bookId = saveBook();
+        List<String> borrowers = saveUsers();
+
+        AtomicInteger soldOut = new AtomicInteger();
+        List<Boolean> results = runConcurrently(borrowers, email -> {
+            try {
+                checkoutService.checkoutBookForUser(email, bookId);
+                return true;
+            } catch (ResourceNotFoundExceptions ex) {
+                soldOut.incrementAndGet();
+                return false;
+            }
+        });
+
+        long checkedOut = results.stream().filter(Boolean::booleanValue).count();
+        assertEquals(COPIES, checkedOut);
+        assertEquals(BORROWERS - COPIES, soldOut.get());
+        assertEquals(COPIES, checkoutRepository.count());
+        assertEquals(0, bookRepository.findById(bookId).orElseThrow().getCopiesAvailable());
+    }
+
+    @Test
+    void concurrentReturnsLoseNoCopies() throws Exception {
+        Long bookId = saveBook();
+        List<String> borrowers = saveUsers();
+
+        // Every copy is out on loan before the returns start
+        List<String> holders = new ArrayList<>();
+        for (String email : borrowers.subList(0, COPIES)) {
+            checkoutService.checkoutBookForUser(email, bookId);
+            holders.add(email);
+        }
+        assertEquals(0, bookRepository.findById(bookId).orElseThrow().getCopiesAvailable());
+
+        runConcurrently(holders, email -> {
+            checkoutService.returnBookForUser(email, bookId);
+            return true;
+        });
+
+        assertEquals(COPIES, bookRepository.findById(bookId).orElseThrow().getCopiesAvailable());
+    }
+
+    /**
+     * Runs the task once per borrower from a shared thread pool, released all at once to maximise contention
+     */
+    private List<Boolean> runConcurrently(List<String> borrowers, BorrowerTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (String email : borrowers) {
+                Callable<Boolean> call = () -> {
+                    start.await();
+                    return task.run(email);
+                };
+                futures.add(executor.submit(call));
+            }
+            start.countDown();
+
+            List<Boolean> results = new ArrayList<>();
+            for (Future<Boolean> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    private Long saveBook() {
+        Book book = new Book();
+        book.setTitle("Dune");
+        book.setAuthor("Frank Herbert");
+        book.setDescription("Popular title");
+        book.setCategory("Science Fiction");
+        book.setCopies(COPIES);
+        book.setCopiesAvailable(COPIES);
+        return bookRepository.save(book).getId();
+    }
+
+    private List<String> saveUsers() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < BORROWERS; i++) {
+            users.add(User.builder()
+                    .userId("user-" + i)
+                    .email("reader" + i + "@example.com")
+                    .name("Reader " + i)
+                    .password("secret")
+                    .role("USER")
+                    .build());
+        }
+        return userRepository.saveAll(users).stream().map(User::getEmail).toList();
+    }
+
+    private interface BorrowerTask {
+        boolean run(String email) throws Exception;
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        // The service notifies the catalog indexes, which are not part of this test
+        @Bean
+        CatalogIndex noopCatalogIndex() {
+            return new CatalogIndex() {
+                @Override
+                public void clear() {
+                }
+
+                @Override
+                public void index(Book book) {
+                }
+
+                @Override
+                public void remove(Long bookId) {
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.elibrary.backend.modules.checkout;
+
+import com.elibrary.backend.common.exceptions.ResourceNotFoundExceptions;
+import com.elibrary.backend.modules.book.dto.BookSummaryDTO;
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.book.search.CatalogIndex;
+import com.elibrary.backend.modules.checkout.dto.BookStatusDTO;
+import com.elibrary.backend.modules.checkout.dto.CheckoutPerUserDTO;
+import com.elibrary.backend.modules.checkout.dto.CurrentLoanResponse;
+import com.elibrary.backend.modules.checkout.dto.LoanOverviewDTO;
+import com.elibrary.backend.modules.checkout.entity.Checkout;
+import com.elibrary.backend.modules.checkout.enums.LoanStatus;
+import com.elibrary.backend.modules.checkout.exception.TooManyBooksRequestedException;
+import com.elibrary.backend.modules.checkout.inventory.DatabaseInventoryEngine;
+import com.elibrary.backend.modules.checkout.repository.CheckoutRepository;
+import com.elibrary.backend.modules.checkout.service.CheckoutService;
+import com.elibrary.backend.modules.checkout.service.Impl.CheckoutServiceImpl;
+import com.elibrary.backend.modules.checkout.status.LoanStatusSweeper;
+import com.elibrary.backend.modules.hold.service.Impl.HoldServiceImpl;
+import com.elibrary.backend.modules.user.cache.UserBookStateCache;
+import com.elibrary.backend.modules.user.entity.User;
+import com.elibrary.backend.modules.user.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the values the checkout read queries build straight from joined rows
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Import({CheckoutServiceImpl.class, DatabaseInventoryEngine.class, LoanStatusSweeper.class, HoldServiceImpl.class,
+        UserBookStateCache.class, CheckoutQueriesTest.Config.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CheckoutQueriesTest {
+
+    @Autowired
+    private CheckoutService checkoutService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CheckoutRepository checkoutRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private LocalDate today;
+
+    private User reader;
+
+    private User returner;
+
+    private User newcomer;
+
+    private Book dune;
+
+    private Book emma;
+
+    private Book ulysses;
+
+    private Checkout dueLater;
+
+    private Checkout dueSoon;
+
+    private Checkout overdue;
+
+    private Checkout returned;
+
+    private Checkout returnedByOther;
+
+    @BeforeEach
+    void seed() {
+        today = LocalDate.now();
+
+        // One reader with open and returned loans, one with only a returned loan, one who never borrowed
+        reader = saveUser("reader");
+        returner = saveUser("returner");
+        newcomer = saveUser("newcomer");
+
+        dune = saveBook("Dune", "Frank Herbert", "Science Fiction", "0123abcd");
+        emma = saveBook("Emma", "Jane Austen", "Classics", null);
+        ulysses = saveBook("Ulysses", "James Joyce", "Classics", null);
+
+        dueLater = saveLoan(reader, dune, today.plusDays(6), null, LoanStatus.ACTIVE);
+        dueSoon = saveLoan(reader, emma, today.plusDays(1), null, LoanStatus.DUE_SOON);
+        overdue = saveLoan(reader, ulysses, today.minusDays(2), null, LoanStatus.OVERDUE);
+        returned = saveLoan(reader, emma, today.minusDays(20), today.minusDays(21), LoanStatus.RETURNED);
+        returnedByOther = saveLoan(returner, dune, today.minusDays(3), today.minusDays(4), LoanStatus.RETURNED);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        checkoutRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void currentLoansCarryBookSummaryAndDaysLeft() {
+        List<CurrentLoanResponse> loans = checkoutService.getCurrentLoansForUser(reader.getEmail());
+
+        // Open loans only, soonest due first
+        assertEquals(List.of(ulysses.getId(), emma.getId(), dune.getId()),
+                loans.stream().map(loan -> loan.getBook().id()).toList());
+        assertEquals(List.of(-2, 1, 6), loans.stream().map(CurrentLoanResponse::getDaysLeft).toList());
+
+        BookSummaryDTO book = loans.get(2).getBook();
+        assertEquals(new BookSummaryDTO(dune.getId(), "Dune", "Frank Herbert", "Science Fiction", 3, 2, "0123abcd"),
+                book);
+        assertEquals(dune.getCoverUrl(), book.coverUrl());
+
+        // A user with nothing on loan has an empty shelf, an unknown user is not found
+        assertTrue(checkoutService.getCurrentLoansForUser(returner.getEmail()).isEmpty());
+        assertTrue(checkoutService.getCurrentLoansForUser(newcomer.getEmail()).isEmpty());
+        assertThrows(ResourceNotFoundExceptions.class,
+                () -> checkoutService.getCurrentLoansForUser("nobody@example.com"));
+    }
+
+    @Test
+    void checkoutCountsIncludeUsersWithoutCheckouts() {
+        CheckoutPerUserDTO readerCount = new CheckoutPerUserDTO(reader.getUserId(), reader.getEmail(), 4);
+        CheckoutPerUserDTO returnerCount = new CheckoutPerUserDTO(returner.getUserId(), returner.getEmail(), 1);
+        CheckoutPerUserDTO newcomerCount = new CheckoutPerUserDTO(newcomer.getUserId(), newcomer.getEmail(), 0);
+
+        // Most checkouts first by default, returned loans count too
+        Page<CheckoutPerUserDTO> counts = checkoutService.getUserCheckoutCounts(PageRequest.of(0, 10));
+        assertEquals(List.of(readerCount, returnerCount, newcomerCount), counts.getContent());
+
+        // Pages count users, not checkouts
+        Page<CheckoutPerUserDTO> byEmail = checkoutService.getUserCheckoutCounts(PageRequest.of(1, 2, Sort.by("userEmail")));
+        assertEquals(3, byEmail.getTotalElements());
+        assertEquals(List.of(returnerCount), byEmail.getContent());
+    }
+
+    @Test
+    void loanOverviewStatusFilterReturnsMatchingLoans() {
+        PageRequest page = PageRequest.of(0, 10);
+
+        assertEquals(List.of(dueLater.getId()), overviewIds(LoanStatus.ACTIVE, page));
+        assertEquals(List.of(dueSoon.getId()), overviewIds(LoanStatus.DUE_SOON, page));
+        assertEquals(List.of(overdue.getId()), overviewIds(LoanStatus.OVERDUE, page));
+
+        // Returned loans of every user, soonest due first
+        assertEquals(List.of(returned.getId(), returnedByOther.getId()), overviewIds(LoanStatus.RETURNED, page));
+
+        // Without a filter every loan is listed, with the status worked out from its dates
+        Page<LoanOverviewDTO> all = checkoutService.adminGetAllCheckouts(null, page);
+        assertEquals(List.of(returned.getId(), returnedByOther.getId(), overdue.getId(), dueSoon.getId(),
+                dueLater.getId()), all.map(LoanOverviewDTO::getId).getContent());
+        assertEquals(List.of(LoanStatus.RETURNED, LoanStatus.RETURNED, LoanStatus.OVERDUE, LoanStatus.DUE_SOON,
+                LoanStatus.ACTIVE), all.map(LoanOverviewDTO::getStatus).getContent());
+
+        LoanOverviewDTO loan = all.getContent().get(2);
+        assertEquals(reader.getEmail(), loan.getUserEmail());
+        assertEquals("Ulysses", loan.getBookTitle());
+        assertEquals(-2, loan.getRemainingDays());
+
+        // Filtered pages count only the matching loans
+        Page<LoanOverviewDTO> firstReturned = checkoutService.adminGetAllCheckouts(LoanStatus.RETURNED,
+                PageRequest.of(0, 1));
+        assertEquals(2, firstReturned.getTotalElements());
+        assertEquals(List.of(returned.getId()), firstReturned.map(LoanOverviewDTO::getId).getContent());
+    }
+
+    @Test
+    void bookStatusesRejectMoreBooksThanTheMaximum() {
+        List<Long> ids = new ArrayList<>();
+        ids.add(dune.getId());
+        LongStream.range(0, 99).forEach(i -> ids.add(1_000_000 + i));
+
+        // Repeated ids are answered once and do not count towards the maximum
+        List<Long> repeated = new ArrayList<>(ids);
+        repeated.addAll(ids);
+        List<BookStatusDTO> statuses = checkoutService.getBookStatusesForUser(reader.getEmail(), repeated);
+        assertEquals(ids, statuses.stream().map(BookStatusDTO::bookId).toList());
+        assertTrue(statuses.get(0).checkedOut());
+
+        ids.add(2_000_000L);
+        assertThrows(TooManyBooksRequestedException.class,
+                () -> checkoutService.getBookStatusesForUser(reader.getEmail(), ids));
+    }
+
+    private List<Long> overviewIds(LoanStatus status, PageRequest page) {
+        return checkoutService.adminGetAllCheckouts(status, page).map(LoanOverviewDTO::getId).getContent();
+    }
+
+    private User saveUser(String name) {
+        return userRepository.save(User.builder().userId(name + "-id").name(name).email(name + "@example.com")
+                .password("secret").role("USER").build());
+    }
+
+    private Book saveBook(String title, String author, String category, String coverHash) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setDescription("Description of " + title);
+        book.setCategory(category);
+        book.setCopies(3);
+        book.setCopiesAvailable(2);
+        book.setCoverHash(coverHash);
+        book.setCoverContentType(coverHash == null ? null : "image/png");
+        return bookRepository.save(book);
+    }
+
+    private Checkout saveLoan(User user, Book book, LocalDate returnDate, LocalDate returnedDate, LoanStatus status) {
+        Checkout checkout = new Checkout();
+        checkout.setUser(user);
+        checkout.setBookId(book.getId());
+        checkout.setCheckoutDate(returnDate.minusDays(7));
+        checkout.setReturnDate(returnDate);
+        checkout.setReturnedDate(returnedDate);
+        checkout.setLoanStatus(status);
+        return checkoutRepository.save(checkout);
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        // The service notifies the catalog indexes, which are not part of this test
+        @Bean
+        CatalogIndex noopCatalogIndex() {
+            return new CatalogIndex() {
+                @Override
+                public void clear() {
+                }
+
+                @Override
+                public void index(Book book) {
+                }
+
+                @Override
+                public void remove(Long bookId) {
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.elibrary.backend.modules.checkout;
+
+import com.elibrary.backend.common.exceptions.InvalidCursorException;
+import com.elibrary.backend.common.pagination.CursorPage;
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.book.search.CatalogIndex;
+import com.elibrary.backend.modules.checkout.dto.LoanOverviewDTO;
+import com.elibrary.backend.modules.checkout.entity.Checkout;
+import com.elibrary.backend.modules.checkout.enums.LoanStatus;
+import com.elibrary.backend.modules.checkout.inventory.DatabaseInventoryEngine;
+import com.elibrary.backend.modules.checkout.repository.CheckoutRepository;
+import com.elibrary.backend.modules.checkout.service.CheckoutService;
+import com.elibrary.backend.modules.checkout.service.Impl.CheckoutServiceImpl;
+import com.elibrary.backend.modules.checkout.status.LoanStatusSweeper;
+import com.elibrary.backend.modules.hold.service.Impl.HoldServiceImpl;
+import com.elibrary.backend.modules.user.cache.UserBookStateCache;
+import com.elibrary.backend.modules.user.entity.User;
+import com.elibrary.backend.modules.user.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that the admin loan scroll walks every loan once in each supported order, one query per page
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+@Import({CheckoutServiceImpl.class, DatabaseInventoryEngine.class, LoanStatusSweeper.class, HoldServiceImpl.class,
+        UserBookStateCache.class, LoanOverviewScrollTest.Config.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LoanOverviewScrollTest {
+
+    private static final int LOANS = 11;
+
+    private static final int PAGE_SIZE = 3;
+
+    @Autowired
+    private CheckoutService checkoutService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CheckoutRepository checkoutRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private List<Checkout> checkouts;
+
+    @BeforeEach
+    void seed() {
+        LocalDate today = LocalDate.now();
+
+        List<User> users = new ArrayList<>();
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            users.add(User.builder().userId("user-" + i).name("Reader " + i).email("reader" + i + "@example.com")
+                    .password("secret").role("USER").build());
+
+            Book book = new Book();
+            book.setTitle("Book " + i);
+            book.setAuthor("Author " + i);
+            book.setCategory("Fiction");
+            book.setCopies(LOANS);
+            book.setCopiesAvailable(LOANS);
+            books.add(book);
+        }
+        users = userRepository.saveAll(users);
+        books = bookRepository.saveAll(books);
+
+        // Pairs of loans share a checkout date or a due date so the id has to break the ties
+        List<Checkout> loans = new ArrayList<>();
+        for (int i = 0; i < LOANS; i++) {
+            Checkout checkout = new Checkout();
+            checkout.setUser(users.get(i % users.size()));
+            checkout.setBookId(books.get(i % books.size()).getId());
+            checkout.setCheckoutDate(today.minusDays(i / 2));
+            checkout.setReturnDate(today.plusDays(7 - (i + 1) / 2));
+            checkout.setReturnedDate(i % 4 == 0 ? today : null);
+            loans.add(checkout);
+        }
+        checkouts = checkoutRepository.saveAll(loans);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        checkoutRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void defaultOrderIsNewestCheckoutFirst() {
+        List<Long> expected = checkouts.stream()
+                .sorted(Comparator.comparing(Checkout::getCheckoutDate).thenComparing(Checkout::getId).reversed())
+                .map(Checkout::getId)
+                .toList();
+
+        assertEquals(expected, scrollAll(Sort.unsorted()));
+    }
+
+    @Test
+    void dueDateOrderIsSoonestDueFirst() {
+        List<Long> expected = checkouts.stream()
+                .sorted(Comparator.comparing(Checkout::getReturnDate).thenComparing(Checkout::getId))
+                .map(Checkout::getId)
+                .toList();
+
+        assertEquals(expected, scrollAll(Sort.by("returnDate")));
+    }
+
+    @Test
+    void idOrderWalksEveryLoan() {
+        List<Long> expected = checkouts.stream().map(Checkout::getId).sorted().toList();
+
+        assertEquals(expected, scrollAll(Sort.by("id")));
+    }
+
+    @Test
+    void eachPageIsOneJoinedQuery() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        CursorPage<LoanOverviewDTO> page = checkoutService.adminScrollAllCheckouts("", LOANS, Sort.unsorted());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(LOANS, page.size());
+        assertFalse(page.hasNext());
+        assertNull(page.nextCursor());
+
+        // The borrower, the book and the status all come from the join
+        Checkout returned = checkouts.get(0);
+        LoanOverviewDTO loan = page.content().stream()
+                .filter(overview -> overview.getId().equals(returned.getId()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(returned.getUser().getEmail(), loan.getUserEmail());
+        assertEquals(returned.getBookId(), loan.getBookId());
+        assertEquals("Book 0", loan.getBookTitle());
+        assertEquals(LoanStatus.RETURNED, loan.getStatus());
+    }
+
+    @Test
+    void ordersWithoutSeekQueryAreRejected() {
+        assertThrows(InvalidCursorException.class,
+                () -> checkoutService.adminScrollAllCheckouts("", PAGE_SIZE, Sort.by(Sort.Direction.DESC, "returnDate")));
+        assertThrows(InvalidCursorException.class,
+                () -> checkoutService.adminScrollAllCheckouts("", PAGE_SIZE, Sort.by("checkoutDate")));
+    }
+
+    /**
+     * Follows the next cursor until the last page, collecting the loan ids in the order served
+     */
+    private List<Long> scrollAll(Sort sort) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = "";
+        while (true) {
+            CursorPage<LoanOverviewDTO> page = checkoutService.adminScrollAllCheckouts(cursor, PAGE_SIZE, sort);
+            page.content().forEach(loan -> ids.add(loan.getId()));
+            if (!page.hasNext()) {
+                return ids;
+            }
+            cursor = page.nextCursor();
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        // The service notifies the catalog indexes, which are not part of this test
+        @Bean
+        CatalogIndex noopCatalogIndex() {
+            return new CatalogIndex() {
+                @Override
+                public void clear() {
+                }
+
+                @Override
+                public void index(Book book) {
+                }
+
+                @Override
+                public void remove(Long bookId) {
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.elibrary.backend.modules.checkout;
+
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.book.search.CatalogIndex;
+import com.elibrary.backend.modules.checkout.entity.Checkout;
+import com.elibrary.backend.modules.checkout.enums.LoanStatus;
+import com.elibrary.backend.modules.checkout.exception.BookAlreadyReturnedException;
+import com.elibrary.backend.modules.checkout.inventory.DatabaseInventoryEngine;
+import com.elibrary.backend.modules.checkout.repository.CheckoutRepository;
+import com.elibrary.backend.modules.checkout.service.CheckoutService;
+import com.elibrary.backend.modules.checkout.service.Impl.CheckoutServiceImpl;
+import com.elibrary.backend.modules.checkout.status.LoanStatusSweeper;
+import com.elibrary.backend.modules.hold.service.Impl.HoldServiceImpl;
+import com.elibrary.backend.modules.user.cache.UserBookStateCache;
+import com.elibrary.backend.modules.user.entity.User;
+import com.elibrary.backend.modules.user.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that renewing a loan stores the status of its new due date and that returned loans cannot be renewed
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Import({CheckoutServiceImpl.class, DatabaseInventoryEngine.class, LoanStatusSweeper.class, HoldServiceImpl.class,
+        UserBookStateCache.class, LoanRenewalTest.Config.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LoanRenewalTest {
+
+    @Autowired
+    private CheckoutService checkoutService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CheckoutRepository checkoutRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    private Long bookId;
+
+    @BeforeEach
+    void seed() {
+        user = userRepository.save(User.builder().userId("user-1").name("Reader").email("reader@example.com")
+                .password("secret").role("USER").build());
+
+        Book book = new Book();
+        book.setTitle("Dune");
+        book.setAuthor("Frank Herbert");
+        book.setCategory("Science Fiction");
+        book.setCopies(1);
+        book.setCopiesAvailable(0);
+        bookId = bookRepository.save(book).getId();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        checkoutRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void renewalStoresStatusOfNewDueDate() {
+        LocalDate today = LocalDate.now();
+        saveLoan(today.plusDays(1), null, LoanStatus.DUE_SOON);
+
+        checkoutService.renewBookLoanForUser(user.getEmail(), bookId);
+
+        Checkout renewed = checkoutRepository.findByUserAndBookId(user, bookId);
+        assertEquals(LoanStatus.fromDueDate(renewed.getReturnDate(), today), renewed.getLoanStatus());
+        assertEquals(1, renewed.getRenewalCount());
+
+        // An admin renewal of an overdue loan moves it out of the overdue status as well
+        saveLoan(today.minusDays(2), null, LoanStatus.OVERDUE);
+        checkoutService.adminRenewBookLoan(user.getUserId(), bookId);
+
+        renewed = checkoutRepository.findByUserAndBookId(user, bookId);
+        assertEquals(LoanStatus.fromDueDate(renewed.getReturnDate(), today), renewed.getLoanStatus());
+        assertEquals(today.plusDays(7), renewed.getReturnDate());
+    }
+
+    @Test
+    void returnedLoanCannotBeRenewed() {
+        LocalDate today = LocalDate.now();
+        saveLoan(today.plusDays(5), today, LoanStatus.RETURNED);
+
+        assertThrows(BookAlreadyReturnedException.class,
+                () -> checkoutService.renewBookLoanForUser(user.getEmail(), bookId));
+        assertThrows(BookAlreadyReturnedException.class,
+                () -> checkoutService.adminRenewBookLoan(user.getUserId(), bookId));
+
+        Checkout returned = checkoutRepository.findByUserAndBookId(user, bookId);
+        assertEquals(LoanStatus.RETURNED, returned.getLoanStatus());
+        assertEquals(today.plusDays(5), returned.getReturnDate());
+        assertEquals(0, returned.getRenewalCount());
+    }
+
+    /**
+     * Replaces the loan of the book with one due on the given date
+     */
+    private void saveLoan(LocalDate returnDate, LocalDate returnedDate, LoanStatus status) {
+        checkoutRepository.deleteAll();
+
+        Checkout checkout = new Checkout();
+        checkout.setUser(user);
+        checkout.setBookId(bookId);
+        checkout.setCheckoutDate(returnDate.minusDays(7));
+        checkout.setReturnDate(returnDate);
+        checkout.setReturnedDate(returnedDate);
+        checkout.setLoanStatus(status);
+        checkoutRepository.save(checkout);
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        // The service notifies the catalog indexes, which are not part of this test
+        @Bean
+        CatalogIndex noopCatalogIndex() {
+            return new CatalogIndex() {
+                @Override
+                public void clear() {
+                }
+
+                @Override
+                public void index(Book book) {
+                }
+
+                @Override
+                public void remove(Long bookId) {
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.elibrary.backend.modules.checkout.history;
+
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.checkout.dto.LoanHistoryDTO;
+import com.elibrary.backend.modules.checkout.entity.Checkout;
+import com.elibrary.backend.modules.checkout.inventory.DatabaseInventoryEngine;
+import com.elibrary.backend.modules.checkout.repository.CheckoutHistoryRepository;
+import com.elibrary.backend.modules.checkout.repository.CheckoutRepository;
+import com.elibrary.backend.modules.user.cache.UserBookStateCache;
+import com.elibrary.backend.modules.user.entity.User;
+import com.elibrary.backend.modules.user.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that old returned checkouts move into the history table in batches and nothing else is touched
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "elibrary.checkout.history.archive-after-days=30",
+        "elibrary.checkout.history.batch-size=2"
+})
+@Import({LoanHistoryArchiver.class, CheckoutHistoryPartitions.class, UserBookStateCache.class, DatabaseInventoryEngine.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LoanHistoryArchiverTest {
+
+    @Autowired
+    private LoanHistoryArchiver loanHistoryArchiver;
+
+    @Autowired
+    private CheckoutRepository checkoutRepository;
+
+    @Autowired
+    private CheckoutHistoryRepository checkoutHistoryRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void cleanUp() {
+        checkoutHistoryRepository.deleteAll();
+        checkoutRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void archivesOnlyOldReturnedCheckouts() {
+        LocalDate today = LocalDate.now();
+        User user = userRepository.save(User.builder()
+                .userId("user-1")
+                .email("reader@example.com")
+                .name("Reader")
+                .password("secret")
+                .role("USER")
+                .build());
+
+        Book book = new Book();
+        book.setTitle("Dune");
+        book.setAuthor("Frank Herbert");
+        Long bookId = bookRepository.save(book).getId();
+
+        // Five loans returned long ago, two returned recently and three still out
+        List<Checkout> checkouts = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            checkouts.add(checkout(user, bookId, today.minusDays(60 + i)));
+        }
+        checkouts.add(checkout(user, bookId, today.minusDays(5)));
+        checkouts.add(checkout(user, bookId, today));
+        for (int i = 0; i < 3; i++) {
+            checkouts.add(checkout(user, bookId, null));
+        }
+        checkoutRepository.saveAll(checkouts);
+
+        assertEquals(5, loanHistoryArchiver.archive());
+
+        assertEquals(5, checkoutRepository.count());
+        assertEquals(3, checkoutRepository.countByUserAndReturnedDateIsNull(user));
+        assertTrue(checkoutRepository.findAll().stream()
+                .allMatch(checkout -> checkout.getReturnedDate() == null
+                        || !checkout.getReturnedDate().isBefore(today.minusDays(30))));
+
+        Page<LoanHistoryDTO> history = checkoutHistoryRepository.findLoanHistoryByUserId(user.getId(),
+                PageRequest.of(0, 10));
+        assertEquals(5, history.getTotalElements());
+        assertEquals(today.minusDays(60), history.getContent().get(0).returnedDate());
+        assertEquals("Dune", history.getContent().get(0).bookTitle());
+        assertNotNull(checkoutHistoryRepository.findAll().get(0).getArchivedAt());
+
+        // Checkout counts per book still see every loan, split across both tables
+        assertEquals(5, checkoutRepository.countCheckoutsPerBook().get(0).checkouts());
+        assertEquals(5, checkoutHistoryRepository.countCheckoutsPerBook().get(0).checkouts());
+
+        // A second run finds nothing left to move
+        assertEquals(0, loanHistoryArchiver.archive());
+    }
+
+    private static Checkout checkout(User user, Long bookId, LocalDate returnedDate) {
+        LocalDate checkoutDate = returnedDate == null ? LocalDate.now() : returnedDate.minusDays(7);
+        Checkout checkout = new Checkout();
+        checkout.setUser(user);
+        checkout.setBookId(bookId);
+        checkout.setCheckoutDate(checkoutDate);
+        checkout.setReturnDate(checkoutDate.plusDays(7));
+        checkout.setReturnedDate(returnedDate);
+        return checkout;
+    }
+}
@@ -0,0 +1,131 @@
+package com.elibrary.backend.modules.checkout.idempotency;
+
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.checkout.exception.IdempotencyKeyConflictException;
+import com.elibrary.backend.modules.checkout.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that a keyed request runs once and its retries get the first response, on this instance or another
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Import({IdempotencyStore.class, IdempotencyStoreTest.Config.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyStoreTest {
+
+    private static final String EMAIL = "reader@example.com";
+
+    // The store keeps responses in memory across tests, so every test uses its own keys
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void cleanUp() {
+        idempotencyRecordRepository.deleteAll();
+    }
+
+    @Test
+    void retriesReplayTheFirstResponse() {
+        AtomicInteger runs = new AtomicInteger();
+
+        ResponseEntity<Book> first = idempotencyStore.execute(EMAIL, "checkout-key", "checkout:7", Book.class,
+                () -> ResponseEntity.ok(book(runs.incrementAndGet())));
+        ResponseEntity<Book> retry = idempotencyStore.execute(EMAIL, "checkout-key", "checkout:7", Book.class,
+                () -> ResponseEntity.ok(book(runs.incrementAndGet())));
+
+        assertEquals(1, runs.get());
+        assertEquals(HttpStatus.OK, retry.getStatusCode());
+        assertEquals(first.getBody().getCopiesAvailable(), retry.getBody().getCopiesAvailable());
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+
+        // Another instance has nothing in memory and replays from the database
+        IdempotencyStore otherInstance = new IdempotencyStore(idempotencyRecordRepository, objectMapper, 100, 60000);
+        ResponseEntity<Void> renewed = idempotencyStore.execute(EMAIL, "renew-key", "renew:7", Void.class, () -> {
+            runs.incrementAndGet();
+            return ResponseEntity.noContent().build();
+        });
+        ResponseEntity<Void> replayed = otherInstance.execute(EMAIL, "renew-key", "renew:7", Void.class, () -> {
+            runs.incrementAndGet();
+            return ResponseEntity.noContent().build();
+        });
+
+        assertEquals(2, runs.get());
+        assertEquals(renewed.getStatusCode(), replayed.getStatusCode());
+        assertNull(replayed.getBody());
+    }
+
+    @Test
+    void keyCannotBeReusedForAnotherRequest() {
+        idempotencyStore.execute(EMAIL, "reused-key", "renew:7", Void.class, () -> ResponseEntity.noContent().build());
+
+        assertThrows(IdempotencyKeyConflictException.class, () -> idempotencyStore.execute(EMAIL, "reused-key",
+                "return:7", Void.class, () -> ResponseEntity.noContent().build()));
+
+        // Keys belong to one user
+        AtomicInteger runs = new AtomicInteger();
+        idempotencyStore.execute("other@example.com", "reused-key", "return:7", Void.class, () -> {
+            runs.incrementAndGet();
+            return ResponseEntity.noContent().build();
+        });
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void failedRequestReleasesTheKey() {
+        assertThrows(IllegalStateException.class, () -> idempotencyStore.execute(EMAIL, "failing-key", "renew:7",
+                Void.class, () -> {
+                    throw new IllegalStateException("Database unavailable");
+                }));
+
+        AtomicInteger runs = new AtomicInteger();
+        idempotencyStore.execute(EMAIL, "failing-key", "renew:7", Void.class, () -> {
+            runs.incrementAndGet();
+            return ResponseEntity.noContent().build();
+        });
+        assertEquals(1, runs.get());
+    }
+
+    private static Book book(int copiesAvailable) {
+        Book book = new Book();
+        book.setId(7L);
+        book.setTitle("Dune");
+        book.setCopies(5);
+        book.setCopiesAvailable(copiesAvailable);
+        return book;
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().findAndRegisterModules();
+        }
+    }
+}
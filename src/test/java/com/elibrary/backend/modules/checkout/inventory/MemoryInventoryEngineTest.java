@@ -0,0 +1,293 @@
+package com.elibrary.backend.modules.checkout.inventory;
+
+import com.elibrary.backend.common.exceptions.ResourceNotFoundExceptions;
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.checkout.repository.CheckoutRepository;
+import com.elibrary.backend.modules.checkout.repository.InventoryCheckpointRepository;
+import com.elibrary.backend.modules.user.entity.User;
+import com.elibrary.backend.modules.user.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the in-memory inventory engine never oversells, keeps nothing from rolled back transactions and that
+ * its journal survives a crash
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MemoryInventoryEngineTest {
+
+    private static final int COPIES = 40;
+
+    private static final int BORROWERS = 1000;
+
+    @TempDir
+    private Path journalDirectory;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CheckoutRepository checkoutRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private InventoryCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        checkoutRepository.deleteAll();
+        checkpointRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentCheckoutsNeverOversell() throws Exception {
+        Long bookId = saveBook();
+        List<User> borrowers = saveUsers(BORROWERS);
+        MemoryInventoryEngine engine = newEngine();
+        LocalDate today = LocalDate.now();
+
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (User borrower : borrowers) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    engine.checkout(borrower, bookId, today, today.plusDays(7));
+                    return true;
+                } catch (ResourceNotFoundExceptions ex) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+
+        int granted = 0;
+        for (Future<Boolean> future : futures) {
+            granted += future.get(60, TimeUnit.SECONDS) ? 1 : 0;
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(COPIES, granted);
+
+        // Nothing reaches the database until the write-behind flush runs
+        engine.flush();
+        assertEquals(COPIES, checkoutRepository.count());
+        assertEquals(0, bookRepository.findById(bookId).orElseThrow().getCopiesAvailable());
+        engine.shutdown();
+    }
+
+    @Test
+    void journalIsReplayedOnceAfterCrash() throws Exception {
+        Long bookId = saveBook();
+        List<User> borrowers = saveUsers(5);
+        LocalDate today = LocalDate.now();
+
+        // Grant checkouts and a return, then drop the engine without flushing
+        MemoryInventoryEngine crashed = newEngine();
+        for (User borrower : borrowers) {
+            crashed.checkout(borrower, bookId, today, today.plusDays(7));
+        }
+        crashed.release(bookId);
+        assertEquals(0, checkoutRepository.count());
+        assertEquals(COPIES, bookRepository.findById(bookId).orElseThrow().getCopiesAvailable());
+
+        // A new engine replays the journal on startup
+        MemoryInventoryEngine recovered = newEngine();
+        assertEquals(5, checkoutRepository.count());
+        assertEquals(COPIES - 4, bookRepository.findById(bookId).orElseThrow().getCopiesAvailable());
+        recovered.shutdown();
+
+        // Replaying again after a clean shutdown applies nothing twice
+        MemoryInventoryEngine restarted = newEngine();
+        assertEquals(5, checkoutRepository.count());
+        assertEquals(COPIES - 4, bookRepository.findById(bookId).orElseThrow().getCopiesAvailable());
+        restarted.shutdown();
+    }
+
+    @Test
+    void rolledBackChangesLeaveNothingBehind() throws Exception {
+        Long bookId = saveBook();
+        User borrower = saveUsers(1).get(0);
+        LocalDate today = LocalDate.now();
+        MemoryInventoryEngine engine = newEngine();
+
+        // A checkout whose transaction rolls back holds the copy only until the rollback
+        transactionTemplate.executeWithoutResult(status -> {
+            assertEquals(COPIES - 1, engine.checkout(borrower, bookId, today, today.plusDays(7)));
+            assertTrue(engine.hasPendingLoan(borrower, bookId));
+            status.setRollbackOnly();
+        });
+        assertFalse(engine.hasPendingLoan(borrower, bookId));
+
+        // The same user can borrow again, and this time it commits
+        transactionTemplate.executeWithoutResult(status ->
+                assertEquals(COPIES - 1, engine.checkout(borrower, bookId, today, today.plusDays(7))));
+
+        // A return whose transaction rolls back puts no copy back
+        transactionTemplate.executeWithoutResult(status -> {
+            assertEquals(COPIES, engine.release(bookId).orElseThrow());
+            status.setRollbackOnly();
+        });
+
+        engine.flush();
+        assertEquals(1, checkoutRepository.count());
+        assertEquals(COPIES - 1, bookRepository.findById(bookId).orElseThrow().getCopiesAvailable());
+
+        // Nothing from the rolled back transactions was journaled either
+        engine.shutdown();
+        MemoryInventoryEngine restarted = newEngine();
+        assertEquals(1, checkoutRepository.count());
+        assertEquals(COPIES - 1, bookRepository.findById(bookId).orElseThrow().getCopiesAvailable());
+        restarted.shutdown();
+    }
+
+    @Test
+    void returnIsJournaledBeforeItsTransactionCommits() throws Exception {
+        Long bookId = saveBook();
+        User borrower = saveUsers(1).get(0);
+        LocalDate today = LocalDate.now();
+        MemoryInventoryEngine engine = newEngine();
+        engine.checkout(borrower, bookId, today, today.plusDays(7));
+
+        // Registered after the engine, so it runs once the engine has prepared and before the database commits
+        List<String> journalAtCommit = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            engine.release(bookId);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    journalAtCommit.addAll(readJournal());
+                }
+            });
+        });
+
+        assertTrue(journalAtCommit.stream().anyMatch(line -> line.contains(" RELEASE " + bookId + " ")));
+
+        // A crash right after the commit still brings the copy back
+        MemoryInventoryEngine recovered = newEngine();
+        assertEquals(1, checkoutRepository.count());
+        assertEquals(COPIES, bookRepository.findById(bookId).orElseThrow().getCopiesAvailable());
+        recovered.shutdown();
+    }
+
+    @Test
+    void changeJournaledBeforeAFailedCommitIsNeverReplayed() throws Exception {
+        Long bookId = saveBook();
+        User borrower = saveUsers(1).get(0);
+        LocalDate today = LocalDate.now();
+        MemoryInventoryEngine engine = newEngine();
+
+        // The checkout is journaled, then a later step of the commit fails
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            engine.checkout(borrower, bookId, today, today.plusDays(7));
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    throw new IllegalStateException("Commit failed");
+                }
+            });
+        }));
+        assertFalse(engine.hasPendingLoan(borrower, bookId));
+        assertTrue(readJournal().stream().anyMatch(line -> line.contains(" ABORT " + bookId + " ")));
+
+        // A crash does not replay it
+        MemoryInventoryEngine recovered = newEngine();
+        assertEquals(0, checkoutRepository.count());
+        assertEquals(COPIES, bookRepository.findById(bookId).orElseThrow().getCopiesAvailable());
+
+        // Nor does the flush write it, while a later checkout behind it is written
+        engine.checkout(borrower, bookId, today, today.plusDays(7));
+        engine.flush();
+        assertEquals(1, checkoutRepository.count());
+        assertEquals(COPIES - 1, bookRepository.findById(bookId).orElseThrow().getCopiesAvailable());
+        recovered.shutdown();
+    }
+
+    private List<String> readJournal() {
+        try {
+            return Files.readAllLines(journalDirectory.resolve("inventory.journal"));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private MemoryInventoryEngine newEngine() {
+        MemoryInventoryEngine engine = new MemoryInventoryEngine(bookRepository, checkoutRepository, userRepository,
+                checkpointRepository, transactionManager, eventPublisher, journalDirectory.resolve("inventory.journal").toString(), 100);
+        engine.recover();
+        return engine;
+    }
+
+    private Long saveBook() {
+        Book book = new Book();
+        book.setTitle("Project Hail Mary");
+        book.setAuthor("Andy Weir");
+        book.setDescription("Launch day title");
+        book.setCategory("Science Fiction");
+        book.setCopies(COPIES);
+        book.setCopiesAvailable(COPIES);
+        return bookRepository.save(book).getId();
+    }
+
+    private List<User> saveUsers(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(User.builder()
+                    .userId("user-" + i)
+                    .email("reader" + i + "@example.com")
+                    .name("Reader " + i)
+                    .password("secret")
+                    .role("USER")
+                    .build());
+        }
+        return userRepository.saveAll(users);
+    }
+}
@@ -0,0 +1,194 @@
+package com.elibrary.backend.modules.checkout.reminder;
+
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.checkout.dto.LoanReminderDTO;
+import com.elibrary.backend.modules.checkout.entity.Checkout;
+import com.elibrary.backend.modules.checkout.enums.ReminderType;
+import com.elibrary.backend.modules.checkout.event.LoanDueDateChangedEvent;
+import com.elibrary.backend.modules.checkout.repository.CheckoutRepository;
+import com.elibrary.backend.modules.user.entity.User;
+import com.elibrary.backend.modules.user.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that reminders loaded from open loans go out once, for the right loans, follow due date changes and
+ * survive a chunk that fails to send
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "elibrary.reminders.send-hour=0",
+        "elibrary.reminders.chunk-size=2"
+})
+@Import({LoanReminderScheduler.class, LoanReminderSchedulerTest.Config.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LoanReminderSchedulerTest {
+
+    @Autowired
+    private LoanReminderScheduler loanReminderScheduler;
+
+    @Autowired
+    private RecordingSender sender;
+
+    @Autowired
+    private CheckoutRepository checkoutRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        checkoutRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+        sender.reminders.clear();
+    }
+
+    @Test
+    void sendsEachDueReminderOnce() {
+        LocalDate today = LocalDate.now();
+        User user = userRepository.save(User.builder()
+                .userId("user-1")
+                .email("reader@example.com")
+                .name("Reader")
+                .password("secret")
+                .role("USER")
+                .build());
+
+        Long dueTomorrow = saveBook("Dune");
+        Long overdue = saveBook("Emma");
+        Long dueLater = saveBook("Ulysses");
+        Long returned = saveBook("Beloved");
+        checkoutRepository.saveAll(List.of(
+                checkout(user, dueTomorrow, today.plusDays(1), null),
+                checkout(user, overdue, today.minusDays(5), null),
+                checkout(user, dueLater, today.plusDays(30), null),
+                checkout(user, returned, today.minusDays(5), today.minusDays(6))));
+
+        loanReminderScheduler.load();
+        assertEquals(3, loanReminderScheduler.getPendingCount());
+
+        loanReminderScheduler.tick();
+
+        Map<String, ReminderType> sent = sender.reminders.stream()
+                .collect(Collectors.toMap(LoanReminderDTO::bookTitle, LoanReminderDTO::type));
+        assertEquals(Map.of("Dune", ReminderType.DUE_SOON, "Emma", ReminderType.OVERDUE), sent);
+        assertEquals("reader@example.com", sender.reminders.get(0).userEmail());
+        assertEquals(ReminderType.DUE_SOON, checkoutRepository.findByUserAndBookId(user, dueTomorrow).getLastReminder());
+
+        // The loan due tomorrow now waits for its overdue reminder, nothing goes out twice
+        assertEquals(2, loanReminderScheduler.getPendingCount());
+        loanReminderScheduler.tick();
+        assertEquals(2, sender.reminders.size());
+
+        // Ending a loan drops its reminder, loading again after a restart sends nothing already sent
+        loanReminderScheduler.onDueDateChanged(new LoanDueDateChangedEvent(user.getId(), dueLater, null));
+        assertEquals(1, loanReminderScheduler.getPendingCount());
+        loanReminderScheduler.load();
+        loanReminderScheduler.tick();
+        assertEquals(2, sender.reminders.size());
+    }
+
+    @Test
+    void failedChunkIsRetriedAndStillMovesOnToTheOverdueReminder() throws InterruptedException {
+        LocalDate today = LocalDate.now();
+        User user = userRepository.save(User.builder()
+                .userId("user-1")
+                .email("reader@example.com")
+                .name("Reader")
+                .password("secret")
+                .role("USER")
+                .build());
+        Long dueTomorrow = saveBook("Dune");
+        checkoutRepository.save(checkout(user, dueTomorrow, today.plusDays(1), null));
+
+        // A scheduler of its own with one millisecond ticks, so the retry is due almost at once
+        RecordingSender failingSender = new RecordingSender();
+        LoanReminderScheduler scheduler = new LoanReminderScheduler(checkoutRepository, userRepository,
+                bookRepository, failingSender, transactionTemplate, 1, 0, 2);
+        scheduler.load();
+
+        // The reminder is recorded on the loan but the sender fails, the chunk goes back into the wheel
+        failingSender.failures.set(1);
+        scheduler.tick();
+        assertEquals(0, failingSender.reminders.size());
+        assertEquals(1, scheduler.getPendingCount());
+
+        // One tick later the recorded reminder is not sent again and the loan waits for its overdue reminder
+        Thread.sleep(10);
+        scheduler.tick();
+        assertEquals(0, failingSender.reminders.size());
+        assertEquals(ReminderType.DUE_SOON, checkoutRepository.findByUserAndBookId(user, dueTomorrow).getLastReminder());
+        assertEquals(1, scheduler.getPendingCount());
+
+        Thread.sleep(10);
+        scheduler.tick();
+        assertEquals(1, scheduler.getPendingCount());
+    }
+
+    private Long saveBook(String title) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor("Author");
+        return bookRepository.save(book).getId();
+    }
+
+    private static Checkout checkout(User user, Long bookId, LocalDate returnDate, LocalDate returnedDate) {
+        Checkout checkout = new Checkout();
+        checkout.setUser(user);
+        checkout.setBookId(bookId);
+        checkout.setCheckoutDate(returnDate.minusDays(7));
+        checkout.setReturnDate(returnDate);
+        checkout.setReturnedDate(returnedDate);
+        return checkout;
+    }
+
+    static class RecordingSender implements ReminderSender {
+
+        private final List<LoanReminderDTO> reminders = new CopyOnWriteArrayList<>();
+
+        private final AtomicInteger failures = new AtomicInteger();
+
+        @Override
+        public void send(LoanReminderDTO reminder) {
+            if (failures.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+                throw new IllegalStateException("Mail server unavailable");
+            }
+            reminders.add(reminder);
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        RecordingSender recordingSender() {
+            return new RecordingSender();
+        }
+    }
+}
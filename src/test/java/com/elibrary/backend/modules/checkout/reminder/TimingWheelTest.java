@@ -0,0 +1,79 @@
+package com.elibrary.backend.modules.checkout.reminder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that timers on every level of the wheel expire on the tick they are due, and cancelled ones never do
+ */
+class TimingWheelTest {
+
+    private static final long TICK = 60_000;
+
+    private static final long START = 1_000_000 * TICK + 17 * TICK;
+
+    @Test
+    void timersExpireOnTheirTick() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(TICK, START);
+        Random random = new Random(42);
+
+        // Deadlines from the current tick to a little over a year out, covering the lower four levels
+        Map<Integer, Long> deadlines = new HashMap<>();
+        List<TimingWheel.Timer<Integer>> timers = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            long deadline = START + (long) (random.nextDouble() * 600_000) * TICK;
+            deadlines.put(i, deadline / TICK);
+            timers.add(wheel.schedule(deadline, i));
+        }
+
+        // Cancel every tenth timer
+        for (int i = 0; i < timers.size(); i += 10) {
+            assertTrue(wheel.cancel(timers.get(i)));
+            assertFalse(wheel.cancel(timers.get(i)));
+            deadlines.remove(i);
+        }
+        assertEquals(deadlines.size(), wheel.size());
+
+        // Advance in uneven steps and check each timer comes out on its own tick, not before and not later
+        long now = START;
+        int expired = 0;
+        while (now <= START + 600_001 * TICK) {
+            long step = (1 + random.nextInt(500)) * TICK;
+            long from = now / TICK;
+            now += step;
+            for (Integer value : wheel.advance(now)) {
+                long deadlineTick = deadlines.get(value);
+                assertTrue(deadlineTick > from && deadlineTick <= now / TICK
+                                || deadlineTick == START / TICK && from == START / TICK,
+                        "Timer due at tick " + deadlineTick + " expired between " + from + " and " + now / TICK);
+                expired++;
+            }
+        }
+
+        assertEquals(deadlines.size(), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void pastDeadlinesExpireOnTheNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, START);
+        wheel.advance(START + 5 * TICK);
+
+        wheel.schedule(START - 365 * 24 * 60 * TICK, "overdue");
+        TimingWheel.Timer<String> cancelled = wheel.schedule(START, "cancelled");
+        wheel.cancel(cancelled);
+
+        // The clock has not moved on a tick, the overdue timer still goes out
+        assertEquals(List.of("overdue"), wheel.advance(START + 5 * TICK));
+        assertEquals(List.of(), wheel.advance(START + 6 * TICK));
+    }
+}
@@ -0,0 +1,165 @@
+package com.elibrary.backend.modules.checkout.status;
+
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.checkout.dto.LoanStatusSweepDTO;
+import com.elibrary.backend.modules.checkout.entity.Checkout;
+import com.elibrary.backend.modules.checkout.enums.LoanStatus;
+import com.elibrary.backend.modules.checkout.repository.CheckoutRepository;
+import com.elibrary.backend.modules.user.entity.User;
+import com.elibrary.backend.modules.user.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the loan status sweeper stores the right status for every active loan across several chunks, and only
+ * writes the loans whose status changed
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "elibrary.checkout.status-sweep.chunk-size=7"
+})
+@Import(LoanStatusSweeper.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LoanStatusSweeperTest {
+
+    @Autowired
+    private LoanStatusSweeper loanStatusSweeper;
+
+    @Autowired
+    private CheckoutRepository checkoutRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @AfterEach
+    void cleanUp() {
+        checkoutRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void sweepStoresStatusFromDueDate() {
+        LocalDate today = LocalDate.now();
+        User user = userRepository.save(User.builder()
+                .userId("user-1")
+                .email("reader@example.com")
+                .name("Reader")
+                .password("secret")
+                .role("USER")
+                .build());
+
+        // Due dates from ten days overdue to ten days out, all stored as active, plus returned loans
+        List<Checkout> checkouts = new ArrayList<>();
+        for (int offset = -10; offset <= 10; offset++) {
+            checkouts.add(checkout(user, today.plusDays(offset), null));
+        }
+        for (int i = 0; i < 3; i++) {
+            Checkout returned = checkout(user, today.minusDays(5), today.minusDays(1));
+            returned.setLoanStatus(LoanStatus.RETURNED);
+            checkouts.add(returned);
+        }
+        checkoutRepository.saveAll(checkouts);
+
+        loanStatusSweeper.sweep();
+
+        for (Checkout checkout : checkoutRepository.findAll()) {
+            assertEquals(expectedStatus(checkout, today), checkout.getLoanStatus(),
+                    "Loan due " + checkout.getReturnDate());
+
+            // Renewals store the status with the same rule in Java
+            if (checkout.getReturnedDate() == null) {
+                assertEquals(LoanStatus.fromDueDate(checkout.getReturnDate(), today), checkout.getLoanStatus());
+            }
+        }
+
+        // Loans due more than the due soon window out were stored as active already
+        LoanStatusSweepDTO sweep = loanStatusSweeper.getLastSweep().orElseThrow();
+        assertEquals(21, sweep.rowsScanned());
+        assertEquals(21 - (10 - LoanStatus.DUE_SOON_DAYS), sweep.rowsUpdated());
+        assertEquals(3, sweep.chunks());
+
+        // A second sweep on the same day finds nothing to change
+        loanStatusSweeper.sweep();
+        assertEquals(0, loanStatusSweeper.getLastSweep().orElseThrow().rowsUpdated());
+    }
+
+    @Test
+    void sweepFillsMissingStatusAndFeedsStatusFilters() {
+        LocalDate today = LocalDate.now();
+        LocalDate dueSoon = today.plusDays(LoanStatus.DUE_SOON_DAYS);
+        User user = userRepository.save(User.builder()
+                .userId("user-1")
+                .email("reader@example.com")
+                .name("Reader")
+                .password("secret")
+                .role("USER")
+                .build());
+        Book book = new Book();
+        book.setTitle("Dune");
+        book.setAuthor("Frank Herbert");
+        Long bookId = bookRepository.save(book).getId();
+
+        // Rows from before the status column existed have no stored status
+        List<Checkout> checkouts = new ArrayList<>();
+        for (int offset = -2; offset <= 5; offset++) {
+            Checkout checkout = checkout(user, today.plusDays(offset), null);
+            checkout.setBookId(bookId);
+            checkout.setLoanStatus(null);
+            checkouts.add(checkout);
+        }
+        checkoutRepository.saveAll(checkouts);
+
+        loanStatusSweeper.sweep();
+        assertEquals(8, loanStatusSweeper.getLastSweep().orElseThrow().rowsUpdated());
+
+        PageRequest page = PageRequest.of(0, 20, Sort.by("returnDate", "id"));
+        assertEquals(2, checkoutRepository.findOpenLoanOverviewsByStatus(LoanStatus.OVERDUE, today, dueSoon, page)
+                .getTotalElements());
+        assertEquals(LoanStatus.DUE_SOON_DAYS + 1, checkoutRepository.findOpenLoanOverviewsByStatus(
+                LoanStatus.DUE_SOON, today, dueSoon, page).getTotalElements());
+        assertEquals(5 - LoanStatus.DUE_SOON_DAYS, checkoutRepository.findOpenLoanOverviewsByStatus(
+                LoanStatus.ACTIVE, today, dueSoon, page).getTotalElements());
+    }
+
+    private static Checkout checkout(User user, LocalDate returnDate, LocalDate returnedDate) {
+        Checkout checkout = new Checkout();
+        checkout.setUser(user);
+        checkout.setBookId(1L);
+        checkout.setCheckoutDate(returnDate.minusDays(7));
+        checkout.setReturnDate(returnDate);
+        checkout.setReturnedDate(returnedDate);
+        return checkout;
+    }
+
+    private static LoanStatus expectedStatus(Checkout checkout, LocalDate today) {
+        if (checkout.getReturnedDate() != null) {
+            return LoanStatus.RETURNED;
+        }
+        if (checkout.getReturnDate().isBefore(today)) {
+            return LoanStatus.OVERDUE;
+        }
+        if (!checkout.getReturnDate().isAfter(today.plusDays(LoanStatus.DUE_SOON_DAYS))) {
+            return LoanStatus.DUE_SOON;
+        }
+        return LoanStatus.ACTIVE;
+    }
+}
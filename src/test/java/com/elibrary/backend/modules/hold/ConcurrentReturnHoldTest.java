@@ -0,0 +1,224 @@
+package com.elibrary.backend.modules.hold;
+
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.book.search.CatalogIndex;
+import com.elibrary.backend.modules.checkout.inventory.DatabaseInventoryEngine;
+import com.elibrary.backend.modules.checkout.inventory.InventoryEngine;
+import com.elibrary.backend.modules.checkout.repository.CheckoutRepository;
+import com.elibrary.backend.modules.checkout.service.CheckoutService;
+import com.elibrary.backend.modules.checkout.service.Impl.CheckoutServiceImpl;
+import com.elibrary.backend.modules.checkout.status.LoanStatusSweeper;
+import com.elibrary.backend.modules.hold.dto.HoldDTO;
+import com.elibrary.backend.modules.hold.entity.Hold;
+import com.elibrary.backend.modules.hold.enums.HoldStatus;
+import com.elibrary.backend.modules.hold.repository.HoldRepository;
+import com.elibrary.backend.modules.hold.service.HoldService;
+import com.elibrary.backend.modules.hold.service.Impl.HoldServiceImpl;
+import com.elibrary.backend.modules.user.cache.UserBookStateCache;
+import com.elibrary.backend.modules.user.entity.User;
+import com.elibrary.backend.modules.user.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that two returns racing for the same hold queue never spin on a hold the other one served, under
+ * repeatable read where a return keeps reading the snapshot taken before the other one committed
+ * H2 refuses to lock rows changed since the snapshot where InnoDB reads their latest version, so InnoDB's
+ * behaviour without the lock is modelled with a stub repository
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:hold-returns;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.transaction-isolation=TRANSACTION_REPEATABLE_READ",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({CheckoutServiceImpl.class, DatabaseInventoryEngine.class, LoanStatusSweeper.class, HoldServiceImpl.class,
+        UserBookStateCache.class, ConcurrentReturnHoldTest.Config.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ConcurrentReturnHoldTest {
+
+    @Autowired
+    private CheckoutService checkoutService;
+
+    @Autowired
+    private HoldService holdService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private HoldRepository holdRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CheckoutRepository checkoutRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserBookStateCache userBookStateCache;
+
+    @AfterEach
+    void cleanUp() {
+        holdRepository.deleteAll();
+        checkoutRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+        userBookStateCache.clear();
+    }
+
+    @Test
+    void returnOnAStaleSnapshotServesTheNextHold() {
+        Long bookId = saveBook();
+        saveUser("a@example.com");
+        saveUser("b@example.com");
+        saveUser("c@example.com");
+        saveUser("d@example.com");
+
+        checkoutService.checkoutBookForUser("a@example.com", bookId);
+        checkoutService.checkoutBookForUser("b@example.com", bookId);
+        HoldDTO first = holdService.placeHold("c@example.com", bookId);
+        HoldDTO second = holdService.placeHold("d@example.com", bookId);
+
+        // B's return either serves the next hold or, where the database refuses to lock a row changed since the
+        // snapshot, rolls back with a lock failure the client can retry. It never keeps retrying the served hold
+        boolean rolledBack = false;
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(30), () -> transactionTemplate.executeWithoutResult(status -> {
+
+                // Take the snapshot while C is still at the head of the queue
+                assertEquals(HoldStatus.WAITING, holdRepository.findById(first.id()).orElseThrow().getStatus());
+
+                // A returns and commits in another transaction, the copy goes to C
+                CompletableFuture.runAsync(() -> checkoutService.returnBookForUser("a@example.com", bookId))
+                        .orTimeout(10, TimeUnit.SECONDS)
+                        .join();
+
+                // B returns on the old snapshot, which still shows C waiting
+                checkoutService.returnBookForUser("b@example.com", bookId);
+            }));
+        } catch (CannotAcquireLockException ex) {
+            rolledBack = true;
+        }
+
+        // C keeps the copy A returned, D gets B's copy unless B's return was rolled back, no copy reaches the shelf
+        User b = userRepository.findByEmail("b@example.com").orElseThrow();
+        assertEquals(HoldStatus.READY, holdRepository.findById(first.id()).orElseThrow().getStatus());
+        assertEquals(rolledBack ? HoldStatus.WAITING : HoldStatus.READY,
+                holdRepository.findById(second.id()).orElseThrow().getStatus());
+        assertEquals(rolledBack, checkoutRepository.findByUserAndBookId(b, bookId).getReturnedDate() == null);
+        assertEquals(0, bookRepository.findById(bookId).orElseThrow().getCopiesAvailable());
+    }
+
+    @Test
+    void staleHeadOfQueueIsNotRetried() {
+
+        // Model InnoDB repeatable read without a lock: the read keeps returning the snapshot where both holds
+        // wait, while the conditional update sees the latest row, where C was already served by another return
+        Hold served = hold(1L, "c@example.com");
+        Hold next = hold(2L, "d@example.com");
+        List<Hold> snapshot = List.of(served, next);
+
+        HoldRepository holds = mock(HoldRepository.class);
+        when(holds.findFirstByBookIdAndStatusAndIdGreaterThanOrderByIdAsc(eq(7L), eq(HoldStatus.WAITING), anyLong()))
+                .thenAnswer(call -> snapshot.stream().filter(hold -> hold.getId() > call.<Long>getArgument(2)).findFirst());
+        when(holds.updateStatus(eq(1L), any(), any(), any(), any())).thenReturn(0);
+        when(holds.updateStatus(eq(2L), any(), any(), any(), any())).thenReturn(1);
+        BookRepository books = mock(BookRepository.class);
+        when(books.findById(7L)).thenReturn(Optional.empty());
+        InventoryEngine inventory = mock(InventoryEngine.class);
+
+        HoldServiceImpl service = new HoldServiceImpl(holds, books, mock(CheckoutRepository.class),
+                mock(UserRepository.class), inventory, List.of(), mock(ApplicationEventPublisher.class),
+                mock(TransactionTemplate.class), 48);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> service.passOnReturnedCopy(7L));
+        verify(holds).updateStatus(eq(2L), eq(HoldStatus.WAITING), eq(HoldStatus.READY), any(), any());
+        verify(inventory, never()).release(anyLong());
+    }
+
+    private static Hold hold(Long id, String email) {
+        Hold hold = new Hold();
+        hold.setId(id);
+        hold.setBookId(7L);
+        hold.setUser(User.builder().email(email).build());
+        return hold;
+    }
+
+    private Long saveBook() {
+        Book book = new Book();
+        book.setTitle("Dune");
+        book.setAuthor("Frank Herbert");
+        book.setCopies(2);
+        book.setCopiesAvailable(2);
+        return bookRepository.save(book).getId();
+    }
+
+    private void saveUser(String email) {
+        userRepository.save(User.builder()
+                .userId(email)
+                .email(email)
+                .name(email)
+                .password("secret")
+                .role("USER")
+                .build());
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        // The services notify the catalog indexes, which are not part of this test
+        @Bean
+        CatalogIndex noopCatalogIndex() {
+            return new CatalogIndex() {
+                @Override
+                public void clear() {
+                }
+
+                @Override
+                public void index(Book book) {
+                }
+
+                @Override
+                public void remove(Long bookId) {
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.elibrary.backend.modules.hold;
+
+import com.elibrary.backend.common.exceptions.ResourceNotFoundExceptions;
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.book.search.CatalogIndex;
+import com.elibrary.backend.modules.checkout.dto.BookStatusDTO;
+import com.elibrary.backend.modules.checkout.inventory.DatabaseInventoryEngine;
+import com.elibrary.backend.modules.checkout.repository.CheckoutRepository;
+import com.elibrary.backend.modules.checkout.service.CheckoutService;
+import com.elibrary.backend.modules.checkout.service.Impl.CheckoutServiceImpl;
+import com.elibrary.backend.modules.checkout.status.LoanStatusSweeper;
+import com.elibrary.backend.modules.hold.dto.HoldDTO;
+import com.elibrary.backend.modules.hold.entity.Hold;
+import com.elibrary.backend.modules.hold.enums.HoldStatus;
+import com.elibrary.backend.modules.hold.event.HoldChangedEvent;
+import com.elibrary.backend.modules.hold.exception.HoldNotAllowedException;
+import com.elibrary.backend.modules.hold.repository.HoldRepository;
+import com.elibrary.backend.modules.hold.service.HoldService;
+import com.elibrary.backend.modules.hold.service.Impl.HoldServiceImpl;
+import com.elibrary.backend.modules.user.cache.UserBookStateCache;
+import com.elibrary.backend.modules.user.entity.User;
+import com.elibrary.backend.modules.user.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that a returned copy goes to the head of the hold queue and back to the shelf when a pickup expires,
+ * and that holds show up in the batch book status
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Import({CheckoutServiceImpl.class, DatabaseInventoryEngine.class, LoanStatusSweeper.class, HoldServiceImpl.class,
+        UserBookStateCache.class, HoldServiceTest.Config.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class HoldServiceTest {
+
+    @Autowired
+    private CheckoutService checkoutService;
+
+    @Autowired
+    private HoldService holdService;
+
+    @Autowired
+    private HoldRepository holdRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CheckoutRepository checkoutRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RecordingListener listener;
+
+    @Autowired
+    private UserBookStateCache userBookStateCache;
+
+    @AfterEach
+    void cleanUp() {
+        holdRepository.deleteAll();
+        checkoutRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+        listener.events.clear();
+        userBookStateCache.clear();
+    }
+
+    @Test
+    void returnedCopyIsSetAsideForTheHeadOfTheQueue() {
+        Long bookId = saveBook();
+        saveUser("a@example.com");
+        saveUser("b@example.com");
+        saveUser("c@example.com");
+        saveUser("d@example.com");
+
+        checkoutService.checkoutBookForUser("a@example.com", bookId);
+
+        // B and D queue up in order, A cannot hold a book they already have
+        HoldDTO first = holdService.placeHold("b@example.com", bookId);
+        HoldDTO second = holdService.placeHold("d@example.com", bookId);
+        assertEquals(1, first.position());
+        assertEquals(2, second.position());
+        assertThrows(HoldNotAllowedException.class, () -> holdService.placeHold("a@example.com", bookId));
+
+        // The copy A returns goes to B, not to the shelf
+        checkoutService.returnBookForUser("a@example.com", bookId);
+        assertEquals(0, bookRepository.findById(bookId).orElseThrow().getCopiesAvailable());
+        assertEquals(HoldStatus.READY, holdRepository.findById(first.id()).orElseThrow().getStatus());
+        assertEquals(1, listener.events.size());
+        assertEquals("b@example.com", listener.events.get(0).userEmail());
+        assertEquals(HoldStatus.READY, listener.events.get(0).hold().status());
+
+        // Someone who is not at the head of the queue cannot take it
+        assertThrows(ResourceNotFoundExceptions.class, () -> checkoutService.checkoutBookForUser("c@example.com", bookId));
+
+        // B picks the copy up and D moves to the front
+        checkoutService.checkoutBookForUser("b@example.com", bookId);
+        assertEquals(HoldStatus.FULFILLED, holdRepository.findById(first.id()).orElseThrow().getStatus());
+        assertEquals(0, bookRepository.findById(bookId).orElseThrow().getCopiesAvailable());
+        assertEquals(1, holdService.getHoldsForUser("d@example.com").get(0).position());
+    }
+
+    @Test
+    void expiredPickupReturnsTheCopyToTheShelf() {
+        Long bookId = saveBook();
+        saveUser("a@example.com");
+        saveUser("b@example.com");
+
+        checkoutService.checkoutBookForUser("a@example.com", bookId);
+        HoldDTO hold = holdService.placeHold("b@example.com", bookId);
+        checkoutService.returnBookForUser("a@example.com", bookId);
+
+        // Move the pickup window into the past
+        Hold ready = holdRepository.findById(hold.id()).orElseThrow();
+        ready.setExpiresAt(new Timestamp(System.currentTimeMillis() - 1000));
+        holdRepository.save(ready);
+
+        holdService.expireReadyHolds();
+
+        assertEquals(HoldStatus.EXPIRED, holdRepository.findById(hold.id()).orElseThrow().getStatus());
+        assertEquals(1, bookRepository.findById(bookId).orElseThrow().getCopiesAvailable());
+        assertEquals(HoldStatus.EXPIRED, listener.events.get(listener.events.size() - 1).hold().status());
+    }
+
+    @Test
+    void bookStatusesCombineLoansAndHolds() {
+        Long heldBook = saveBook();
+        Long otherBook = saveBook();
+        saveUser("a@example.com");
+        saveUser("b@example.com");
+
+        checkoutService.checkoutBookForUser("a@example.com", heldBook);
+        holdService.placeHold("b@example.com", heldBook);
+
+        // Repeated and empty ids are dropped, the rest keep the order they were asked for in
+        List<BookStatusDTO> statuses = checkoutService.getBookStatusesForUser("b@example.com",
+                Arrays.asList(otherBook, heldBook, null, otherBook));
+        assertEquals(List.of(
+                new BookStatusDTO(otherBook, false, false, null),
+                new BookStatusDTO(heldBook, false, false, HoldStatus.WAITING)), statuses);
+
+        assertEquals(List.of(new BookStatusDTO(heldBook, true, false, null)),
+                checkoutService.getBookStatusesForUser("a@example.com", List.of(heldBook)));
+        assertThrows(ResourceNotFoundExceptions.class,
+                () -> checkoutService.getBookStatusesForUser("nobody@example.com", List.of(heldBook)));
+    }
+
+    private Long saveBook() {
+        Book book = new Book();
+        book.setTitle("Dune");
+        book.setAuthor("Frank Herbert");
+        book.setDescription("Popular title");
+        book.setCategory("Science Fiction");
+        book.setCopies(1);
+        book.setCopiesAvailable(1);
+        return bookRepository.save(book).getId();
+    }
+
+    private void saveUser(String email) {
+        userRepository.save(User.builder()
+                .userId(email)
+                .email(email)
+                .name(email)
+                .password("secret")
+                .role("USER")
+                .build());
+    }
+
+    static class RecordingListener {
+
+        private final List<HoldChangedEvent> events = new CopyOnWriteArrayList<>();
+
+        @TransactionalEventListener(fallbackExecution = true)
+        void onHoldChanged(HoldChangedEvent event) {
+            events.add(event);
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        RecordingListener recordingListener() {
+            return new RecordingListener();
+        }
+
+        // The services notify the catalog indexes, which are not part of this test
+        @Bean
+        CatalogIndex noopCatalogIndex() {
+            return new CatalogIndex() {
+                @Override
+                public void clear() {
+                }
+
+                @Override
+                public void index(Book book) {
+                }
+
+                @Override
+                public void remove(Long bookId) {
+                }
+            };
+        }
+    }
+}
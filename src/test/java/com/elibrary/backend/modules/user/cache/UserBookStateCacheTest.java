@@ -0,0 +1,180 @@
+package com.elibrary.backend.modules.user.cache;
+
+import com.elibrary.backend.common.exceptions.ResourceNotFoundExceptions;
+import com.elibrary.backend.modules.book.entity.Book;
+import com.elibrary.backend.modules.book.repository.BookRepository;
+import com.elibrary.backend.modules.book.search.CatalogIndex;
+import com.elibrary.backend.modules.checkout.entity.Checkout;
+import com.elibrary.backend.modules.checkout.inventory.DatabaseInventoryEngine;
+import com.elibrary.backend.modules.checkout.repository.CheckoutRepository;
+import com.elibrary.backend.modules.checkout.service.CheckoutService;
+import com.elibrary.backend.modules.checkout.service.Impl.CheckoutServiceImpl;
+import com.elibrary.backend.modules.checkout.status.LoanStatusSweeper;
+import com.elibrary.backend.modules.hold.service.Impl.HoldServiceImpl;
+import com.elibrary.backend.modules.review.entity.Review;
+import com.elibrary.backend.modules.review.repository.ReviewRepository;
+import com.elibrary.backend.modules.user.entity.User;
+import com.elibrary.backend.modules.user.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the cached loan and review state of a user follows committed checkouts, returns and reviews
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Import({CheckoutServiceImpl.class, DatabaseInventoryEngine.class, LoanStatusSweeper.class, HoldServiceImpl.class,
+        UserBookStateCache.class, UserBookStateCacheTest.Config.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserBookStateCacheTest {
+
+    private static final String EMAIL = "reader@example.com";
+
+    @Autowired
+    private UserBookStateCache userBookStateCache;
+
+    @Autowired
+    private CheckoutService checkoutService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CheckoutRepository checkoutRepository;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void cleanUp() {
+        userBookStateCache.clear();
+        reviewRepository.deleteAll();
+        checkoutRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void cachedStateFollowsCommittedChanges() {
+        User user = saveUser();
+        Long first = saveBook("Dune");
+        Long second = saveBook("Emma");
+
+        // The first access loads the empty state of the user
+        assertFalse(checkoutService.isBookCheckedOutByUser(EMAIL, first));
+        assertEquals(0, checkoutService.getCurrentLoanCountForUser(EMAIL));
+
+        // A checkout through the service shows up once it commits
+        checkoutService.checkoutBookForUser(EMAIL, first);
+        assertTrue(checkoutService.isBookCheckedOutByUser(EMAIL, first));
+        assertEquals(1, checkoutService.getCurrentLoanCountForUser(EMAIL));
+
+        // A returned book still counts as checked out by the user, but no longer as on loan
+        checkoutService.returnBookForUser(EMAIL, first);
+        assertTrue(checkoutService.isBookCheckedOutByUser(EMAIL, first));
+        assertEquals(0, checkoutService.getCurrentLoanCountForUser(EMAIL));
+
+        // Reads are served from the cache, a row written around the services shows up after an eviction
+        Checkout checkout = new Checkout();
+        checkout.setUser(user);
+        checkout.setBookId(second);
+        checkout.setCheckoutDate(LocalDate.now());
+        checkout.setReturnDate(LocalDate.now().plusDays(7));
+        checkoutRepository.save(checkout);
+        assertFalse(checkoutService.isBookCheckedOutByUser(EMAIL, second));
+        userBookStateCache.evict(EMAIL);
+        assertTrue(checkoutService.isBookCheckedOutByUser(EMAIL, second));
+        assertEquals(1, checkoutService.getCurrentLoanCountForUser(EMAIL));
+
+        // Reviews are loaded with the loans and added as they are posted
+        Review review = new Review();
+        review.setUser(user);
+        review.setBookId(first);
+        review.setRating(4.5);
+        review.setDate(LocalDate.now());
+        reviewRepository.save(review);
+        assertFalse(userBookStateCache.hasReviewed(EMAIL, first));
+        userBookStateCache.reviewAdded(EMAIL, first);
+        assertTrue(userBookStateCache.hasReviewed(EMAIL, first));
+    }
+
+    @Test
+    void rolledBackChangesAreNotApplied() {
+        saveUser();
+        Long bookId = saveBook("Dune");
+        assertEquals(0, userBookStateCache.getActiveLoanCount(EMAIL));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            userBookStateCache.loanStarted(EMAIL, bookId);
+            status.setRollbackOnly();
+        });
+
+        assertFalse(userBookStateCache.hasBorrowed(EMAIL, bookId));
+        assertEquals(0, userBookStateCache.getActiveLoanCount(EMAIL));
+        assertThrows(ResourceNotFoundExceptions.class, () -> userBookStateCache.hasBorrowed("nobody@example.com", bookId));
+    }
+
+    private User saveUser() {
+        return userRepository.save(User.builder()
+                .userId("user-1")
+                .email(EMAIL)
+                .name("Reader")
+                .password("secret")
+                .role("USER")
+                .build());
+    }
+
+    private Long saveBook(String title) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor("Author");
+        book.setCopies(2);
+        book.setCopiesAvailable(2);
+        return bookRepository.save(book).getId();
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        // The checkout service notifies the catalog indexes, which are not part of this test
+        @Bean
+        CatalogIndex noopCatalogIndex() {
+            return new CatalogIndex() {
+                @Override
+                public void clear() {
+                }
+
+                @Override
+                public void index(Book book) {
+                }
+
+                @Override
+                public void remove(Long bookId) {
+                }
+            };
+        }
+    }
+}